@@ -0,0 +1,314 @@
+package com.httye.userinfoapi;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个请求的内存分配检查
+ * 在模拟服务器上启动插件，逐个路由顺序发送请求，用 ThreadMXBean.getThreadAllocatedBytes（通过 {@link ThreadUsageTracker}）
+ * 统计处理请求的线程分配的字节数：HTTP 线程（调度、处理、响应写出）、主线程，以及限流和存储等插件线程。
+ * 主线程和插件后台线程空闲时也会分配，按启动后空闲期间测得的速率扣除。
+ * 每个路由测量多轮取最小值（其他线程的干扰只会使结果偏大），与预算文件比较，超出预算或请求失败时以退出码 1 结束。
+ *
+ * <p>除 {@link PluginHarness} 的参数（--tick-millis 默认改为 1，让主线程查询不必等待 50 毫秒）外：
+ * <ul>
+ *   <li>--routes 逗号分隔的路由名称，不指定时检查所有路由</li>
+ *   <li>--warmup 每个路由预热的请求数（默认 1000），最多 --warmup-seconds 秒（默认 5）</li>
+ *   <li>--requests 每轮测量的请求数（默认 500），最多 --round-seconds 秒（默认 2），分配很多的慢路由以时间为准</li>
+ *   <li>--rounds 测量轮数（默认 3）</li>
+ *   <li>--budgets 预算文件，不指定时使用 jar 中的 allocation-budgets.properties</li>
+ *   <li>--write-budgets 按本次结果乘以 --headroom（默认 1.25）写出参考预算文件，不检查预算</li>
+ *   <li>--out 结果 CSV 文件，不指定时输出到标准输出</li>
+ * </ul>
+ */
+public final class AllocationCheck {
+
+    private static final String DEFAULT_BUDGETS = "/allocation-budgets.properties";
+    private static final String CSV_HEADER = "route,requests,http_bytes,main_bytes,plugin_bytes,total_bytes,budget,used_pct,status";
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ThreadUsageTracker tracker = new ThreadUsageTracker(ManagementFactory.getThreadMXBean());
+    private final PluginHarness harness;
+    private final long seed;
+    // 空闲时各线程分组每纳秒分配的字节数
+    private final double[] idleRates = new double[ThreadUsageTracker.GROUPS.length];
+
+    private AllocationCheck(PluginHarness harness, long seed) {
+        this.harness = harness;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // JDK 的 HTTP 服务器默认不关闭 Nagle 算法，顺序请求每个要多等约 40 毫秒；必须在服务器类加载前设置
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HarnessOptions options = new HarnessOptions(args);
+        options.putDefault("tick-millis", "1");
+        // 虚拟线程的分配无法通过 ThreadMXBean 读取，处理请求必须使用平台线程
+        options.addFirst("set", "advanced.virtual-threads=false");
+        // 与默认配置一样经过限流，但不会被拒绝
+        options.addFirst("set", "rate-limit.enabled=true");
+        options.addFirst("set", "rate-limit.requests-per-minute=1000000000");
+        options.addFirst("set", "rate-limit.requests-per-hour=1000000000");
+
+        Batch warmup = new Batch(options.getInt("warmup", 1000), options.getLong("warmup-seconds", 5));
+        Batch round = new Batch(options.getInt("requests", 500), options.getLong("round-seconds", 2));
+        int rounds = options.getInt("rounds", 3);
+        String writeBudgets = options.getString("write-budgets", null);
+        Properties budgets = writeBudgets == null ? loadBudgets(options.getString("budgets", null)) : new Properties();
+
+        List<Result> results = new ArrayList<>();
+        try (PluginHarness harness = PluginHarness.start(options)) {
+            AllocationCheck check = new AllocationCheck(harness, options.getLong("seed", 42));
+            if (!check.tracker.isAllocationSupported()) {
+                System.err.println("当前 JVM 不支持按线程统计内存分配");
+                System.exit(2);
+            }
+            check.measureIdle(Duration.ofSeconds(2));
+
+            Map<String, LoadRoute> all = LoadRoute.all(harness.playerNames(), options.getInt("batch-size", 10));
+            for (LoadRoute route : selectRoutes(options.getString("routes", null), all)) {
+                Result result = check.measure(route, warmup, round, rounds);
+                result.check(budgets.getProperty(route.name));
+                results.add(result);
+                System.err.println(result.summary());
+            }
+        }
+
+        String out = options.getString("out", null);
+        try (PrintStream stream = out != null
+                ? new PrintStream(new FileOutputStream(out), true, StandardCharsets.UTF_8)
+                : new PrintStream(System.out, true, StandardCharsets.UTF_8)) {
+            stream.println(CSV_HEADER);
+            for (Result result : results) {
+                stream.println(result.csvRow());
+            }
+        }
+
+        if (writeBudgets != null) {
+            writeBudgets(writeBudgets, results, options.getDouble("headroom", 1.25));
+            System.err.println("预算已写入 " + writeBudgets);
+            System.exit(0);
+        }
+
+        List<String> failed = new ArrayList<>();
+        for (Result result : results) {
+            if (result.status.equals("OVER") || result.status.equals("ERROR")) {
+                failed.add(result.route);
+            } else if (result.status.equals("NO_BUDGET")) {
+                System.err.println("警告: 路由 " + result.route + " 没有设置预算");
+            }
+        }
+        if (!failed.isEmpty()) {
+            System.err.println("内存分配检查失败: " + String.join(", ", failed));
+            System.exit(1);
+        }
+        System.err.println("内存分配检查通过");
+        System.exit(0);
+    }
+
+    private static List<LoadRoute> selectRoutes(String spec, Map<String, LoadRoute> all) {
+        if (spec == null) {
+            return new ArrayList<>(all.values());
+        }
+        List<LoadRoute> routes = new ArrayList<>();
+        for (String name : spec.split(",")) {
+            LoadRoute route = all.get(name.trim());
+            if (route == null) {
+                throw new IllegalArgumentException("未知路由: " + name + "，可选: " + all.keySet());
+            }
+            routes.add(route);
+        }
+        return routes;
+    }
+
+    /**
+     * 不发送请求时各线程分组的分配速率
+     */
+    private void measureIdle(Duration duration) throws InterruptedException {
+        long[] before = snapshot();
+        long start = System.nanoTime();
+        Thread.sleep(duration.toMillis());
+        long elapsed = System.nanoTime() - start;
+        long[] after = snapshot();
+        for (int i = 0; i < idleRates.length; i++) {
+            idleRates[i] = (after[i] - before[i]) / (double) elapsed;
+        }
+    }
+
+    private Result measure(LoadRoute route, Batch warmup, Batch round, int rounds) throws InterruptedException {
+        Random random = new Random(seed);
+        Result result = new Result(route.name);
+        send(route, random, warmup, result);
+
+        for (int i = 0; i < rounds; i++) {
+            long[] before = snapshot();
+            long start = System.nanoTime();
+            int sent = send(route, random, round, result);
+            long elapsed = System.nanoTime() - start;
+            long[] after = snapshot();
+
+            long[] perRequest = new long[idleRates.length];
+            for (int group = 0; group < perRequest.length; group++) {
+                long delta = after[group] - before[group] - (long) (idleRates[group] * elapsed);
+                perRequest[group] = Math.max(0, delta) / sent;
+            }
+            result.requests += sent;
+            result.offer(perRequest);
+        }
+        return result;
+    }
+
+    /**
+     * 顺序发送请求直到达到数量或时间上限，返回发送的请求数；失败（连接失败、404 以外的非 2xx）计入 result
+     */
+    private int send(LoadRoute route, Random random, Batch batch, Result result) throws InterruptedException {
+        long deadline = System.nanoTime() + batch.maxNanos;
+        int sent = 0;
+        while (sent < batch.requests && (sent == 0 || System.nanoTime() < deadline)) {
+            sent++;
+            try {
+                HttpResponse<Void> response = client.send(
+                    route.newRequest(random, harness.baseUrl()).timeout(Duration.ofSeconds(10)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+                int status = response.statusCode();
+                if ((status < 200 || status >= 300) && status != 404) {
+                    result.errors++;
+                }
+            } catch (IOException e) {
+                result.errors++;
+            }
+        }
+        return sent;
+    }
+
+    private long[] snapshot() {
+        tracker.sample();
+        return tracker.getTotalAllocatedBytes();
+    }
+
+    private static Properties loadBudgets(String file) throws IOException {
+        Properties budgets = new Properties();
+        try (InputStream in = file != null ? new FileInputStream(file) : AllocationCheck.class.getResourceAsStream(DEFAULT_BUDGETS)) {
+            if (in == null) {
+                throw new IOException("找不到预算文件 " + DEFAULT_BUDGETS);
+            }
+            budgets.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        return budgets;
+    }
+
+    /**
+     * 预算按 256 字节向上取整，避免每次更新都产生大量无意义的改动
+     */
+    private static void writeBudgets(String file, List<Result> results, double headroom) throws IOException {
+        try (PrintStream out = new PrintStream(new FileOutputStream(file), true, StandardCharsets.UTF_8)) {
+            out.println("# 每个请求允许分配的字节数（HTTP 线程、主线程和插件线程合计），超出时 AllocationCheck 失败");
+            out.println("# 由 AllocationCheck --write-budgets 生成：实测值 x " + headroom + "，按 256 字节向上取整，只作为调整预算的起点");
+            for (Result result : results) {
+                long budget = ((long) Math.ceil(result.total() * headroom) + 255) / 256 * 256;
+                out.println(result.route + "=" + budget);
+            }
+        }
+    }
+
+    /**
+     * 一批请求的数量和时间上限
+     */
+    static final class Batch {
+        final int requests;
+        final long maxNanos;
+
+        Batch(int requests, long maxSeconds) {
+            this.requests = requests;
+            this.maxNanos = TimeUnit.SECONDS.toNanos(maxSeconds);
+        }
+    }
+
+    /**
+     * 一个路由的测量结果，每个请求各线程分组分配的字节数
+     */
+    static final class Result {
+        final String route;
+        // 所有测量轮的请求数合计
+        int requests;
+        int errors;
+        long[] perRequest;
+        long budget = -1;
+        String status = "OK";
+
+        Result(String route) {
+            this.route = route;
+        }
+
+        /**
+         * 保留总量最小的一轮
+         */
+        void offer(long[] round) {
+            if (perRequest == null || total(round) < total()) {
+                perRequest = round;
+            }
+        }
+
+        long http() {
+            return perRequest[ThreadUsageTracker.HTTP];
+        }
+
+        long main() {
+            return perRequest[ThreadUsageTracker.MAIN];
+        }
+
+        long plugin() {
+            return perRequest[ThreadUsageTracker.RATE_LIMIT] + perRequest[ThreadUsageTracker.PLUGIN];
+        }
+
+        long total() {
+            return total(perRequest);
+        }
+
+        void check(String budgetValue) {
+            if (errors > 0) {
+                // 失败的请求通常分配得更少，不能据此判断是否超出预算
+                status = "ERROR";
+            } else if (budgetValue == null) {
+                status = "NO_BUDGET";
+            } else {
+                budget = Long.parseLong(budgetValue.trim());
+                status = total() > budget ? "OVER" : "OK";
+            }
+        }
+
+        String summary() {
+            return String.format(Locale.ROOT, "%-18s %8d B/请求（HTTP %d，主线程 %d，插件 %d）预算 %s %s%s",
+                route, total(), http(), main(), plugin(), budget >= 0 ? budget : "-", status,
+                errors > 0 ? "，失败 " + errors + " 次" : "");
+        }
+
+        String csvRow() {
+            return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%s,%s,%s", route, requests, http(), main(), plugin(), total(),
+                budget >= 0 ? String.valueOf(budget) : "", budget > 0 ? String.format(Locale.ROOT, "%.1f", total() * 100.0 / budget) : "",
+                status);
+        }
+
+        // 调用方和 HTTP 客户端的线程属于 other 分组，不计入
+        private static long total(long[] values) {
+            return values[ThreadUsageTracker.HTTP] + values[ThreadUsageTracker.MAIN]
+                + values[ThreadUsageTracker.RATE_LIMIT] + values[ThreadUsageTracker.PLUGIN];
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.httye.userinfoapi;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * 基准测试入口
+ * 参数与 JMH 命令行相同，默认启用 GC 分析器（等同于 -prof gc），结果中的 gc.alloc.rate.norm 为每次操作分配的字节数
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (!hasGcProfiler(commandLine)) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        new Runner(builder.build()).run();
+    }
+
+    private static boolean hasGcProfiler(CommandLineOptions commandLine) {
+        for (ProfilerConfig profiler : commandLine.getProfilers()) {
+            if (profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
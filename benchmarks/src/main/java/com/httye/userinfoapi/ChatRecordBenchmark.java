@@ -0,0 +1,90 @@
+package com.httye.userinfoapi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天记录写入和读取
+ * 每个玩家保留默认的 100 条记录，存储预先写满；mixed 组模拟多个异步聊天线程写入的同时 HTTP 线程读取
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatRecordBenchmark {
+
+    private static final int MAX_RECORDS_PER_PLAYER = 100;
+
+    @Param({"20", "200"})
+    public int players;
+
+    private ChatRecordStore store;
+    private String[] playerNames;
+    private ChatRecordManager.ChatMessage[] messages;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = new ChatRecordStore(MAX_RECORDS_PER_PLAYER);
+        playerNames = new String[players];
+        messages = new ChatRecordManager.ChatMessage[players];
+        for (int i = 0; i < players; i++) {
+            playerNames[i] = "Player" + i;
+            messages[i] = new ChatRecordManager.ChatMessage(playerNames[i], "有人要一起去下界吗？我这里有多余的金装备", "2024-01-01 12:00:00");
+            for (int j = 0; j < MAX_RECORDS_PER_PLAYER; j++) {
+                store.add(playerNames[i], messages[i]);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public int append(Cursor cursor) {
+        int index = Math.floorMod(cursor.next++, players);
+        return store.add(playerNames[index], messages[index]);
+    }
+
+    @Benchmark
+    public List<ChatRecordManager.ChatMessage> readPlayer() {
+        return store.get(playerNames[0], 50);
+    }
+
+    @Benchmark
+    public List<ChatRecordManager.ChatMessage> readAll() {
+        return store.getAll(100);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public int mixedAppend(Cursor cursor) {
+        return append(cursor);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public List<ChatRecordManager.ChatMessage> mixedRead() {
+        return readPlayer();
+    }
+}
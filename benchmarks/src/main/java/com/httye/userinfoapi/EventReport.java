@@ -0,0 +1,153 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 事件模拟结果输出
+ * 每个场景每种触发过的事件一行，场景级的 tick、登录记录写入、内存和磁盘数据在同一场景的各行中重复，
+ * CSV 便于导入表格，JSON 按场景嵌套并包含模拟参数
+ */
+final class EventReport {
+
+    private static final String CSV_HEADER = "phase,event,count,rate,mean_us,p50_us,p99_us,p999_us,max_us,"
+        + "tick_mean_ms,tick_max_ms,online,joined,chat_records,pending_writes,drain_ms,"
+        + "retained_kb,bytes_per_online,login_files,login_kb,login_disk_kb";
+
+    private final Map<String, Object> parameters;
+    private final List<EventSimulation.Phase> phases = new ArrayList<>();
+
+    EventReport(Map<String, Object> parameters) {
+        this.parameters = parameters;
+    }
+
+    void add(EventSimulation.Phase phase) {
+        phases.add(phase);
+    }
+
+    /**
+     * 一个场景的汇总，输出到控制台
+     */
+    static String summary(EventSimulation.Phase phase) {
+        StringBuilder builder = new StringBuilder(String.format(Locale.ROOT, "%s %.1fs", phase.name,
+            phase.elapsedNanos / 1_000_000_000.0));
+        for (EventSimulation.EventStats stats : phase.events.values()) {
+            if (stats.count() > 0) {
+                long[] counts = stats.histogram.snapshotCumulative();
+                builder.append(String.format(Locale.ROOT, " %s=%d(%.0f/s p99=%.1fus max=%.1fus)", stats.name, stats.count(),
+                    rate(phase, stats), stats.percentileMicros(counts, 99), stats.maxNanos.get() / 1000.0));
+            }
+        }
+        builder.append(String.format(Locale.ROOT, " tick=%.2f/%.2fms online=%d pending=%d drain=%.0fms retained=%dKB login=+%d(%dKB)",
+            phase.meanTickMillis(), phase.maxTickMicros.get() / 1000.0, phase.online, phase.pendingWrites, phase.drainMillis,
+            phase.retainedBytes / 1024, phase.disk.files, phase.disk.allocatedBytes / 1024));
+        return builder.toString();
+    }
+
+    void writeCsv(PrintStream out) {
+        out.println(CSV_HEADER);
+        for (EventSimulation.Phase phase : phases) {
+            for (EventSimulation.EventStats stats : phase.events.values()) {
+                if (stats.count() > 0) {
+                    out.println(csvRow(phase, stats));
+                }
+            }
+        }
+    }
+
+    private static String csvRow(EventSimulation.Phase phase, EventSimulation.EventStats stats) {
+        long[] counts = stats.histogram.snapshotCumulative();
+        return String.format(Locale.ROOT, "%s,%s,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%.2f,%.2f,%d,%d,%d,%d,%.1f,%d,%d,%d,%d,%d",
+            phase.name, stats.name, stats.count(), rate(phase, stats), stats.meanMicros(),
+            stats.percentileMicros(counts, 50), stats.percentileMicros(counts, 99), stats.percentileMicros(counts, 99.9),
+            stats.maxNanos.get() / 1000.0, phase.meanTickMillis(), phase.maxTickMicros.get() / 1000.0,
+            phase.online, phase.joined, phase.chatRecords, phase.pendingWrites, phase.drainMillis,
+            phase.retainedBytes / 1024, bytesPerOnline(phase), phase.disk.files, phase.disk.bytes / 1024,
+            phase.disk.allocatedBytes / 1024);
+    }
+
+    void writeJson(PrintStream out) {
+        JsonObject report = new JsonObject();
+        JsonObject params = new JsonObject();
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            params.addProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        report.add("parameters", params);
+
+        JsonArray phaseArray = new JsonArray();
+        for (EventSimulation.Phase phase : phases) {
+            JsonObject json = new JsonObject();
+            json.addProperty("phase", phase.name);
+            json.addProperty("seconds", phase.elapsedNanos / 1_000_000_000.0);
+
+            JsonArray events = new JsonArray();
+            for (EventSimulation.EventStats stats : phase.events.values()) {
+                if (stats.count() > 0) {
+                    events.add(statsJson(phase, stats));
+                }
+            }
+            json.add("events", events);
+
+            JsonObject tick = new JsonObject();
+            tick.addProperty("count", phase.ticks.sum());
+            tick.addProperty("meanMs", phase.meanTickMillis());
+            tick.addProperty("maxMs", phase.maxTickMicros.get() / 1000.0);
+            json.add("tick", tick);
+
+            JsonObject loginWriter = new JsonObject();
+            loginWriter.addProperty("pendingAtEnd", phase.pendingWrites);
+            loginWriter.addProperty("drainMs", phase.drainMillis);
+            json.add("loginWriter", loginWriter);
+
+            JsonObject memory = new JsonObject();
+            memory.addProperty("online", phase.online);
+            memory.addProperty("joined", phase.joined);
+            memory.addProperty("chatRecords", phase.chatRecords);
+            memory.addProperty("retainedBytes", phase.retainedBytes);
+            memory.addProperty("bytesPerOnline", bytesPerOnline(phase));
+            memory.addProperty("bytesPerJoined", phase.joined > 0 ? phase.retainedBytes / phase.joined : 0);
+            json.add("memory", memory);
+
+            JsonObject disk = new JsonObject();
+            disk.addProperty("loginFiles", phase.disk.files);
+            disk.addProperty("loginBytes", phase.disk.bytes);
+            disk.addProperty("loginAllocatedBytes", phase.disk.allocatedBytes);
+            disk.addProperty("bytesPerRecord", phase.disk.files > 0 ? phase.disk.bytes / phase.disk.files : 0);
+            json.add("disk", disk);
+
+            phaseArray.add(json);
+        }
+        report.add("phases", phaseArray);
+
+        out.println(new GsonBuilder().setPrettyPrinting().create().toJson(report));
+    }
+
+    private static JsonObject statsJson(EventSimulation.Phase phase, EventSimulation.EventStats stats) {
+        long[] counts = stats.histogram.snapshotCumulative();
+        JsonObject json = new JsonObject();
+        json.addProperty("event", stats.name);
+        json.addProperty("count", stats.count());
+        json.addProperty("rate", rate(phase, stats));
+        json.addProperty("meanUs", stats.meanMicros());
+        json.addProperty("p50Us", stats.percentileMicros(counts, 50));
+        json.addProperty("p99Us", stats.percentileMicros(counts, 99));
+        json.addProperty("p999Us", stats.percentileMicros(counts, 99.9));
+        json.addProperty("maxUs", stats.maxNanos.get() / 1000.0);
+        return json;
+    }
+
+    private static double rate(EventSimulation.Phase phase, EventSimulation.EventStats stats) {
+        return phase.elapsedNanos > 0 ? stats.count() * 1_000_000_000.0 / phase.elapsedNanos : 0;
+    }
+
+    private static long bytesPerOnline(EventSimulation.Phase phase) {
+        return phase.online > 0 ? phase.retainedBytes / phase.online : 0;
+    }
+}
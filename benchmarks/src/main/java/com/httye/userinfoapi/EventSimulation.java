@@ -0,0 +1,484 @@
+package com.httye.userinfoapi;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * 游戏事件模拟
+ * 在模拟服务器上启动插件，按场景触发登录、加入、聊天和退出事件，测量聊天记录和登录记录管理器在大量玩家下的表现：
+ * 每种事件的监听器耗时和吞吐量、tick 耗时、退出后登录记录写完所需的时间、每个玩家占用的内存和登录记录的磁盘占用。
+ * 登录、加入和退出与服务端一样在主线程触发，聊天在多个异步线程触发。
+ *
+ * <p>场景（--scenario，逗号分隔，按顺序执行，可以重复）：
+ * <ul>
+ *   <li>join-storm 离线玩家集中登录，直到在线人数达到 --online，每个 tick 加入 --join-per-tick 个</li>
+ *   <li>steady 持续 --duration 秒：--chat-threads 个线程合计每秒发送 --chat-rate 条聊天，
+ *       同时每秒 --churn-rate 次随机一个玩家退出、另一个离线玩家登录</li>
+ *   <li>chat-burst 所有在线玩家各发送 --burst-messages 条聊天，由 --chat-threads 个线程尽快发出</li>
+ *   <li>mass-quit 所有在线玩家在同一个 tick 内退出，与服务器重启时相同</li>
+ * </ul>
+ *
+ * <p>除 {@link PluginHarness} 的参数（--players 在这里是玩家总数，默认 1000）外：
+ * <ul>
+ *   <li>--scenario 场景列表（默认 join-storm,steady,chat-burst,mass-quit）</li>
+ *   <li>--online 登录高峰后的在线人数（默认玩家总数的 80%）</li>
+ *   <li>--join-per-tick 登录高峰每个 tick 加入的玩家数，0 表示全部在一个 tick 内加入（默认 50）</li>
+ *   <li>--duration steady 场景的秒数（默认 30）</li>
+ *   <li>--chat-rate 每秒聊天消息数（默认 200）</li>
+ *   <li>--chat-threads 发送聊天的线程数（默认 8）</li>
+ *   <li>--churn-rate 每秒退出并登录的玩家数（默认 2）</li>
+ *   <li>--burst-messages chat-burst 场景每个玩家的消息数（默认 5）</li>
+ *   <li>--format csv 或 json（默认 csv）</li>
+ *   <li>--out 结果文件，不指定时输出到标准输出</li>
+ * </ul>
+ */
+public final class EventSimulation {
+
+    // 等待登录记录写完的最长时间
+    private static final long DRAIN_TIMEOUT_MILLIS = 60_000;
+
+    private final PluginHarness harness;
+    private final FakeServer server;
+    private final long seed;
+
+    // 在线和离线玩家只由执行场景的线程和 steady 场景的登录退出线程修改，两者不会同时运行
+    private final List<FakePlayer> online = new ArrayList<>();
+    private final List<FakePlayer> offline = new ArrayList<>();
+    private final Set<FakePlayer> joined = new HashSet<>();
+    // 聊天线程从快照中随机选择玩家
+    private volatile FakePlayer[] onlineSnapshot = new FakePlayer[0];
+    private volatile Phase current;
+
+    private long baselineHeap;
+    private DiskUsage baselineDisk;
+
+    private EventSimulation(PluginHarness harness, long seed) {
+        this.harness = harness;
+        this.server = harness.server;
+        this.seed = seed;
+        this.offline.addAll(harness.players);
+        server.setEventObserver(this::observe);
+    }
+
+    public static void main(String[] args) throws Exception {
+        HarnessOptions options = new HarnessOptions(args);
+        options.putDefault("players", "1000");
+        String format = options.getString("format", "csv");
+        if (!format.equals("csv") && !format.equals("json")) {
+            throw new IllegalArgumentException("--format 只支持 csv 和 json");
+        }
+
+        EventReport report = new EventReport(options.toMap());
+        try (PluginHarness harness = PluginHarness.start(options, false)) {
+            EventSimulation simulation = new EventSimulation(harness, options.getLong("seed", 42));
+            simulation.baseline();
+            System.err.println("插件已启动，玩家 " + harness.players.size() + "，基准堆内存 "
+                + simulation.baselineHeap / 1024 + " KB");
+
+            for (String scenario : options.getString("scenario", "join-storm,steady,chat-burst,mass-quit").split(",")) {
+                Phase phase = simulation.run(scenario.trim(), options);
+                report.add(phase);
+                System.err.println(EventReport.summary(phase));
+            }
+        }
+
+        String out = options.getString("out", null);
+        try (PrintStream stream = out != null
+                ? new PrintStream(new FileOutputStream(out), true, StandardCharsets.UTF_8)
+                : new PrintStream(System.out, true, StandardCharsets.UTF_8)) {
+            if (format.equals("json")) {
+                report.writeJson(stream);
+            } else {
+                report.writeCsv(stream);
+            }
+        }
+        // 插件的线程池不一定都是守护线程
+        System.exit(0);
+    }
+
+    private void baseline() throws InterruptedException, IOException {
+        baselineHeap = retainedHeap();
+        baselineDisk = DiskUsage.of(loginRecordFolder());
+    }
+
+    private Phase run(String scenario, HarnessOptions options) throws Exception {
+        int chatThreads = options.getInt("chat-threads", 8);
+        Phase phase = new Phase(scenario);
+        current = phase;
+        long start = System.nanoTime();
+
+        switch (scenario) {
+            case "join-storm":
+                int target = Math.min(harness.players.size(), options.getInt("online", harness.players.size() * 4 / 5));
+                joinStorm(target, options.getInt("join-per-tick", 50));
+                break;
+            case "steady":
+                steady(Duration.ofSeconds(options.getLong("duration", 30)), options.getDouble("chat-rate", 200),
+                    chatThreads, options.getDouble("churn-rate", 2));
+                break;
+            case "chat-burst":
+                chatBurst(options.getInt("burst-messages", 5), chatThreads);
+                break;
+            case "mass-quit":
+                massQuit();
+                break;
+            default:
+                throw new IllegalArgumentException("未知场景: " + scenario + "，可选: join-storm, steady, chat-burst, mass-quit");
+        }
+
+        phase.elapsedNanos = System.nanoTime() - start;
+        current = null;
+        finish(phase);
+        return phase;
+    }
+
+    private void joinStorm(int target, int perTick) throws Exception {
+        while (online.size() < target && !offline.isEmpty()) {
+            int count = Math.min(target - online.size(), perTick > 0 ? perTick : Integer.MAX_VALUE);
+            List<FakePlayer> tail = offline.subList(Math.max(0, offline.size() - count), offline.size());
+            List<FakePlayer> batch = new ArrayList<>(tail);
+            tail.clear();
+            // 每批在一个 tick 内加入，callSync 等到下一个 tick 才返回
+            server.joinAll(batch);
+            online.addAll(batch);
+            joined.addAll(batch);
+            onlineSnapshot = online.toArray(new FakePlayer[0]);
+        }
+    }
+
+    private void steady(Duration duration, double chatRate, int chatThreads, double churnRate) throws Exception {
+        long end = System.nanoTime() + duration.toNanos();
+        List<Runnable> workers = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        if (chatRate > 0) {
+            for (int i = 0; i < chatThreads; i++) {
+                Random random = new Random(seed + i);
+                double rate = chatRate / chatThreads;
+                workers.add(() -> paced(rate, end, () -> chat(random)));
+                names.add("EventSimulation-Chat-" + i);
+            }
+        }
+        if (churnRate > 0) {
+            Random random = new Random(seed - 1);
+            workers.add(() -> paced(churnRate, end, () -> churn(random)));
+            names.add("EventSimulation-Churn");
+        }
+        runWorkers(workers, names);
+        // 没有任何事件时也要等满时长，测量空闲的 tick
+        long remaining = end - System.nanoTime();
+        if (remaining > 0) {
+            Thread.sleep(remaining / 1_000_000);
+        }
+    }
+
+    private void chatBurst(int messages, int threads) throws Exception {
+        FakePlayer[] players = onlineSnapshot;
+        List<Runnable> workers = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int first = i;
+            Random random = new Random(seed + i);
+            workers.add(() -> {
+                // 各线程负责一部分玩家，每个玩家连续发送
+                for (int p = first; p < players.length; p += threads) {
+                    for (int m = 0; m < messages; m++) {
+                        chat(players[p], random);
+                    }
+                }
+            });
+            names.add("EventSimulation-Chat-" + i);
+        }
+        runWorkers(workers, names);
+    }
+
+    private void massQuit() throws Exception {
+        server.quitAll(new ArrayList<>(online));
+        offline.addAll(online);
+        online.clear();
+        onlineSnapshot = new FakePlayer[0];
+    }
+
+    private void chat(Random random) {
+        FakePlayer[] players = onlineSnapshot;
+        if (players.length > 0) {
+            chat(players[random.nextInt(players.length)], random);
+        }
+    }
+
+    private void chat(FakePlayer player, Random random) {
+        server.callEvent(new AsyncPlayerChatEvent(true, player.getPlayer(), SyntheticPlayers.chatMessage(random),
+            new HashSet<Player>()));
+    }
+
+    /**
+     * 随机一个在线玩家退出，随机一个离线玩家登录，分别在两个 tick 内完成
+     */
+    private void churn(Random random) {
+        try {
+            if (!online.isEmpty()) {
+                FakePlayer leaving = online.remove(random.nextInt(online.size()));
+                onlineSnapshot = online.toArray(new FakePlayer[0]);
+                server.quit(leaving);
+                offline.add(leaving);
+            }
+            if (!offline.isEmpty()) {
+                FakePlayer joining = offline.remove(random.nextInt(offline.size()));
+                server.join(joining);
+                online.add(joining);
+                joined.add(joining);
+                onlineSnapshot = online.toArray(new FakePlayer[0]);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 按固定速率执行，落后时立即补发（开环：执行变慢不会降低发送速率）
+     */
+    private static void paced(double ratePerSecond, long end, Runnable action) {
+        long interval = (long) (1_000_000_000L / ratePerSecond);
+        long next = System.nanoTime();
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            action.run();
+            next += interval;
+        }
+    }
+
+    private static void runWorkers(List<Runnable> workers, List<String> names) throws Exception {
+        CountDownLatch done = new CountDownLatch(workers.size());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < workers.size(); i++) {
+            Runnable worker = workers.get(i);
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.run();
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown();
+                }
+            }, names.get(i));
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        if (failure.get() != null) {
+            throw new IllegalStateException("事件线程出错", failure.get());
+        }
+    }
+
+    private void observe(Event event, long nanos) {
+        Phase phase = current;
+        if (phase == null) {
+            return;
+        }
+        if (event instanceof ServerTickEndEvent) {
+            phase.recordTick(((ServerTickEndEvent) event).getTickDuration());
+            return;
+        }
+        EventStats stats = phase.events.get(eventType(event));
+        if (stats != null) {
+            stats.record(nanos);
+        }
+    }
+
+    private static String eventType(Event event) {
+        if (event instanceof AsyncPlayerChatEvent) {
+            return "chat";
+        } else if (event instanceof PlayerLoginEvent) {
+            return "login";
+        } else if (event instanceof PlayerJoinEvent) {
+            return "join";
+        } else if (event instanceof PlayerQuitEvent) {
+            return "quit";
+        }
+        return "";
+    }
+
+    /**
+     * 场景结束后等待登录记录写完，再统计内存和磁盘占用
+     */
+    private void finish(Phase phase) throws InterruptedException, IOException {
+        LoginRecordManager loginRecords = harness.plugin.getLoginRecordManager();
+        phase.pendingWrites = loginRecords.getPendingWrites();
+        long drainStart = System.nanoTime();
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (loginRecords.getPendingWrites() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        phase.drainMillis = (System.nanoTime() - drainStart) / 1_000_000.0;
+
+        phase.online = online.size();
+        phase.joined = joined.size();
+        phase.chatRecords = harness.plugin.getChatRecordManager().getTotalRecordCount();
+        phase.disk = DiskUsage.of(loginRecordFolder()).minus(baselineDisk);
+        phase.retainedBytes = retainedHeap() - baselineHeap;
+    }
+
+    private File loginRecordFolder() {
+        return new File(harness.dataFolder, "login_records");
+    }
+
+    /**
+     * 多次 GC 后的已用堆内存，取最小值以减少并发线程临时分配的干扰
+     */
+    private static long retainedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    /**
+     * 一个场景的结果
+     */
+    static final class Phase {
+        final String name;
+        final Map<String, EventStats> events = new LinkedHashMap<>();
+        final LongAdder ticks = new LongAdder();
+        final LongAdder tickMicros = new LongAdder();
+        final AtomicLong maxTickMicros = new AtomicLong();
+        long elapsedNanos;
+        // 场景结束时等待写入的登录记录数，以及全部写完所用的时间
+        int pendingWrites;
+        double drainMillis;
+        int online;
+        // 本次模拟中加入过服务器的玩家数
+        int joined;
+        int chatRecords;
+        // 与启动时相比新增的登录记录
+        DiskUsage disk;
+        // 与启动时相比 GC 后多占用的堆内存
+        long retainedBytes;
+
+        Phase(String name) {
+            this.name = name;
+            for (String type : new String[]{"login", "join", "chat", "quit"}) {
+                events.put(type, new EventStats(type));
+            }
+        }
+
+        void recordTick(double millis) {
+            long micros = (long) (millis * 1000);
+            ticks.increment();
+            tickMicros.add(micros);
+            maxTickMicros.accumulateAndGet(micros, Math::max);
+        }
+
+        double meanTickMillis() {
+            long count = ticks.sum();
+            return count > 0 ? tickMicros.sum() / 1000.0 / count : 0;
+        }
+    }
+
+    /**
+     * 一种事件的次数和所有监听器的总耗时分布
+     * 监听器耗时通常不到 1 微秒，直方图按微秒分桶，这里把纳秒当作微秒记录，分位数的单位随之变为纳秒
+     */
+    static final class EventStats {
+        final String name;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        EventStats(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            histogram.record(nanos * 1000);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        long count() {
+            return histogram.getTotalCount();
+        }
+
+        double meanMicros() {
+            long count = count();
+            return count > 0 ? histogram.getTotalMicros() / 1000.0 / count : 0;
+        }
+
+        double percentileMicros(long[] counts, double percentile) {
+            return LatencyHistogram.percentile(counts, percentile) / 1000.0;
+        }
+    }
+
+    /**
+     * 目录中的文件数、字节数和按 4 KiB 块估算的实际磁盘占用（每个小文件至少占一个块）
+     */
+    static final class DiskUsage {
+        private static final long BLOCK_SIZE = 4096;
+
+        final long files;
+        final long bytes;
+        final long allocatedBytes;
+
+        DiskUsage(long files, long bytes, long allocatedBytes) {
+            this.files = files;
+            this.bytes = bytes;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        static DiskUsage of(File folder) throws IOException {
+            if (!folder.isDirectory()) {
+                return new DiskUsage(0, 0, 0);
+            }
+            long files = 0;
+            long bytes = 0;
+            long allocated = 0;
+            try (Stream<Path> paths = Files.list(folder.toPath())) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    if (Files.isRegularFile(path)) {
+                        long size = Files.size(path);
+                        files++;
+                        bytes += size;
+                        allocated += (size + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+                    }
+                }
+            }
+            return new DiskUsage(files, bytes, allocated);
+        }
+
+        DiskUsage minus(DiskUsage other) {
+            return new DiskUsage(files - other.files, bytes - other.bytes, allocatedBytes - other.allocatedBytes);
+        }
+    }
+}
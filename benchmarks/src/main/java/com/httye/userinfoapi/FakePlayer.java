@@ -0,0 +1,226 @@
+package com.httye.userinfoapi;
+
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 模拟的在线玩家
+ * 保存玩家的属性和背包，{@link #getPlayer()} 返回实现 Player 接口的代理
+ */
+final class FakePlayer {
+
+    final String name;
+    final UUID uniqueId;
+    final InetSocketAddress address;
+    final long firstPlayed;
+    volatile long lastPlayed;
+    volatile int level;
+    volatile float exp;
+    volatile double health = 20;
+    volatile int foodLevel = 20;
+    volatile GameMode gameMode = GameMode.SURVIVAL;
+    volatile Location location;
+    // 0-35 背包、36-39 盔甲（靴子到头盔）、40 副手
+    final ItemStack[] slots = new ItemStack[41];
+
+    private final Player player;
+    private final PlayerInventory inventory;
+
+    FakePlayer(String name, UUID uniqueId, InetSocketAddress address, long firstPlayed, Location location) {
+        this.name = name;
+        this.uniqueId = uniqueId;
+        this.address = address;
+        this.firstPlayed = firstPlayed;
+        this.lastPlayed = firstPlayed;
+        this.location = location;
+        this.player = Stubs.proxy(Player.class, this::answer);
+        this.inventory = Stubs.proxy(PlayerInventory.class, this::answerInventory);
+    }
+
+    Player getPlayer() {
+        return player;
+    }
+
+    private Object answer(String method, Object[] args) {
+        switch (method) {
+            case "getName":
+            case "getDisplayName":
+            case "getPlayerListName":
+                return name;
+            case "getUniqueId":
+                return uniqueId;
+            case "getAddress":
+                return address;
+            case "getLevel":
+                return level;
+            case "getExp":
+                return exp;
+            case "getExpToLevel":
+                return expToLevel(level);
+            case "getTotalExperience":
+                return totalExperience(level) + Math.round(exp * expToLevel(level));
+            case "getHealth":
+                return health;
+            case "getMaxHealth":
+                return 20.0;
+            case "getFoodLevel":
+                return foodLevel;
+            case "getGameMode":
+                return gameMode;
+            case "getLocation":
+                return location.clone();
+            case "getWorld":
+                return location.getWorld();
+            case "getInventory":
+                return inventory;
+            case "getFirstPlayed":
+                return firstPlayed;
+            case "getLastPlayed":
+            case "getLastLogin":
+            case "getLastSeen":
+                return lastPlayed;
+            case "getPlayer":
+                return player;
+            case "isOnline":
+            case "isValid":
+            case "hasPlayedBefore":
+            case "isWhitelisted":
+            case "isConnected":
+                return true;
+            case "isBanned":
+            case "isOp":
+                return false;
+            default:
+                return Stubs.DEFAULT;
+        }
+    }
+
+    private Object answerInventory(String method, Object[] args) {
+        switch (method) {
+            case "getItem":
+                return slots[(Integer) args[0]];
+            case "getContents":
+                return Arrays.copyOf(slots, 41);
+            case "getStorageContents":
+                return Arrays.copyOf(slots, 36);
+            case "getArmorContents":
+                return Arrays.copyOfRange(slots, 36, 40);
+            case "getItemInMainHand":
+                return slots[0] != null ? slots[0] : new ItemStack(Material.AIR);
+            case "getItemInOffHand":
+                return slots[40] != null ? slots[40] : new ItemStack(Material.AIR);
+            case "getSize":
+                return 41;
+            case "getHolder":
+                return player;
+            default:
+                return Stubs.DEFAULT;
+        }
+    }
+
+    // 原版的升级经验公式
+    static int expToLevel(int level) {
+        if (level >= 30) {
+            return 112 + (level - 30) * 9;
+        }
+        return level >= 15 ? 37 + (level - 15) * 5 : 7 + level * 2;
+    }
+
+    static int totalExperience(int level) {
+        if (level >= 32) {
+            return (int) (4.5 * level * level - 162.5 * level + 2220);
+        }
+        if (level >= 17) {
+            return (int) (2.5 * level * level - 40.5 * level + 360);
+        }
+        return level * level + 6 * level;
+    }
+
+    /**
+     * 模拟的物品
+     * 与服务端的物品实现一样覆盖读取方法，不经过 ItemFactory；附魔需要服务端的注册表，这里不支持
+     */
+    static final class FakeItemStack extends ItemStack {
+
+        private final Material type;
+        private final int amount;
+        private final ItemMeta meta;
+        private final short damage;
+
+        FakeItemStack(Material type, int amount) {
+            this(type, amount, 0, null, null);
+        }
+
+        FakeItemStack(Material type, int amount, int damage, String displayName, List<String> lore) {
+            this.type = type;
+            this.amount = amount;
+            this.damage = (short) damage;
+            this.meta = damage > 0 || displayName != null || lore != null ? createMeta(damage, displayName, lore) : null;
+        }
+
+        @Override
+        public Material getType() {
+            return type;
+        }
+
+        @Override
+        public int getAmount() {
+            return amount;
+        }
+
+        @Override
+        public boolean hasItemMeta() {
+            return meta != null;
+        }
+
+        @Override
+        public ItemMeta getItemMeta() {
+            return meta;
+        }
+
+        @Override
+        public short getDurability() {
+            return damage;
+        }
+
+        private static ItemMeta createMeta(int damage, String displayName, List<String> lore) {
+            List<String> loreCopy = lore != null ? Collections.unmodifiableList(new ArrayList<>(lore)) : null;
+            Object[] self = new Object[1];
+            self[0] = Stubs.proxy(new Class<?>[]{Damageable.class}, (method, args) -> {
+                switch (method) {
+                    case "hasDisplayName":
+                        return displayName != null;
+                    case "getDisplayName":
+                        return displayName;
+                    case "hasLore":
+                        return loreCopy != null;
+                    case "getLore":
+                        return loreCopy != null ? new ArrayList<>(loreCopy) : null;
+                    case "hasDamage":
+                        return damage > 0;
+                    case "getDamage":
+                        return damage;
+                    case "clone":
+                        // 元数据不可修改，复制时返回同一个对象
+                        return self[0];
+                    default:
+                        return Stubs.DEFAULT;
+                }
+            });
+            return (ItemMeta) self[0];
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.httye.userinfoapi;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ObjLongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 模拟的插件管理器
+ * registerEvents 按 @EventHandler 注解登记监听方法，callEvent 在调用线程上按优先级依次调用，
+ * 与服务端一样由触发事件的线程执行监听器
+ */
+final class FakePluginManager {
+
+    private final Logger logger;
+    private final PluginManager pluginManager;
+    private final List<Plugin> plugins = new CopyOnWriteArrayList<>();
+    // 按优先级排好序，注册时整体替换
+    private volatile List<RegisteredHandler> handlers = new ArrayList<>();
+    // 每次分发后收到事件和所有监听器的总耗时（纳秒），事件模拟用来统计处理延迟
+    private volatile ObjLongConsumer<Event> observer;
+
+    FakePluginManager(Logger logger) {
+        this.logger = logger;
+        this.pluginManager = Stubs.proxy(PluginManager.class, this::answer);
+    }
+
+    PluginManager getPluginManager() {
+        return pluginManager;
+    }
+
+    void addPlugin(Plugin plugin) {
+        plugins.add(plugin);
+    }
+
+    void setObserver(ObjLongConsumer<Event> observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * 触发事件，监听器抛出的异常只记录日志
+     */
+    void callEvent(Event event) {
+        long start = System.nanoTime();
+        for (RegisteredHandler handler : handlers) {
+            if (!handler.eventType.isInstance(event)) {
+                continue;
+            }
+            if (handler.ignoreCancelled && event instanceof Cancellable && ((Cancellable) event).isCancelled()) {
+                continue;
+            }
+            try {
+                handler.method.invoke(handler.listener, event);
+            } catch (InvocationTargetException e) {
+                logger.log(Level.WARNING, "处理事件 " + event.getEventName() + " 出错", e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        ObjLongConsumer<Event> current = observer;
+        if (current != null) {
+            current.accept(event, System.nanoTime() - start);
+        }
+    }
+
+    private Object answer(String method, Object[] args) {
+        switch (method) {
+            case "registerEvents":
+                registerEvents((Listener) args[0], (Plugin) args[1]);
+                return null;
+            case "callEvent":
+                callEvent((Event) args[0]);
+                return null;
+            case "disablePlugin":
+                logger.warning("插件请求禁用: " + ((Plugin) args[0]).getName());
+                return null;
+            case "getPlugins":
+                return plugins.toArray(new Plugin[0]);
+            case "getPlugin":
+                for (Plugin plugin : plugins) {
+                    if (plugin.getName().equalsIgnoreCase((String) args[0])) {
+                        return plugin;
+                    }
+                }
+                return null;
+            case "isPluginEnabled":
+                if (args[0] instanceof Plugin) {
+                    return ((Plugin) args[0]).isEnabled();
+                }
+                for (Plugin plugin : plugins) {
+                    if (plugin.getName().equalsIgnoreCase((String) args[0])) {
+                        return plugin.isEnabled();
+                    }
+                }
+                return false;
+            default:
+                return Stubs.DEFAULT;
+        }
+    }
+
+    private synchronized void registerEvents(Listener listener, Plugin plugin) {
+        List<RegisteredHandler> added = new ArrayList<>();
+        for (Method method : listener.getClass().getDeclaredMethods()) {
+            EventHandler annotation = method.getAnnotation(EventHandler.class);
+            if (annotation == null || method.getParameterCount() != 1
+                    || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+            method.setAccessible(true);
+            added.add(new RegisteredHandler(listener, method, method.getParameterTypes()[0],
+                annotation.priority(), annotation.ignoreCancelled()));
+        }
+
+        List<RegisteredHandler> all = new ArrayList<>(handlers);
+        all.addAll(added);
+        all.sort(Comparator.comparingInt(handler -> handler.priority.ordinal()));
+        handlers = all;
+    }
+
+    private static final class RegisteredHandler {
+        final Listener listener;
+        final Method method;
+        final Class<?> eventType;
+        final EventPriority priority;
+        final boolean ignoreCancelled;
+
+        RegisteredHandler(Listener listener, Method method, Class<?> eventType, EventPriority priority, boolean ignoreCancelled) {
+            this.listener = listener;
+            this.method = method;
+            this.eventType = eventType;
+            this.priority = priority;
+            this.ignoreCancelled = ignoreCancelled;
+        }
+    }
+}
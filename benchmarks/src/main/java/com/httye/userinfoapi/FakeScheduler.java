@@ -0,0 +1,343 @@
+package com.httye.userinfoapi;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import com.destroystokyo.paper.event.server.ServerTickStartEvent;
+import org.bukkit.event.Event;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 模拟的调度器
+ * "Server thread" 线程每 50 毫秒（可调整）执行一个 tick：运行到期的同步任务，按需空转模拟游戏逻辑的耗时，
+ * 然后触发 ServerTickEndEvent。异步任务在线程池中运行，延迟和周期同样按 tick 换算
+ */
+final class FakeScheduler {
+
+    static final long TICK_MILLIS = 50;
+    private static final int TICK_HISTORY = 100;
+
+    private final Logger logger;
+    private final Consumer<Event> eventSink;
+    private final BukkitScheduler scheduler;
+    private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+    private final PriorityQueue<Task> syncQueue = new PriorityQueue<>((a, b) -> a.nextRun != b.nextRun
+        ? Long.compare(a.nextRun, b.nextRun) : Integer.compare(a.id, b.id));
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final ScheduledExecutorService asyncExecutor;
+    private final Thread mainThread;
+
+    // 最近若干个 tick 的耗时和开始时间（纳秒），只由主线程写入
+    private final long[] tickDurations = new long[TICK_HISTORY];
+    private final long[] tickStarts = new long[TICK_HISTORY];
+    private volatile int currentTick;
+    private volatile long tickWorkNanos;
+    private volatile long tickIntervalNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+    private volatile boolean running;
+
+    FakeScheduler(Logger logger, Consumer<Event> eventSink) {
+        this.logger = logger;
+        this.eventSink = eventSink;
+        this.scheduler = Stubs.proxy(BukkitScheduler.class, this::answer);
+
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(4, runnable -> {
+            Thread thread = new Thread(runnable, "Craft Scheduler Thread - " + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.asyncExecutor = executor;
+
+        this.mainThread = new Thread(this::tickLoop, "Server thread");
+        this.mainThread.setDaemon(true);
+    }
+
+    BukkitScheduler getScheduler() {
+        return scheduler;
+    }
+
+    void start() {
+        running = true;
+        mainThread.start();
+    }
+
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(mainThread);
+        try {
+            mainThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        asyncExecutor.shutdownNow();
+    }
+
+    boolean isPrimaryThread() {
+        return Thread.currentThread() == mainThread;
+    }
+
+    int getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * 每个 tick 额外空转的时间，模拟世界、实体等游戏逻辑占用主线程
+     */
+    void setTickWork(long micros) {
+        this.tickWorkNanos = TimeUnit.MICROSECONDS.toNanos(micros);
+    }
+
+    /**
+     * 主线程 tick 的间隔，缩短后需要等待下一个 tick 的查询更快返回；异步任务的延迟仍按每个 tick 50 毫秒换算
+     */
+    void setTickInterval(long millis) {
+        this.tickIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, millis));
+    }
+
+    /**
+     * 最近 100 个 tick 的平均耗时（毫秒）
+     */
+    double getAverageTickTime() {
+        int ticks = Math.min(currentTick, TICK_HISTORY);
+        if (ticks == 0) {
+            return 0;
+        }
+        int tick = currentTick;
+        long total = 0;
+        for (int i = 0; i < ticks; i++) {
+            total += tickDurations[(tick - i) % TICK_HISTORY];
+        }
+        return total / (double) ticks / 1_000_000.0;
+    }
+
+    /**
+     * 按最近 100 个 tick 的实际间隔计算的 TPS，三个窗口返回相同的值
+     */
+    double[] getTPS() {
+        int tick = currentTick;
+        int ticks = Math.min(tick, TICK_HISTORY) - 1;
+        if (ticks <= 0) {
+            return new double[]{20, 20, 20};
+        }
+        long newest = tickStarts[tick % TICK_HISTORY];
+        long oldest = tickStarts[(tick - ticks) % TICK_HISTORY];
+        double tps = Math.min(20.0, ticks * 1_000_000_000.0 / Math.max(1, newest - oldest));
+        return new double[]{tps, tps, tps};
+    }
+
+    /**
+     * 在主线程执行并等待结果，用于在主线程触发同步事件
+     */
+    <T> T callSync(Callable<T> callable) throws Exception {
+        if (isPrimaryThread()) {
+            return callable.call();
+        }
+        FutureTask<T> future = new FutureTask<>(callable);
+        schedule(null, future, true, 0, -1);
+        return future.get();
+    }
+
+    private Object answer(String method, Object[] args) {
+        if (method.startsWith("run") || method.startsWith("schedule")) {
+            boolean async = method.contains("Async");
+            Plugin owner = (Plugin) args[0];
+            long delay = args.length > 2 ? (Long) args[2] : 0;
+            long period = args.length > 3 ? (Long) args[3] : -1;
+            Task task = schedule(owner, args[1], !async, delay, period);
+            return method.startsWith("run") ? task.handle : (Object) task.id;
+        }
+        switch (method) {
+            case "callSyncMethod": {
+                FutureTask<?> future = new FutureTask<>((Callable<?>) args[1]);
+                schedule((Plugin) args[0], future, true, 0, -1);
+                return future;
+            }
+            case "getMainThreadExecutor":
+                return (Executor) command -> schedule((Plugin) args[0], command, true, 0, -1);
+            case "cancelTask": {
+                Task task = tasks.get((Integer) args[0]);
+                if (task != null) {
+                    task.cancel();
+                }
+                return null;
+            }
+            case "cancelTasks":
+                for (Task task : new ArrayList<>(tasks.values())) {
+                    if (task.owner == args[0]) {
+                        task.cancel();
+                    }
+                }
+                return null;
+            case "isCurrentlyRunning":
+            case "isQueued":
+                return tasks.containsKey((Integer) args[0]);
+            case "getPendingTasks": {
+                List<BukkitTask> pending = new ArrayList<>();
+                for (Task task : tasks.values()) {
+                    pending.add(task.handle);
+                }
+                return pending;
+            }
+            default:
+                return Stubs.DEFAULT;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Task schedule(Plugin owner, Object body, boolean sync, long delay, long period) {
+        Task task = new Task(nextId.getAndIncrement(), owner, sync, period);
+        if (body instanceof Runnable) {
+            task.body = (Runnable) body;
+        } else {
+            Consumer<BukkitTask> consumer = (Consumer<BukkitTask>) body;
+            task.body = () -> consumer.accept(task.handle);
+        }
+        tasks.put(task.id, task);
+
+        if (sync) {
+            // 与 Bukkit 相同：延迟 0 表示下一个 tick
+            task.nextRun = currentTick + Math.max(1, delay);
+            synchronized (syncQueue) {
+                syncQueue.add(task);
+            }
+        } else if (period > 0) {
+            task.future = asyncExecutor.scheduleAtFixedRate(() -> runTask(task), delay * TICK_MILLIS,
+                period * TICK_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            task.future = asyncExecutor.schedule(() -> {
+                runTask(task);
+                tasks.remove(task.id);
+            }, delay * TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return task;
+    }
+
+    private void runTask(Task task) {
+        if (task.cancelled) {
+            return;
+        }
+        try {
+            task.body.run();
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "任务 " + task.id + " 执行出错", t);
+        }
+    }
+
+    private void tickLoop() {
+        long nextTick = System.nanoTime();
+        while (running) {
+            long start = System.nanoTime();
+            int tick = currentTick + 1;
+            tickStarts[tick % TICK_HISTORY] = start;
+            eventSink.accept(new ServerTickStartEvent(tick));
+
+            List<Task> due = new ArrayList<>();
+            synchronized (syncQueue) {
+                while (!syncQueue.isEmpty() && syncQueue.peek().nextRun <= tick) {
+                    due.add(syncQueue.poll());
+                }
+            }
+            for (Task task : due) {
+                runTask(task);
+                if (task.period > 0 && !task.cancelled) {
+                    task.nextRun = tick + task.period;
+                    synchronized (syncQueue) {
+                        syncQueue.add(task);
+                    }
+                } else {
+                    tasks.remove(task.id);
+                }
+            }
+
+            long work = tickWorkNanos;
+            if (work > 0) {
+                long until = System.nanoTime() + work;
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+            }
+
+            long duration = System.nanoTime() - start;
+            tickDurations[tick % TICK_HISTORY] = duration;
+            currentTick = tick;
+            nextTick += tickIntervalNanos;
+            eventSink.accept(new ServerTickEndEvent(tick, duration / 1_000_000.0, Math.max(0, nextTick - System.nanoTime())));
+
+            // 落后时不补 tick，与服务端一样从当前时间重新计时
+            long sleep = nextTick - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            } else {
+                nextTick = System.nanoTime();
+            }
+        }
+    }
+
+    private final class Task {
+        final int id;
+        final Plugin owner;
+        final boolean sync;
+        final long period;
+        final BukkitTask handle;
+        Runnable body;
+        long nextRun;
+        volatile boolean cancelled;
+        volatile ScheduledFuture<?> future;
+
+        Task(int id, Plugin owner, boolean sync, long period) {
+            this.id = id;
+            this.owner = owner;
+            this.sync = sync;
+            this.period = period;
+            this.handle = Stubs.proxy(BukkitTask.class, (method, args) -> {
+                switch (method) {
+                    case "getTaskId":
+                        return this.id;
+                    case "getOwner":
+                        return this.owner;
+                    case "isSync":
+                        return this.sync;
+                    case "isCancelled":
+                        return cancelled;
+                    case "cancel":
+                        cancel();
+                        return null;
+                    default:
+                        return Stubs.DEFAULT;
+                }
+            });
+        }
+
+        void cancel() {
+            cancelled = true;
+            tasks.remove(id);
+            if (future != null) {
+                future.cancel(false);
+            }
+            if (sync) {
+                synchronized (syncQueue) {
+                    syncQueue.remove(this);
+                }
+            }
+        }
+    }
+}
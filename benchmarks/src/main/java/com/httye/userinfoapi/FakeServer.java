@@ -0,0 +1,369 @@
+package com.httye.userinfoapi;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 模拟的 Bukkit 服务器
+ * 不需要启动 Minecraft 服务端，也不依赖 MockBukkit：服务器、世界和玩家都是按需应答的动态代理，
+ * 主线程、调度器和事件分发由 {@link FakeScheduler} 和 {@link FakePluginManager} 实现。
+ * 用于负载测试和事件模拟，插件由 {@link HarnessPluginLoader} 创建后在这里启用，运行的是与线上相同的代码。
+ * 一个进程只能创建一次（Bukkit 的服务器实例不能替换）
+ */
+final class FakeServer {
+
+    private final Logger logger = Logger.getLogger("FakeServer");
+    private final FakePluginManager pluginManager = new FakePluginManager(logger);
+    private final FakeScheduler scheduler = new FakeScheduler(logger, pluginManager::callEvent);
+    private final Server server;
+    private final List<World> worlds = new ArrayList<>();
+
+    // 在线玩家，以及按小写名称索引的在线玩家和所有加入过的玩家；插件在 HTTP 线程上遍历在线列表，需要支持并发修改
+    private final Map<UUID, Player> onlinePlayers = new ConcurrentHashMap<>();
+    private final Map<String, FakePlayer> online = new ConcurrentHashMap<>();
+    private final Map<String, FakePlayer> known = new ConcurrentHashMap<>();
+    private final Collection<Player> onlineView = Collections.unmodifiableCollection(onlinePlayers.values());
+    private volatile int maxPlayers = 1000;
+
+    FakeServer() {
+        this.server = Stubs.proxy(Server.class, this::answer);
+        worlds.add(createWorld("world", World.Environment.NORMAL));
+        worlds.add(createWorld("world_nether", World.Environment.NETHER));
+        worlds.add(createWorld("world_the_end", World.Environment.THE_END));
+    }
+
+    /**
+     * 注册为 Bukkit 的服务器实例并启动主线程
+     */
+    void start() {
+        Bukkit.setServer(server);
+        scheduler.start();
+    }
+
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    Server getServer() {
+        return server;
+    }
+
+    Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * 服务器和之后启用的插件的日志级别，负载测试时一般设为 WARNING，避免请求日志影响结果
+     */
+    void setLogLevel(Level level) {
+        logger.setLevel(level);
+    }
+
+    FakeScheduler getScheduler() {
+        return scheduler;
+    }
+
+    World getDefaultWorld() {
+        return worlds.get(0);
+    }
+
+    void setMaxPlayers(int maxPlayers) {
+        this.maxPlayers = maxPlayers;
+    }
+
+    /**
+     * 在调用线程上触发事件
+     */
+    void callEvent(Event event) {
+        pluginManager.callEvent(event);
+    }
+
+    /**
+     * 统计事件处理耗时，见 {@link FakePluginManager#setObserver}
+     */
+    void setEventObserver(ObjLongConsumer<Event> observer) {
+        pluginManager.setObserver(observer);
+    }
+
+    /**
+     * 玩家加入：在主线程依次触发登录事件、加入在线列表、触发加入事件
+     */
+    void join(FakePlayer player) throws Exception {
+        joinAll(Collections.singletonList(player));
+    }
+
+    /**
+     * 多个玩家在同一个 tick 内加入，模拟开服或重启后的登录高峰
+     */
+    void joinAll(Collection<FakePlayer> players) throws Exception {
+        scheduler.callSync(() -> {
+            for (FakePlayer player : players) {
+                Player proxy = player.getPlayer();
+                callEvent(new PlayerLoginEvent(proxy, "localhost", player.address.getAddress()));
+                known.put(player.name.toLowerCase(Locale.ROOT), player);
+                online.put(player.name.toLowerCase(Locale.ROOT), player);
+                onlinePlayers.put(player.uniqueId, proxy);
+                callEvent(new PlayerJoinEvent(proxy, (String) null));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 玩家退出：在主线程触发退出事件后移出在线列表
+     */
+    void quit(FakePlayer player) throws Exception {
+        quitAll(Collections.singletonList(player));
+    }
+
+    /**
+     * 多个玩家在同一个 tick 内退出，与服务器关闭或重启时踢出所有玩家相同
+     */
+    void quitAll(Collection<FakePlayer> players) throws Exception {
+        scheduler.callSync(() -> {
+            for (FakePlayer player : players) {
+                callEvent(new PlayerQuitEvent(player.getPlayer(), (String) null));
+                online.remove(player.name.toLowerCase(Locale.ROOT));
+                onlinePlayers.remove(player.uniqueId);
+                player.lastPlayed = System.currentTimeMillis();
+            }
+            return null;
+        });
+    }
+
+    Collection<FakePlayer> getOnline() {
+        return online.values();
+    }
+
+    /**
+     * 用插件 jar 中的 plugin.yml 创建插件，写入配置覆盖后在主线程启用
+     *
+     * @param config 启用前写入的配置项（路径到值），覆盖 config.yml 的默认值
+     */
+    UserInfoAPIPlugin enablePlugin(File dataFolder, Map<String, Object> config) throws Exception {
+        PluginDescriptionFile description;
+        try (InputStream in = UserInfoAPIPlugin.class.getResourceAsStream("/plugin.yml")) {
+            if (in == null) {
+                throw new IllegalStateException("类路径上找不到 plugin.yml");
+            }
+            description = new PluginDescriptionFile(in);
+        }
+
+        Logger pluginLogger = Logger.getLogger(description.getName());
+        pluginLogger.setLevel(logger.getLevel());
+        UserInfoAPIPlugin plugin = new HarnessPluginLoader(server, description, dataFolder,
+            new File(dataFolder.getParentFile(), description.getName() + ".jar"), pluginLogger).createPlugin();
+        pluginManager.addPlugin(plugin);
+        for (Map.Entry<String, Object> entry : config.entrySet()) {
+            plugin.getConfig().set(entry.getKey(), entry.getValue());
+        }
+
+        scheduler.callSync(() -> {
+            setEnabled(plugin, true);
+            return null;
+        });
+        if (!plugin.isEnabled() || plugin.getApiServer() == null) {
+            throw new IllegalStateException("插件启用失败，详见日志");
+        }
+        return plugin;
+    }
+
+    void disablePlugin(UserInfoAPIPlugin plugin) throws Exception {
+        scheduler.callSync(() -> {
+            setEnabled(plugin, false);
+            return null;
+        });
+    }
+
+    // JavaPlugin.setEnabled 只对插件加载器开放，这里与 MockBukkit 一样通过反射调用
+    private static void setEnabled(JavaPlugin plugin, boolean enabled) throws Exception {
+        Method method = JavaPlugin.class.getDeclaredMethod("setEnabled", boolean.class);
+        method.setAccessible(true);
+        method.invoke(plugin, enabled);
+    }
+
+    private Object answer(String method, Object[] args) {
+        switch (method) {
+            case "getLogger":
+                return logger;
+            case "getName":
+                return "FakeServer";
+            case "getVersion":
+                return "FakeServer (MC: 1.20.4)";
+            case "getBukkitVersion":
+                return "1.20.4-R0.1-SNAPSHOT";
+            case "getMinecraftVersion":
+                return "1.20.4";
+            case "getOnlinePlayers":
+                return onlineView;
+            case "getMaxPlayers":
+                return maxPlayers;
+            case "getPlayer":
+            case "getPlayerExact":
+                return findOnline(args[0]);
+            case "getOfflinePlayer":
+            case "getOfflinePlayerIfCached":
+                return findOffline(args[0]);
+            case "getScheduler":
+                return scheduler.getScheduler();
+            case "getPluginManager":
+                return pluginManager.getPluginManager();
+            case "getTPS":
+                return scheduler.getTPS();
+            case "getAverageTickTime":
+                return scheduler.getAverageTickTime();
+            case "getCurrentTick":
+                return scheduler.getCurrentTick();
+            case "isPrimaryThread":
+                return scheduler.isPrimaryThread();
+            case "getWorlds":
+                return new ArrayList<>(worlds);
+            case "getWorld":
+                for (World world : worlds) {
+                    if (world.getName().equals(args[0]) || world.getUID().equals(args[0])) {
+                        return world;
+                    }
+                }
+                return null;
+            default:
+                return Stubs.DEFAULT;
+        }
+    }
+
+    private Player findOnline(Object key) {
+        if (key instanceof UUID) {
+            return onlinePlayers.get(key);
+        }
+        FakePlayer player = online.get(((String) key).toLowerCase(Locale.ROOT));
+        return player != null ? player.getPlayer() : null;
+    }
+
+    private OfflinePlayer findOffline(Object key) {
+        Player onlinePlayer = findOnline(key);
+        if (onlinePlayer != null) {
+            return onlinePlayer;
+        }
+
+        FakePlayer knownPlayer = null;
+        if (key instanceof UUID) {
+            for (FakePlayer player : known.values()) {
+                if (player.uniqueId.equals(key)) {
+                    knownPlayer = player;
+                    break;
+                }
+            }
+        } else {
+            knownPlayer = known.get(((String) key).toLowerCase(Locale.ROOT));
+        }
+        if (knownPlayer == null && key instanceof String) {
+            // 与服务端相同：没有加入过的名称按离线模式生成 UUID
+            String name = (String) key;
+            UUID uniqueId = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+            return offlinePlayer(name, uniqueId, 0, 0, false);
+        }
+        if (knownPlayer == null) {
+            return offlinePlayer(null, (UUID) key, 0, 0, false);
+        }
+        return offlinePlayer(knownPlayer.name, knownPlayer.uniqueId, knownPlayer.firstPlayed, knownPlayer.lastPlayed, true);
+    }
+
+    private static OfflinePlayer offlinePlayer(String name, UUID uniqueId, long firstPlayed, long lastPlayed, boolean playedBefore) {
+        return Stubs.proxy(OfflinePlayer.class, (method, args) -> {
+            switch (method) {
+                case "getName":
+                    return name;
+                case "getUniqueId":
+                    return uniqueId;
+                case "hasPlayedBefore":
+                    return playedBefore;
+                case "getFirstPlayed":
+                    return firstPlayed;
+                case "getLastPlayed":
+                case "getLastSeen":
+                    return lastPlayed;
+                case "isWhitelisted":
+                    return playedBefore;
+                default:
+                    return Stubs.DEFAULT;
+            }
+        });
+    }
+
+    private World createWorld(String name, World.Environment environment) {
+        UUID uid = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+        World[] self = new World[1];
+        Block block = Stubs.proxy(Block.class, (method, args) -> {
+            switch (method) {
+                case "getBiome":
+                    return environment == World.Environment.NETHER ? Biome.NETHER_WASTES
+                        : environment == World.Environment.THE_END ? Biome.THE_END : Biome.PLAINS;
+                case "getWorld":
+                    return self[0];
+                default:
+                    return Stubs.DEFAULT;
+            }
+        });
+        self[0] = Stubs.proxy(World.class, (method, args) -> {
+            switch (method) {
+                case "getName":
+                    return name;
+                case "getUID":
+                    return uid;
+                case "getEnvironment":
+                    return environment;
+                case "getBlockAt":
+                    return block;
+                case "getBiome":
+                    return block.getBiome();
+                case "getPlayers": {
+                    List<Player> players = new ArrayList<>();
+                    for (FakePlayer player : online.values()) {
+                        if (player.location.getWorld() == self[0]) {
+                            players.add(player.getPlayer());
+                        }
+                    }
+                    return players;
+                }
+                case "getPlayerCount": {
+                    int count = 0;
+                    for (FakePlayer player : online.values()) {
+                        if (player.location.getWorld() == self[0]) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+                default:
+                    return Stubs.DEFAULT;
+            }
+        });
+        return self[0];
+    }
+}
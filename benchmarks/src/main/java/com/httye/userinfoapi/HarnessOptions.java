@@ -0,0 +1,104 @@
+package com.httye.userinfoapi;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 命令行参数
+ * 格式为 --名称 值，同一名称可以出现多次（如 --set），--名称 后面没有值时视为 true
+ */
+final class HarnessOptions {
+
+    private final Map<String, List<String>> values = new LinkedHashMap<>();
+
+    HarnessOptions(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("无法识别的参数: " + arg);
+            }
+            String name = arg.substring(2);
+            String value = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : "true";
+            values.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+        }
+    }
+
+    /**
+     * 没有指定时使用的值，用于与 PluginHarness 不同的默认值
+     */
+    void putDefault(String name, String value) {
+        values.computeIfAbsent(name, k -> new ArrayList<>(List.of(value)));
+    }
+
+    /**
+     * 在已有的值之前加入一个值，对 --set 这类多值参数相当于可以被用户覆盖的默认值
+     */
+    void addFirst(String name, String value) {
+        values.computeIfAbsent(name, k -> new ArrayList<>()).add(0, value);
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    String getString(String name, String defaultValue) {
+        List<String> list = values.get(name);
+        return list != null ? list.get(list.size() - 1) : defaultValue;
+    }
+
+    int getInt(String name, int defaultValue) {
+        String value = getString(name, null);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    long getLong(String name, long defaultValue) {
+        String value = getString(name, null);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    double getDouble(String name, double defaultValue) {
+        String value = getString(name, null);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    boolean getBoolean(String name, boolean defaultValue) {
+        String value = getString(name, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    /**
+     * 同一名称的所有值
+     */
+    List<String> getAll(String name) {
+        return values.getOrDefault(name, new ArrayList<>());
+    }
+
+    /**
+     * 逗号分隔的整数列表，如 --threads 1,2,4,8
+     */
+    int[] getIntList(String name, int... defaultValue) {
+        String value = getString(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+
+    /**
+     * 所有参数，写入结果文件
+     */
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            map.put(entry.getKey(), String.join(" ", entry.getValue()));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,13 @@
+package com.httye.userinfoapi;
+
+/**
+ * 在模拟服务器上启用的插件
+ * 只由 {@link HarnessPluginLoader} 加载：JavaPlugin 的无参构造器要求插件类由插件类加载器定义，
+ * 插件本身不需要为测试提供额外的构造器
+ */
+public class HarnessPlugin extends UserInfoAPIPlugin {
+
+    public HarnessPlugin() {
+        super();
+    }
+}
@@ -0,0 +1,110 @@
+package com.httye.userinfoapi;
+
+import io.papermc.paper.plugin.configuration.PluginMeta;
+import io.papermc.paper.plugin.provider.classloader.ConfiguredPluginClassLoader;
+import io.papermc.paper.plugin.provider.classloader.PluginClassLoaderGroup;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Logger;
+
+/**
+ * 模拟的插件类加载器
+ * 与服务端的插件类加载器一样实现 {@link ConfiguredPluginClassLoader}，JavaPlugin 的无参构造器通过它完成初始化，
+ * 不需要已弃用的 JavaPluginLoader。只有 {@link HarnessPlugin} 由这里定义，插件的其他类（包括 UserInfoAPIPlugin）
+ * 仍由父加载器加载，负载测试工具可以直接使用插件实例
+ */
+final class HarnessPluginLoader extends ClassLoader implements ConfiguredPluginClassLoader {
+
+    private static final String PLUGIN_CLASS = HarnessPlugin.class.getName();
+
+    private final Server server;
+    private final PluginDescriptionFile description;
+    private final File dataFolder;
+    private final File file;
+    private final Logger logger;
+    private volatile JavaPlugin plugin;
+
+    HarnessPluginLoader(Server server, PluginDescriptionFile description, File dataFolder, File file, Logger logger) {
+        super(HarnessPluginLoader.class.getClassLoader());
+        this.server = server;
+        this.description = description;
+        this.dataFolder = dataFolder;
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * 创建插件实例，构造过程中由 JavaPlugin 回调 {@link #init}
+     */
+    UserInfoAPIPlugin createPlugin() throws ReflectiveOperationException {
+        return (UserInfoAPIPlugin) loadClass(PLUGIN_CLASS).getConstructor().newInstance();
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!PLUGIN_CLASS.equals(name)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> type = findLoadedClass(name);
+            if (type == null) {
+                type = findClass(name);
+            }
+            if (resolve) {
+                resolveClass(type);
+            }
+            return type;
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String resource = name.replace('.', '/') + ".class";
+        try (InputStream in = getParent().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new ClassNotFoundException(name);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            in.transferTo(bytes);
+            return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+
+    @Override
+    public PluginMeta getConfiguration() {
+        return description;
+    }
+
+    @Override
+    public Class<?> loadClass(String name, boolean resolve, boolean checkGlobal, boolean checkLibraries) throws ClassNotFoundException {
+        return loadClass(name, resolve);
+    }
+
+    @Override
+    public void init(JavaPlugin plugin) {
+        plugin.init(server, description, dataFolder, file, this, description, logger);
+        this.plugin = plugin;
+    }
+
+    @Override
+    public JavaPlugin getPlugin() {
+        return plugin;
+    }
+
+    @Override
+    public PluginClassLoaderGroup getGroup() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+    }
+}
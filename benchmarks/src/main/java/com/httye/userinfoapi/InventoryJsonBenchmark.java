@@ -0,0 +1,105 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 背包响应的 JSON 构建
+ * 41 个槽位全部有物品：36 个背包格（方块、附魔工具、带名称和描述的物品、食物）、4 件附魔盔甲和副手盾牌，
+ * 与 /api/user/inventory 的响应结构相同
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryJsonBenchmark {
+
+    private List<ItemSnapshot> inventory;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        inventory = new ArrayList<>();
+        String[] blocks = {"STONE", "COBBLESTONE", "OAK_PLANKS", "DIRT", "SAND", "GLASS", "TORCH", "OAK_LOG",
+            "IRON_INGOT", "GOLD_INGOT", "REDSTONE", "COAL", "ARROW", "BONE", "STRING", "GUNPOWDER", "OBSIDIAN",
+            "DIAMOND", "EMERALD", "LAPIS_LAZULI"};
+        int slot = 0;
+        for (String block : blocks) {
+            inventory.add(item(slot++, "main", block, 64, null, 0, 0, null, null));
+        }
+        inventory.add(item(slot++, "main", "DIAMOND_SWORD", 1, null, 120, 1561, enchantments("sharpness", 5, "looting", 3, "unbreaking", 3, "mending", 1), null));
+        inventory.add(item(slot++, "main", "DIAMOND_PICKAXE", 1, null, 300, 1561, enchantments("efficiency", 5, "fortune", 3, "unbreaking", 3, "mending", 1), null));
+        inventory.add(item(slot++, "main", "DIAMOND_AXE", 1, null, 45, 1561, enchantments("efficiency", 5, "unbreaking", 3), null));
+        inventory.add(item(slot++, "main", "DIAMOND_SHOVEL", 1, null, 12, 1561, enchantments("efficiency", 4, "silk_touch", 1), null));
+        inventory.add(item(slot++, "main", "BOW", 1, null, 80, 384, enchantments("power", 5, "infinity", 1, "flame", 1), null));
+        inventory.add(item(slot++, "main", "FISHING_ROD", 1, null, 20, 64, enchantments("luck_of_the_sea", 3, "lure", 3), null));
+        inventory.add(item(slot++, "main", "SHEARS", 1, null, 5, 238, null, null));
+        inventory.add(item(slot++, "main", "FLINT_AND_STEEL", 1, null, 3, 64, null, null));
+        inventory.add(item(slot++, "main", "NETHERITE_SWORD", 1, "§6龙之牙", 10, 2031,
+            enchantments("sharpness", 5, "fire_aspect", 2, "sweeping", 3), Arrays.asList("§7击败末影龙后获得", "§7伤害 +8")));
+        inventory.add(item(slot++, "main", "WRITTEN_BOOK", 1, "§e服务器规则", 0, 0, null, Arrays.asList("§7请仔细阅读", "§7违者封禁")));
+        inventory.add(item(slot++, "main", "ENCHANTED_GOLDEN_APPLE", 3, "§d附魔金苹果", 0, 0, null, Arrays.asList("§7活动奖励")));
+        inventory.add(item(slot++, "main", "SHULKER_BOX", 1, "§b材料箱", 0, 0, null, Arrays.asList("§7钻石 x64", "§7铁锭 x128", "§7金锭 x32")));
+        inventory.add(item(slot++, "main", "COOKED_BEEF", 48, null, 0, 0, null, null));
+        inventory.add(item(slot++, "main", "BREAD", 32, null, 0, 0, null, null));
+        inventory.add(item(slot++, "main", "GOLDEN_CARROT", 64, null, 0, 0, null, null));
+        inventory.add(item(slot++, "main", "BAKED_POTATO", 16, null, 0, 0, null, null));
+
+        inventory.add(item(36, "armor", "NETHERITE_BOOTS", 1, null, 40, 481, enchantments("protection", 4, "feather_falling", 4, "depth_strider", 3, "mending", 1), null));
+        inventory.add(item(37, "armor", "NETHERITE_LEGGINGS", 1, null, 55, 555, enchantments("protection", 4, "unbreaking", 3, "mending", 1), null));
+        inventory.add(item(38, "armor", "NETHERITE_CHESTPLATE", 1, null, 60, 592, enchantments("protection", 4, "unbreaking", 3, "mending", 1), null));
+        inventory.add(item(39, "armor", "NETHERITE_HELMET", 1, null, 30, 407, enchantments("protection", 4, "respiration", 3, "aqua_affinity", 1, "mending", 1), null));
+        inventory.add(item(40, "offhand", "SHIELD", 1, null, 25, 336, enchantments("unbreaking", 3, "mending", 1), null));
+    }
+
+    private static ItemSnapshot item(int slot, String slotType, String type, int amount, String displayName,
+                                     int durability, int maxDurability, Map<String, Integer> enchantments, List<String> lore) {
+        return new ItemSnapshot(slot, slotType, type, amount, displayName != null ? displayName : type,
+            (short) durability, (short) maxDurability, enchantments, lore);
+    }
+
+    private static Map<String, Integer> enchantments(Object... nameLevels) {
+        Map<String, Integer> enchantments = new LinkedHashMap<>();
+        for (int i = 0; i < nameLevels.length; i += 2) {
+            enchantments.put((String) nameLevels[i], (Integer) nameLevels[i + 1]);
+        }
+        return enchantments;
+    }
+
+    @Benchmark
+    public JsonArray buildTree() {
+        return ItemSnapshot.toJson(inventory);
+    }
+
+    /**
+     * 构建完整响应并编码为 UTF-8，与处理器发送的字节相同
+     */
+    @Benchmark
+    public byte[] buildResponse() {
+        JsonObject inventoryInfo = new JsonObject();
+        inventoryInfo.addProperty("username", "Steve");
+        inventoryInfo.add("inventory", ItemSnapshot.toJson(inventory));
+        inventoryInfo.addProperty("online", true);
+        return inventoryInfo.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
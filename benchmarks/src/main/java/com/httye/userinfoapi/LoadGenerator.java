@@ -0,0 +1,186 @@
+package com.httye.userinfoapi;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 闭环负载生成器
+ * 固定数量的线程各自循环：按权重选择路由、发送请求、等待响应、记录耗时，请求之间不等待。
+ * 逐级增加线程数，吞吐量不再上升而延迟开始上升的位置就是单个节点的承载上限
+ */
+final class LoadGenerator {
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final List<LoadRoute> routes = new ArrayList<>();
+    private final int[] cumulativeWeights;
+    private final String apiKey;
+    private final Duration timeout;
+
+    LoadGenerator(String baseUrl, Collection<LoadRoute> routes, String apiKey, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .build();
+
+        int total = 0;
+        for (LoadRoute route : routes) {
+            if (route.weight > 0) {
+                this.routes.add(route);
+            }
+        }
+        if (this.routes.isEmpty()) {
+            throw new IllegalArgumentException("没有权重大于 0 的路由");
+        }
+        this.cumulativeWeights = new int[this.routes.size()];
+        for (int i = 0; i < this.routes.size(); i++) {
+            total += this.routes.get(i).weight;
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * 用 threads 个线程持续发送请求，预热期间的请求不计入结果
+     */
+    Step run(int threads, Duration warmup, Duration duration, long seed) throws InterruptedException {
+        Step step = new Step(threads);
+        for (LoadRoute route : routes) {
+            step.routes.put(route.name, new RouteStats(route.name));
+        }
+
+        long measureStart = System.nanoTime() + warmup.toNanos();
+        long end = measureStart + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            Random random = new Random(seed + i);
+            Thread worker = new Thread(() -> {
+                try {
+                    runWorker(step, random, measureStart, end);
+                } finally {
+                    done.countDown();
+                }
+            }, "LoadGenerator-" + threads + "-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        done.await();
+        step.elapsedNanos = System.nanoTime() - measureStart;
+        return step;
+    }
+
+    private void runWorker(Step step, Random random, long measureStart, long end) {
+        while (true) {
+            long start = System.nanoTime();
+            if (start >= end) {
+                return;
+            }
+
+            LoadRoute route = pick(random);
+            HttpRequest.Builder builder = route.newRequest(random, baseUrl).timeout(timeout);
+            if (apiKey != null) {
+                builder.header("X-API-Key", apiKey);
+            }
+
+            int status;
+            long bytes = 0;
+            try {
+                HttpResponse<byte[]> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+                status = response.statusCode();
+                bytes = response.body().length;
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            if (start >= measureStart) {
+                step.routes.get(route.name).record(status, elapsed, bytes);
+                step.total.record(status, elapsed, bytes);
+            }
+        }
+    }
+
+    private LoadRoute pick(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return routes.get(i);
+            }
+        }
+        return routes.get(routes.size() - 1);
+    }
+
+    /**
+     * 一级负载（固定线程数）的结果
+     */
+    static final class Step {
+        final int threads;
+        final Map<String, RouteStats> routes = new LinkedHashMap<>();
+        final RouteStats total = new RouteStats("ALL");
+        long elapsedNanos;
+        // 测量结束时模拟服务器最近 100 个 tick 的平均耗时
+        double tickMillis;
+
+        Step(int threads) {
+            this.threads = threads;
+        }
+    }
+
+    /**
+     * 单个路由的请求数、错误数（连接失败、404 以外的 4xx 和 5xx）和延迟分布
+     * 分位数来自 {@link LatencyHistogram}，为所在桶的上界（相对误差约 12%），最大值是精确值
+     */
+    static final class RouteStats {
+        final String name;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        // 429 和 503：被限流或过载保护拒绝，同时计入错误数
+        final LongAdder rejected = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        RouteStats(String name) {
+            this.name = name;
+        }
+
+        void record(int status, long nanos, long responseBytes) {
+            histogram.record(nanos);
+            bytes.add(responseBytes);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            // 404 是查询不存在的玩家的正常结果，不算错误
+            if (status < 200 || (status >= 400 && status != 404)) {
+                errors.increment();
+                if (status == 429 || status == 503) {
+                    rejected.increment();
+                }
+            }
+        }
+
+        long requests() {
+            return histogram.getTotalCount();
+        }
+
+        double percentileMillis(long[] counts, double percentile) {
+            return LatencyHistogram.percentile(counts, percentile) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 负载测试结果输出
+ * 每级负载每个路由一行（另加 ALL 汇总行），CSV 便于导入表格，JSON 同时包含测试参数
+ */
+final class LoadReport {
+
+    private static final String CSV_HEADER = "threads,route,requests,errors,rejected,rps,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,avg_bytes,tick_ms";
+
+    private final Map<String, Object> parameters;
+    private final List<LoadGenerator.Step> steps = new ArrayList<>();
+
+    LoadReport(Map<String, Object> parameters) {
+        this.parameters = parameters;
+    }
+
+    void add(LoadGenerator.Step step) {
+        steps.add(step);
+    }
+
+    /**
+     * 一级负载的汇总，输出到控制台
+     */
+    static String summary(LoadGenerator.Step step) {
+        LoadGenerator.RouteStats total = step.total;
+        long[] counts = total.histogram.snapshotCumulative();
+        return String.format(Locale.ROOT, "threads=%d requests=%d errors=%d rps=%.1f p50=%.2fms p99=%.2fms max=%.2fms tick=%.2fms",
+            step.threads, total.requests(), total.errors.sum(), rps(step, total),
+            total.percentileMillis(counts, 50), total.percentileMillis(counts, 99), total.maxNanos.get() / 1_000_000.0,
+            step.tickMillis);
+    }
+
+    void writeCsv(PrintStream out) {
+        out.println(CSV_HEADER);
+        for (LoadGenerator.Step step : steps) {
+            for (LoadGenerator.RouteStats stats : step.routes.values()) {
+                out.println(csvRow(step, stats));
+            }
+            out.println(csvRow(step, step.total));
+        }
+    }
+
+    private static String csvRow(LoadGenerator.Step step, LoadGenerator.RouteStats stats) {
+        long[] counts = stats.histogram.snapshotCumulative();
+        long requests = stats.requests();
+        return String.format(Locale.ROOT, "%d,%s,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%.2f",
+            step.threads, stats.name, requests, stats.errors.sum(), stats.rejected.sum(), rps(step, stats),
+            meanMillis(stats), stats.percentileMillis(counts, 50), stats.percentileMillis(counts, 90),
+            stats.percentileMillis(counts, 99), stats.percentileMillis(counts, 99.9), stats.maxNanos.get() / 1_000_000.0,
+            requests > 0 ? stats.bytes.sum() / requests : 0, step.tickMillis);
+    }
+
+    void writeJson(PrintStream out) {
+        JsonObject report = new JsonObject();
+        JsonObject params = new JsonObject();
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Number) {
+                params.addProperty(entry.getKey(), (Number) value);
+            } else if (value instanceof Boolean) {
+                params.addProperty(entry.getKey(), (Boolean) value);
+            } else {
+                params.addProperty(entry.getKey(), String.valueOf(value));
+            }
+        }
+        report.add("parameters", params);
+
+        JsonArray stepArray = new JsonArray();
+        for (LoadGenerator.Step step : steps) {
+            JsonObject stepJson = new JsonObject();
+            stepJson.addProperty("threads", step.threads);
+            stepJson.addProperty("seconds", step.elapsedNanos / 1_000_000_000.0);
+            stepJson.addProperty("tickMs", step.tickMillis);
+            JsonArray routes = new JsonArray();
+            for (LoadGenerator.RouteStats stats : step.routes.values()) {
+                routes.add(statsJson(step, stats));
+            }
+            stepJson.add("routes", routes);
+            stepJson.add("total", statsJson(step, step.total));
+            stepArray.add(stepJson);
+        }
+        report.add("steps", stepArray);
+
+        out.println(new GsonBuilder().setPrettyPrinting().create().toJson(report));
+    }
+
+    private static JsonObject statsJson(LoadGenerator.Step step, LoadGenerator.RouteStats stats) {
+        long[] counts = stats.histogram.snapshotCumulative();
+        long requests = stats.requests();
+        JsonObject json = new JsonObject();
+        json.addProperty("route", stats.name);
+        json.addProperty("requests", requests);
+        json.addProperty("errors", stats.errors.sum());
+        json.addProperty("rejected", stats.rejected.sum());
+        json.addProperty("rps", rps(step, stats));
+        json.addProperty("meanMs", meanMillis(stats));
+        json.addProperty("p50Ms", stats.percentileMillis(counts, 50));
+        json.addProperty("p90Ms", stats.percentileMillis(counts, 90));
+        json.addProperty("p99Ms", stats.percentileMillis(counts, 99));
+        json.addProperty("p999Ms", stats.percentileMillis(counts, 99.9));
+        json.addProperty("maxMs", stats.maxNanos.get() / 1_000_000.0);
+        json.addProperty("avgBytes", requests > 0 ? stats.bytes.sum() / requests : 0);
+        return json;
+    }
+
+    private static double rps(LoadGenerator.Step step, LoadGenerator.RouteStats stats) {
+        return step.elapsedNanos > 0 ? stats.requests() * 1_000_000_000.0 / step.elapsedNanos : 0;
+    }
+
+    private static double meanMillis(LoadGenerator.RouteStats stats) {
+        long requests = stats.requests();
+        return requests > 0 ? stats.histogram.getTotalMicros() / 1000.0 / requests : 0;
+    }
+}
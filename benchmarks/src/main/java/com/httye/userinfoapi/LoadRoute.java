@@ -0,0 +1,93 @@
+package com.httye.userinfoapi;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+/**
+ * 负载测试的路由
+ * 每个路由按权重被选中，每次请求随机选择在线玩家作为参数
+ */
+final class LoadRoute {
+
+    final String name;
+    final int weight;
+    private final BiFunction<Random, String, HttpRequest.Builder> request;
+
+    private LoadRoute(String name, int weight, BiFunction<Random, String, HttpRequest.Builder> request) {
+        this.name = name;
+        this.weight = weight;
+        this.request = request;
+    }
+
+    LoadRoute withWeight(int weight) {
+        return new LoadRoute(name, weight, request);
+    }
+
+    HttpRequest.Builder newRequest(Random random, String baseUrl) {
+        return request.apply(random, baseUrl);
+    }
+
+    /**
+     * 所有路由及默认权重；权重为 0 的路由只在显式指定时使用
+     *
+     * @param players   在线玩家名称
+     * @param batchSize 批量查询每次的玩家数
+     */
+    static Map<String, LoadRoute> all(List<String> players, int batchSize) {
+        Map<String, LoadRoute> routes = new LinkedHashMap<>();
+        add(routes, get("info", 20, players, "/api/user/info?username=%s"));
+        add(routes, get("info-fields", 0, players, "/api/user/info?username=%s&fields=level,online,location.world"));
+        add(routes, get("level", 10, players, "/api/user/level?username=%s"));
+        add(routes, get("location", 10, players, "/api/user/location?username=%s"));
+        add(routes, get("inventory", 10, players, "/api/user/inventory?username=%s"));
+        add(routes, get("login-records", 10, players, "/api/user/login-records?username=%s&limit=10"));
+        add(routes, get("chat-records", 5, players, "/api/chat-records?username=%s&limit=50"));
+        add(routes, new LoadRoute("info-offline", 3, (random, base) ->
+            HttpRequest.newBuilder(URI.create(base + "/api/user/info?username=Offline" + random.nextInt(100000)))));
+        add(routes, get("online-players", 5, null, "/api/online-players"));
+        add(routes, get("status", 5, null, "/api/status"));
+        add(routes, get("resources", 2, null, "/api/server/resources"));
+        add(routes, get("resources-history", 0, null, "/api/server/resources/history"));
+        add(routes, get("metrics", 1, null, "/metrics"));
+        add(routes, get("export", 0, null, "/api/export?type=players&format=json"));
+        add(routes, batch("batch", 2, players, batchSize, "\"info\""));
+        add(routes, batch("batch-records", 0, players, batchSize, "[\"login-records\",\"chat\",\"playtime\"]"));
+        return routes;
+    }
+
+    private static LoadRoute batch(String name, int weight, List<String> players, int batchSize, String queryType) {
+        return new LoadRoute(name, weight, (random, base) -> {
+            StringBuilder body = new StringBuilder("{\"queryType\":" + queryType + ",\"usernames\":[");
+            for (int i = 0; i < batchSize; i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                body.append('"').append(players.get(random.nextInt(players.size()))).append('"');
+            }
+            body.append("]}");
+            return HttpRequest.newBuilder(URI.create(base + "/api/user/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+        });
+    }
+
+    private static void add(Map<String, LoadRoute> routes, LoadRoute route) {
+        routes.put(route.name, route);
+    }
+
+    private static LoadRoute get(String name, int weight, List<String> players, String path) {
+        return new LoadRoute(name, weight, (random, base) -> {
+            String uri = players != null
+                ? String.format(path, URLEncoder.encode(players.get(random.nextInt(players.size())), StandardCharsets.UTF_8))
+                : path;
+            return HttpRequest.newBuilder(URI.create(base + uri));
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package com.httye.userinfoapi;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 端到端负载测试
+ * 在模拟服务器上启动插件（真实的 APIServer、处理器、调度器和存储），用内置的多线程客户端按路由权重发送请求，
+ * 输出每级线程数下各路由的吞吐量和延迟分位数。
+ *
+ * <p>除 {@link PluginHarness} 的参数外：
+ * <ul>
+ *   <li>--threads 逗号分隔的并发线程数，逐级运行（默认 1,4,16,64）</li>
+ *   <li>--warmup 每级预热秒数（默认 5）</li>
+ *   <li>--duration 每级测量秒数（默认 20）</li>
+ *   <li>--routes 路由及权重，如 info:5,inventory:2,batch；不指定时使用所有默认权重大于 0 的路由</li>
+ *   <li>--batch-size 批量查询每次的玩家数（默认 10）</li>
+ *   <li>--api-key 开启认证时使用的密钥</li>
+ *   <li>--timeout 单个请求的超时秒数（默认 10）</li>
+ *   <li>--format csv 或 json（默认 csv）</li>
+ *   <li>--out 结果文件，不指定时输出到标准输出</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        HarnessOptions options = new HarnessOptions(args);
+        int[] threadSteps = options.getIntList("threads", 1, 4, 16, 64);
+        Duration warmup = Duration.ofSeconds(options.getLong("warmup", 5));
+        Duration duration = Duration.ofSeconds(options.getLong("duration", 20));
+        String format = options.getString("format", "csv");
+        if (!format.equals("csv") && !format.equals("json")) {
+            throw new IllegalArgumentException("--format 只支持 csv 和 json");
+        }
+
+        LoadReport report = new LoadReport(options.toMap());
+        try (PluginHarness harness = PluginHarness.start(options)) {
+            List<LoadRoute> routes = selectRoutes(options.getString("routes", null),
+                LoadRoute.all(harness.playerNames(), options.getInt("batch-size", 10)));
+            LoadGenerator generator = new LoadGenerator(harness.baseUrl(), routes, options.getString("api-key", null),
+                Duration.ofSeconds(options.getLong("timeout", 10)));
+
+            System.err.println("插件已在 " + harness.baseUrl() + " 启动，在线玩家 " + harness.players.size());
+            for (int threads : threadSteps) {
+                LoadGenerator.Step step = generator.run(threads, warmup, duration, options.getLong("seed", 42));
+                step.tickMillis = harness.server.getScheduler().getAverageTickTime();
+                report.add(step);
+                System.err.println(LoadReport.summary(step));
+            }
+        }
+
+        String out = options.getString("out", null);
+        try (PrintStream stream = out != null
+                ? new PrintStream(new FileOutputStream(out), true, StandardCharsets.UTF_8)
+                : new PrintStream(System.out, true, StandardCharsets.UTF_8)) {
+            if (format.equals("json")) {
+                report.writeJson(stream);
+            } else {
+                report.writeCsv(stream);
+            }
+        }
+        // HTTP 客户端和插件的线程池不一定都是守护线程
+        System.exit(0);
+    }
+
+    private static List<LoadRoute> selectRoutes(String spec, Map<String, LoadRoute> all) {
+        List<LoadRoute> routes = new ArrayList<>();
+        if (spec == null) {
+            routes.addAll(all.values());
+            return routes;
+        }
+        for (String part : spec.split(",")) {
+            String[] nameWeight = part.trim().split(":");
+            LoadRoute route = all.get(nameWeight[0]);
+            if (route == null) {
+                throw new IllegalArgumentException("未知路由: " + nameWeight[0] + "，可选: " + all.keySet());
+            }
+            int weight = nameWeight.length > 1 ? Integer.parseInt(nameWeight[1]) : Math.max(1, route.weight);
+            routes.add(route.withWeight(weight));
+        }
+        return routes;
+    }
+}
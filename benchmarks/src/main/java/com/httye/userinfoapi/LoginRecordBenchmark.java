@@ -0,0 +1,123 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * 登录记录查询
+ * 在临时目录中按插件的文件格式生成记录：被查询的玩家有 sessions 条，另外 otherPlayers 个玩家各 20 条。
+ * 第一次读取时列出整个目录建立文件名索引（在预热中完成），之后只打开被查询玩家的文件；结果受操作系统文件缓存影响，只适合前后对比。
+ * batch 开头的基准比较批量查询 BATCH_PLAYERS 个玩家的最近记录和在线时长：逐个玩家查询与一次批量读取（每个文件只解析一次）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginRecordBenchmark {
+
+    private static final int SESSIONS_PER_OTHER_PLAYER = 20;
+    private static final int BATCH_PLAYERS = 20;
+
+    @Param({"10", "200"})
+    public int sessions;
+
+    @Param({"0", "500"})
+    public int otherPlayers;
+
+    private File dataFolder;
+    private LoginRecordStore store;
+    private String playerId;
+    private Set<String> batchPlayerIds;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("userinfoapi-login-records").toFile();
+        store = new LoginRecordStore(dataFolder, Logger.getLogger("LoginRecordBenchmark"));
+
+        playerId = UUID.randomUUID().toString();
+        writeSessions(playerId, "Steve", sessions);
+        batchPlayerIds = new HashSet<>();
+        batchPlayerIds.add(playerId);
+        for (int i = 0; i < otherPlayers; i++) {
+            String id = UUID.randomUUID().toString();
+            writeSessions(id, "Player" + i, SESSIONS_PER_OTHER_PLAYER);
+            if (batchPlayerIds.size() < BATCH_PLAYERS) {
+                batchPlayerIds.add(id);
+            }
+        }
+    }
+
+    private void writeSessions(String id, String username, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            JsonObject record = new JsonObject();
+            record.addProperty("username", username);
+            record.addProperty("playerId", id);
+            record.addProperty("ipAddress", "192.168.1." + (i % 250));
+            record.addProperty("loginTime", String.format("2024-01-%02d 12:00:00", 1 + i % 28));
+            record.addProperty("logoutTime", String.format("2024-01-%02d 13:30:00", 1 + i % 28));
+            record.addProperty("onlineTime", 5400);
+            store.write(String.format("%s_2024%04d_120000.json", id, i), record);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dataFolder.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public JsonArray recentRecords() {
+        return store.readRecords(playerId, 10, Collections.emptySet());
+    }
+
+    @Benchmark
+    public long totalOnlineTime() {
+        return store.sumOnlineTime(playerId, Collections.emptySet());
+    }
+
+    @Benchmark
+    public long batchPerPlayer() {
+        long total = 0;
+        for (String id : batchPlayerIds) {
+            total += store.readRecords(id, 10, Collections.emptySet()).size();
+            total += store.sumOnlineTime(id, Collections.emptySet());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Map<String, LoginRecordStore.PlayerRecords> batchSinglePass() {
+        return store.readBatch(batchPlayerIds, 10, true, Collections.emptySet());
+    }
+}
@@ -0,0 +1,220 @@
+package com.httye.userinfoapi;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * 在模拟服务器上启动插件并准备数据
+ * 依次写入登录历史、启用插件、玩家加入、发送聊天，然后等待 HTTP 服务可用。
+ *
+ * <p>参数：
+ * <ul>
+ *   <li>--players 玩家数（默认 100），全部加入服务器</li>
+ *   <li>--items 每个玩家背包的非空槽位数，最多 41（默认 36）</li>
+ *   <li>--sessions 每个玩家已保存的登录记录数（默认 20）</li>
+ *   <li>--chat 每个玩家已有的聊天记录数（默认 20）</li>
+ *   <li>--tick-work 每个 tick 模拟游戏逻辑占用主线程的微秒数（默认 0）</li>
+ *   <li>--tick-millis 主线程 tick 的间隔毫秒数（默认 50）</li>
+ *   <li>--seed 随机种子（默认 42）</li>
+ *   <li>--data-dir 插件数据目录，不指定时使用临时目录并在结束后删除</li>
+ *   <li>--set 路径=值，覆盖插件配置，可以多次指定</li>
+ *   <li>--log-level 服务器和插件的日志级别（默认 WARNING）</li>
+ * </ul>
+ */
+final class PluginHarness implements AutoCloseable {
+
+    final FakeServer server;
+    final SyntheticPlayers synthetic;
+    final List<FakePlayer> players = new ArrayList<>();
+    final File dataFolder;
+    final int port;
+    UserInfoAPIPlugin plugin;
+
+    private final boolean temporaryDataFolder;
+    private final Logger logger;
+
+    private PluginHarness(FakeServer server, File dataFolder, boolean temporaryDataFolder, int port, long seed) {
+        this.server = server;
+        this.dataFolder = dataFolder;
+        this.temporaryDataFolder = temporaryDataFolder;
+        this.port = port;
+        this.logger = server.getLogger();
+        this.synthetic = new SyntheticPlayers(seed, server.getDefaultWorld());
+    }
+
+    static PluginHarness start(HarnessOptions options) throws Exception {
+        return start(options, true);
+    }
+
+    /**
+     * populate 为 false 时只生成玩家和登录历史，不加入服务器也不发送聊天，由调用方触发这些事件
+     */
+    static PluginHarness start(HarnessOptions options, boolean populate) throws Exception {
+        int playerCount = options.getInt("players", 100);
+        int items = options.getInt("items", 36);
+        int sessions = options.getInt("sessions", 20);
+        int chat = options.getInt("chat", 20);
+        if (playerCount < 1) {
+            throw new IllegalArgumentException("--players 至少为 1");
+        }
+
+        String dataDir = options.getString("data-dir", null);
+        File dataFolder = dataDir != null ? new File(dataDir) : Files.createTempDirectory("userinfoapi-harness").toFile();
+
+        FakeServer server = new FakeServer();
+        server.setLogLevel(Level.parse(options.getString("log-level", "WARNING")));
+        server.setMaxPlayers(Math.max(playerCount, 100));
+        server.getScheduler().setTickWork(options.getLong("tick-work", 0));
+        server.getScheduler().setTickInterval(options.getLong("tick-millis", FakeScheduler.TICK_MILLIS));
+        server.start();
+
+        PluginHarness harness = new PluginHarness(server, dataFolder, dataDir == null, freePort(), options.getLong("seed", 42));
+        try {
+            harness.createPlayers(playerCount, items, sessions);
+            harness.enable(options.getAll("set"));
+            if (populate) {
+                harness.joinAll();
+                harness.sendChat(chat);
+            }
+            harness.awaitHttp();
+        } catch (Exception e) {
+            harness.close();
+            throw e;
+        }
+        return harness;
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + port;
+    }
+
+    List<String> playerNames() {
+        List<String> names = new ArrayList<>();
+        for (FakePlayer player : players) {
+            names.add(player.name);
+        }
+        return names;
+    }
+
+    private void createPlayers(int count, int items, int sessions) throws IOException {
+        LoginRecordStore store = new LoginRecordStore(new File(dataFolder, "login_records"), logger);
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            FakePlayer player = synthetic.createPlayer(i, items);
+            players.add(player);
+            bytes += synthetic.writeLoginHistory(store, player, sessions);
+        }
+        logger.info("已生成 " + count + " 个玩家，登录记录 " + (count * sessions) + " 条（" + bytes / 1024 + " KB）");
+    }
+
+    private void enable(List<String> overrides) throws Exception {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("api.host", "127.0.0.1");
+        config.put("api.port", port);
+        // 默认只测处理能力：关闭限流和请求日志，需要时用 --set 打开
+        config.put("rate-limit.enabled", false);
+        config.put("logging.log-requests", false);
+        config.put("installation.show-welcome-message", false);
+        config.put("installation.check-port-conflicts", false);
+        for (String override : overrides) {
+            int separator = override.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("--set 格式应为 路径=值: " + override);
+            }
+            config.put(override.substring(0, separator), parseValue(override.substring(separator + 1)));
+        }
+        plugin = server.enablePlugin(dataFolder, config);
+    }
+
+    private static Object parseValue(String value) {
+        if (value.equals("true") || value.equals("false")) {
+            return Boolean.parseBoolean(value);
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ignored) {
+            // 不是整数
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ignored) {
+            return value;
+        }
+    }
+
+    private void joinAll() throws Exception {
+        server.joinAll(players);
+    }
+
+    /**
+     * 每个玩家发送 count 条聊天消息，与服务端一样在异步线程触发事件
+     */
+    private void sendChat(int count) {
+        for (int i = 0; i < count; i++) {
+            for (FakePlayer player : players) {
+                server.callEvent(new AsyncPlayerChatEvent(true, player.getPlayer(), synthetic.chatMessage(), new HashSet<Player>()));
+            }
+        }
+    }
+
+    private void awaitHttp() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl() + "/api/status").openConnection();
+                connection.setConnectTimeout(1000);
+                connection.setReadTimeout(1000);
+                if (connection.getResponseCode() == 200) {
+                    connection.disconnect();
+                    return;
+                }
+                connection.disconnect();
+            } catch (IOException e) {
+                // 服务尚未启动
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("API 服务器 10 秒内没有启动");
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            if (plugin != null) {
+                server.disablePlugin(plugin);
+            }
+        } finally {
+            server.shutdown();
+            if (temporaryDataFolder) {
+                try (Stream<Path> files = Files.walk(dataFolder.toPath())) {
+                    files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+                }
+            }
+        }
+    }
+}
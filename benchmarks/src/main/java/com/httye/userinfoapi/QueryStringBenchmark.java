@@ -0,0 +1,105 @@
+package com.httye.userinfoapi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询参数读取
+ * 每个请求在限流、认证和处理器中各读取一次 api_key / username 等参数，
+ * 比较每次单独扫描查询字符串（{@link #getParam}，处理器改用 RequestContext 之前的做法）和通过 {@link RequestContext} 解析一次后查找（parse）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryStringBenchmark {
+
+    @Param({
+        "username=Steve",
+        "username=Steve&api_key=UK_a8Fk2LmQ9xZp4RtY7wVb3NcE6hJd1GsK",
+        "type=players&format=csv&username=Steve&limit=100&all=true&api_key=UK_a8Fk2LmQ9xZp4RtY7wVb3NcE6hJd1GsK",
+        "username=%E5%B0%8F%E6%98%8E&api_key=UK_a8Fk2LmQ9xZp4RtY7wVb3NcE6hJd1GsK"
+    })
+    public String query;
+
+    @Benchmark
+    public String firstParam() {
+        return getParam(query, "username");
+    }
+
+    @Benchmark
+    public String apiKey() {
+        return getParam(query, "api_key");
+    }
+
+    @Benchmark
+    public String missingParam() {
+        return getParam(query, "range");
+    }
+
+    /**
+     * 一次请求经过限流、认证和处理器时的读取次数
+     */
+    @Benchmark
+    public int perRequest() {
+        int found = 0;
+        found += getParam(query, "api_key") != null ? 1 : 0;
+        found += getParam(query, "api_key") != null ? 1 : 0;
+        found += getParam(query, "username") != null ? 1 : 0;
+        return found;
+    }
+
+    /**
+     * 读取查询参数的原始值（不做 URL 解码），参数不存在或没有值时返回 null，只作为对比基线
+     */
+    static String getParam(String query, String paramName) {
+        if (query == null || query.isEmpty()) {
+            return null;
+        }
+
+        int length = query.length();
+        int start = 0;
+        while (start < length) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            int nameEnd = start + paramName.length();
+            if (nameEnd < end && query.charAt(nameEnd) == '=' && query.startsWith(paramName, start)) {
+                return nameEnd + 1 < end ? query.substring(nameEnd + 1, end) : null;
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    @Benchmark
+    public QueryStrings.Params parse() {
+        return QueryStrings.parse(query);
+    }
+
+    /**
+     * 同样的读取通过 RequestContext：解析一次（包括 URL 解码），之后顺序查找
+     */
+    @Benchmark
+    public int perRequestParsed() {
+        QueryStrings.Params params = QueryStrings.parse(query);
+        int found = 0;
+        found += params.get("api_key") != null ? 1 : 0;
+        found += params.get("api_key") != null ? 1 : 0;
+        found += params.get("username") != null ? 1 : 0;
+        return found;
+    }
+}
@@ -0,0 +1,108 @@
+package com.httye.userinfoapi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流判断
+ * 使用默认配置（每分钟 60 次、每小时 1000 次）。被限流的客户端每次请求都要扫描一小时内的全部请求时间，
+ * 是滥用时的最坏情况；大量不同客户端首次请求时主要是 Map 的插入开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int REQUESTS_PER_MINUTE = 60;
+    private static final int REQUESTS_PER_HOUR = 1000;
+
+    /**
+     * 一个已达到限制的客户端：60 表示最近一分钟内有 60 次请求，1000 表示一小时内有 1000 次请求
+     */
+    @State(Scope.Benchmark)
+    public static class LimitedClient {
+        @Param({"60", "1000"})
+        public int recordedRequests;
+
+        RateLimiter limiter;
+        long now;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            limiter = new RateLimiter(REQUESTS_PER_MINUTE, REQUESTS_PER_HOUR);
+            now = System.currentTimeMillis();
+            long span = recordedRequests <= REQUESTS_PER_MINUTE ? 59_000L : 3_500_000L;
+            long step = span / recordedRequests;
+            for (int i = 0; i < recordedRequests; i++) {
+                limiter.tryAcquire("ip:203.0.113.7", now - span + i * step);
+            }
+        }
+    }
+
+    /**
+     * 大量不同客户端，每轮迭代重新创建，每个客户端的请求数远低于限制
+     */
+    @State(Scope.Benchmark)
+    public static class ManyClients {
+        static final int CLIENTS = 1 << 20;
+
+        final String[] clientIds = new String[CLIENTS];
+        RateLimiter limiter;
+
+        @Setup(Level.Trial)
+        public void createIds() {
+            for (int i = 0; i < CLIENTS; i++) {
+                clientIds[i] = "ip:10." + ((i >> 16) & 0xFF) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            limiter = new RateLimiter(REQUESTS_PER_MINUTE, REQUESTS_PER_HOUR);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public boolean rejectLimitedClient(LimitedClient state) {
+        return state.limiter.tryAcquire("ip:203.0.113.7", state.now);
+    }
+
+    @Benchmark
+    public RateLimitHandler.RateLimitStats statsLimitedClient(LimitedClient state) {
+        // 被拒绝时响应头和 JFR 事件还要再读取一次计数
+        return state.limiter.getStats("ip:203.0.113.7", state.now);
+    }
+
+    @Benchmark
+    public boolean acceptDistinctClients(ManyClients state, Cursor cursor) {
+        String clientId = state.clientIds[cursor.next++ & (ManyClients.CLIENTS - 1)];
+        return state.limiter.tryAcquire(clientId, System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean acceptDistinctClientsContended(ManyClients state, Cursor cursor) {
+        String clientId = state.clientIds[cursor.next++ & (ManyClients.CLIENTS - 1)];
+        return state.limiter.tryAcquire(clientId, System.currentTimeMillis());
+    }
+}
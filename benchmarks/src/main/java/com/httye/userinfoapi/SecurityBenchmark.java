@@ -0,0 +1,88 @@
+package com.httye.userinfoapi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IP 白名单和 API 密钥验证
+ * 白名单一半是精确地址、一半是 /24 网段；命中网段的地址匹配的是最后一个网段，即最坏情况
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityBenchmark {
+
+    @Param({"2", "16", "256"})
+    public int allowListSize;
+
+    private SecurityManager securityManager;
+    private String exactIp;
+    private String rangeIp;
+    private String deniedIp;
+    private String validKey;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> allowedIPs = new ArrayList<>();
+        int ranges = allowListSize / 2;
+        for (int i = 0; i < allowListSize - ranges; i++) {
+            allowedIPs.add("198.51." + (i >> 8) + "." + (i & 0xFF));
+        }
+        for (int i = 0; i < ranges; i++) {
+            allowedIPs.add("10." + (i >> 8) + "." + (i & 0xFF) + ".0/24");
+        }
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            keys.add(String.format("UK_%032d", i));
+        }
+
+        securityManager = new SecurityManager(true, allowedIPs, keys);
+        exactIp = allowedIPs.get(0);
+        rangeIp = "10." + ((ranges - 1) >> 8) + "." + ((ranges - 1) & 0xFF) + ".77";
+        deniedIp = "203.0.113.7";
+        validKey = keys.get(keys.size() - 1);
+    }
+
+    @Benchmark
+    public boolean allowExactIp() {
+        return securityManager.validateIPAddress(exactIp);
+    }
+
+    @Benchmark
+    public boolean allowRangeIp() {
+        return securityManager.validateIPAddress(rangeIp);
+    }
+
+    @Benchmark
+    public boolean denyIp() {
+        return securityManager.validateIPAddress(deniedIp);
+    }
+
+    @Benchmark
+    public boolean validKey() {
+        return securityManager.validateApiKey(validKey);
+    }
+
+    @Benchmark
+    public boolean invalidKey() {
+        return securityManager.validateApiKey("UK_00000000000000000000000000000000x");
+    }
+}
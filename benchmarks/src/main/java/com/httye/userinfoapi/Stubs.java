@@ -0,0 +1,105 @@
+package com.httye.userinfoapi;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用动态代理实现 Bukkit 接口
+ * Bukkit 的接口方法很多，模拟服务器只按方法名应答用到的部分，其余方法返回默认值
+ * （数字为 0、布尔为 false、集合和数组为空、其他为 null），不需要跟随 API 版本补全实现
+ */
+final class Stubs {
+
+    /**
+     * 应答方法调用，返回 {@link #DEFAULT} 时使用默认值
+     */
+    interface Answer {
+        Object answer(String method, Object[] args) throws Throwable;
+    }
+
+    static final Object DEFAULT = new Object();
+
+    private Stubs() {
+    }
+
+    static <T> T proxy(Class<T> type, Answer answer) {
+        return type.cast(proxy(new Class<?>[]{type}, answer));
+    }
+
+    static Object proxy(Class<?>[] types, Answer answer) {
+        String name = types[0].getSimpleName();
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object[] arguments = args != null ? args : new Object[0];
+            switch (method.getName()) {
+                case "equals":
+                    if (arguments.length == 1 && method.getParameterTypes()[0] == Object.class) {
+                        return proxy == arguments[0];
+                    }
+                    break;
+                case "hashCode":
+                    if (arguments.length == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                    break;
+                case "toString":
+                    if (arguments.length == 0) {
+                        return "Fake" + name + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                    }
+                    break;
+                default:
+                    break;
+            }
+            Object result = answer.answer(method.getName(), arguments);
+            return result == DEFAULT ? defaultValue(method) : result;
+        };
+        return Proxy.newProxyInstance(Stubs.class.getClassLoader(), types, handler);
+    }
+
+    static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        if (type == float.class) {
+            return 0.0f;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == char.class) {
+            return (char) 0;
+        }
+        if (type == List.class || type == Collection.class) {
+            return Collections.emptyList();
+        }
+        if (type == Set.class) {
+            return Collections.emptySet();
+        }
+        if (type == Map.class) {
+            return Collections.emptyMap();
+        }
+        if (type.isArray()) {
+            return Array.newInstance(type.getComponentType(), 0);
+        }
+        return null;
+    }
+}
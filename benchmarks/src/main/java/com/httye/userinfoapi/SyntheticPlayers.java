@@ -0,0 +1,191 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成模拟玩家、背包、登录历史和聊天内容
+ * 同一个种子生成的数据相同，便于前后对比
+ */
+final class SyntheticPlayers {
+
+    private static final Material[] BLOCKS = {
+        Material.STONE, Material.COBBLESTONE, Material.OAK_PLANKS, Material.DIRT, Material.SAND, Material.GLASS,
+        Material.TORCH, Material.OAK_LOG, Material.IRON_INGOT, Material.GOLD_INGOT, Material.REDSTONE, Material.COAL,
+        Material.ARROW, Material.BONE, Material.STRING, Material.GUNPOWDER, Material.OBSIDIAN, Material.DIAMOND,
+        Material.EMERALD, Material.LAPIS_LAZULI
+    };
+    private static final Material[] TOOLS = {
+        Material.DIAMOND_SWORD, Material.DIAMOND_PICKAXE, Material.DIAMOND_AXE, Material.DIAMOND_SHOVEL,
+        Material.NETHERITE_SWORD, Material.NETHERITE_PICKAXE, Material.IRON_SWORD, Material.IRON_PICKAXE,
+        Material.BOW, Material.FISHING_ROD, Material.SHEARS, Material.FLINT_AND_STEEL
+    };
+    private static final Material[] FOOD = {
+        Material.COOKED_BEEF, Material.BREAD, Material.GOLDEN_CARROT, Material.BAKED_POTATO
+    };
+    private static final Material[] NAMED = {
+        Material.WRITTEN_BOOK, Material.ENCHANTED_GOLDEN_APPLE, Material.SHULKER_BOX
+    };
+    // 靴子、护腿、胸甲、头盔，与 getArmorContents 的顺序相同
+    private static final Material[][] ARMOR = {
+        {Material.NETHERITE_BOOTS, Material.NETHERITE_LEGGINGS, Material.NETHERITE_CHESTPLATE, Material.NETHERITE_HELMET},
+        {Material.DIAMOND_BOOTS, Material.DIAMOND_LEGGINGS, Material.DIAMOND_CHESTPLATE, Material.DIAMOND_HELMET},
+        {Material.IRON_BOOTS, Material.IRON_LEGGINGS, Material.IRON_CHESTPLATE, Material.IRON_HELMET}
+    };
+    private static final String[] ITEM_NAMES = {"§6龙之牙", "§e服务器规则", "§d活动奖励", "§b材料箱", "§a新手礼包"};
+    private static final String[] LORE = {"§7击败末影龙后获得", "§7伤害 +8", "§7请仔细阅读", "§7违者封禁", "§7钻石 x64", "§7铁锭 x128"};
+    private static final String[] CHAT = {
+        "大家好", "有人一起去下界吗", "主城的传送点在哪", "谁有多余的铁锭", "今晚有活动吗",
+        "gg", "brb", "anyone selling diamonds?", "tp me pls", "这个服务器真不错",
+        "刚挖到一组钻石", "末影龙什么时候刷新", "求个附魔台", "lag?", "管理员在吗"
+    };
+
+    private final Random random;
+    private final World world;
+
+    SyntheticPlayers(long seed, World world) {
+        this.random = new Random(seed);
+        this.world = world;
+    }
+
+    static String playerName(int index) {
+        return "Player" + index;
+    }
+
+    /**
+     * 生成一个玩家，背包中有 items 个非空槽位（最多 41 个）：先填背包格，再填盔甲和副手
+     */
+    FakePlayer createPlayer(int index, int items) {
+        String name = playerName(index);
+        UUID uniqueId = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+        Location location = new Location(world, random.nextInt(20000) - 10000 + random.nextDouble(),
+            40 + random.nextInt(100), random.nextInt(20000) - 10000 + random.nextDouble(),
+            random.nextFloat() * 360 - 180, random.nextFloat() * 180 - 90);
+        long firstPlayed = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30 + random.nextInt(300));
+
+        FakePlayer player = new FakePlayer(name, uniqueId, new InetSocketAddress(address(index), 25565),
+            firstPlayed, location);
+        player.level = random.nextInt(60);
+        player.exp = random.nextFloat();
+        player.health = 1 + random.nextInt(20);
+        player.foodLevel = random.nextInt(21);
+        player.gameMode = random.nextInt(10) == 0 ? GameMode.CREATIVE : GameMode.SURVIVAL;
+
+        int filled = Math.min(items, 41);
+        for (int slot = 0; slot < Math.min(filled, 36); slot++) {
+            player.slots[slot] = randomItem();
+        }
+        if (filled > 36) {
+            Material[] armor = ARMOR[random.nextInt(ARMOR.length)];
+            for (int i = 0; i < Math.min(filled - 36, 4); i++) {
+                player.slots[36 + i] = damaged(armor[i]);
+            }
+        }
+        if (filled > 40) {
+            player.slots[40] = damaged(Material.SHIELD);
+        }
+        return player;
+    }
+
+    private ItemStack randomItem() {
+        int kind = random.nextInt(10);
+        if (kind < 6) {
+            return new FakePlayer.FakeItemStack(BLOCKS[random.nextInt(BLOCKS.length)], 1 + random.nextInt(64));
+        }
+        if (kind < 8) {
+            Material tool = TOOLS[random.nextInt(TOOLS.length)];
+            if (random.nextInt(4) == 0) {
+                return new FakePlayer.FakeItemStack(tool, 1, random.nextInt(tool.getMaxDurability()),
+                    ITEM_NAMES[random.nextInt(ITEM_NAMES.length)], lore());
+            }
+            return damaged(tool);
+        }
+        if (kind < 9) {
+            return new FakePlayer.FakeItemStack(FOOD[random.nextInt(FOOD.length)], 1 + random.nextInt(64));
+        }
+        return new FakePlayer.FakeItemStack(NAMED[random.nextInt(NAMED.length)], 1, 0,
+            ITEM_NAMES[random.nextInt(ITEM_NAMES.length)], lore());
+    }
+
+    private ItemStack damaged(Material type) {
+        return new FakePlayer.FakeItemStack(type, 1, random.nextInt(type.getMaxDurability()), null, null);
+    }
+
+    private List<String> lore() {
+        String[] lines = new String[1 + random.nextInt(3)];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = LORE[random.nextInt(LORE.length)];
+        }
+        return Arrays.asList(lines);
+    }
+
+    /**
+     * 按插件的文件格式写入玩家过去的会话记录，分布在最近 30 天内，返回写入的字节数
+     */
+    long writeLoginHistory(LoginRecordStore store, FakePlayer player, int sessions) throws IOException {
+        SimpleDateFormat fileFormat = new SimpleDateFormat("yyyyMMdd_HHmmss");
+        SimpleDateFormat recordFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        long now = System.currentTimeMillis();
+        long span = TimeUnit.DAYS.toMillis(30) / Math.max(1, sessions);
+
+        long bytes = 0;
+        for (int i = 0; i < sessions; i++) {
+            // 每条会话在自己的时间段内开始，文件名不会重复
+            long loginTime = now - (i + 1) * span + random.nextInt((int) Math.min(span / 2, Integer.MAX_VALUE));
+            long onlineSeconds = Math.min(span / 2000, 60 + random.nextInt(4 * 3600));
+            Date login = new Date(loginTime);
+            Date logout = new Date(loginTime + onlineSeconds * 1000);
+
+            JsonObject record = new JsonObject();
+            record.addProperty("username", player.name);
+            record.addProperty("playerId", player.uniqueId.toString());
+            record.addProperty("ipAddress", player.address.getAddress().getHostAddress());
+            record.addProperty("loginTime", recordFormat.format(login));
+            record.addProperty("logoutTime", recordFormat.format(logout));
+            record.addProperty("onlineTime", onlineSeconds);
+            bytes += store.write(player.uniqueId + "_" + fileFormat.format(login) + ".json", record);
+        }
+        return bytes;
+    }
+
+    /**
+     * 随机的聊天内容
+     */
+    String chatMessage() {
+        return chatMessage(random);
+    }
+
+    /**
+     * 使用调用方的随机数生成器，供多个线程同时生成消息
+     */
+    static String chatMessage(Random random) {
+        String message = CHAT[random.nextInt(CHAT.length)];
+        return random.nextInt(4) == 0 ? message + " " + random.nextInt(1000) : message;
+    }
+
+    private static InetAddress address(int index) {
+        byte[] octets = {10, (byte) (index >> 16), (byte) (index >> 8), (byte) index};
+        try {
+            return InetAddress.getByAddress(octets);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
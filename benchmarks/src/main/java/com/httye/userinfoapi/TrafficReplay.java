@@ -0,0 +1,435 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 流量回放
+ * 读取插件开启 capture.enabled 后录制的文件（{@link TrafficLog}），按录制时的时间间隔（可加速）把请求重新发给测试实例，
+ * 输出每个路由回放时的延迟分布，并与录制时服务器记录的耗时对照；用 --compare 可以和另一个版本的回放结果逐路由比较。
+ *
+ * <p>开环回放：请求按计划时间发出，不等待前一个请求的响应，服务器变慢时并发请求数随之上升（受 --concurrency 限制），
+ * 发送时间晚于计划的部分记为调度延迟。录制文件中匿名化的玩家名（"#" 加哈希）按哈希固定映射到测试实例的玩家，
+ * 同一个玩家在回放中仍然是同一个玩家。
+ *
+ * <p>参数：
+ * <ul>
+ *   <li>--file 录制文件（必填）</li>
+ *   <li>--target 测试实例地址，如 http://127.0.0.1:8080；不指定时按 {@link PluginHarness} 的参数在本进程内启动插件</li>
+ *   <li>--speed 回放速度倍数（默认 1，即原速度）；0 表示不等待，尽快发送</li>
+ *   <li>--concurrency 同时进行的请求数上限（默认 64）</li>
+ *   <li>--limit 最多回放的请求数（默认全部）</li>
+ *   <li>--api-key 录制时带有 API 密钥的请求，回放时使用的密钥</li>
+ *   <li>--player-count / --player-prefix 指定 --target 时，测试实例上的玩家名为 前缀 + 0..N-1（默认 100 / Player）</li>
+ *   <li>--timeout 单个请求的超时秒数（默认 10）</li>
+ *   <li>--format csv 或 json（默认 csv）；--compare 需要 json 格式的结果</li>
+ *   <li>--out 结果文件，不指定时输出到标准输出</li>
+ *   <li>--compare 之前保存的 json 结果，逐路由输出 p50/p99 的变化</li>
+ *   <li>--max-regression 与 --compare 一起使用，任一路由 p99 增加超过该百分比时退出码为 1</li>
+ * </ul>
+ */
+public final class TrafficReplay {
+
+    private static final Pattern ANONYMIZED = Pattern.compile("#[0-9a-f]{16}");
+    private static final String CSV_HEADER = "route,source,requests,errors,rejected,status_mismatch,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final List<String> players;
+    private final String apiKey;
+    private final Duration timeout;
+
+    private final Map<String, RouteResult> routes = new ConcurrentHashMap<>();
+    private final LoadGenerator.RouteStats total = new LoadGenerator.RouteStats("ALL");
+    private final LoadGenerator.RouteStats capturedTotal = new LoadGenerator.RouteStats("ALL");
+    private final LongAdder totalMismatch = new LongAdder();
+    // 实际发送时间晚于计划时间的部分
+    private final LatencyHistogram lag = new LatencyHistogram();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+    private long elapsedNanos;
+    private long capturedMillis;
+
+    private TrafficReplay(String baseUrl, List<String> players, String apiKey, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.players = players;
+        this.apiKey = apiKey;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        HarnessOptions options = new HarnessOptions(args);
+        String file = options.getString("file", null);
+        if (file == null) {
+            throw new IllegalArgumentException("需要 --file 指定录制文件");
+        }
+        double speed = options.getDouble("speed", 1);
+        if (speed < 0) {
+            throw new IllegalArgumentException("--speed 不能小于 0");
+        }
+        String format = options.getString("format", "csv");
+        if (!format.equals("csv") && !format.equals("json")) {
+            throw new IllegalArgumentException("--format 只支持 csv 和 json");
+        }
+        int concurrency = options.getInt("concurrency", 64);
+        long limit = options.getLong("limit", Long.MAX_VALUE);
+        Duration timeout = Duration.ofSeconds(options.getLong("timeout", 10));
+        String apiKey = options.getString("api-key", null);
+
+        TrafficReplay replay;
+        PluginHarness harness = null;
+        try {
+            String target = options.getString("target", null);
+            if (target != null) {
+                List<String> players = new ArrayList<>();
+                String prefix = options.getString("player-prefix", "Player");
+                for (int i = 0, count = options.getInt("player-count", 100); i < count; i++) {
+                    players.add(prefix + i);
+                }
+                replay = new TrafficReplay(target.replaceAll("/+$", ""), players, apiKey, timeout);
+            } else {
+                harness = PluginHarness.start(options);
+                System.err.println("插件已在 " + harness.baseUrl() + " 启动，在线玩家 " + harness.players.size());
+                replay = new TrafficReplay(harness.baseUrl(), harness.playerNames(), apiKey, timeout);
+            }
+
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+                replay.run(new TrafficLog.Reader(in), speed, concurrency, limit);
+            }
+        } finally {
+            if (harness != null) {
+                harness.close();
+            }
+        }
+        System.err.println(replay.summary());
+
+        String out = options.getString("out", null);
+        try (PrintStream stream = out != null
+                ? new PrintStream(new FileOutputStream(out), true, StandardCharsets.UTF_8)
+                : new PrintStream(System.out, true, StandardCharsets.UTF_8)) {
+            if (format.equals("json")) {
+                replay.writeJson(stream, options.toMap());
+            } else {
+                replay.writeCsv(stream);
+            }
+        }
+
+        int exitCode = 0;
+        String baseline = options.getString("compare", null);
+        if (baseline != null) {
+            double maxRegression = options.getDouble("max-regression", Double.NaN);
+            if (!replay.compare(baseline, maxRegression)) {
+                exitCode = 1;
+            }
+        }
+        // HTTP 客户端和插件的线程池不一定都是守护线程
+        System.exit(exitCode);
+    }
+
+    /**
+     * 按计划时间发送所有记录，等待全部响应后返回
+     */
+    private void run(TrafficLog.Reader reader, double speed, int concurrency, long limit)
+            throws IOException, InterruptedException {
+        Semaphore permits = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        long first = -1;
+        long last = 0;
+        long sent = 0;
+
+        TrafficLog.Record record;
+        while (sent < limit && (record = reader.read()) != null) {
+            if (first < 0) {
+                first = record.timestamp;
+            }
+            last = Math.max(last, record.timestamp);
+
+            // 记录按完成顺序写入，开始时间略有先后颠倒时计划时间已过，立即发送
+            long due = speed > 0 ? start + (long) ((record.timestamp - first) * 1_000_000L / speed) : System.nanoTime();
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            permits.acquire();
+            long now = System.nanoTime();
+            long late = Math.max(0, now - due);
+            lag.record(late);
+            maxLagNanos.accumulateAndGet(late, Math::max);
+
+            send(record, now, permits);
+            sent++;
+        }
+
+        // 等待所有请求完成
+        permits.acquire(concurrency);
+        elapsedNanos = System.nanoTime() - start;
+        capturedMillis = first >= 0 ? last - first : 0;
+    }
+
+    private void send(TrafficLog.Record record, long start, Semaphore permits) {
+        RouteResult result = routes.computeIfAbsent(record.path, RouteResult::new);
+        result.captured.record(record.status, record.latencyMicros * 1000, 0);
+        capturedTotal.record(record.status, record.latencyMicros * 1000, 0);
+
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(URI.create(baseUrl + record.path + query(record.params))).timeout(timeout);
+        } catch (IllegalArgumentException e) {
+            // 录制到的非法路径，回放时同样视为失败
+            finish(result, record.status, -1, 0, 0);
+            permits.release();
+            return;
+        }
+        if (record.body.length > 0) {
+            String body = mapPlayers(new String(record.body, StandardCharsets.UTF_8));
+            builder.header("Content-Type", "application/json")
+                .method(record.method, HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+        } else {
+            builder.method(record.method, HttpRequest.BodyPublishers.noBody());
+        }
+        if (apiKey != null && !record.keyHash.isEmpty()) {
+            builder.header("X-API-Key", apiKey);
+        }
+
+        client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, error) -> {
+            long elapsed = System.nanoTime() - start;
+            if (error != null) {
+                finish(result, record.status, -1, elapsed, 0);
+            } else {
+                finish(result, record.status, response.statusCode(), elapsed, response.body().length);
+            }
+            permits.release();
+        });
+    }
+
+    private void finish(RouteResult result, int capturedStatus, int status, long nanos, long bytes) {
+        result.replay.record(status, nanos, bytes);
+        total.record(status, nanos, bytes);
+        if (status != capturedStatus) {
+            result.statusMismatch.increment();
+            totalMismatch.increment();
+        }
+    }
+
+    private String query(Map<String, String> params) {
+        if (params.isEmpty()) {
+            return "";
+        }
+        StringBuilder query = new StringBuilder("?");
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (query.length() > 1) {
+                query.append('&');
+            }
+            query.append(URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8)).append('=')
+                .append(URLEncoder.encode(mapPlayers(param.getValue()), StandardCharsets.UTF_8));
+        }
+        return query.toString();
+    }
+
+    /**
+     * 把匿名化的值替换为测试实例上的玩家名，同一个哈希总是对应同一个玩家
+     */
+    private String mapPlayers(String value) {
+        if (players.isEmpty() || value.indexOf('#') < 0) {
+            return value;
+        }
+        Matcher matcher = ANONYMIZED.matcher(value);
+        StringBuilder result = new StringBuilder(value.length());
+        while (matcher.find()) {
+            long hash = Long.parseUnsignedLong(matcher.group().substring(1), 16);
+            matcher.appendReplacement(result, Matcher.quoteReplacement(players.get((int) Long.remainderUnsigned(hash, players.size()))));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private String summary() {
+        long[] counts = total.histogram.snapshotCumulative();
+        long[] lagCounts = lag.snapshotCumulative();
+        return String.format(Locale.ROOT, "replayed=%d in %.1fs (captured %.1fs) errors=%d status_mismatch=%d p50=%.2fms p99=%.2fms max=%.2fms lag_p99=%.2fms lag_max=%.2fms",
+            total.requests(), elapsedNanos / 1_000_000_000.0, capturedMillis / 1000.0, total.errors.sum(), totalMismatch.sum(),
+            total.percentileMillis(counts, 50), total.percentileMillis(counts, 99), total.maxNanos.get() / 1_000_000.0,
+            LatencyHistogram.percentile(lagCounts, 99) / 1000.0, maxLagNanos.get() / 1_000_000.0);
+    }
+
+    private List<RouteResult> sortedRoutes() {
+        List<RouteResult> sorted = new ArrayList<>(routes.values());
+        sorted.sort((a, b) -> a.name.compareTo(b.name));
+        return sorted;
+    }
+
+    private void writeCsv(PrintStream out) {
+        out.println(CSV_HEADER);
+        for (RouteResult result : sortedRoutes()) {
+            out.println(csvRow(result.name, "captured", result.captured, 0));
+            out.println(csvRow(result.name, "replay", result.replay, result.statusMismatch.sum()));
+        }
+        out.println(csvRow("ALL", "captured", capturedTotal, 0));
+        out.println(csvRow("ALL", "replay", total, totalMismatch.sum()));
+    }
+
+    private static String csvRow(String route, String source, LoadGenerator.RouteStats stats, long mismatch) {
+        long[] counts = stats.histogram.snapshotCumulative();
+        return String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f",
+            route, source, stats.requests(), stats.errors.sum(), stats.rejected.sum(), mismatch, meanMillis(stats),
+            stats.percentileMillis(counts, 50), stats.percentileMillis(counts, 90), stats.percentileMillis(counts, 99),
+            stats.percentileMillis(counts, 99.9), stats.maxNanos.get() / 1_000_000.0);
+    }
+
+    private void writeJson(PrintStream out, Map<String, Object> parameters) {
+        JsonObject report = new JsonObject();
+        JsonObject params = new JsonObject();
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            params.addProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        report.add("parameters", params);
+        report.addProperty("seconds", elapsedNanos / 1_000_000_000.0);
+        report.addProperty("capturedSeconds", capturedMillis / 1000.0);
+
+        long[] lagCounts = lag.snapshotCumulative();
+        JsonObject lagJson = new JsonObject();
+        lagJson.addProperty("p50Ms", LatencyHistogram.percentile(lagCounts, 50) / 1000.0);
+        lagJson.addProperty("p99Ms", LatencyHistogram.percentile(lagCounts, 99) / 1000.0);
+        lagJson.addProperty("maxMs", maxLagNanos.get() / 1_000_000.0);
+        report.add("lag", lagJson);
+
+        JsonObject routeJson = new JsonObject();
+        for (RouteResult result : sortedRoutes()) {
+            JsonObject json = new JsonObject();
+            json.add("captured", statsJson(result.captured));
+            JsonObject replayJson = statsJson(result.replay);
+            replayJson.addProperty("statusMismatch", result.statusMismatch.sum());
+            json.add("replay", replayJson);
+            routeJson.add(result.name, json);
+        }
+        JsonObject totalJson = new JsonObject();
+        totalJson.add("captured", statsJson(capturedTotal));
+        JsonObject replayTotal = statsJson(total);
+        replayTotal.addProperty("statusMismatch", totalMismatch.sum());
+        totalJson.add("replay", replayTotal);
+        routeJson.add("ALL", totalJson);
+        report.add("routes", routeJson);
+
+        out.println(new GsonBuilder().setPrettyPrinting().create().toJson(report));
+    }
+
+    private static JsonObject statsJson(LoadGenerator.RouteStats stats) {
+        long[] counts = stats.histogram.snapshotCumulative();
+        JsonObject json = new JsonObject();
+        json.addProperty("requests", stats.requests());
+        json.addProperty("errors", stats.errors.sum());
+        json.addProperty("rejected", stats.rejected.sum());
+        json.addProperty("meanMs", meanMillis(stats));
+        json.addProperty("p50Ms", stats.percentileMillis(counts, 50));
+        json.addProperty("p90Ms", stats.percentileMillis(counts, 90));
+        json.addProperty("p99Ms", stats.percentileMillis(counts, 99));
+        json.addProperty("p999Ms", stats.percentileMillis(counts, 99.9));
+        json.addProperty("maxMs", stats.maxNanos.get() / 1_000_000.0);
+        return json;
+    }
+
+    private static double meanMillis(LoadGenerator.RouteStats stats) {
+        long requests = stats.requests();
+        return requests > 0 ? stats.histogram.getTotalMicros() / 1000.0 / requests : 0;
+    }
+
+    /**
+     * 与之前保存的 json 结果逐路由比较回放延迟，输出到标准错误；maxRegression 不是 NaN 时，
+     * 任一路由 p99 增加超过该百分比返回 false
+     */
+    private boolean compare(String baselineFile, double maxRegression) throws IOException {
+        JsonObject baselineRoutes;
+        try (Reader reader = new FileReader(baselineFile, StandardCharsets.UTF_8)) {
+            baselineRoutes = JsonParser.parseReader(reader).getAsJsonObject().getAsJsonObject("routes");
+        }
+        if (baselineRoutes == null) {
+            throw new IOException(baselineFile + " 不是 json 格式的回放结果");
+        }
+
+        Map<String, LoadGenerator.RouteStats> current = new LinkedHashMap<>();
+        for (RouteResult result : sortedRoutes()) {
+            current.put(result.name, result.replay);
+        }
+        current.put("ALL", total);
+
+        boolean passed = true;
+        System.err.println(String.format(Locale.ROOT, "%-28s %10s %10s %8s %10s %10s %8s",
+            "route", "base_p50", "p50", "change", "base_p99", "p99", "change"));
+        for (Map.Entry<String, LoadGenerator.RouteStats> entry : current.entrySet()) {
+            JsonElement baseline = baselineRoutes.get(entry.getKey());
+            if (baseline == null) {
+                System.err.println(String.format(Locale.ROOT, "%-28s %s", entry.getKey(), "基线中没有该路由"));
+                continue;
+            }
+            JsonObject base = baseline.getAsJsonObject().getAsJsonObject("replay");
+            long[] counts = entry.getValue().histogram.snapshotCumulative();
+            double baseP50 = base.get("p50Ms").getAsDouble();
+            double baseP99 = base.get("p99Ms").getAsDouble();
+            double p50 = entry.getValue().percentileMillis(counts, 50);
+            double p99 = entry.getValue().percentileMillis(counts, 99);
+            double p99Change = change(baseP99, p99);
+            boolean regressed = !Double.isNaN(maxRegression) && p99Change > maxRegression;
+            if (regressed) {
+                passed = false;
+            }
+            System.err.println(String.format(Locale.ROOT, "%-28s %10.2f %10.2f %+7.1f%% %10.2f %10.2f %+7.1f%%%s",
+                entry.getKey(), baseP50, p50, change(baseP50, p50), baseP99, p99, p99Change, regressed ? " REGRESSED" : ""));
+        }
+        return passed;
+    }
+
+    private static double change(double baseline, double value) {
+        return baseline > 0 ? (value - baseline) * 100 / baseline : 0;
+    }
+
+    /**
+     * 单个路由录制时和回放时的统计
+     * 录制时的耗时是服务器内部的处理时间，回放时的耗时包括网络和客户端，两者只适合比较分布形状和变化趋势
+     */
+    private static final class RouteResult {
+        final String name;
+        final LoadGenerator.RouteStats captured;
+        final LoadGenerator.RouteStats replay;
+        // 回放的状态码与录制时不同的请求数
+        final LongAdder statusMismatch = new LongAdder();
+
+        RouteResult(String name) {
+            this.name = name;
+            this.captured = new LoadGenerator.RouteStats(name);
+            this.replay = new LoadGenerator.RouteStats(name);
+        }
+    }
+}
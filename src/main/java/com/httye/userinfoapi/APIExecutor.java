@@ -0,0 +1,264 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * API请求执行器
+ * 分为两级：HttpServer 把每个请求交给接入线程（{@link #execute(Runnable)}），只解析请求头并选择路由；
+ * 普通路由再由 {@link DispatchHandler} 交给工作线程（{@link #dispatch(Runnable)}）。存活检查不经过工作线程，
+ * 不会排在普通请求后面。工作线程使用有界队列代替无界的固定线程池，队列已满或等待超时的请求会被标记为"丢弃"，
+ * 由 {@link LoadSheddingHandler} 立即返回 503，而不是无限堆积在游戏服务器的堆内存中
+ */
+public class APIExecutor implements Executor {
+
+    // 当前线程正在执行的请求被丢弃的原因（null 表示正常处理）
+    private static final ThreadLocal<String> SHED_REASON = new ThreadLocal<>();
+    // 写出 503 的线程数和排队上限
+    private static final int SHED_THREADS = 2;
+    private static final int SHED_QUEUE_CAPACITY = 256;
+
+    private final ThreadPoolExecutor pool;
+    // 接入线程：解析请求头，存活检查在这里直接响应；虚拟线程模式下为每个连接一个虚拟线程
+    private final ExecutorService intake;
+    private final ExecutorService virtualExecutor;
+    // 被丢弃的请求也要解析请求头才能写出 503，放到单独的小线程池，不在 HttpServer 的分发线程或接入线程上执行
+    private final ThreadPoolExecutor shedPool;
+    private final int maxInFlight;
+    private final long maxWaitNanos;
+
+    // 统计信息
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicLong executedTasks = new AtomicLong(0);
+    private final AtomicLong rejectedTasks = new AtomicLong(0);
+    private final AtomicLong expiredTasks = new AtomicLong(0);
+    private final AtomicLong droppedTasks = new AtomicLong(0);
+    private final AtomicLong totalWaitNanos = new AtomicLong(0);
+    private final AtomicLong maxWaitObservedNanos = new AtomicLong(0);
+
+    public APIExecutor(int threadPoolSize, int intakeThreads, int queueCapacity, long maxWaitMillis, boolean preferVirtualThreads) {
+        this.maxInFlight = threadPoolSize + queueCapacity;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.virtualExecutor = preferVirtualThreads ? createVirtualThreadExecutor() : null;
+
+        if (virtualExecutor == null) {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            this.pool = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "UserInfoAPI-HTTP-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            AtomicInteger intakeThreadNumber = new AtomicInteger(1);
+            this.intake = new ThreadPoolExecutor(intakeThreads, intakeThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "UserInfoAPI-Intake-" + intakeThreadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        } else {
+            this.pool = null;
+            this.intake = virtualExecutor;
+        }
+
+        AtomicInteger shedThreadNumber = new AtomicInteger(1);
+        this.shedPool = new ThreadPoolExecutor(SHED_THREADS, SHED_THREADS, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(SHED_QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "UserInfoAPI-Shed-" + shedThreadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * 尝试创建虚拟线程执行器 (Java 21+)，JVM 不支持时返回 null
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 由 HttpServer 调用：在接入线程上解析请求并调用路由处理器
+     * 接入线程也排满时，请求被标记为丢弃，由丢弃线程解析后返回 503
+     */
+    @Override
+    public void execute(Runnable command) {
+        try {
+            intake.execute(command);
+        } catch (RejectedExecutionException e) {
+            runShed(command, intake.isShutdown() ? "shutdown" : "overloaded");
+        }
+    }
+
+    /**
+     * 在工作线程上处理请求，受队列容量、排队超时和并发上限的限制
+     */
+    public void dispatch(Runnable command) {
+        long enqueuedAt = System.nanoTime();
+
+        if (virtualExecutor != null) {
+            // 虚拟线程模式：接入线程本身就是该请求专用的虚拟线程，直接在上面处理，只限制同时处理的请求数
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                runShed(command, "overloaded");
+                return;
+            }
+            try {
+                runAdmitted(command, enqueuedAt);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return;
+        }
+
+        try {
+            pool.execute(() -> runAdmitted(command, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            // 队列已满：由丢弃线程快速返回 503，不占用工作线程
+            runShed(command, "overloaded");
+        }
+    }
+
+    private void runAdmitted(Runnable command, long enqueuedAt) {
+        long waitNanos = System.nanoTime() - enqueuedAt;
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitObservedNanos.accumulateAndGet(waitNanos, Math::max);
+
+        if (maxWaitNanos > 0 && waitNanos > maxWaitNanos) {
+            expiredTasks.incrementAndGet();
+            runWithReason(command, "queue-timeout");
+            return;
+        }
+
+        executedTasks.incrementAndGet();
+        command.run();
+    }
+
+    private void runShed(Runnable command, String reason) {
+        try {
+            shedPool.execute(() -> runWithReason(command, reason));
+            rejectedTasks.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            // 连 503 都来不及写出：放弃该请求，不阻塞分发线程，连接由客户端超时关闭
+            droppedTasks.incrementAndGet();
+        }
+    }
+
+    private void runWithReason(Runnable command, String reason) {
+        SHED_REASON.set(reason);
+        try {
+            command.run();
+        } finally {
+            SHED_REASON.remove();
+        }
+    }
+
+    /**
+     * 获取当前线程上的请求被丢弃的原因，正常处理时返回 null
+     */
+    public static String getShedReason() {
+        return SHED_REASON.get();
+    }
+
+    /**
+     * 先让所有线程池停止接收任务，再在同一个 5 秒期限内等待它们结束，超时的强制中断
+     */
+    public void shutdown() {
+        List<ExecutorService> executors = new ArrayList<>();
+        executors.add(intake);
+        if (pool != null) {
+            executors.add(pool);
+        }
+        executors.add(shedPool);
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (ExecutorService executor : executors) {
+            try {
+                long remaining = deadline - System.nanoTime();
+                if (!executor.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualExecutor != null;
+    }
+
+    public int getQueueDepth() {
+        // 虚拟线程模式下请求不排队，立即获得自己的线程
+        return pool != null ? pool.getQueue().size() : 0;
+    }
+
+    public int getActiveCount() {
+        return pool != null ? pool.getActiveCount() : inFlight.get();
+    }
+
+    public long getRejectedTasks() {
+        return rejectedTasks.get();
+    }
+
+    public long getExpiredTasks() {
+        return expiredTasks.get();
+    }
+
+    /**
+     * 丢弃线程也已排满、没有写出 503 就放弃的请求数
+     */
+    public long getDroppedTasks() {
+        return droppedTasks.get();
+    }
+
+    /**
+     * 平均排队等待时间（毫秒）
+     */
+    public double getAverageWaitMillis() {
+        long admitted = executedTasks.get() + expiredTasks.get();
+        return admitted > 0 ? totalWaitNanos.get() / (double) admitted / 1_000_000.0 : 0.0;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitObservedNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * 获取执行器统计信息
+     */
+    public JsonObject getStats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("virtualThreads", isUsingVirtualThreads());
+        stats.addProperty("queueDepth", getQueueDepth());
+        stats.addProperty("activeWorkers", getActiveCount());
+        stats.addProperty("executedRequests", executedTasks.get());
+        stats.addProperty("rejectedRequests", rejectedTasks.get());
+        stats.addProperty("expiredRequests", expiredTasks.get());
+        stats.addProperty("droppedRequests", droppedTasks.get());
+        stats.addProperty("averageWaitMs", getAverageWaitMillis());
+        stats.addProperty("maxWaitMs", getMaxWaitMillis());
+        return stats;
+    }
+}
@@ -1,269 +1,360 @@
 package com.httye.userinfoapi;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import org.bukkit.configuration.ConfigurationSection;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.Map;
-import java.util.HashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.Locale;
+import java.util.function.BiFunction;
 
 public class APIServer {
     
     private HttpServer server;
+    private APIExecutor executor;
+    private HttpServer livenessServer;
+    private ExecutorService livenessExecutor;
+    private final Map<String, RouteBulkhead> bulkheads = new LinkedHashMap<>();
+    private final Map<String, RateLimitHandler> rateLimiters = new LinkedHashMap<>();
+    private final Map<String, PrerenderedResponse> prerenderedResponses = new LinkedHashMap<>();
+    private AdaptiveThrottle throttle;
     private final String host;
     private final int port;
-    private final Gson gson;
     
     private final UserInfoAPIPlugin plugin;
-    private final RateLimitHandler rateLimitHandler;
+    private final RequestCoalescer coalescer;
+    private final UserInfoService userInfoService;
+    private ExecutorService responseExecutor;
+    private long requestTimeoutMillis;
     
-    // 统计信息
-    private final AtomicInteger totalRequests = new AtomicInteger(0);
-    private final AtomicInteger successfulRequests = new AtomicInteger(0);
-    private final AtomicInteger failedRequests = new AtomicInteger(0);
-    private final List<Long> responseTimes = new ArrayList<>();
+    // 统计信息（按路由和状态码的延迟直方图）
+    private final RequestMetrics requestMetrics = new RequestMetrics();
+    private SlowRequestLog slowRequestLog;
+    private TrafficCapture trafficCapture;
+    private boolean serverTimingHeader;
     
     public APIServer(UserInfoAPIPlugin plugin, String host, int port) {
         this.plugin = plugin;
         this.host = host;
         this.port = port;
-        this.gson = new Gson();
-        this.rateLimitHandler = new RateLimitHandler(null, plugin);
+        this.coalescer = new RequestCoalescer();
+        this.userInfoService = new UserInfoService();
     }
     
     public void start() throws IOException {
         server = HttpServer.create(new InetSocketAddress(host, port), 0);
         
+        int threadPoolSize = plugin.getConfig().getInt("advanced.thread-pool-size", 10);
+        
+        // 异步处理器的响应写出线程和单个请求的超时时间
+        AtomicInteger responseThreadNumber = new AtomicInteger(1);
+        responseExecutor = Executors.newFixedThreadPool(Math.max(2, threadPoolSize / 2), runnable -> {
+            Thread thread = new Thread(runnable, "UserInfoAPI-Response-" + responseThreadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        requestTimeoutMillis = plugin.getConfig().getLong("advanced.request-timeout", 30) * 1000;
+        
+        // 请求分阶段计时
+        serverTimingHeader = plugin.getConfig().getBoolean("slow-requests.server-timing-header", true);
+        slowRequestLog = new SlowRequestLog(plugin);
+        // 流量录制（默认关闭）
+        trafficCapture = new TrafficCapture(plugin);
+        
+        // 设置有界线程池（队列满或等待超时时返回 503），注册路由时要用到
+        int intakeThreads = Math.max(1, plugin.getConfig().getInt("advanced.intake-threads", 4));
+        int queueCapacity = plugin.getConfig().getInt("advanced.queue-capacity", 100);
+        long maxQueueWait = plugin.getConfig().getLong("advanced.max-queue-wait", 2000);
+        boolean virtualThreads = plugin.getConfig().getBoolean("advanced.virtual-threads", true);
+        executor = new APIExecutor(threadPoolSize, intakeThreads, queueCapacity, maxQueueWait, virtualThreads);
+        server.setExecutor(executor);
+        
         // 注册API路由 - 使用限流处理器包装
-        server.createContext("/api/user/info", new RateLimitHandler(new SecurityHandler(new UserInfoHandler()), plugin));
-        server.createContext("/api/user/level", new RateLimitHandler(new SecurityHandler(new UserLevelHandler()), plugin));
-        server.createContext("/api/user/location", new RateLimitHandler(new SecurityHandler(new UserLocationHandler()), plugin));
-        server.createContext("/api/user/inventory", new RateLimitHandler(new SecurityHandler(new UserInventoryHandler()), plugin));
-        server.createContext("/api/user/login-records", new RateLimitHandler(new SecurityHandler(new LoginRecordsHandler()), plugin));
-        server.createContext("/api/online-players", new RateLimitHandler(new SecurityHandler(new OnlinePlayersHandler()), plugin));
-        server.createContext("/api/status", new StatusHandler());
-        server.createContext("/api/security/info", new RateLimitHandler(new SecurityHandler(new SecurityInfoHandler()), plugin));
+        register("/api/user/info", new RateLimitHandler(new SecurityHandler(new UserQueryHandler("/api/user/info", userInfoService::getUserInfoAsync)), plugin));
+        register("/api/user/level", new RateLimitHandler(new SecurityHandler(new UserQueryHandler("/api/user/level", userInfoService::getUserLevelAsync)), plugin));
+        register("/api/user/location", new RateLimitHandler(new SecurityHandler(new UserQueryHandler("/api/user/location", userInfoService::getUserLocationAsync)), plugin));
+        register("/api/user/inventory", new RateLimitHandler(new SecurityHandler(new UserQueryHandler("/api/user/inventory", userInfoService::getUserInventoryAsync)), plugin));
+        register("/api/user/login-records", new RateLimitHandler(new SecurityHandler(new LoginRecordsHandler()), plugin));
+        OnlinePlayersHandler onlinePlayersHandler = new OnlinePlayersHandler();
+        prerenderedResponses.put("/api/online-players", onlinePlayersHandler.getResponse());
+        register("/api/online-players", new RateLimitHandler(new SecurityHandler(onlinePlayersHandler), plugin));
+        StatusHandler statusHandler = new StatusHandler();
+        prerenderedResponses.put("/api/status", statusHandler.response);
+        registerLiveness("/api/status", statusHandler);
+        register("/api/security/info", new RateLimitHandler(new SecurityHandler(new SecurityInfoHandler()), plugin));
         
         // 新增功能路由
-        server.createContext("/api/user/batch", new RateLimitHandler(new SecurityHandler(new BatchUserHandler(plugin)), plugin));
-        server.createContext("/api/export", new RateLimitHandler(new SecurityHandler(new DataExportHandler(plugin)), plugin));
+        register("/api/user/batch", new RateLimitHandler(new SecurityHandler(new BatchUserHandler(plugin, responseExecutor, requestTimeoutMillis)), plugin));
+        register("/api/export", new RateLimitHandler(new SecurityHandler(new DataExportHandler(plugin, responseExecutor, requestTimeoutMillis)), plugin));
 
         // 聊天记录和服务器资源监控路由
-        server.createContext("/api/chat-records", new RateLimitHandler(new SecurityHandler(new ChatRecordsHandler()), plugin));
-        server.createContext("/api/server/resources", new RateLimitHandler(new SecurityHandler(new ServerResourceHandler()), plugin));
+        register("/api/chat-records", new RateLimitHandler(new SecurityHandler(new ChatRecordsHandler()), plugin));
+        register("/api/server/resources", new RateLimitHandler(new SecurityHandler(new ServerResourceHandler()), plugin));
+        register("/api/server/resources/history", new RateLimitHandler(new SecurityHandler(new ResourceHistoryHandler()), plugin));
         
-        // 设置线程池
-        int threadPoolSize = plugin.getConfig().getInt("advanced.thread-pool-size", 10);
-        server.setExecutor(Executors.newFixedThreadPool(threadPoolSize));
+        // Prometheus 指标（不限流，避免抓取被拒绝）
+        if (plugin.getConfig().getBoolean("metrics.enabled", true)) {
+            register("/metrics", new SecurityHandler(new PrometheusHandler(new PrometheusExporter(plugin, this))));
+        }
+        
+        // 服务器卡顿时自动降低分级路由的并发上限
+        if (plugin.getConfig().getBoolean("adaptive-throttle.enabled", true)) {
+            throttle = new AdaptiveThrottle(plugin, bulkheads);
+            throttle.start();
+        }
         
         server.start();
+        
+        if (livenessServer != null) {
+            livenessServer.start();
+        }
     }
     
-    public void stopServer() {
-        if (server != null) {
-            server.stop(0);
+    /**
+     * 注册路由，所有路由都在工作线程上处理并经过过载保护处理器，配置了并发上限的路由还会经过路由隔离处理器
+     */
+    private void register(String path, HttpHandler handler) {
+        HttpHandler chain = handler;
+        
+        if (handler instanceof RateLimitHandler) {
+            rateLimiters.put(path, (RateLimitHandler) handler);
         }
-        if (rateLimitHandler != null) {
-            rateLimitHandler.shutdown();
+        
+        RouteBulkhead bulkhead = createBulkhead(path);
+        if (bulkhead != null) {
+            bulkheads.put(path, bulkhead);
+            chain = new BulkheadHandler(chain, bulkhead);
         }
+        
+        int retryAfter = (int) Math.max(1, plugin.getConfig().getLong("advanced.max-queue-wait", 2000) / 1000);
+        chain = new LoadSheddingHandler(chain, retryAfter);
+        chain = new DispatchHandler(chain, executor, trafficCapture);
+        server.createContext(path, wrapExchange(new MetricsHandler(chain, requestMetrics, slowRequestLog, path, serverTimingHeader, trafficCapture)));
     }
     
-    // 统计方法
-    public void recordRequest(boolean success, long responseTime) {
-        totalRequests.incrementAndGet();
-        if (success) {
-            successfulRequests.incrementAndGet();
-        } else {
-            failedRequests.incrementAndGet();
-        }
+    /**
+     * 为每个请求包装独立的属性表（见 {@link ApiExchange}）
+     */
+    private static HttpHandler wrapExchange(HttpHandler handler) {
+        return exchange -> handler.handle(new ApiExchange(exchange));
+    }
+    
+    /**
+     * 注册存活检查路由
+     * 不经过工作线程、过载保护和路由隔离：由接入线程解析请求后直接写出预先编码的响应，不会排在普通请求后面；
+     * 如果配置了 bulkhead.liveness-port，还会在独立端口上由专用线程处理，连接入线程也不占用
+     */
+    private void registerLiveness(String path, HttpHandler handler) throws IOException {
+        handler = wrapExchange(new MetricsHandler(handler, requestMetrics, slowRequestLog, path, serverTimingHeader, trafficCapture));
+        server.createContext(path, handler);
         
-        synchronized (responseTimes) {
-            responseTimes.add(responseTime);
-            // 只保留最近1000个响应时间
-            if (responseTimes.size() > 1000) {
-                responseTimes.remove(0);
+        int livenessPort = plugin.getConfig().getInt("bulkhead.liveness-port", 0);
+        if (livenessPort > 0) {
+            if (livenessServer == null) {
+                livenessServer = HttpServer.create(new InetSocketAddress(host, livenessPort), 0);
+                livenessExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "UserInfoAPI-Liveness");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                livenessServer.setExecutor(livenessExecutor);
             }
+            livenessServer.createContext(path, handler);
         }
     }
     
-    public int getTotalRequests() {
-        return totalRequests.get();
+    private RouteBulkhead createBulkhead(String path) {
+        if (!plugin.getConfig().getBoolean("bulkhead.enabled", true)) {
+            return null;
+        }
+        
+        ConfigurationSection limits = plugin.getConfig().getConfigurationSection("bulkhead.limits");
+        
+        // 配置中的路由名省略 /api/ 前缀，如 export、user/batch
+        String route = path.startsWith("/api/") ? path.substring("/api/".length()) : path;
+        int limit = limits != null ? limits.getInt(route, 0) : 0;
+        if (limit > 0) {
+            return new RouteBulkhead(path, limit);
+        }
+        if (AdaptiveThrottle.isTiered(plugin, route)) {
+            // 自适应限流需要通过隔离舱调整并发；未单独配置上限的分级路由平时不限制，开始限流后才使用默认上限
+            return new RouteBulkhead(path, RouteBulkhead.UNLIMITED);
+        }
+        return null;
     }
     
-    public int getSuccessfulRequests() {
-        return successfulRequests.get();
+    public void stopServer() {
+        if (throttle != null) {
+            throttle.stop();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        if (livenessServer != null) {
+            livenessServer.stop(0);
+            livenessExecutor.shutdownNow();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (responseExecutor != null) {
+            responseExecutor.shutdown();
+        }
+        if (slowRequestLog != null) {
+            slowRequestLog.shutdown();
+        }
+        if (trafficCapture != null) {
+            trafficCapture.shutdown();
+        }
+        for (RateLimitHandler limiter : rateLimiters.values()) {
+            limiter.shutdown();
+        }
+    }
+    
+    // 统计方法
+    public long getTotalRequests() {
+        return requestMetrics.getTotalRequests();
     }
     
-    public int getFailedRequests() {
-        return failedRequests.get();
+    public long getSuccessfulRequests() {
+        return requestMetrics.countRequests(true);
     }
     
-    public int getActiveConnections() {
-        return 0; // 这里可以添加更复杂的连接数统计
+    public long getFailedRequests() {
+        return requestMetrics.countRequests(false);
     }
     
     public double getAverageResponseTime() {
-        synchronized (responseTimes) {
-            if (responseTimes.isEmpty()) {
-                return 0.0;
-            }
-            long sum = 0;
-            for (Long time : responseTimes) {
-                sum += time;
-            }
-            return (double) sum / responseTimes.size();
-        }
+        return requestMetrics.getAverageResponseTime();
     }
     
-    public RateLimitHandler getRateLimitHandler() {
-        return rateLimitHandler;
+    public RequestMetrics getRequestMetrics() {
+        return requestMetrics;
     }
     
-    private class StatusHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            JsonObject response = new JsonObject();
-            response.addProperty("status", "online");
-            response.addProperty("plugin", "UserInfoAPI");
-            response.addProperty("version", "1.0.0");
-            
-            sendResponse(exchange, 200, response.toString());
-        }
+    public SlowRequestLog getSlowRequestLog() {
+        return slowRequestLog;
     }
     
-    private class UserInfoHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            String query = exchange.getRequestURI().getQuery();
-            String username = getQueryParam(query, "username");
-            
-            if (username == null || username.isEmpty()) {
-                sendErrorResponse(exchange, 400, "缺少用户名参数");
-                return;
-            }
-            
-            UserInfoService service = new UserInfoService();
-            JsonObject userInfo = service.getUserInfo(username);
-            
-            if (userInfo == null) {
-                sendErrorResponse(exchange, 404, "用户未找到");
-                return;
-            }
-            
-            sendResponse(exchange, 200, userInfo.toString());
-        }
+    public TrafficCapture getTrafficCapture() {
+        return trafficCapture;
     }
     
-    private class UserLevelHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            String query = exchange.getRequestURI().getQuery();
-            String username = getQueryParam(query, "username");
-            
-            if (username == null || username.isEmpty()) {
-                sendErrorResponse(exchange, 400, "缺少用户名参数");
-                return;
-            }
-            
-            UserInfoService service = new UserInfoService();
-            JsonObject levelInfo = service.getUserLevel(username);
-            
-            if (levelInfo == null) {
-                sendErrorResponse(exchange, 404, "用户未找到");
-                return;
-            }
-            
-            sendResponse(exchange, 200, levelInfo.toString());
-        }
+    public Map<String, RateLimitHandler> getRateLimiters() {
+        return rateLimiters;
     }
     
-    private class UserLocationHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            String query = exchange.getRequestURI().getQuery();
-            String username = getQueryParam(query, "username");
-            
-            if (username == null || username.isEmpty()) {
-                sendErrorResponse(exchange, 400, "缺少用户名参数");
-                return;
-            }
-            
-            UserInfoService service = new UserInfoService();
-            JsonObject locationInfo = service.getUserLocation(username);
-            
-            if (locationInfo == null) {
-                sendErrorResponse(exchange, 404, "用户未找到");
-                return;
-            }
-            
-            sendResponse(exchange, 200, locationInfo.toString());
-        }
+    /**
+     * 预先编码的响应，键为路由路径
+     */
+    public Map<String, PrerenderedResponse> getPrerenderedResponses() {
+        return prerenderedResponses;
+    }
+    
+    public Collection<RouteBulkhead> getBulkheads() {
+        return bulkheads.values();
     }
     
-    private class UserInventoryHandler implements HttpHandler {
+    /**
+     * 自适应限流，未启用时为 null
+     */
+    public AdaptiveThrottle getThrottle() {
+        return throttle;
+    }
+    
+    public APIExecutor getExecutor() {
+        return executor;
+    }
+    
+    public RequestCoalescer getCoalescer() {
+        return coalescer;
+    }
+    
+    /**
+     * 状态接口，负载均衡器频繁调用；内容只随自适应限流级别变化，预先编码后直接写出
+     */
+    private class StatusHandler implements HttpHandler {
+        
+        private final PrerenderedResponse response = new PrerenderedResponse(this::render,
+            () -> throttle != null ? throttle.getLevel() : -1, -1);
+        
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            String query = exchange.getRequestURI().getQuery();
-            String username = getQueryParam(query, "username");
-            
-            if (username == null || username.isEmpty()) {
-                sendErrorResponse(exchange, 400, "缺少用户名参数");
-                return;
-            }
-            
-            UserInfoService service = new UserInfoService();
-            JsonObject inventoryInfo = service.getUserInventory(username);
+            response.send(exchange);
+        }
+        
+        private String render() {
+            JsonObject response = new JsonObject();
+            response.addProperty("status", "online");
+            response.addProperty("plugin", "UserInfoAPI");
+            response.addProperty("version", "1.0.0");
             
-            if (inventoryInfo == null) {
-                sendErrorResponse(exchange, 404, "用户未找到");
-                return;
+            // 自适应限流级别，客户端可据此减少重量级查询
+            if (throttle != null) {
+                response.addProperty("throttleLevel", throttle.getLevel());
             }
-            
-            sendResponse(exchange, 200, inventoryInfo.toString());
+            return response.toString();
         }
     }
     
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, X-API-Key");
+    /**
+     * 单个玩家的查询处理器
+     * 相同玩家的并发查询会被合并，只计算和编码一次；查询在主线程/存储线程完成后异步写出响应
+     */
+    private class UserQueryHandler extends AsyncHandler {
         
-        byte[] bytes = response.getBytes("UTF-8");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
+        private final String endpoint;
+        private final BiFunction<String, FieldProjection, CompletableFuture<JsonObject>> query;
         
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+        UserQueryHandler(String endpoint, BiFunction<String, FieldProjection, CompletableFuture<JsonObject>> query) {
+            super(responseExecutor, requestTimeoutMillis);
+            this.endpoint = endpoint;
+            this.query = query;
         }
-    }
-    
-    private void sendErrorResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
-        JsonObject error = new JsonObject();
-        error.addProperty("error", message);
-        sendResponse(exchange, statusCode, error.toString());
-    }
-    
-    private String getQueryParam(String query, String paramName) {
-        if (query == null || query.isEmpty()) {
-            return null;
+        
+        @Override
+        protected CompletableFuture<ApiResponse> handleAsync(HttpExchange exchange) {
+            RequestContext context = RequestContext.get(exchange);
+            String username = context.getParam("username");
+            
+            if (username == null || username.isEmpty()) {
+                return CompletableFuture.completedFuture(ApiResponse.error(400, "缺少用户名参数"));
+            }
+            FieldProjection fields = FieldProjection.of(context.getParam("fields"));
+            
+            // Bukkit 按名称查找玩家不区分大小写，因此用小写名称作为合并键；字段投影不同的请求结果不同，不能合并
+            // 只有实际执行查询的请求记录 query/serialize 阶段，被合并的请求把等待时间记为 query
+            RequestTiming timing = context.getTiming();
+            String key = fields.isAll() ? username.toLowerCase(Locale.ROOT) : username.toLowerCase(Locale.ROOT) + "?" + fields.getKey();
+            return coalescer.execute(endpoint, key, () ->
+                query.apply(username, fields).thenApply(result -> {
+                    mark(timing, "query");
+                    ApiResponse response = result == null
+                        ? ApiResponse.error(404, "用户未找到")
+                        : ApiResponse.json(200, result.toString());
+                    mark(timing, "serialize");
+                    return response;
+                })).whenComplete((response, error) -> {
+                    if (timing != null && !timing.has("query")) {
+                        timing.mark("query");
+                    }
+                });
         }
         
-        String[] params = query.split("&");
-        for (String param : params) {
-            String[] keyValue = param.split("=");
-            if (keyValue.length == 2 && keyValue[0].equals(paramName)) {
-                return keyValue[1];
+        private void mark(RequestTiming timing, String phase) {
+            if (timing != null) {
+                timing.mark(phase);
             }
         }
-        return null;
     }
 }
\ No newline at end of file
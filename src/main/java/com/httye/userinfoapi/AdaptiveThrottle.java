@@ -0,0 +1,207 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按服务器负载自适应限流
+ * 定时读取最近的 MSPT 和 TPS，服务器卡顿时逐级降低分级路由的并发上限：先限制导出和批量查询，
+ * 再限制背包和位置查询；tick 恢复正常一段时间后逐级恢复。未分级的路由（如 /api/status）不受影响。
+ * <pre>
+ * 级别 0: 所有路由使用配置的并发上限
+ * 级别 1: 第一级路由减半
+ * 级别 2: 第一级路由暂停，第二级路由减半
+ * 级别 3: 第一级路由暂停，第二级路由只允许 1 个并发
+ * </pre>
+ * 没有在 bulkhead.limits 中配置上限的分级路由在所在级别开始限流之前不限制并发，开始限流后按 adaptive-throttle.default-limit 减半
+ */
+public class AdaptiveThrottle {
+
+    public static final int MAX_LEVEL = 3;
+
+    private final UserInfoAPIPlugin plugin;
+    private final List<Route> tier1 = new ArrayList<>();
+    private final List<Route> tier2 = new ArrayList<>();
+    private final int defaultLimit;
+    private final long intervalSeconds;
+    private final double msptThreshold;
+    private final double tpsThreshold;
+    private final int recoverChecks;
+    private ScheduledExecutorService scheduler;
+
+    private volatile int level;
+    private volatile double lastMspt;
+    private volatile double lastTps = 20.0;
+    private volatile long levelChangedAt = System.currentTimeMillis();
+    private int healthyChecks;
+    private final AtomicLong escalations = new AtomicLong(0);
+
+    /**
+     * @param bulkheads 已注册的路由隔离舱，按路由路径索引
+     */
+    public AdaptiveThrottle(UserInfoAPIPlugin plugin, Map<String, RouteBulkhead> bulkheads) {
+        this.plugin = plugin;
+        this.intervalSeconds = Math.max(1, plugin.getConfig().getLong("adaptive-throttle.check-interval", 2));
+        this.msptThreshold = plugin.getConfig().getDouble("adaptive-throttle.mspt-threshold", 45.0);
+        this.tpsThreshold = plugin.getConfig().getDouble("adaptive-throttle.tps-threshold", 18.0);
+        this.recoverChecks = Math.max(1, plugin.getConfig().getInt("adaptive-throttle.recover-checks", 5));
+        this.defaultLimit = Math.max(1, plugin.getConfig().getInt("adaptive-throttle.default-limit", 8));
+
+        addRoutes(tier1, plugin.getConfig().getStringList("adaptive-throttle.tier1"), bulkheads);
+        addRoutes(tier2, plugin.getConfig().getStringList("adaptive-throttle.tier2"), bulkheads);
+    }
+
+    private void addRoutes(List<Route> tier, List<String> names, Map<String, RouteBulkhead> bulkheads) {
+        for (String name : names) {
+            RouteBulkhead bulkhead = bulkheads.get("/api/" + name);
+            if (bulkhead != null) {
+                tier.add(new Route(bulkhead, defaultLimit));
+            }
+        }
+    }
+
+    /**
+     * 配置中列出的分级路由（省略 /api/ 前缀），用于为没有单独配置并发上限的路由创建隔离舱
+     */
+    public static boolean isTiered(UserInfoAPIPlugin plugin, String route) {
+        if (!plugin.getConfig().getBoolean("adaptive-throttle.enabled", true)) {
+            return false;
+        }
+        return plugin.getConfig().getStringList("adaptive-throttle.tier1").contains(route)
+            || plugin.getConfig().getStringList("adaptive-throttle.tier2").contains(route);
+    }
+
+    public void start() {
+        if (tier1.isEmpty() && tier2.isEmpty()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UserInfoAPI-Throttle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::check, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        apply(0);
+    }
+
+    private void check() {
+        try {
+            ServerResourceMonitor monitor = plugin.getResourceMonitor();
+            if (monitor == null) {
+                return;
+            }
+            lastMspt = monitor.getRecentMspt();
+            lastTps = monitor.getLatestSample().getTps1m();
+
+            boolean healthy = lastMspt < msptThreshold && lastTps >= tpsThreshold;
+            int target = level;
+            if (!healthy) {
+                // 卡顿时每次检查升一级
+                healthyChecks = 0;
+                target = Math.min(MAX_LEVEL, level + 1);
+            } else if (level > 0 && ++healthyChecks >= recoverChecks) {
+                // 连续多次正常才降一级，避免在阈值附近来回切换
+                healthyChecks = 0;
+                target = level - 1;
+            }
+
+            if (target != level) {
+                if (target > level) {
+                    escalations.incrementAndGet();
+                }
+                plugin.getLogger().info(String.format("自适应限流级别 %d -> %d (MSPT %.1f, TPS %.2f)", level, target, lastMspt, lastTps));
+                apply(target);
+            }
+        } catch (Throwable t) {
+            // 不能让异常终止定时任务
+            plugin.getLogger().warning("自适应限流检查失败: " + t.getMessage());
+        }
+    }
+
+    private void apply(int newLevel) {
+        for (Route route : tier1) {
+            route.bulkhead.setLimit(newLevel == 0 ? route.baseLimit : newLevel == 1 ? half(route.throttleLimit) : 0);
+        }
+        for (Route route : tier2) {
+            route.bulkhead.setLimit(newLevel <= 1 ? route.baseLimit : newLevel == 2 ? half(route.throttleLimit) : 1);
+        }
+        if (newLevel != level) {
+            level = newLevel;
+            levelChangedAt = System.currentTimeMillis();
+        }
+    }
+
+    private static int half(int limit) {
+        return Math.max(1, limit / 2);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public long getEscalations() {
+        return escalations.get();
+    }
+
+    /**
+     * 当前限流级别、最近的负载读数和各分级路由的并发上限
+     */
+    public JsonObject getStats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("level", level);
+        stats.addProperty("maxLevel", MAX_LEVEL);
+        stats.addProperty("since", levelChangedAt);
+        stats.addProperty("mspt", Math.round(lastMspt * 100) / 100.0);
+        stats.addProperty("tps", Math.round(lastTps * 100) / 100.0);
+        stats.addProperty("msptThreshold", msptThreshold);
+        stats.addProperty("tpsThreshold", tpsThreshold);
+        stats.addProperty("escalations", escalations.get());
+
+        JsonObject routes = new JsonObject();
+        addRouteStats(routes, tier1, 1);
+        addRouteStats(routes, tier2, 2);
+        stats.add("routes", routes);
+        return stats;
+    }
+
+    private static void addRouteStats(JsonObject routes, List<Route> tier, int tierNumber) {
+        for (Route route : tier) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("tier", tierNumber);
+            entry.addProperty("baseLimit", route.baseLimit);
+            entry.addProperty("limit", route.bulkhead.getLimit());
+            routes.add(route.bulkhead.getRoute(), entry);
+        }
+    }
+
+    /**
+     * 分级路由及其配置的并发上限
+     */
+    private static class Route {
+        final RouteBulkhead bulkhead;
+        // 配置的并发上限，未配置时为 RouteBulkhead.UNLIMITED
+        final int baseLimit;
+        // 开始限流后在此基础上减半
+        final int throttleLimit;
+
+        Route(RouteBulkhead bulkhead, int defaultLimit) {
+            this.bulkhead = bulkhead;
+            this.baseLimit = bulkhead.getLimit();
+            this.throttleLimit = baseLimit == RouteBulkhead.UNLIMITED ? defaultLimit : baseLimit;
+        }
+    }
+}
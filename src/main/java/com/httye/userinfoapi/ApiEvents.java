@@ -0,0 +1,144 @@
+package com.httye.userinfoapi;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder 事件
+ * 在 JFR 录制中与 GC 停顿、tick 卡顿放在同一时间线上分析插件开销。
+ * 未开启录制或事件被禁用时 shouldCommit() 返回 false，调用方跳过字段赋值，开销可以忽略
+ */
+public final class ApiEvents {
+
+    private static final String CATEGORY = "UserInfoAPI";
+
+    private ApiEvents() {
+    }
+
+    @Name("com.httye.userinfoapi.Request")
+    @Label("API Request")
+    @Description("HTTP 请求从开始处理到响应写出")
+    @Category({CATEGORY, "HTTP"})
+    @StackTrace(false)
+    public static class Request extends Event {
+        @Label("Route")
+        public String route;
+
+        @Label("Method")
+        public String method;
+
+        @Label("Status")
+        public int status;
+
+        @Label("Client")
+        public String client;
+
+        @Label("Response Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Phases")
+        public String phases;
+    }
+
+    @Name("com.httye.userinfoapi.RateLimitReject")
+    @Label("Rate Limit Reject")
+    @Description("请求被限流拒绝 (429)")
+    @Category({CATEGORY, "HTTP"})
+    @StackTrace(false)
+    public static class RateLimitReject extends Event {
+        @Label("Route")
+        public String route;
+
+        @Label("Client")
+        public String client;
+
+        @Label("Keyed")
+        @Description("是否按 API 密钥限流")
+        public boolean keyed;
+
+        @Label("Minute Requests")
+        public int minuteRequests;
+
+        @Label("Hour Requests")
+        public int hourRequests;
+    }
+
+    @Name("com.httye.userinfoapi.LoginRecordWrite")
+    @Label("Login Record Write")
+    @Category({CATEGORY, "Storage"})
+    @StackTrace(false)
+    public static class LoginRecordWrite extends Event {
+        @Label("Player")
+        public String player;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("com.httye.userinfoapi.LoginRecordRead")
+    @Label("Login Record Read")
+    @Category({CATEGORY, "Storage"})
+    @StackTrace(false)
+    public static class LoginRecordRead extends Event {
+        @Label("Player")
+        public String player;
+
+        @Label("Operation")
+        public String operation;
+
+        @Label("Files")
+        public int files;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("com.httye.userinfoapi.ChatAppend")
+    @Label("Chat Append")
+    @Category({CATEGORY, "Chat"})
+    @StackTrace(false)
+    public static class ChatAppend extends Event {
+        @Label("Player")
+        public String player;
+
+        @Label("Message Length")
+        public int length;
+
+        @Label("Buffered Messages")
+        @Description("该玩家内存中的聊天记录数")
+        public int buffered;
+    }
+
+    @Name("com.httye.userinfoapi.ExportJob")
+    @Label("Export Job")
+    @Category({CATEGORY, "Export"})
+    @StackTrace(false)
+    public static class ExportJob extends Event {
+        @Label("Type")
+        public String type;
+
+        @Label("Format")
+        public String format;
+
+        @Label("Client")
+        public String client;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+
+        @Label("Success")
+        public boolean success;
+    }
+}
@@ -0,0 +1,126 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 请求交换对象包装
+ * JDK 自带实现的 HttpExchange 属性实际保存在 HttpContext 上（同一路由的所有请求共享），
+ * 这里为每个请求提供独立的属性表，其余方法全部委托给原始对象
+ */
+public class ApiExchange extends HttpExchange {
+
+    private final HttpExchange delegate;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    public ApiExchange(HttpExchange delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return delegate.getRequestHeaders();
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return delegate.getResponseHeaders();
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return delegate.getRequestURI();
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return delegate.getRequestMethod();
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return delegate.getHttpContext();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return delegate.getRequestBody();
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return delegate.getResponseBody();
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        // 所有处理器都经过这里写出响应头，在此统一附加 Server-Timing
+        RequestTiming timing = RequestTiming.get(this);
+        if (timing != null) {
+            String serverTiming = timing.onHeadersSent(responseLength);
+            if (serverTiming != null) {
+                delegate.getResponseHeaders().set("Server-Timing", serverTiming);
+            }
+        }
+        delegate.sendResponseHeaders(rCode, responseLength);
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return delegate.getRemoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return delegate.getResponseCode();
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return delegate.getLocalAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return delegate.getProtocol();
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        delegate.setStreams(i, o);
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return delegate.getPrincipal();
+    }
+}
@@ -0,0 +1,83 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * API响应
+ * 保存状态码和已编码的响应体（默认为JSON），可在多个请求之间共享（不可修改）
+ */
+public class ApiResponse {
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
+
+    private final int statusCode;
+    private final byte[] body;
+    private final String contentType;
+    private final String fileName;
+
+    public ApiResponse(int statusCode, byte[] body) {
+        this(statusCode, body, JSON_CONTENT_TYPE, null);
+    }
+
+    private ApiResponse(int statusCode, byte[] body, String contentType, String fileName) {
+        this.statusCode = statusCode;
+        this.body = body;
+        this.contentType = contentType;
+        this.fileName = fileName;
+    }
+
+    /**
+     * 创建JSON响应
+     */
+    public static ApiResponse json(int statusCode, String json) {
+        return new ApiResponse(statusCode, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 创建错误响应
+     */
+    public static ApiResponse error(int statusCode, String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", message);
+        return json(statusCode, error.toString());
+    }
+
+    /**
+     * 创建文件下载响应（Content-Disposition: attachment）
+     *
+     * @param contentType 不含字符集的内容类型，如 text/csv
+     */
+    public static ApiResponse attachment(String contentType, String fileName, String content) {
+        return new ApiResponse(200, content.getBytes(StandardCharsets.UTF_8), contentType + "; charset=UTF-8", fileName);
+    }
+
+    /**
+     * 内部错误的提示信息：启用 advanced.detailed-errors 时附带异常信息，关闭时只返回概要，不向客户端暴露内部细节
+     */
+    public static String errorMessage(String summary, Throwable cause) {
+        UserInfoAPIPlugin plugin = UserInfoAPIPlugin.getInstance();
+        boolean detailed = plugin == null || plugin.getConfig().getBoolean("advanced.detailed-errors", true);
+        return detailed ? summary + ": " + cause.getMessage() : summary;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 下载文件名，普通响应为 null
+     */
+    public String getFileName() {
+        return fileName;
+    }
+}
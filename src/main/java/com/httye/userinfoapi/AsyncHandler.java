@@ -0,0 +1,121 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 异步请求处理器
+ * 子类返回 CompletableFuture，由主线程任务或存储任务完成；工作线程在提交后立即释放，
+ * 响应在 future 完成时由响应线程写出。超过 advanced.request-timeout 的请求返回 504
+ */
+public abstract class AsyncHandler implements HttpHandler {
+
+    /**
+     * 请求完成信号（CompletableFuture&lt;Void&gt;），外层处理器可借此在响应写出后再释放资源
+     */
+    public static final String COMPLETION_ATTRIBUTE = "userinfoapi.completion";
+
+    private final Executor responseExecutor;
+    private final long timeoutMillis;
+
+    protected AsyncHandler(Executor responseExecutor, long timeoutMillis) {
+        this.responseExecutor = responseExecutor;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 开始处理请求，返回最终响应；子类已自行写出响应（如流式响应）时以 null 完成
+     */
+    protected abstract CompletableFuture<ApiResponse> handleAsync(HttpExchange exchange) throws IOException;
+
+    @Override
+    public final void handle(HttpExchange exchange) {
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        exchange.setAttribute(COMPLETION_ATTRIBUTE, completion);
+
+        // 异步请求的阶段：handler（提交查询）、子类标记的阶段、wait（等待结果和响应线程）
+        RequestTiming timing = RequestTiming.get(exchange);
+        if (timing != null) {
+            timing.setAsync();
+        }
+
+        CompletableFuture<ApiResponse> future;
+        try {
+            future = handleAsync(exchange);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        if (timing != null) {
+            timing.mark(RequestTiming.PHASE_HANDLER);
+        }
+
+        // 复制一份再设置超时，避免影响被合并请求共享的 future
+        CompletableFuture<ApiResponse> deadline = future.copy();
+        if (timeoutMillis > 0) {
+            deadline.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        deadline.whenCompleteAsync((response, error) -> {
+            if (timing != null) {
+                timing.mark("wait");
+            }
+            try {
+                if (response != null) {
+                    writeResponse(exchange, response);
+                } else if (error != null) {
+                    writeResponse(exchange, toErrorResponse(error));
+                }
+            } catch (IOException e) {
+                // 客户端已断开连接
+            } finally {
+                exchange.close();
+                completion.complete(null);
+            }
+        }, responseExecutor);
+    }
+
+    /**
+     * 在请求处理完成（响应已写出）后执行操作；同步处理器在调用返回时即已完成
+     */
+    public static void onComplete(HttpExchange exchange, Runnable action) {
+        Object completion = exchange.getAttribute(COMPLETION_ATTRIBUTE);
+        if (completion instanceof CompletableFuture) {
+            ((CompletableFuture<?>) completion).whenComplete((result, error) -> action.run());
+        } else {
+            action.run();
+        }
+    }
+
+    private ApiResponse toErrorResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            return ApiResponse.error(504, "请求处理超时");
+        }
+        return ApiResponse.error(500, ApiResponse.errorMessage("处理请求时发生错误", cause));
+    }
+
+    private void writeResponse(HttpExchange exchange, ApiResponse response) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", response.getContentType());
+        if (response.getFileName() != null) {
+            exchange.getResponseHeaders().add("Content-Disposition", "attachment; filename=\"" + response.getFileName() + "\"");
+        }
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, X-API-Key");
+
+        byte[] bytes = response.getBody();
+        exchange.sendResponseHeaders(response.getStatusCode(), bytes.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
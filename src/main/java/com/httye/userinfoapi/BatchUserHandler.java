@@ -1,154 +1,609 @@
 package com.httye.userinfoapi;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 /**
  * 批量用户查询处理器
- * 支持一次性查询多个玩家的信息
+ * 支持一次性查询多个玩家的信息：重复的玩家名只查询一次，各玩家通过主线程查询调度器和存储线程并发查询，
+ * 同时进行的查询数量不超过 batch-query.parallelism。登录记录、聊天记录和在线时长对所有玩家一起查询，
+ * queryType 可以同时指定多个类型，一次请求取回玩家列表页需要的全部数据。
+ * 请求 application/x-ndjson（Accept 请求头或 format=ndjson 参数）时，每个玩家的结果在查询完成时立即写出一行。
+ * 工作线程在提交查询后立即释放，响应由响应线程写出；超过 advanced.request-timeout 仍未完成的玩家返回查询超时
  */
-public class BatchUserHandler implements HttpHandler {
+public class BatchUserHandler extends AsyncHandler {
+    
+    public static final String NDJSON = "application/x-ndjson";
+    
+    // 逐个玩家查询的类型
+    private static final Set<String> PLAYER_QUERY_TYPES = new HashSet<>(Arrays.asList("info", "level", "location", "inventory"));
+    // 所有玩家一起查询的类型，每个存储只遍历一次
+    private static final Set<String> RECORD_QUERY_TYPES = new HashSet<>(Arrays.asList("login-records", "chat", "playtime"));
     
     private final UserInfoAPIPlugin plugin;
+    private final UserInfoService service;
+    private final Executor responseExecutor;
+    private final int parallelism;
+    private final long timeoutMillis;
     
-    public BatchUserHandler(UserInfoAPIPlugin plugin) {
+    public BatchUserHandler(UserInfoAPIPlugin plugin, Executor responseExecutor, long timeoutMillis) {
+        // 超时由批量查询自己处理：已完成的玩家照常返回，未完成的玩家返回查询超时
+        super(responseExecutor, 0);
         this.plugin = plugin;
+        this.service = new UserInfoService();
+        this.responseExecutor = responseExecutor;
+        this.parallelism = Math.max(1, plugin.getConfig().getInt("batch-query.parallelism", 8));
+        this.timeoutMillis = timeoutMillis;
     }
     
     @Override
-    public void handle(HttpExchange exchange) throws IOException {
+    protected CompletableFuture<ApiResponse> handleAsync(HttpExchange exchange) throws IOException {
         if (!"POST".equals(exchange.getRequestMethod())) {
-            sendErrorResponse(exchange, 405, "只支持POST方法");
-            return;
+            return errorResponse(405, "只支持POST方法");
+        }
+        
+        // 读取请求体
+        InputStream is = exchange.getRequestBody();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            sb.append(line);
+        }
+        reader.close();
+        
+        String requestBody = sb.toString();
+        if (requestBody.isEmpty()) {
+            return errorResponse(400, "请求体不能为空");
+        }
+        
+        // 解析JSON请求
+        JsonElement parsed;
+        try {
+            parsed = JsonParser.parseString(requestBody);
+        } catch (JsonParseException e) {
+            return errorResponse(400, "请求体不是有效的JSON");
+        }
+        if (!parsed.isJsonObject()) {
+            return errorResponse(400, "请求体必须是JSON对象");
+        }
+        JsonObject request = parsed.getAsJsonObject();
+        
+        if (!request.has("usernames") || !request.get("usernames").isJsonArray()) {
+            return errorResponse(400, "请求必须包含usernames数组");
+        }
+        
+        JsonArray usernamesArray = request.getAsJsonArray("usernames");
+        int maxPlayers = plugin.getConfig().getInt("batch-query.max-players", 50);
+        if (usernamesArray.size() > maxPlayers) {
+            return errorResponse(400, "一次最多查询" + maxPlayers + "个玩家");
+        }
+        
+        // Bukkit 按名称查找玩家不区分大小写，重复的玩家名（忽略大小写）只查询一次，保留第一次出现的写法
+        Map<String, String> distinct = new LinkedHashMap<>();
+        for (JsonElement element : usernamesArray) {
+            String username;
+            try {
+                username = getString(element);
+            } catch (IllegalArgumentException e) {
+                return errorResponse(400, "usernames只能包含玩家用户名字符串");
+            }
+            if (username.trim().isEmpty()) {
+                return errorResponse(400, "usernames不能包含空的玩家用户名");
+            }
+            distinct.putIfAbsent(username.toLowerCase(Locale.ROOT), username);
         }
         
+        // 获取查询类型：单个类型，或数组/逗号分隔的多个类型
+        List<String> types;
+        try {
+            types = getQueryTypes(request);
+        } catch (IllegalArgumentException e) {
+            return errorResponse(400, "queryType只能包含查询类型字符串");
+        }
+        for (String type : types) {
+            if (!PLAYER_QUERY_TYPES.contains(type) && !RECORD_QUERY_TYPES.contains(type)) {
+                return errorResponse(400, "不支持的查询类型: " + type);
+            }
+        }
+        // 响应中回显规范化后的类型，与请求中的写法无关
+        String queryType = String.join(",", types);
+        
+        // 每种记录的条数，请求体 limits 中未指定时使用配置的默认值
+        JsonObject limits = request.has("limits") && request.get("limits").isJsonObject() ? request.getAsJsonObject("limits") : new JsonObject();
+        int loginRecordLimit;
+        int chatLimit;
+        try {
+            loginRecordLimit = getLimit(limits, "login-records", plugin.getConfig().getInt("batch-query.limits.login-records", 10));
+            chatLimit = getLimit(limits, "chat", plugin.getConfig().getInt("batch-query.limits.chat", 20));
+        } catch (NumberFormatException e) {
+            return errorResponse(400, "limits 中的条数必须是数字");
+        }
+        // 与 /api/user/login-records 相同，最多100条；聊天记录最多为每个玩家保留的条数
+        loginRecordLimit = Math.max(1, Math.min(loginRecordLimit, 100));
+        chatLimit = Math.max(1, Math.min(chatLimit, plugin.getConfig().getInt("chat-logging.max-records-per-player", 100)));
+        
+        FieldProjection fields;
+        try {
+            fields = getFields(exchange, request);
+        } catch (IllegalArgumentException e) {
+            return errorResponse(400, "fields只能包含字段名字符串");
+        }
+        
+        Batch batch = new Batch(new ArrayList<>(distinct.values()), queryType, types, fields, loginRecordLimit, chatLimit);
+        if (wantsNdjson(exchange)) {
+            return stream(exchange, batch);
+        }
+        batch.start(null);
+        return respond(batch);
+    }
+    
+    private static CompletableFuture<ApiResponse> errorResponse(int statusCode, String message) {
+        return CompletableFuture.completedFuture(ApiResponse.error(statusCode, message));
+    }
+    
+    /**
+     * 请求体中的查询类型，数组中有非字符串元素时抛出 IllegalArgumentException
+     */
+    private static List<String> getQueryTypes(JsonObject request) {
+        Set<String> types = new LinkedHashSet<>();
+        JsonElement queryType = request.get("queryType");
+        if (queryType != null && queryType.isJsonArray()) {
+            for (JsonElement type : queryType.getAsJsonArray()) {
+                addQueryTypes(types, getString(type));
+            }
+        } else if (queryType != null && queryType.isJsonPrimitive()) {
+            addQueryTypes(types, getString(queryType));
+        }
+        if (types.isEmpty()) {
+            types.add("info");
+        }
+        return new ArrayList<>(types);
+    }
+    
+    private static void addQueryTypes(Set<String> types, String value) {
+        for (String type : value.split(",")) {
+            String trimmed = type.trim().toLowerCase(Locale.ROOT);
+            if (!trimmed.isEmpty()) {
+                types.add(trimmed);
+            }
+        }
+    }
+    
+    private static String getString(JsonElement element) {
+        if (!element.isJsonPrimitive() || !element.getAsJsonPrimitive().isString()) {
+            throw new IllegalArgumentException(String.valueOf(element));
+        }
+        return element.getAsString();
+    }
+    
+    private static int getLimit(JsonObject limits, String type, int defaultLimit) {
+        JsonElement limit = limits.get(type);
+        if (limit == null || limit.isJsonNull()) {
+            return defaultLimit;
+        }
         try {
-            // 读取请求体
-            InputStream is = exchange.getRequestBody();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line);
-            }
-            reader.close();
+            return limit.getAsInt();
+        } catch (IllegalStateException | UnsupportedOperationException e) {
+            throw new NumberFormatException(type);
+        }
+    }
+    
+    private Function<String, CompletableFuture<JsonObject>> getQuery(String queryType, FieldProjection fields) {
+        switch (queryType) {
+            case "info":
+                return username -> service.getUserInfoAsync(username, fields);
+            case "level":
+                return username -> service.getUserLevelAsync(username, fields);
+            case "location":
+                return username -> service.getUserLocationAsync(username, fields);
+            case "inventory":
+                return username -> service.getUserInventoryAsync(username, fields);
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * 全部结果完成（或超时）后按请求中的顺序一次性返回，响应体在响应线程编码
+     */
+    private CompletableFuture<ApiResponse> respond(Batch batch) {
+        return batch.done.thenApplyAsync(ignored -> {
+            JsonArray array = new JsonArray();
+            for (int i = 0; i < batch.usernames.size(); i++) {
+                JsonObject result = batch.results.get(i);
+                array.add(result != null ? result : timeoutResult(batch.usernames.get(i)));
+            }
             
-            String requestBody = sb.toString();
-            if (requestBody.isEmpty()) {
-                sendErrorResponse(exchange, 400, "请求体不能为空");
+            JsonObject response = new JsonObject();
+            response.add("results", array);
+            response.addProperty("total", array.size());
+            response.addProperty("queryType", batch.queryType);
+            if (!batch.fields.isAll()) {
+                response.addProperty("fields", batch.fields.getKey());
+            }
+            return ApiResponse.json(200, response.toString());
+        }, responseExecutor);
+    }
+    
+    /**
+     * 按完成顺序逐行写出结果（分块传输），最后一行为汇总信息；响应已自行写出，返回的 future 以 null 完成
+     */
+    private CompletableFuture<ApiResponse> stream(HttpExchange exchange, Batch batch) {
+        NdjsonStream stream = new NdjsonStream(exchange, batch);
+        batch.start(stream::add);
+        return batch.done.thenCompose(ignored -> stream.finish()).thenApply(ignored -> null);
+    }
+    
+    private static void writeLine(OutputStream os, JsonObject line) throws IOException {
+        os.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        os.write('\n');
+        os.flush();
+    }
+    
+    private static JsonObject timeoutResult(String username) {
+        JsonObject result = new JsonObject();
+        result.addProperty("username", username);
+        result.addProperty("error", "查询超时");
+        result.addProperty("success", false);
+        return result;
+    }
+    
+    private boolean wantsNdjson(HttpExchange exchange) {
+        if ("ndjson".equalsIgnoreCase(RequestContext.get(exchange).getParam("format"))) {
+            return true;
+        }
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        return accept != null && accept.toLowerCase(Locale.ROOT).contains(NDJSON);
+    }
+    
+    /**
+     * 字段投影：请求体中的 fields（逗号分隔的字符串或字符串数组），其次是 fields 查询参数；
+     * 数组中有非字符串元素时抛出 IllegalArgumentException
+     */
+    private FieldProjection getFields(HttpExchange exchange, JsonObject request) {
+        JsonElement fields = request.get("fields");
+        if (fields != null && fields.isJsonArray()) {
+            StringBuilder joined = new StringBuilder();
+            for (JsonElement field : fields.getAsJsonArray()) {
+                if (joined.length() > 0) {
+                    joined.append(',');
+                }
+                joined.append(getString(field));
+            }
+            return FieldProjection.of(joined.toString());
+        }
+        if (fields != null && fields.isJsonPrimitive()) {
+            return FieldProjection.of(fields.getAsString());
+        }
+        return FieldProjection.of(RequestContext.get(exchange).getParam("fields"));
+    }
+    
+    /**
+     * 流式响应
+     * 各行按提交顺序依次在响应线程写出，前一行写完才写下一行；写出失败（客户端断开）后不再写出，并取消剩余的查询
+     */
+    private final class NdjsonStream {
+        
+        private final HttpExchange exchange;
+        private final Batch batch;
+        // 以下字段只在写出任务中访问，任务依次执行
+        private final boolean[] written;
+        private OutputStream os;
+        private boolean failed;
+        // 最后提交的写出任务，由 synchronized 保护
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private boolean finished;
+        
+        NdjsonStream(HttpExchange exchange, Batch batch) {
+            this.exchange = exchange;
+            this.batch = batch;
+            this.written = new boolean[batch.usernames.size()];
+            append(() -> {
+                exchange.getResponseHeaders().add("Content-Type", NDJSON + "; charset=UTF-8");
+                exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+                exchange.sendResponseHeaders(200, 0);
+                os = exchange.getResponseBody();
+            });
+        }
+        
+        /**
+         * 写出一个玩家的结果，在完成查询的线程调用；超时后完成的结果不再写出
+         */
+        synchronized void add(int index) {
+            if (finished) {
+                return;
+            }
+            append(() -> {
+                written[index] = true;
+                writeLine(os, batch.results.get(index));
+            });
+        }
+        
+        /**
+         * 写出未完成玩家的超时结果和汇总行，返回全部写出后完成的 future
+         */
+        synchronized CompletableFuture<Void> finish() {
+            finished = true;
+            append(() -> {
+                for (int i = 0; i < written.length; i++) {
+                    if (!written[i]) {
+                        writeLine(os, timeoutResult(batch.usernames.get(i)));
+                    }
+                }
+                
+                JsonObject summary = new JsonObject();
+                summary.addProperty("done", true);
+                summary.addProperty("total", written.length);
+                summary.addProperty("queryType", batch.queryType);
+                if (!batch.fields.isAll()) {
+                    summary.addProperty("fields", batch.fields.getKey());
+                }
+                writeLine(os, summary);
+                os.close();
+            });
+            return tail;
+        }
+        
+        private void append(StreamWrite write) {
+            tail = tail.thenRunAsync(() -> {
+                if (failed) {
+                    return;
+                }
+                try {
+                    write.run();
+                } catch (IOException | RuntimeException e) {
+                    // 客户端已断开连接，不再开始剩余的查询
+                    failed = true;
+                    batch.cancel();
+                }
+            }, responseExecutor);
+        }
+    }
+    
+    @FunctionalInterface
+    private interface StreamWrite {
+        void run() throws IOException;
+    }
+    
+    /**
+     * 一次批量查询
+     * 登录记录、在线时长和聊天记录对所有玩家一起查询（每个存储只遍历一次），在开始时提交；
+     * 其余类型逐个玩家查询，先开始 parallelism 个，每完成一个再开始下一个。
+     * 一个玩家的所有类型都完成后保存结果并通知监听器；全部完成或超时后 done 完成，超时后不再开始剩余的查询
+     */
+    private final class Batch {
+        
+        final List<String> usernames;
+        final String queryType;
+        final List<String> types;
+        final FieldProjection fields;
+        // 由完成查询的线程写入，超时的玩家为 null
+        final AtomicReferenceArray<JsonObject> results;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        
+        private final int loginRecordLimit;
+        private final int chatLimit;
+        private final Map<String, Function<String, CompletableFuture<JsonObject>>> playerQueries = new LinkedHashMap<>();
+        // 按查询类型，结果按小写玩家名索引
+        private final Map<String, CompletableFuture<Map<String, JsonObject>>> recordQueries = new HashMap<>();
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        private final AtomicInteger remaining;
+        // 每个玩家完成时在完成查询的线程调用，可以为 null
+        private IntConsumer listener;
+        
+        Batch(List<String> usernames, String queryType, List<String> types, FieldProjection fields, int loginRecordLimit, int chatLimit) {
+            this.usernames = usernames;
+            this.queryType = queryType;
+            this.types = types;
+            this.fields = fields;
+            this.loginRecordLimit = loginRecordLimit;
+            this.chatLimit = chatLimit;
+            this.results = new AtomicReferenceArray<>(usernames.size());
+            this.remaining = new AtomicInteger(usernames.size());
+            for (String type : types) {
+                if (PLAYER_QUERY_TYPES.contains(type)) {
+                    playerQueries.put(type, getQuery(type, fields));
+                }
+            }
+        }
+        
+        void start(IntConsumer listener) {
+            this.listener = listener;
+            if (usernames.isEmpty()) {
+                done.complete(null);
                 return;
             }
+            if (timeoutMillis > 0) {
+                done.completeOnTimeout(null, timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            done.thenRun(this::cancel);
+            startRecordQueries();
             
-            // 解析JSON请求
-            com.google.gson.JsonParser parser = new com.google.gson.JsonParser();
-            JsonObject request = parser.parse(requestBody).getAsJsonObject();
+            // 只有记录类查询时，各玩家只是等待同一次遍历的结果，不需要限制并发
+            int initial = playerQueries.isEmpty() ? usernames.size() : Math.min(parallelism, usernames.size());
+            for (int i = 0; i < initial; i++) {
+                startNext();
+            }
+        }
+        
+        void cancel() {
+            nextIndex.set(usernames.size());
+        }
+        
+        private void startRecordQueries() {
+            boolean loginRecords = types.contains("login-records");
+            boolean playtime = types.contains("playtime");
+            if (loginRecords || playtime) {
+                // 登录记录和在线时长都来自登录记录文件，在存储线程上一起读取
+                LoginRecordManager loginRecordManager = plugin.getLoginRecordManager();
+                CompletableFuture<Map<String, LoginRecordManager.BatchRecords>> records = loginRecordManager == null
+                    ? CompletableFuture.failedFuture(new IllegalStateException("登录记录管理器未初始化"))
+                    : CompletableFuture.supplyAsync(() -> loginRecordManager.getBatchRecords(usernames, loginRecords ? loginRecordLimit : 0, playtime),
+                        loginRecordManager.getStorageExecutor());
+                if (loginRecords) {
+                    recordQueries.put("login-records", records.thenApply(byName -> select(byName, r -> r.loginRecords)));
+                }
+                if (playtime) {
+                    recordQueries.put("playtime", records.thenApply(byName -> select(byName, r -> r.playtime)));
+                }
+            }
             
-            if (!request.has("usernames") || !request.get("usernames").isJsonArray()) {
-                sendErrorResponse(exchange, 400, "请求必须包含usernames数组");
-                return;
+            if (types.contains("chat")) {
+                // 聊天记录在内存中，与登录记录一样对所有玩家一起读取，读取和编码在存储线程进行，不占用工作线程
+                ChatRecordManager chatManager = plugin.getChatRecordManager();
+                LoginRecordManager loginRecordManager = plugin.getLoginRecordManager();
+                Executor storageExecutor = loginRecordManager != null ? loginRecordManager.getStorageExecutor() : responseExecutor;
+                recordQueries.put("chat", chatManager == null
+                    ? CompletableFuture.failedFuture(new IllegalStateException("聊天记录管理器未初始化"))
+                    : CompletableFuture.supplyAsync(() -> getChatRecords(chatManager), storageExecutor));
             }
+        }
+        
+        private Map<String, JsonObject> getChatRecords(ChatRecordManager chatManager) {
+            Set<String> names = new HashSet<>();
+            for (String username : usernames) {
+                names.add(username.toLowerCase(Locale.ROOT));
+            }
+            Map<String, List<ChatRecordManager.ChatMessage>> recordsByName = chatManager.getChatRecords(names, chatLimit);
             
-            JsonArray usernamesArray = request.getAsJsonArray("usernames");
-            int maxPlayers = plugin.getConfig().getInt("batch-query.max-players", 50);
-            if (usernamesArray.size() > maxPlayers) {
-                sendErrorResponse(exchange, 400, "一次最多查询" + maxPlayers + "个玩家");
+            // 聊天记录不区分玩家是否存在，没有记录的玩家返回空列表
+            Map<String, JsonObject> result = new HashMap<>();
+            for (String name : names) {
+                List<ChatRecordManager.ChatMessage> records = recordsByName.getOrDefault(name, Collections.emptyList());
+                JsonArray messagesArray = new JsonArray();
+                for (ChatRecordManager.ChatMessage msg : records) {
+                    JsonObject msgObj = new JsonObject();
+                    msgObj.addProperty("playerName", msg.getPlayerName());
+                    msgObj.addProperty("message", msg.getMessage());
+                    msgObj.addProperty("timestamp", msg.getTimestamp());
+                    messagesArray.add(msgObj);
+                }
+                JsonObject chat = new JsonObject();
+                chat.add("messages", messagesArray);
+                chat.addProperty("count", records.size());
+                result.put(name, chat);
+            }
+            return result;
+        }
+        
+        private void startNext() {
+            int index = nextIndex.getAndIncrement();
+            if (index >= usernames.size()) {
                 return;
             }
+            String username = usernames.get(index);
+            String key = username.toLowerCase(Locale.ROOT);
             
-            // 获取查询类型
-            String queryType = request.has("queryType") ? request.get("queryType").getAsString() : "info";
-            
-            JsonObject response = new JsonObject();
-            JsonArray results = new JsonArray();
+            // 按请求中的类型顺序保存各部分的结果
+            Map<String, CompletableFuture<JsonObject>> parts = new LinkedHashMap<>();
+            List<CompletableFuture<JsonObject>> playerParts = new ArrayList<>();
+            for (String type : types) {
+                Function<String, CompletableFuture<JsonObject>> query = playerQueries.get(type);
+                CompletableFuture<JsonObject> part;
+                if (query != null) {
+                    try {
+                        part = query.apply(username);
+                    } catch (Exception e) {
+                        part = CompletableFuture.failedFuture(e);
+                    }
+                    playerParts.add(part);
+                } else {
+                    part = recordQueries.get(type).thenApply(byName -> byName.get(key));
+                }
+                parts.put(type, part);
+            }
             
-            UserInfoService service = new UserInfoService();
+            if (!playerParts.isEmpty()) {
+                // 逐个玩家的查询完成后即可开始下一个玩家，不必等记录类查询
+                CompletableFuture.allOf(playerParts.toArray(new CompletableFuture<?>[0])).whenComplete((v, error) -> startNext());
+            }
+            CompletableFuture.allOf(parts.values().toArray(new CompletableFuture<?>[0])).whenComplete((v, error) -> {
+                results.set(index, toResult(username, parts));
+                if (listener != null) {
+                    listener.accept(index);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    done.complete(null);
+                }
+            });
+        }
+        
+        private JsonObject toResult(String username, Map<String, CompletableFuture<JsonObject>> parts) {
+            JsonObject result = new JsonObject();
+            result.addProperty("username", username);
             
-            // 批量查询
-            for (int i = 0; i < usernamesArray.size(); i++) {
-                String username = usernamesArray.get(i).getAsString();
-                JsonObject playerResult = new JsonObject();
-                playerResult.addProperty("username", username);
-                
+            // 单个类型时 data 为该类型的结果；多个类型时 data 按类型分组，失败的类型放在 errors 中
+            JsonObject data = new JsonObject();
+            JsonObject errors = new JsonObject();
+            for (Map.Entry<String, CompletableFuture<JsonObject>> part : parts.entrySet()) {
                 try {
-                    JsonObject data = null;
-                    switch (queryType.toLowerCase()) {
-                        case "info":
-                            data = service.getUserInfo(username);
-                            break;
-                        case "level":
-                            data = service.getUserLevel(username);
-                            break;
-                        case "location":
-                            data = service.getUserLocation(username);
-                            break;
-                        case "inventory":
-                            data = service.getUserInventory(username);
-                            break;
-                        default:
-                            playerResult.addProperty("error", "不支持的查询类型: " + queryType);
-                            results.add(playerResult);
-                            continue;
-                    }
-                    
-                    // 检查是否找到了玩家（在线或离线）
-                    if (data != null) {
-                        playerResult.add("data", data);
-                        playerResult.addProperty("success", true);
+                    JsonObject value = part.getValue().join();
+                    if (value != null) {
+                        data.add(part.getKey(), value);
                     } else {
-                        playerResult.addProperty("error", "玩家未找到（可能从未加入过服务器）");
-                        playerResult.addProperty("success", false);
+                        errors.addProperty(part.getKey(), "玩家未找到（可能从未加入过服务器）");
                     }
-                    
-                    if (data != null) {
-                        playerResult.add("data", data);
-                        playerResult.addProperty("success", true);
-                    } else {
-                        playerResult.addProperty("error", "玩家未找到或不在线");
-                        playerResult.addProperty("success", false);
-                    }
-                } catch (Exception e) {
-                    playerResult.addProperty("error", "查询失败: " + e.getMessage());
-                    playerResult.addProperty("success", false);
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    errors.addProperty(part.getKey(), ApiResponse.errorMessage("查询失败", cause));
                 }
-                
-                results.add(playerResult);
             }
             
-            response.add("results", results);
-            response.addProperty("total", results.size());
-            response.addProperty("queryType", queryType);
-            
-            sendResponse(exchange, 200, response.toString());
-            
-        } catch (Exception e) {
-            sendErrorResponse(exchange, 500, "处理请求时发生错误: " + e.getMessage());
+            if (parts.size() == 1) {
+                String type = parts.keySet().iterator().next();
+                if (data.has(type)) {
+                    result.add("data", data.get(type));
+                } else {
+                    result.addProperty("error", errors.get(type).getAsString());
+                }
+            } else {
+                result.add("data", data);
+                if (errors.size() > 0) {
+                    result.add("errors", errors);
+                }
+            }
+            result.addProperty("success", errors.size() == 0);
+            return result;
         }
     }
     
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        
-        byte[] bytes = response.getBytes("UTF-8");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        
-        try (java.io.OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+    private static Map<String, JsonObject> select(Map<String, LoginRecordManager.BatchRecords> recordsByName,
+                                                  Function<LoginRecordManager.BatchRecords, JsonObject> part) {
+        Map<String, JsonObject> result = new HashMap<>();
+        for (Map.Entry<String, LoginRecordManager.BatchRecords> entry : recordsByName.entrySet()) {
+            result.put(entry.getKey(), part.apply(entry.getValue()));
         }
+        return result;
     }
-    
-    private void sendErrorResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
-        JsonObject error = new JsonObject();
-        error.addProperty("error", message);
-        sendResponse(exchange, statusCode, error.toString());
-    }
-}
\ No newline at end of file
+}
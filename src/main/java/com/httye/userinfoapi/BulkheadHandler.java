@@ -0,0 +1,61 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+
+/**
+ * 路由隔离处理器
+ * 路由并发数已满时直接返回 503，不占用工作线程等待
+ */
+public class BulkheadHandler implements HttpHandler {
+
+    private final HttpHandler nextHandler;
+    private final RouteBulkhead bulkhead;
+
+    public BulkheadHandler(HttpHandler nextHandler, RouteBulkhead bulkhead) {
+        this.nextHandler = nextHandler;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!bulkhead.tryAcquire()) {
+            sendBusyResponse(exchange);
+            return;
+        }
+
+        try {
+            nextHandler.handle(exchange);
+        } catch (IOException | RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+
+        // 异步处理的请求在响应写出后才释放名额
+        AsyncHandler.onComplete(exchange, bulkhead::release);
+    }
+
+    private void sendBusyResponse(HttpExchange exchange) throws IOException {
+        // 并发上限为 0 表示该路由被自适应限流暂停
+        int limit = bulkhead.getLimit();
+        String message = limit == 0 ? "服务器负载较高，该接口暂时停用，请稍后重试" : "该接口并发请求过多，请稍后重试";
+        int retryAfter = limit == 0 ? 10 : 1;
+        String response = String.format(
+            "{\"error\":\"%s\",\"route\":\"%s\",\"limit\":%d,\"retryAfter\":%d}",
+            message, bulkhead.getRoute(), limit, retryAfter
+        );
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfter));
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+
+        byte[] bytes = response.getBytes("UTF-8");
+        exchange.sendResponseHeaders(503, bytes.length);
+
+        try (java.io.OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -5,11 +5,10 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 /**
  * 聊天记录管理器
@@ -19,8 +18,9 @@ public class ChatRecordManager implements Listener {
 
     private final UserInfoAPIPlugin plugin;
     private final Logger logger;
-    private final Map<String, List<ChatMessage>> chatRecords;
-    private final SimpleDateFormat dateFormat;
+    private final ChatRecordStore chatRecords;
+    // 聊天事件在多个异步线程上触发，SimpleDateFormat 不是线程安全的
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private boolean enabled;
     private int maxRecordsPerPlayer;
     private boolean logToFile;
@@ -28,13 +28,12 @@ public class ChatRecordManager implements Listener {
     public ChatRecordManager(UserInfoAPIPlugin plugin) {
         this.plugin = plugin;
         this.logger = plugin.getLogger();
-        this.chatRecords = new ConcurrentHashMap<>();
-        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         this.enabled = true;
         this.maxRecordsPerPlayer = 100;
         this.logToFile = false;
 
         loadConfig();
+        this.chatRecords = new ChatRecordStore(maxRecordsPerPlayer);
     }
 
     /**
@@ -55,6 +54,7 @@ public class ChatRecordManager implements Listener {
      */
     public void reloadConfig() {
         loadConfig();
+        chatRecords.setMaxRecordsPerPlayer(maxRecordsPerPlayer);
     }
 
     /**
@@ -68,7 +68,7 @@ public class ChatRecordManager implements Listener {
 
         String playerName = event.getPlayer().getName();
         String message = event.getMessage();
-        String timestamp = dateFormat.format(new Date());
+        String timestamp = LocalDateTime.now().format(DATE_FORMAT);
 
         ChatMessage chatMessage = new ChatMessage(playerName, message, timestamp);
 
@@ -87,12 +87,17 @@ public class ChatRecordManager implements Listener {
      * 添加聊天记录
      */
     private void addChatRecord(String playerName, ChatMessage chatMessage) {
-        chatRecords.computeIfAbsent(playerName, k -> new ArrayList<>()).add(chatMessage);
+        ApiEvents.ChatAppend event = new ApiEvents.ChatAppend();
+        event.begin();
 
-        // 限制记录数量
-        List<ChatMessage> records = chatRecords.get(playerName);
-        if (records.size() > maxRecordsPerPlayer) {
-            records.remove(0);
+        int buffered = chatRecords.add(playerName, chatMessage);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = playerName;
+            event.length = chatMessage.getMessage().length();
+            event.buffered = buffered;
+            event.commit();
         }
     }
 
@@ -100,39 +105,36 @@ public class ChatRecordManager implements Listener {
      * 获取玩家的聊天记录
      */
     public List<ChatMessage> getChatRecords(String playerName) {
-        return chatRecords.getOrDefault(playerName, new ArrayList<>());
+        return chatRecords.get(playerName, 0);
     }
 
     /**
      * 获取玩家的聊天记录（限制数量）
      */
     public List<ChatMessage> getChatRecords(String playerName, int limit) {
-        List<ChatMessage> records = chatRecords.getOrDefault(playerName, new ArrayList<>());
-
-        if (limit <= 0 || limit >= records.size()) {
-            return new ArrayList<>(records);
-        }
+        return chatRecords.get(playerName, limit);
+    }
 
-        // 返回最近N条记录
-        return new ArrayList<>(records.subList(records.size() - limit, records.size()));
+    /**
+     * 批量获取多个玩家的聊天记录（限制每个玩家的条数），玩家名不区分大小写
+     * 返回按小写玩家名索引的结果，没有记录的玩家不包含在内
+     */
+    public Map<String, List<ChatMessage>> getChatRecords(Set<String> lowerCaseNames, int limit) {
+        return chatRecords.getRecent(lowerCaseNames, limit);
     }
 
     /**
      * 获取所有玩家的聊天记录（按玩家分组）
      */
     public Map<String, List<ChatMessage>> getAllChatRecordsByPlayer() {
-        return new HashMap<>(chatRecords);
+        return chatRecords.getAllByPlayer();
     }
 
     /**
      * 获取所有玩家的聊天记录（合并列表）
      */
     public List<ChatMessage> getAllChatRecords() {
-        List<ChatMessage> allMessages = new ArrayList<>();
-        for (List<ChatMessage> messages : chatRecords.values()) {
-            allMessages.addAll(messages);
-        }
-        return allMessages;
+        return chatRecords.getAll(0);
     }
 
     /**
@@ -140,21 +142,14 @@ public class ChatRecordManager implements Listener {
      * 返回最近N条记录
      */
     public List<ChatMessage> getAllChatRecords(int limit) {
-        List<ChatMessage> allMessages = getAllChatRecords();
-
-        if (limit <= 0 || limit >= allMessages.size()) {
-            return allMessages;
-        }
-
-        // 返回最近N条记录
-        return new ArrayList<>(allMessages.subList(allMessages.size() - limit, allMessages.size()));
+        return chatRecords.getAll(limit);
     }
 
     /**
      * 清除玩家的聊天记录
      */
     public void clearChatRecords(String playerName) {
-        chatRecords.remove(playerName);
+        chatRecords.clear(playerName);
         logger.info("已清除玩家 " + playerName + " 的聊天记录");
     }
 
@@ -163,7 +158,7 @@ public class ChatRecordManager implements Listener {
      */
     public void clearAllChatRecords() {
         int totalRecords = getTotalRecordCount();
-        chatRecords.clear();
+        chatRecords.clearAll();
         logger.info("已清除所有聊天记录，共 " + totalRecords + " 条");
     }
 
@@ -171,18 +166,14 @@ public class ChatRecordManager implements Listener {
      * 获取总记录数
      */
     public int getTotalRecordCount() {
-        int total = 0;
-        for (List<ChatMessage> records : chatRecords.values()) {
-            total += records.size();
-        }
-        return total;
+        return chatRecords.getTotalCount();
     }
 
     /**
      * 获取有聊天记录的玩家数量
      */
     public int getPlayerCount() {
-        return chatRecords.size();
+        return chatRecords.getPlayerCount();
     }
 
     /**
@@ -0,0 +1,151 @@
+package com.httye.userinfoapi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 聊天记录存储
+ * 每个玩家一个有上限的队列，超过上限时丢弃最旧的记录。异步聊天线程写入、HTTP 线程读取，按玩家加锁。
+ * 不依赖 Bukkit，由 {@link ChatRecordManager} 调用，也可以单独做基准测试
+ */
+public class ChatRecordStore {
+
+    private final Map<String, ArrayDeque<ChatRecordManager.ChatMessage>> chatRecords = new ConcurrentHashMap<>();
+    private volatile int maxRecordsPerPlayer;
+
+    public ChatRecordStore(int maxRecordsPerPlayer) {
+        this.maxRecordsPerPlayer = maxRecordsPerPlayer;
+    }
+
+    public void setMaxRecordsPerPlayer(int maxRecordsPerPlayer) {
+        this.maxRecordsPerPlayer = maxRecordsPerPlayer;
+    }
+
+    /**
+     * 添加一条记录，返回该玩家当前的记录数
+     */
+    public int add(String playerName, ChatRecordManager.ChatMessage chatMessage) {
+        ArrayDeque<ChatRecordManager.ChatMessage> records = chatRecords.computeIfAbsent(playerName, k -> new ArrayDeque<>());
+        synchronized (records) {
+            records.addLast(chatMessage);
+            // 限制记录数量
+            while (records.size() > maxRecordsPerPlayer) {
+                records.pollFirst();
+            }
+            return records.size();
+        }
+    }
+
+    /**
+     * 玩家最近的 limit 条记录（从旧到新），limit 不大于 0 时返回全部
+     */
+    public List<ChatRecordManager.ChatMessage> get(String playerName, int limit) {
+        ArrayDeque<ChatRecordManager.ChatMessage> records = chatRecords.get(playerName);
+        if (records == null) {
+            return new ArrayList<>();
+        }
+        synchronized (records) {
+            return copyLast(records, limit);
+        }
+    }
+
+    /**
+     * 多个玩家各自最近的 limit 条记录（从旧到新），limit 不大于 0 时返回全部。
+     * 玩家名不区分大小写，遍历一次记录表完成，用于批量查询
+     *
+     * @param lowerCaseNames 小写的玩家名
+     * @return 按小写玩家名索引，没有记录的玩家不包含在内
+     */
+    public Map<String, List<ChatRecordManager.ChatMessage>> getRecent(Set<String> lowerCaseNames, int limit) {
+        Map<String, List<ChatRecordManager.ChatMessage>> result = new HashMap<>();
+        for (Map.Entry<String, ArrayDeque<ChatRecordManager.ChatMessage>> entry : chatRecords.entrySet()) {
+            String key = entry.getKey().toLowerCase(Locale.ROOT);
+            if (lowerCaseNames.contains(key)) {
+                synchronized (entry.getValue()) {
+                    result.put(key, copyLast(entry.getValue(), limit));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 所有玩家的记录合并后最近的 limit 条，limit 不大于 0 时返回全部
+     */
+    public List<ChatRecordManager.ChatMessage> getAll(int limit) {
+        List<ChatRecordManager.ChatMessage> allMessages = new ArrayList<>();
+        for (ArrayDeque<ChatRecordManager.ChatMessage> records : chatRecords.values()) {
+            synchronized (records) {
+                allMessages.addAll(records);
+            }
+        }
+
+        if (limit <= 0 || limit >= allMessages.size()) {
+            return allMessages;
+        }
+        return new ArrayList<>(allMessages.subList(allMessages.size() - limit, allMessages.size()));
+    }
+
+    /**
+     * 按玩家分组的记录副本
+     */
+    public Map<String, List<ChatRecordManager.ChatMessage>> getAllByPlayer() {
+        Map<String, List<ChatRecordManager.ChatMessage>> result = new HashMap<>();
+        for (Map.Entry<String, ArrayDeque<ChatRecordManager.ChatMessage>> entry : chatRecords.entrySet()) {
+            synchronized (entry.getValue()) {
+                result.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    public void clear(String playerName) {
+        chatRecords.remove(playerName);
+    }
+
+    public void clearAll() {
+        chatRecords.clear();
+    }
+
+    /**
+     * 总记录数
+     */
+    public int getTotalCount() {
+        int total = 0;
+        for (ArrayDeque<ChatRecordManager.ChatMessage> records : chatRecords.values()) {
+            synchronized (records) {
+                total += records.size();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 有聊天记录的玩家数量
+     */
+    public int getPlayerCount() {
+        return chatRecords.size();
+    }
+
+    private static List<ChatRecordManager.ChatMessage> copyLast(ArrayDeque<ChatRecordManager.ChatMessage> records, int limit) {
+        if (limit <= 0 || limit >= records.size()) {
+            return new ArrayList<>(records);
+        }
+        // 从队尾向前取最近N条
+        ChatRecordManager.ChatMessage[] recent = new ChatRecordManager.ChatMessage[limit];
+        int index = limit;
+        Iterator<ChatRecordManager.ChatMessage> it = records.descendingIterator();
+        while (index > 0) {
+            recent[--index] = it.next();
+        }
+        return new ArrayList<>(Arrays.asList(recent));
+    }
+}
@@ -15,11 +15,9 @@ import java.util.List;
 public class ChatRecordsHandler implements HttpHandler {
 
     private final UserInfoAPIPlugin plugin;
-    private final APIServer apiServer;
 
     public ChatRecordsHandler() {
         this.plugin = UserInfoAPIPlugin.getInstance();
-        this.apiServer = plugin.getApiServer();
     }
 
     @Override
@@ -27,10 +25,10 @@ public class ChatRecordsHandler implements HttpHandler {
         long startTime = System.currentTimeMillis();
 
         try {
-            String query = exchange.getRequestURI().getQuery();
-            String username = getQueryParam(query, "username");
-            String limitStr = getQueryParam(query, "limit");
-            String allStr = getQueryParam(query, "all");
+            RequestContext context = RequestContext.get(exchange);
+            String username = context.getParam("username");
+            String limitStr = context.getParam("limit");
+            String allStr = context.getParam("all");
 
             int limit = 0;
             if (limitStr != null && !limitStr.isEmpty()) {
@@ -119,20 +117,10 @@ public class ChatRecordsHandler implements HttpHandler {
 
             sendResponse(exchange, 200, response.toString());
 
-            if (apiServer != null) {
-                apiServer.recordRequest(true, responseTime);
-            }
-
         } catch (Exception e) {
             e.printStackTrace();
 
-            long responseTime = System.currentTimeMillis() - startTime;
-
-            if (apiServer != null) {
-                apiServer.recordRequest(false, responseTime);
-            }
-
-            sendErrorResponse(exchange, 500, "处理请求时发生错误: " + e.getMessage());
+            sendErrorResponse(exchange, 500, ApiResponse.errorMessage("处理请求时发生错误", e));
         }
     }
 
@@ -155,19 +143,4 @@ public class ChatRecordsHandler implements HttpHandler {
         error.addProperty("error", message);
         sendResponse(exchange, statusCode, error.toString());
     }
-
-    private String getQueryParam(String query, String paramName) {
-        if (query == null || query.isEmpty()) {
-            return null;
-        }
-
-        String[] params = query.split("&");
-        for (String param : params) {
-            String[] keyValue = param.split("=");
-            if (keyValue.length == 2 && keyValue[0].equals(paramName)) {
-                return keyValue[1];
-            }
-        }
-        return null;
-    }
 }
\ No newline at end of file
@@ -3,141 +3,130 @@ package com.httye.userinfoapi;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonArray;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * 数据导出处理器
- * 支持导出玩家数据到CSV和JSON格式
+ * 支持导出玩家数据到CSV和JSON格式。玩家数据通过主线程查询调度器读取，文件读取和编码在存储线程进行，
+ * 工作线程在提交后立即释放
  */
-public class DataExportHandler implements HttpHandler {
+public class DataExportHandler extends AsyncHandler {
     
     private final UserInfoAPIPlugin plugin;
+    private final UserInfoService service;
     
-    public DataExportHandler(UserInfoAPIPlugin plugin) {
+    public DataExportHandler(UserInfoAPIPlugin plugin, Executor responseExecutor, long timeoutMillis) {
+        super(responseExecutor, timeoutMillis);
         this.plugin = plugin;
+        this.service = new UserInfoService();
     }
     
     @Override
-    public void handle(HttpExchange exchange) throws IOException {
-        String query = exchange.getRequestURI().getQuery();
-        String format = getQueryParam(query, "format");
-        String type = getQueryParam(query, "type");
-        String username = getQueryParam(query, "username");
+    protected CompletableFuture<ApiResponse> handleAsync(HttpExchange exchange) {
+        RequestContext context = RequestContext.get(exchange);
+        String requestedFormat = context.getParam("format");
+        String requestedType = context.getParam("type");
+        String username = context.getParam("username");
         
-        if (format == null) {
-            format = "json"; // 默认格式
-        }
-        if (type == null) {
-            type = "players"; // 默认类型
-        }
+        final String format = requestedFormat != null ? requestedFormat : "json"; // 默认格式
+        final String type = requestedType != null ? requestedType : "players"; // 默认类型
+        final boolean csv = "csv".equalsIgnoreCase(format);
+        Executor storageExecutor = plugin.getLoginRecordManager().getStorageExecutor();
+        MainThreadQueryScheduler scheduler = plugin.getQueryScheduler();
         
-        try {
-            String content = "";
-            String contentType = "";
-            String filename = "";
-            
-            switch (type.toLowerCase()) {
-                case "players":
-                    if ("csv".equalsIgnoreCase(format)) {
-                        content = exportPlayersToCSV();
-                        contentType = "text/csv";
-                        filename = "players_" + getCurrentTimestamp() + ".csv";
-                    } else {
-                        content = exportPlayersToJSON();
-                        contentType = "application/json";
-                        filename = "players_" + getCurrentTimestamp() + ".json";
-                    }
-                    break;
-                    
-                case "login-records":
-                    if (username == null) {
-                        sendErrorResponse(exchange, 400, "导出登录记录需要指定username参数");
-                        return;
-                    }
-                    if ("csv".equalsIgnoreCase(format)) {
-                        content = exportLoginRecordsToCSV(username);
-                        contentType = "text/csv";
-                        filename = "login_records_" + username + "_" + getCurrentTimestamp() + ".csv";
-                    } else {
-                        content = exportLoginRecordsToJSON(username);
-                        contentType = "application/json";
-                        filename = "login_records_" + username + "_" + getCurrentTimestamp() + ".json";
+        CompletableFuture<ApiResponse> future;
+        switch (type.toLowerCase()) {
+            case "players":
+                // 在线玩家列表和各玩家的数据必须在主线程读取，都提交给查询调度器，全部完成后在存储线程编码
+                future = scheduler.readOnlinePlayers().thenComposeAsync(online -> {
+                    List<CompletableFuture<JsonObject>> infos = new ArrayList<>();
+                    for (MainThreadQueryScheduler.OnlinePlayer player : online) {
+                        // 跳过出错的玩家
+                        infos.add(service.getUserInfoAsync(player.getName()).exceptionally(e -> null));
                     }
-                    break;
-                    
-                case "online-players":
-                    if ("csv".equalsIgnoreCase(format)) {
-                        content = exportOnlinePlayersToCSV();
-                        contentType = "text/csv";
-                        filename = "online_players_" + getCurrentTimestamp() + ".csv";
-                    } else {
-                        content = exportOnlinePlayersToJSON();
-                        contentType = "application/json";
-                        filename = "online_players_" + getCurrentTimestamp() + ".json";
-                    }
-                    break;
-                    
-                default:
-                    sendErrorResponse(exchange, 400, "不支持的导出类型: " + type);
-                    return;
-            }
-            
-            // 设置响应头
-            exchange.getResponseHeaders().add("Content-Type", contentType + "; charset=UTF-8");
-            exchange.getResponseHeaders().add("Content-Disposition", "attachment; filename=\"" + filename + "\"");
-            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-            
-            byte[] bytes = content.getBytes("UTF-8");
-            exchange.sendResponseHeaders(200, bytes.length);
-            
-            try (java.io.OutputStream os = exchange.getResponseBody()) {
-                os.write(bytes);
-            }
-            
-        } catch (Exception e) {
-            sendErrorResponse(exchange, 500, "导出数据时发生错误: " + e.getMessage());
+                    return CompletableFuture.allOf(infos.toArray(new CompletableFuture<?>[0])).thenApplyAsync(ignored -> {
+                        List<JsonObject> players = new ArrayList<>();
+                        for (CompletableFuture<JsonObject> info : infos) {
+                            if (info.join() != null) {
+                                players.add(info.join());
+                            }
+                        }
+                        return csv
+                            ? ApiResponse.attachment("text/csv", "players_" + getCurrentTimestamp() + ".csv", exportPlayersToCSV(players))
+                            : ApiResponse.attachment("application/json", "players_" + getCurrentTimestamp() + ".json", exportPlayersToJSON(players));
+                    }, storageExecutor);
+                }, storageExecutor);
+                break;
+                
+            case "login-records":
+                if (username == null) {
+                    return CompletableFuture.completedFuture(ApiResponse.error(400, "导出登录记录需要指定username参数"));
+                }
+                future = CompletableFuture.supplyAsync(() -> csv
+                    ? ApiResponse.attachment("text/csv", "login_records_" + username + "_" + getCurrentTimestamp() + ".csv", exportLoginRecordsToCSV(username))
+                    : ApiResponse.attachment("application/json", "login_records_" + username + "_" + getCurrentTimestamp() + ".json", exportLoginRecordsToJSON(username)),
+                    storageExecutor);
+                break;
+                
+            case "online-players":
+                // 玩家列表、显示名和地址在主线程读取，编码在存储线程
+                future = scheduler.readOnlinePlayers().thenApplyAsync(online -> csv
+                    ? ApiResponse.attachment("text/csv", "online_players_" + getCurrentTimestamp() + ".csv", exportOnlinePlayersToCSV(online))
+                    : ApiResponse.attachment("application/json", "online_players_" + getCurrentTimestamp() + ".json", exportOnlinePlayersToJSON(online)),
+                    storageExecutor);
+                break;
+                
+            default:
+                return CompletableFuture.completedFuture(ApiResponse.error(400, "不支持的导出类型: " + type));
         }
+        
+        ApiEvents.ExportJob event = new ApiEvents.ExportJob();
+        event.begin();
+        String client = context.getClientIp();
+        return future.whenComplete((response, error) -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.type = type;
+                event.format = format;
+                event.client = client;
+                event.bytes = response != null ? response.getBody().length : 0;
+                event.success = response != null;
+                event.commit();
+            }
+        });
     }
     
-    private String exportPlayersToCSV() {
+    private String exportPlayersToCSV(List<JsonObject> players) {
         StringBuilder csv = new StringBuilder();
         csv.append("用户名,UUID,等级,经验值,生命值,饥饿值,游戏模式,世界,X坐标,Y坐标,Z坐标,是否在线\n");
         
-        // 获取所有在线玩家
-        List<org.bukkit.entity.Player> onlinePlayers = new ArrayList<>(plugin.getServer().getOnlinePlayers());
-        
-        UserInfoService service = new UserInfoService();
-        
-        for (org.bukkit.entity.Player player : onlinePlayers) {
+        for (JsonObject info : players) {
             try {
-                JsonObject info = service.getUserInfo(player.getName());
-                if (info != null) {
-                    csv.append(escapeCSV(info.get("username").getAsString())).append(",");
-                    csv.append(escapeCSV(info.get("uuid").getAsString())).append(",");
-                    csv.append(info.get("level").getAsInt()).append(",");
-                    csv.append(info.get("exp").getAsDouble()).append(",");
-                    csv.append(info.get("health").getAsDouble()).append(",");
-                    csv.append(info.get("foodLevel").getAsInt()).append(",");
-                    csv.append(escapeCSV(info.get("gameMode").getAsString())).append(",");
-                    
-                    if (info.has("location")) {
-                        JsonObject location = info.getAsJsonObject("location");
-                        csv.append(escapeCSV(location.get("world").getAsString())).append(",");
-                        csv.append(location.get("x").getAsDouble()).append(",");
-                        csv.append(location.get("y").getAsDouble()).append(",");
-                        csv.append(location.get("z").getAsDouble()).append(",");
-                    } else {
-                        csv.append(",,,,");
-                    }
-                    
-                    csv.append("是\n");
+                csv.append(escapeCSV(info.get("username").getAsString())).append(",");
+                csv.append(escapeCSV(info.get("uuid").getAsString())).append(",");
+                csv.append(info.get("level").getAsInt()).append(",");
+                csv.append(info.get("exp").getAsDouble()).append(",");
+                csv.append(info.get("health").getAsDouble()).append(",");
+                csv.append(info.get("foodLevel").getAsInt()).append(",");
+                csv.append(escapeCSV(info.get("gameMode").getAsString())).append(",");
+                
+                if (info.has("location")) {
+                    JsonObject location = info.getAsJsonObject("location");
+                    csv.append(escapeCSV(location.get("world").getAsString())).append(",");
+                    csv.append(location.get("x").getAsDouble()).append(",");
+                    csv.append(location.get("y").getAsDouble()).append(",");
+                    csv.append(location.get("z").getAsDouble()).append(",");
+                } else {
+                    csv.append(",,,,");
                 }
+                
+                csv.append("是\n");
             } catch (Exception e) {
                 // 跳过出错的玩家
             }
@@ -146,26 +135,14 @@ public class DataExportHandler implements HttpHandler {
         return csv.toString();
     }
     
-    private String exportPlayersToJSON() {
+    private String exportPlayersToJSON(List<JsonObject> infos) {
         JsonObject result = new JsonObject();
         result.addProperty("exportTime", getCurrentTimestamp());
         result.addProperty("type", "players");
         
         JsonArray players = new JsonArray();
-        UserInfoService service = new UserInfoService();
-        
-        // 获取所有在线玩家
-        List<org.bukkit.entity.Player> onlinePlayers = new ArrayList<>(plugin.getServer().getOnlinePlayers());
-        
-        for (org.bukkit.entity.Player player : onlinePlayers) {
-            try {
-                JsonObject info = service.getUserInfo(player.getName());
-                if (info != null) {
-                    players.add(info);
-                }
-            } catch (Exception e) {
-                // 跳过出错的玩家
-            }
+        for (JsonObject info : infos) {
+            players.add(info);
         }
         
         result.add("players", players);
@@ -193,7 +170,7 @@ public class DataExportHandler implements HttpHandler {
                 csv.append(record.get("isOnline").getAsBoolean() ? "是" : "否").append("\n");
             }
         } catch (Exception e) {
-            csv.append("导出失败: ").append(e.getMessage()).append("\n");
+            csv.append(ApiResponse.errorMessage("导出失败", e)).append("\n");
         }
         
         return csv.toString();
@@ -208,17 +185,17 @@ public class DataExportHandler implements HttpHandler {
             return records.toString();
         } catch (Exception e) {
             JsonObject error = new JsonObject();
-            error.addProperty("error", "导出失败: " + e.getMessage());
+            error.addProperty("error", ApiResponse.errorMessage("导出失败", e));
             return error.toString();
         }
     }
     
-    private String exportOnlinePlayersToCSV() {
+    private String exportOnlinePlayersToCSV(List<MainThreadQueryScheduler.OnlinePlayer> online) {
         StringBuilder csv = new StringBuilder();
         csv.append("用户名,UUID,显示名称,IP地址,登录时间,在线时长(秒)\n");
         
         try {
-            JsonObject onlineData = getOnlinePlayersData();
+            JsonObject onlineData = getOnlinePlayersData(online);
             JsonArray players = onlineData.getAsJsonArray("players");
             
             for (int i = 0; i < players.size(); i++) {
@@ -232,37 +209,35 @@ public class DataExportHandler implements HttpHandler {
                 csv.append(player.get("onlineTime").getAsInt()).append("\n");
             }
         } catch (Exception e) {
-            csv.append("导出失败: ").append(e.getMessage()).append("\n");
+            csv.append(ApiResponse.errorMessage("导出失败", e)).append("\n");
         }
         
         return csv.toString();
     }
     
-    private String exportOnlinePlayersToJSON() {
+    private String exportOnlinePlayersToJSON(List<MainThreadQueryScheduler.OnlinePlayer> online) {
         try {
-            JsonObject onlineData = getOnlinePlayersData();
+            JsonObject onlineData = getOnlinePlayersData(online);
             onlineData.addProperty("exportTime", getCurrentTimestamp());
             return onlineData.toString();
         } catch (Exception e) {
             JsonObject error = new JsonObject();
-            error.addProperty("error", "导出失败: " + e.getMessage());
+            error.addProperty("error", ApiResponse.errorMessage("导出失败", e));
             return error.toString();
         }
     }
     
-    private JsonObject getOnlinePlayersData() {
+    private JsonObject getOnlinePlayersData(List<MainThreadQueryScheduler.OnlinePlayer> onlinePlayers) {
         JsonObject result = new JsonObject();
         JsonArray players = new JsonArray();
         
-        List<org.bukkit.entity.Player> onlinePlayers = new ArrayList<>(plugin.getServer().getOnlinePlayers());
-        
-        for (org.bukkit.entity.Player player : onlinePlayers) {
+        for (MainThreadQueryScheduler.OnlinePlayer player : onlinePlayers) {
             try {
                 JsonObject playerInfo = new JsonObject();
                 playerInfo.addProperty("username", player.getName());
                 playerInfo.addProperty("uuid", player.getUniqueId().toString());
                 playerInfo.addProperty("displayName", player.getDisplayName());
-                playerInfo.addProperty("ipAddress", player.getAddress().getAddress().getHostAddress());
+                playerInfo.addProperty("ipAddress", player.getIpAddress() != null ? player.getIpAddress() : "");
                 
                 SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
                 playerInfo.addProperty("loginTime", sdf.format(new Date()));
@@ -294,34 +269,4 @@ public class DataExportHandler implements HttpHandler {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
         return sdf.format(new Date());
     }
-    
-    private String getQueryParam(String query, String paramName) {
-        if (query == null || query.isEmpty()) {
-            return null;
-        }
-        
-        String[] params = query.split("&");
-        for (String param : params) {
-            String[] keyValue = param.split("=");
-            if (keyValue.length == 2 && keyValue[0].equals(paramName)) {
-                return keyValue[1];
-            }
-        }
-        return null;
-    }
-    
-    private void sendErrorResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
-        JsonObject error = new JsonObject();
-        error.addProperty("error", message);
-        
-        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        
-        byte[] bytes = error.toString().getBytes("UTF-8");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        
-        try (java.io.OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 工作线程调度处理器
+ * 接入线程解析完请求头后，除存活检查以外的路由都由这里交给 {@link APIExecutor} 的工作线程处理，
+ * 排队、排队超时和过载丢弃都发生在这一步。处理完成（包括异步处理器写出响应）时完成请求的完成信号，
+ * 外层的 {@link MetricsHandler} 据此记录耗时。开启流量录制时请求体也在工作线程上读取，
+ * 上传缓慢的客户端不会占用接入线程
+ */
+public class DispatchHandler implements HttpHandler {
+
+    private final HttpHandler nextHandler;
+    private final APIExecutor executor;
+    private final TrafficCapture capture;
+
+    public DispatchHandler(HttpHandler nextHandler, APIExecutor executor, TrafficCapture capture) {
+        this.nextHandler = nextHandler;
+        this.executor = executor;
+        this.capture = capture != null && capture.isEnabled() ? capture : null;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        // 接入阶段已被丢弃（接入线程排满），直接由后续的过载保护处理器返回 503
+        if (APIExecutor.getShedReason() != null) {
+            nextHandler.handle(exchange);
+            return;
+        }
+
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        exchange.setAttribute(AsyncHandler.COMPLETION_ATTRIBUTE, completion);
+
+        executor.dispatch(() -> {
+            RequestTiming.mark(exchange, "queue");
+            try {
+                if (capture != null) {
+                    // 在处理器读取之前取出请求体
+                    RequestContext.get(exchange).setCapturedBody(capture.captureBody(exchange));
+                }
+                nextHandler.handle(exchange);
+            } catch (IOException | RuntimeException e) {
+                // 已不在 HttpServer 的调用栈上，由这里关闭连接
+                exchange.close();
+                completion.complete(null);
+                return;
+            }
+
+            // 后续是异步处理器时，它会换上自己的完成信号，等响应写出后再完成
+            Object current = exchange.getAttribute(AsyncHandler.COMPLETION_ATTRIBUTE);
+            if (current instanceof CompletableFuture && current != completion) {
+                ((CompletableFuture<?>) current).whenComplete((result, error) -> completion.complete(null));
+            } else {
+                completion.complete(null);
+            }
+        });
+    }
+}
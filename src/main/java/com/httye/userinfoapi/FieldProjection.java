@@ -0,0 +1,185 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字段投影
+ * 由 fields 参数（如 level,online,location.world）编译而成，用点号表示嵌套字段，数组中的每个对象按同一路径投影。
+ * 查询前用于判断哪些开销较大的部分需要读取（背包、附魔和描述、生物群系、在线时长统计），查询后裁剪 JSON。
+ * 同一个 fields 字符串只编译一次；username 总是返回，用于识别结果
+ */
+public final class FieldProjection {
+
+    /**
+     * 不做投影，返回所有字段
+     */
+    public static final FieldProjection ALL = new FieldProjection("", null);
+
+    // 缓存的投影数量上限，超过后新的字符串每次重新编译（避免任意参数撑大缓存）
+    private static final int MAX_CACHED = 1024;
+    private static final Map<String, FieldProjection> CACHE = new ConcurrentHashMap<>();
+
+    // 规范化后的字段列表（排序去重），用作合并查询的键
+    private final String key;
+    // null 表示包含全部字段
+    private final Node root;
+
+    private FieldProjection(String key, Node root) {
+        this.key = key;
+        this.root = root;
+    }
+
+    /**
+     * 编译 fields 参数，参数为空时返回 {@link #ALL}
+     */
+    public static FieldProjection of(String fields) {
+        if (fields == null || fields.isEmpty()) {
+            return ALL;
+        }
+        FieldProjection projection = CACHE.get(fields);
+        if (projection != null) {
+            return projection;
+        }
+        projection = compile(fields);
+        if (CACHE.size() < MAX_CACHED) {
+            CACHE.putIfAbsent(fields, projection);
+        }
+        return projection;
+    }
+
+    private static FieldProjection compile(String fields) {
+        Node root = new Node();
+        TreeMap<String, Boolean> paths = new TreeMap<>();
+        for (String field : fields.split(",")) {
+            String path = field.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+            paths.put(path, Boolean.TRUE);
+            Node node = root;
+            for (String name : path.split("\\.")) {
+                if (node.all) {
+                    break;
+                }
+                node = node.children.computeIfAbsent(name, k -> new Node());
+            }
+            node.all = true;
+            node.children.clear();
+        }
+        if (paths.isEmpty()) {
+            return ALL;
+        }
+        return new FieldProjection(String.join(",", paths.keySet()), root);
+    }
+
+    public boolean isAll() {
+        return root == null;
+    }
+
+    /**
+     * 规范化的字段列表，{@link #ALL} 为空字符串
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 是否需要返回该字段或它的某个子字段
+     */
+    public boolean includes(String path) {
+        if (root == null) {
+            return true;
+        }
+        Node node = root;
+        for (String name : path.split("\\.")) {
+            if (node.all) {
+                return true;
+            }
+            node = node.children.get(name);
+            if (node == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在 available 中去掉不需要读取的部分，见 {@link PlayerSnapshot}
+     */
+    public int sections(int available) {
+        if (root == null) {
+            return available;
+        }
+        int sections = 0;
+        if (includes("inventory")) {
+            sections |= PlayerSnapshot.INVENTORY;
+            if (includes("inventory.enchantments") || includes("inventory.lore")) {
+                sections |= PlayerSnapshot.ITEM_DETAILS;
+            }
+        }
+        if (includes("biome")) {
+            sections |= PlayerSnapshot.BIOME;
+        }
+        return sections & available;
+    }
+
+    /**
+     * 裁剪查询结果，只保留请求的字段
+     */
+    public JsonObject apply(JsonObject json) {
+        if (root == null || json == null) {
+            return json;
+        }
+        return project(json, root, true);
+    }
+
+    private static JsonObject project(JsonObject json, Node node, boolean top) {
+        // 按原有的字段顺序输出
+        JsonObject result = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+            Node child = node.children.get(entry.getKey());
+            if (child != null) {
+                result.add(entry.getKey(), project(entry.getValue(), child));
+            } else if (top && entry.getKey().equals("username")) {
+                result.add("username", entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static JsonElement project(JsonElement value, Node node) {
+        if (node.all) {
+            return value;
+        }
+        if (value.isJsonObject()) {
+            return project(value.getAsJsonObject(), node, false);
+        }
+        if (value.isJsonArray()) {
+            JsonArray array = new JsonArray();
+            for (JsonElement element : value.getAsJsonArray()) {
+                array.add(project(element, node));
+            }
+            return array;
+        }
+        // 基本类型没有子字段，请求其子字段时原样返回
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return root == null ? "*" : key;
+    }
+
+    private static final class Node {
+        // 包含该字段的全部内容
+        boolean all;
+        final Map<String, Node> children = new HashMap<>();
+    }
+}
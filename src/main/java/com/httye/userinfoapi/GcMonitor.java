@@ -0,0 +1,269 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GC 监控
+ * 订阅 GarbageCollectorMXBean 的通知，按收集器记录耗时直方图和触发原因，最近的 GC 事件（含各内存池回收前后的用量）
+ * 保存在环形缓冲区中。分配量按每次 GC 前的堆用量减去上一次 GC 后的堆用量累加估算。
+ * 并发收集器（如 G1 Concurrent GC、ZGC）报告的是整个回收周期的耗时，不等于停顿时间
+ */
+public class GcMonitor implements NotificationListener {
+
+    private final UserInfoAPIPlugin plugin;
+    private final long jvmStartTime;
+    private final Set<String> heapPools = new HashSet<>();
+    private final Map<String, CollectorStats> collectors = new ConcurrentHashMap<>();
+
+    // 最近的 GC 事件，按环形缓冲区覆盖
+    private final GcEvent[] recentEvents;
+    private long writtenEvents;
+
+    // 分配量估算
+    private long allocatedBeforeLastGc;
+    private long heapAfterLastGc;
+    private boolean started;
+
+    public GcMonitor(UserInfoAPIPlugin plugin) {
+        this.plugin = plugin;
+        this.jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+        this.recentEvents = new GcEvent[Math.max(1, plugin.getConfig().getInt("resource-monitoring.gc-recent-events", 50))];
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+    }
+
+    /**
+     * 注册 GC 通知监听器
+     */
+    public void start() {
+        synchronized (this) {
+            heapAfterLastGc = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            started = true;
+        }
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                ((NotificationEmitter) gcBean).addNotificationListener(this, null, null);
+            }
+        }
+    }
+
+    public void stop() {
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) gcBean).removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    // 未注册过
+                }
+            }
+        }
+    }
+
+    /**
+     * 在 JVM 的通知线程上调用，只做计数和少量对象分配
+     */
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+
+        try {
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            GcInfo gcInfo = info.getGcInfo();
+
+            GcEvent event = new GcEvent();
+            event.timestamp = jvmStartTime + gcInfo.getStartTime();
+            event.collector = info.getGcName();
+            event.action = info.getGcAction();
+            event.cause = info.getGcCause();
+            event.durationMillis = gcInfo.getDuration();
+
+            Map<String, MemoryUsage> before = gcInfo.getMemoryUsageBeforeGc();
+            Map<String, MemoryUsage> after = gcInfo.getMemoryUsageAfterGc();
+            int poolCount = 0;
+            for (String pool : before.keySet()) {
+                if (heapPools.contains(pool)) {
+                    poolCount++;
+                }
+            }
+            event.pools = new String[poolCount];
+            event.poolBefore = new long[poolCount];
+            event.poolAfter = new long[poolCount];
+            int index = 0;
+            for (Map.Entry<String, MemoryUsage> entry : before.entrySet()) {
+                if (!heapPools.contains(entry.getKey())) {
+                    continue;
+                }
+                MemoryUsage afterUsage = after.get(entry.getKey());
+                event.pools[index] = entry.getKey();
+                event.poolBefore[index] = entry.getValue().getUsed();
+                event.poolAfter[index] = afterUsage != null ? afterUsage.getUsed() : entry.getValue().getUsed();
+                event.heapBefore += event.poolBefore[index];
+                event.heapAfter += event.poolAfter[index];
+                index++;
+            }
+
+            collectors.computeIfAbsent(event.collector, CollectorStats::new).record(event);
+            record(event);
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("处理GC通知失败: " + e.getMessage());
+        }
+    }
+
+    private synchronized void record(GcEvent event) {
+        // 本次 GC 前的用量减去上次 GC 后的用量即两次 GC 之间的分配量
+        allocatedBeforeLastGc += Math.max(0, event.heapBefore - heapAfterLastGc);
+        heapAfterLastGc = event.heapAfter;
+
+        recentEvents[(int) (writtenEvents % recentEvents.length)] = event;
+        writtenEvents++;
+    }
+
+    /**
+     * 启动以来估算的堆分配总量
+     *
+     * @param currentHeapUsed 当前堆用量，用于计入上次 GC 之后的分配
+     */
+    public synchronized long getAllocatedBytes(long currentHeapUsed) {
+        if (!started) {
+            return 0;
+        }
+        return allocatedBeforeLastGc + Math.max(0, currentHeapUsed - heapAfterLastGc);
+    }
+
+    public Map<String, CollectorStats> getCollectors() {
+        return collectors;
+    }
+
+    /**
+     * 最近的 GC 事件，从新到旧
+     */
+    public synchronized JsonArray getRecentEventsJson() {
+        JsonArray events = new JsonArray();
+        long oldest = Math.max(0, writtenEvents - recentEvents.length);
+        for (long n = writtenEvents - 1; n >= oldest; n--) {
+            events.add(recentEvents[(int) (n % recentEvents.length)].toJson());
+        }
+        return events;
+    }
+
+    /**
+     * 各收集器的统计
+     */
+    public JsonObject getCollectorsJson() {
+        JsonObject result = new JsonObject();
+        for (CollectorStats stats : collectors.values()) {
+            result.add(stats.name, stats.toJson());
+        }
+        return result;
+    }
+
+    /**
+     * 单个收集器的统计
+     */
+    public static class CollectorStats {
+        private final String name;
+        private final LatencyHistogram durations = new LatencyHistogram();
+        private final Map<String, AtomicLong> causes = new ConcurrentHashMap<>();
+        private final AtomicLong reclaimedBytes = new AtomicLong(0);
+
+        CollectorStats(String name) {
+            this.name = name;
+        }
+
+        void record(GcEvent event) {
+            durations.record(event.durationMillis * 1_000_000L);
+            causes.computeIfAbsent(event.cause, cause -> new AtomicLong()).incrementAndGet();
+            reclaimedBytes.addAndGet(Math.max(0, event.heapBefore - event.heapAfter));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram getDurations() {
+            return durations;
+        }
+
+        public Map<String, AtomicLong> getCauses() {
+            return causes;
+        }
+
+        public long getReclaimedBytes() {
+            return reclaimedBytes.get();
+        }
+
+        JsonObject toJson() {
+            JsonObject json = durations.getStats();
+            json.addProperty("reclaimedBytes", reclaimedBytes.get());
+
+            JsonObject causeCounts = new JsonObject();
+            for (Map.Entry<String, AtomicLong> entry : causes.entrySet()) {
+                causeCounts.addProperty(entry.getKey(), entry.getValue().get());
+            }
+            json.add("causes", causeCounts);
+            return json;
+        }
+    }
+
+    /**
+     * 一次 GC 事件
+     */
+    static class GcEvent {
+        long timestamp;
+        String collector;
+        String action;
+        String cause;
+        long durationMillis;
+        long heapBefore;
+        long heapAfter;
+        String[] pools;
+        long[] poolBefore;
+        long[] poolAfter;
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("timestamp", timestamp);
+            json.addProperty("collector", collector);
+            json.addProperty("action", action);
+            json.addProperty("cause", cause);
+            json.addProperty("durationMs", durationMillis);
+            json.addProperty("heapBefore", heapBefore);
+            json.addProperty("heapAfter", heapAfter);
+
+            JsonObject poolUsage = new JsonObject();
+            for (int i = 0; i < pools.length; i++) {
+                JsonObject usage = new JsonObject();
+                usage.addProperty("before", poolBefore[i]);
+                usage.addProperty("after", poolAfter[i]);
+                poolUsage.add(pools[i], usage);
+            }
+            json.add("pools", poolUsage);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.httye.userinfoapi;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * IP 白名单
+ * 精确地址按集合查找；CIDR 网段（如 192.168.1.0/24）在加载时解析成网络地址和掩码，
+ * 检查时客户端地址只解析一次。只支持 IPv4 网段，无法解析的条目忽略。不依赖 Bukkit
+ */
+public class IpAllowList {
+
+    private final Set<String> exact = new HashSet<>();
+    private final long[] networks;
+    private final long[] masks;
+    private final int size;
+
+    public IpAllowList(Collection<String> entries) {
+        long[] parsedNetworks = new long[entries.size()];
+        long[] parsedMasks = new long[entries.size()];
+        int ranges = 0;
+
+        for (String entry : entries) {
+            exact.add(entry);
+            int slash = entry.indexOf('/');
+            if (slash < 0) {
+                continue;
+            }
+            long base = ipToLong(entry.substring(0, slash));
+            int prefixLength;
+            try {
+                prefixLength = Integer.parseInt(entry.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (base < 0 || prefixLength < 0 || prefixLength > 32) {
+                continue;
+            }
+            // /0 匹配所有地址
+            long mask = prefixLength == 0 ? 0 : (0xFFFFFFFFL << (32 - prefixLength)) & 0xFFFFFFFFL;
+            parsedNetworks[ranges] = base & mask;
+            parsedMasks[ranges] = mask;
+            ranges++;
+        }
+
+        this.networks = Arrays.copyOf(parsedNetworks, ranges);
+        this.masks = Arrays.copyOf(parsedMasks, ranges);
+        this.size = entries.size();
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 配置的条目数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 地址是否在白名单中（精确匹配或属于某个网段）
+     */
+    public boolean contains(String ipAddress) {
+        if (exact.contains(ipAddress)) {
+            return true;
+        }
+        if (networks.length == 0) {
+            return false;
+        }
+        long ip = ipToLong(ipAddress);
+        if (ip < 0) {
+            return false;
+        }
+        for (int i = 0; i < networks.length; i++) {
+            if ((ip & masks[i]) == networks[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把点分十进制的 IPv4 地址转换为无符号整数，格式不正确（包括 IPv6 地址）时返回 -1
+     */
+    static long ipToLong(String ipAddress) {
+        long result = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = 0; i < ipAddress.length(); i++) {
+            char c = ipAddress.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 3) {
+                result = (result << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (value < 0 || octets != 3) {
+            return -1;
+        }
+        return (result << 8) | value;
+    }
+}
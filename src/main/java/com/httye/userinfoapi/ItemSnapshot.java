@@ -0,0 +1,104 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 物品快照
+ * 背包物品在主线程读取后的不可变副本
+ */
+public class ItemSnapshot {
+
+    private final int slot;
+    private final String slotType;
+    private final String type;
+    private final int amount;
+    private final String displayName;
+    private final short durability;
+    private final short maxDurability;
+    private final Map<String, Integer> enchantments;
+    private final List<String> lore;
+
+    public ItemSnapshot(int slot, String slotType, String type, int amount, String displayName,
+                        short durability, short maxDurability, Map<String, Integer> enchantments, List<String> lore) {
+        this.slot = slot;
+        this.slotType = slotType;
+        this.type = type;
+        this.amount = amount;
+        this.displayName = displayName;
+        this.durability = durability;
+        this.maxDurability = maxDurability;
+        this.enchantments = enchantments;
+        this.lore = lore;
+    }
+
+    public int getSlot() { return slot; }
+    public String getSlotType() { return slotType; }
+    public String getType() { return type; }
+    public int getAmount() { return amount; }
+    public String getDisplayName() { return displayName; }
+    public short getDurability() { return durability; }
+    public short getMaxDurability() { return maxDurability; }
+
+    /**
+     * 附魔（名称 -&gt; 等级），没有附魔时为 null
+     */
+    public Map<String, Integer> getEnchantments() { return enchantments; }
+
+    /**
+     * 物品描述，没有描述时为 null
+     */
+    public List<String> getLore() { return lore; }
+
+    /**
+     * 背包物品列表的JSON表示
+     */
+    public static JsonArray toJson(List<ItemSnapshot> inventory) {
+        JsonArray items = new JsonArray();
+        for (ItemSnapshot item : inventory) {
+            items.add(item.toJson());
+        }
+        return items;
+    }
+
+    public JsonObject toJson() {
+        JsonObject itemJson = new JsonObject();
+        itemJson.addProperty("slot", slot);
+        itemJson.addProperty("slotType", slotType);
+        itemJson.addProperty("type", type);
+        itemJson.addProperty("amount", amount);
+        itemJson.addProperty("displayName", displayName);
+
+        // 物品耐久度
+        if (durability != 0) {
+            itemJson.addProperty("durability", durability);
+            itemJson.addProperty("maxDurability", maxDurability);
+        }
+
+        // 附魔信息
+        if (enchantments != null) {
+            JsonArray enchantmentArray = new JsonArray();
+            for (Map.Entry<String, Integer> entry : enchantments.entrySet()) {
+                JsonObject enchant = new JsonObject();
+                enchant.addProperty("name", entry.getKey());
+                enchant.addProperty("level", entry.getValue());
+                enchantmentArray.add(enchant);
+            }
+            itemJson.add("enchantments", enchantmentArray);
+        }
+
+        // 物品描述
+        if (lore != null) {
+            JsonArray loreArray = new JsonArray();
+            for (String line : lore) {
+                loreArray.add(line);
+            }
+            itemJson.add("lore", loreArray);
+        }
+
+        return itemJson;
+    }
+}
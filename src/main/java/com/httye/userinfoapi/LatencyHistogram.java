@@ -0,0 +1,206 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁延迟直方图
+ * 按对数分桶（每个 2 的幂区间再分 8 个子桶，相对误差约 12%），计数使用 LongAdder，记录时不加锁。
+ * 时间按 10 秒切片滚动保存最近 5 分钟，可分别统计最近 1 分钟和 5 分钟的分位数；另外保留一份累计计数供 /metrics 导出
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 最大可记录约 2^40 微秒，超出的记入最后一个桶
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final long SLICE_MILLIS = 10_000;
+    private static final int SLICE_COUNT = 30;
+
+    public static final int WINDOW_1M = 6;
+    public static final int WINDOW_5M = SLICE_COUNT;
+
+    private final AtomicReferenceArray<Slice> slices = new AtomicReferenceArray<>(SLICE_COUNT);
+
+    // 累计值（从启动开始）
+    private final Slice cumulative = new Slice(-1);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+
+    /**
+     * 记录一次耗时
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        totalCount.increment();
+        totalMicros.add(micros);
+        int index = bucketIndex(micros);
+        cumulative.increment(index);
+        currentSlice(System.currentTimeMillis()).increment(index);
+    }
+
+    private Slice currentSlice(long now) {
+        long epoch = now / SLICE_MILLIS;
+        int index = (int) (epoch % SLICE_COUNT);
+
+        while (true) {
+            Slice slice = slices.get(index);
+            if (slice != null && slice.epoch == epoch) {
+                return slice;
+            }
+            if (slice != null && slice.epoch > epoch) {
+                // 系统时间回拨，记入较新的切片
+                return slice;
+            }
+            // 过期切片整体替换，旧切片上迟到的少量计数随之丢弃
+            Slice fresh = new Slice(epoch);
+            if (slices.compareAndSet(index, slice, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    /**
+     * 汇总最近若干个切片的计数
+     *
+     * @param sliceCount 统计的切片数，如 {@link #WINDOW_1M}
+     */
+    public long[] snapshot(int sliceCount) {
+        long[] counts = new long[BUCKET_COUNT];
+        long current = System.currentTimeMillis() / SLICE_MILLIS;
+
+        for (int i = 0; i < SLICE_COUNT; i++) {
+            Slice slice = slices.get(i);
+            if (slice != null && slice.epoch > current - sliceCount && slice.epoch <= current) {
+                slice.addTo(counts);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 启动以来的累计分桶计数
+     */
+    public long[] snapshotCumulative() {
+        long[] counts = new long[BUCKET_COUNT];
+        cumulative.addTo(counts);
+        return counts;
+    }
+
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    public long getTotalMicros() {
+        return totalMicros.sum();
+    }
+
+    /**
+     * 统计信息：累计请求数、平均耗时，以及 1 分钟和 5 分钟窗口的分位数（毫秒）
+     */
+    public JsonObject getStats() {
+        JsonObject stats = new JsonObject();
+        long count = getTotalCount();
+        stats.addProperty("count", count);
+        stats.addProperty("averageMs", count > 0 ? getTotalMicros() / 1000.0 / count : 0.0);
+        stats.add("1m", toJson(snapshot(WINDOW_1M)));
+        stats.add("5m", toJson(snapshot(WINDOW_5M)));
+        return stats;
+    }
+
+    static JsonObject toJson(long[] counts) {
+        JsonObject window = new JsonObject();
+        window.addProperty("count", count(counts));
+        window.addProperty("p50", percentile(counts, 50.0) / 1000.0);
+        window.addProperty("p90", percentile(counts, 90.0) / 1000.0);
+        window.addProperty("p99", percentile(counts, 99.0) / 1000.0);
+        window.addProperty("p999", percentile(counts, 99.9) / 1000.0);
+        window.addProperty("max", percentile(counts, 100.0) / 1000.0);
+        return window;
+    }
+
+    static long count(long[] counts) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * 计算分位数（微秒），返回所在桶的上界；没有数据时返回 0
+     */
+    public static long percentile(long[] counts, double percentile) {
+        long total = count(counts);
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(counts.length - 1);
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + subBucket) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * 一个时间切片内的计数，桶在首次使用时才创建
+     */
+    private static class Slice {
+        final long epoch;
+        private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+
+        Slice(long epoch) {
+            this.epoch = epoch;
+        }
+
+        void increment(int index) {
+            LongAdder adder = buckets.get(index);
+            if (adder == null) {
+                LongAdder created = new LongAdder();
+                adder = buckets.compareAndSet(index, null, created) ? created : buckets.get(index);
+            }
+            adder.increment();
+        }
+
+        void addTo(long[] counts) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                LongAdder adder = buckets.get(i);
+                if (adder != null) {
+                    counts[i] += adder.sum();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+
+/**
+ * 过载保护处理器
+ * 被 {@link APIExecutor} 标记为丢弃的请求直接返回 503 和 Retry-After，不再进入后续处理
+ */
+public class LoadSheddingHandler implements HttpHandler {
+
+    private final HttpHandler nextHandler;
+    private final int retryAfterSeconds;
+
+    public LoadSheddingHandler(HttpHandler nextHandler, int retryAfterSeconds) {
+        this.nextHandler = nextHandler;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String reason = APIExecutor.getShedReason();
+        if (reason == null) {
+            nextHandler.handle(exchange);
+            return;
+        }
+
+        String response = String.format(
+            "{\"error\":\"服务器繁忙，请稍后重试\",\"reason\":\"%s\",\"retryAfter\":%d}",
+            reason, retryAfterSeconds
+        );
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfterSeconds));
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+
+        byte[] bytes = response.getBytes("UTF-8");
+        exchange.sendResponseHeaders(503, bytes.length);
+
+        try (java.io.OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.httye.userinfoapi;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerLoginEvent;
@@ -10,31 +10,54 @@ import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.entity.Player;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LoginRecordManager implements Listener {
     
     private final UserInfoAPIPlugin plugin;
-    private final Gson gson;
     private final Map<UUID, LoginSession> activeSessions;
-    private final File dataFolder;
+    private final LoginRecordStore store;
     private final SimpleDateFormat dateFormat;
+    private final ExecutorService storageExecutor;
+    // 登录记录写入线程：退出事件在主线程触发，写文件放到单独的线程
+    private final ExecutorService writerExecutor;
+    private final AtomicInteger pendingWrites = new AtomicInteger(0);
+    // 已退出但尚未写入文件的会话（按文件名），读取登录记录和统计总在线时长时按内存中的会话计入
+    private final Map<String, LoginSession> unsavedSessions = new ConcurrentHashMap<>();
+    // 已保存记录的在线时长之和（秒，按玩家 UUID），避免每次查询都读取玩家的全部登录记录文件；写入新记录时失效。
+    // 写入完成和读取缓存都在它的锁内进行，与 unsavedSessions 的快照保持一致
+    private final Map<String, Long> savedOnlineTime = new HashMap<>();
+    // 已完成的写入次数，统计期间有写入完成时不缓存结果（可能没有包含刚写入的记录）
+    private long completedWrites;
+    // 在线玩家列表的版本号，玩家加入或退出时增加，用于判断预先编码的在线玩家响应是否过期
+    private final AtomicLong onlineVersion = new AtomicLong(0);
     
     public LoginRecordManager(UserInfoAPIPlugin plugin) {
         this.plugin = plugin;
-        this.gson = new Gson();
         this.activeSessions = new ConcurrentHashMap<>();
-        this.dataFolder = new File(plugin.getDataFolder(), "login_records");
+        this.store = new LoginRecordStore(new File(plugin.getDataFolder(), "login_records"), plugin.getLogger());
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         
-        if (!dataFolder.exists()) {
-            dataFolder.mkdirs();
-        }
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.storageExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "UserInfoAPI-Storage-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UserInfoAPI-LoginWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
     
     @EventHandler
@@ -52,6 +75,7 @@ public class LoginRecordManager implements Listener {
         );
         
         activeSessions.put(playerId, session);
+        onlineVersion.incrementAndGet();
     }
     
     @EventHandler
@@ -60,38 +84,72 @@ public class LoginRecordManager implements Listener {
         UUID playerId = player.getUniqueId();
         
         LoginSession session = activeSessions.remove(playerId);
+        onlineVersion.incrementAndGet();
         if (session != null) {
             session.logoutTime = new Date();
             session.onlineTime = (session.logoutTime.getTime() - session.loginTime.getTime()) / 1000; // 秒
             
-            saveLoginRecord(session);
+            queueLoginRecord(session);
         }
     }
     
-    private void saveLoginRecord(LoginSession session) {
-        try {
-            String fileName = session.playerId + "_" + formatDateFile(session.loginTime) + ".json";
-            File recordFile = new File(dataFolder, fileName);
-            
-            JsonObject record = new JsonObject();
-            record.addProperty("username", session.username);
-            record.addProperty("playerId", session.playerId);
-            record.addProperty("ipAddress", session.ipAddress);
-            record.addProperty("loginTime", formatDate(session.loginTime));
-            record.addProperty("logoutTime", formatDate(session.logoutTime));
-            record.addProperty("onlineTime", session.onlineTime);
-            
-            try (FileWriter writer = new FileWriter(recordFile)) {
-                gson.toJson(record, writer);
+    private void queueLoginRecord(LoginSession session) {
+        String fileName = session.playerId + "_" + formatDateFile(session.loginTime) + ".json";
+        unsavedSessions.put(fileName, session);
+        pendingWrites.incrementAndGet();
+        
+        writerExecutor.execute(() -> {
+            try {
+                saveLoginRecord(fileName, session);
+            } finally {
+                synchronized (savedOnlineTime) {
+                    unsavedSessions.remove(fileName);
+                    savedOnlineTime.remove(session.playerId);
+                    completedWrites++;
+                }
+                pendingWrites.decrementAndGet();
             }
+        });
+    }
+    
+    private void saveLoginRecord(String fileName, LoginSession session) {
+        ApiEvents.LoginRecordWrite event = new ApiEvents.LoginRecordWrite();
+        event.begin();
+        long bytes = 0;
+        boolean success = false;
+        
+        try {
+            bytes = store.write(fileName, toRecord(session));
+            success = true;
         } catch (IOException e) {
             plugin.getLogger().warning("保存登录记录失败: " + e.getMessage());
         }
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = session.username;
+            event.bytes = bytes;
+            event.success = success;
+            event.commit();
+        }
+    }
+    
+    /**
+     * 已退出会话的登录记录，格式与写入文件的相同
+     */
+    private JsonObject toRecord(LoginSession session) {
+        JsonObject record = new JsonObject();
+        record.addProperty("username", session.username);
+        record.addProperty("playerId", session.playerId);
+        record.addProperty("ipAddress", session.ipAddress);
+        record.addProperty("loginTime", formatDate(session.loginTime));
+        record.addProperty("logoutTime", formatDate(session.logoutTime));
+        record.addProperty("onlineTime", session.onlineTime);
+        return record;
     }
     
     public JsonObject getLoginRecords(String username, int limit) {
         JsonObject result = new JsonObject();
-        JsonArray records = new JsonArray();
         
         try {
             Player player = plugin.getServer().getPlayer(username);
@@ -100,45 +158,15 @@ public class LoginRecordManager implements Listener {
                 return result;
             }
             
+            // 正在写入的记录不读文件，按同一份快照中的会话补上，写入完成前后都不会遗漏或重复
+            Map<String, LoginSession> unsaved = new HashMap<>(unsavedSessions);
             String playerId = player.getUniqueId().toString();
-            File[] recordFiles = dataFolder.listFiles((dir, name) -> name.startsWith(playerId));
-            
-            if (recordFiles != null) {
-                // 按时间排序，最新的在前
-                Arrays.sort(recordFiles, (a, b) -> b.getName().compareTo(a.getName()));
-                
-                int count = 0;
-                for (File file : recordFiles) {
-                    if (count >= limit) break;
-                    
-                    try (FileReader reader = new FileReader(file)) {
-                        JsonObject record = gson.fromJson(reader, JsonObject.class);
-                        records.add(record);
-                        count++;
-                    } catch (IOException e) {
-                        plugin.getLogger().warning("读取登录记录失败: " + e.getMessage());
-                    }
-                }
-            }
+            JsonArray records = withUnsavedSessions(playerId, unsaved, store.readRecords(playerId, limit, unsaved.keySet()), limit);
             
             // 添加当前会话（如果在线）
             LoginSession currentSession = activeSessions.get(player.getUniqueId());
             if (currentSession != null) {
-                JsonObject current = new JsonObject();
-                current.addProperty("username", currentSession.username);
-                current.addProperty("playerId", currentSession.playerId);
-                current.addProperty("ipAddress", currentSession.ipAddress);
-                current.addProperty("loginTime", formatDate(currentSession.loginTime));
-                current.addProperty("logoutTime", "在线中");
-                current.addProperty("onlineTime", (new Date().getTime() - currentSession.loginTime.getTime()) / 1000);
-                current.addProperty("isOnline", true);
-                // 创建新的JsonArray，将当前会话放在最前面，然后添加其他记录
-                JsonArray newRecords = new JsonArray();
-                newRecords.add(current);
-                for (int i = 0; i < records.size(); i++) {
-                    newRecords.add(records.get(i));
-                }
-                records = newRecords;
+                records = withCurrentSession(currentSession, records);
             }
             
             result.addProperty("username", username);
@@ -146,17 +174,129 @@ public class LoginRecordManager implements Listener {
             result.addProperty("totalRecords", records.size());
             
         } catch (Exception e) {
-            result.addProperty("error", "获取登录记录失败: " + e.getMessage());
+            result.addProperty("error", ApiResponse.errorMessage("获取登录记录失败", e));
         }
         
         return result;
     }
     
-    public JsonObject getCurrentOnlinePlayers() {
+    /**
+     * 批量查询多个玩家的登录记录和/或在线时长，每个记录文件只解析一次，在存储线程调用
+     * 在线玩家按当前会话确定 UUID，离线玩家按 Bukkit 的离线玩家数据确定，从未加入过服务器的玩家不包含在结果中
+     *
+     * @param recordLimit 每个玩家的登录记录条数，0 表示不读取登录记录
+     * @param playtime    是否统计在线时长
+     * @return 按小写玩家名索引
+     */
+    public Map<String, BatchRecords> getBatchRecords(Collection<String> usernames, int recordLimit, boolean playtime) {
+        // 在线玩家的会话按名称索引一次，不必每个玩家遍历一遍
+        Map<String, LoginSession> sessionsByName = new HashMap<>();
+        for (LoginSession session : activeSessions.values()) {
+            sessionsByName.put(session.username.toLowerCase(Locale.ROOT), session);
+        }
+        
+        Map<String, String> playerIds = new LinkedHashMap<>();
+        for (String username : usernames) {
+            String key = username.toLowerCase(Locale.ROOT);
+            LoginSession session = sessionsByName.get(key);
+            if (session != null) {
+                playerIds.put(key, session.playerId);
+                continue;
+            }
+            OfflinePlayer offlinePlayer = plugin.getServer().getOfflinePlayer(username);
+            if (offlinePlayer.hasPlayedBefore()) {
+                playerIds.put(key, offlinePlayer.getUniqueId().toString());
+            }
+        }
+        
+        Map<String, LoginSession> unsaved = new HashMap<>(unsavedSessions);
+        Map<String, LoginRecordStore.PlayerRecords> stored = store.readBatch(new HashSet<>(playerIds.values()), recordLimit, playtime,
+            unsaved.keySet());
+        
+        Map<String, BatchRecords> result = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : playerIds.entrySet()) {
+            String playerId = entry.getValue();
+            LoginRecordStore.PlayerRecords records = stored.get(playerId);
+            LoginSession currentSession = activeSessions.get(UUID.fromString(playerId));
+            BatchRecords batchRecords = new BatchRecords();
+            
+            if (recordLimit > 0) {
+                JsonArray loginRecords = withUnsavedSessions(playerId, unsaved, records.records, recordLimit);
+                if (currentSession != null) {
+                    loginRecords = withCurrentSession(currentSession, loginRecords);
+                }
+                batchRecords.loginRecords = new JsonObject();
+                batchRecords.loginRecords.add("records", loginRecords);
+                batchRecords.loginRecords.addProperty("totalRecords", loginRecords.size());
+            }
+            if (playtime) {
+                long currentSessionTime = currentSession != null ? getCurrentSessionOnlineTime(UUID.fromString(playerId)) : 0;
+                batchRecords.playtime = new JsonObject();
+                batchRecords.playtime.addProperty("online", currentSession != null);
+                batchRecords.playtime.addProperty("currentSessionOnlineTime", currentSessionTime);
+                batchRecords.playtime.addProperty("totalOnlineTime", records.onlineTime + getUnsavedOnlineTime(unsaved, playerId) + currentSessionTime);
+            }
+            result.put(entry.getKey(), batchRecords);
+        }
+        return result;
+    }
+    
+    /**
+     * 把已退出但还在写入队列中的会话加到记录列表前面（它们比已保存的记录都新），最多保留 limit 条
+     */
+    private JsonArray withUnsavedSessions(String playerId, Map<String, LoginSession> unsaved, JsonArray records, int limit) {
+        List<LoginSession> sessions = new ArrayList<>();
+        for (LoginSession session : unsaved.values()) {
+            if (session.playerId.equals(playerId)) {
+                sessions.add(session);
+            }
+        }
+        if (sessions.isEmpty()) {
+            return records;
+        }
+        
+        // 最新的在前
+        sessions.sort((a, b) -> b.loginTime.compareTo(a.loginTime));
+        JsonArray merged = new JsonArray();
+        for (LoginSession session : sessions) {
+            if (merged.size() >= limit) break;
+            merged.add(toRecord(session));
+        }
+        for (int i = 0; i < records.size() && merged.size() < limit; i++) {
+            merged.add(records.get(i));
+        }
+        return merged;
+    }
+    
+    /**
+     * 把当前会话放在记录列表最前面
+     */
+    private JsonArray withCurrentSession(LoginSession currentSession, JsonArray records) {
+        JsonObject current = new JsonObject();
+        current.addProperty("username", currentSession.username);
+        current.addProperty("playerId", currentSession.playerId);
+        current.addProperty("ipAddress", currentSession.ipAddress);
+        current.addProperty("loginTime", formatDate(currentSession.loginTime));
+        current.addProperty("logoutTime", "在线中");
+        current.addProperty("onlineTime", (new Date().getTime() - currentSession.loginTime.getTime()) / 1000);
+        current.addProperty("isOnline", true);
+        // 创建新的JsonArray，将当前会话放在最前面，然后添加其他记录
+        JsonArray newRecords = new JsonArray();
+        newRecords.add(current);
+        for (int i = 0; i < records.size(); i++) {
+            newRecords.add(records.get(i));
+        }
+        return newRecords;
+    }
+    
+    /**
+     * 在线玩家列表，玩家数据来自主线程读取的快照，不访问 Bukkit，可以在任意线程调用
+     */
+    public JsonObject getCurrentOnlinePlayers(List<MainThreadQueryScheduler.OnlinePlayer> onlinePlayers) {
         JsonObject result = new JsonObject();
         JsonArray players = new JsonArray();
         
-        for (Player player : plugin.getServer().getOnlinePlayers()) {
+        for (MainThreadQueryScheduler.OnlinePlayer player : onlinePlayers) {
             JsonObject playerInfo = new JsonObject();
             playerInfo.addProperty("username", player.getName());
             playerInfo.addProperty("uuid", player.getUniqueId().toString());
@@ -170,7 +310,7 @@ public class LoginRecordManager implements Listener {
             }
             
             // 添加总在线时长
-            long totalOnlineTime = getTotalOnlineTime(player.getName());
+            long totalOnlineTime = getTotalOnlineTime(player.getUniqueId());
             playerInfo.addProperty("totalOnlineTime", totalOnlineTime);
             
             players.add(playerInfo);
@@ -182,38 +322,37 @@ public class LoginRecordManager implements Listener {
     }
     
     /**
-     * 获取玩家的总在线时长（秒）
+     * 按UUID获取玩家的总在线时长（秒），不需要访问Bukkit，可以在存储线程上调用
      */
-    public long getTotalOnlineTime(String username) {
+    public long getTotalOnlineTime(UUID playerId) {
         long totalSeconds = 0;
         
         try {
-            Player player = plugin.getServer().getPlayer(username);
-            if (player != null) {
-                String playerId = player.getUniqueId().toString();
-                File[] recordFiles = dataFolder.listFiles((dir, name) -> name.startsWith(playerId));
-                
-                if (recordFiles != null) {
-                    for (File file : recordFiles) {
-                        try (FileReader reader = new FileReader(file)) {
-                            JsonObject record = gson.fromJson(reader, JsonObject.class);
-                            if (record.has("onlineTime")) {
-                                totalSeconds += record.get("onlineTime").getAsLong();
-                            }
-                        } catch (IOException e) {
-                            plugin.getLogger().warning("读取登录记录失败: " + e.getMessage());
-                        }
+            String playerIdString = playerId.toString();
+            // 正在写入的记录不读文件，下面按同一份快照中的会话计算
+            long writes;
+            Map<String, LoginSession> unsaved;
+            Long saved;
+            synchronized (savedOnlineTime) {
+                writes = completedWrites;
+                unsaved = new HashMap<>(unsavedSessions);
+                saved = savedOnlineTime.get(playerIdString);
+            }
+            if (saved == null) {
+                saved = store.sumOnlineTime(playerIdString, unsaved.keySet());
+                synchronized (savedOnlineTime) {
+                    if (completedWrites == writes) {
+                        savedOnlineTime.put(playerIdString, saved);
                     }
                 }
             }
+            totalSeconds += saved;
+            
+            // 添加已退出但还在写入队列中的会话
+            totalSeconds += getUnsavedOnlineTime(unsaved, playerIdString);
             
             // 添加当前会话的在线时间（如果在线）
-            if (player != null) {
-                LoginSession currentSession = activeSessions.get(player.getUniqueId());
-                if (currentSession != null) {
-                    totalSeconds += (new Date().getTime() - currentSession.loginTime.getTime()) / 1000;
-                }
-            }
+            totalSeconds += getCurrentSessionOnlineTime(playerId);
             
         } catch (Exception e) {
             plugin.getLogger().warning("计算总在线时长失败: " + e.getMessage());
@@ -223,27 +362,93 @@ public class LoginRecordManager implements Listener {
     }
     
     /**
-     * 获取玩家当前会话的在线时长（秒）
+     * 已退出但还在写入队列中的会话的在线时长之和（秒）
      */
-    public long getCurrentSessionOnlineTime(String username) {
-        Player player = plugin.getServer().getPlayer(username);
-        if (player != null) {
-            LoginSession currentSession = activeSessions.get(player.getUniqueId());
-            if (currentSession != null) {
-                return (new Date().getTime() - currentSession.loginTime.getTime()) / 1000;
+    private long getUnsavedOnlineTime(Map<String, LoginSession> unsaved, String playerId) {
+        long totalSeconds = 0;
+        for (LoginSession session : unsaved.values()) {
+            if (session.playerId.equals(playerId)) {
+                totalSeconds += session.onlineTime;
             }
         }
+        return totalSeconds;
+    }
+    
+    /**
+     * 按UUID获取玩家当前会话的在线时长（秒）
+     */
+    public long getCurrentSessionOnlineTime(UUID playerId) {
+        LoginSession currentSession = activeSessions.get(playerId);
+        if (currentSession != null) {
+            return (new Date().getTime() - currentSession.loginTime.getTime()) / 1000;
+        }
         return 0;
     }
     
+    /**
+     * 获取存储线程池，用于在HTTP线程和主线程之外读取登录记录文件
+     */
+    public Executor getStorageExecutor() {
+        return storageExecutor;
+    }
+    
+    /**
+     * 在线玩家列表的版本号，玩家加入或退出后变化
+     */
+    public long getOnlineVersion() {
+        return onlineVersion.get();
+    }
+    
+    /**
+     * 等待写入的登录记录数
+     */
+    public int getPendingWrites() {
+        return pendingWrites.get();
+    }
+    
+    public void shutdown() {
+        // 先写完队列中的登录记录
+        writerExecutor.shutdown();
+        try {
+            if (!writerExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("登录记录写入超时，仍有 " + pendingWrites.get() + " 条未写入");
+                writerExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writerExecutor.shutdownNow();
+        }
+        
+        storageExecutor.shutdown();
+        try {
+            if (!storageExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                storageExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            storageExecutor.shutdownNow();
+        }
+    }
+    
     private String formatDate(Date date) {
-        return dateFormat.format(date);
+        // SimpleDateFormat 不是线程安全的，写入线程、存储线程和HTTP线程都会用到
+        synchronized (dateFormat) {
+            return dateFormat.format(date);
+        }
     }
     
     private String formatDateFile(Date date) {
         return new SimpleDateFormat("yyyyMMdd_HHmmss").format(date);
     }
     
+    /**
+     * 批量查询的单个玩家结果，未请求的部分为 null
+     */
+    public static class BatchRecords {
+        // records 和 totalRecords，格式与 /api/user/login-records 相同
+        public JsonObject loginRecords;
+        // online、currentSessionOnlineTime 和 totalOnlineTime
+        public JsonObject playtime;
+    }
+    
     private static class LoginSession {
         final String username;
         final String playerId;
@@ -0,0 +1,263 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.logging.Logger;
+
+/**
+ * 登录记录文件存储
+ * 每次会话一个 JSON 文件，文件名为 玩家UUID_登录时间.json。先写入 .tmp 临时文件再重命名，读取时不会读到写了一半的文件；
+ * 损坏或为空的文件会被跳过。第一次读取时列出一次目录，按玩家建立文件名索引，之后写入的记录直接加入索引，
+ * 查询只打开该玩家的文件，不必每次列出全部玩家的记录（运行期间在插件之外添加的文件重启后才可见）。不依赖 Bukkit，由 {@link LoginRecordManager} 调用，也可以单独做基准测试
+ */
+public class LoginRecordStore {
+
+    private final File dataFolder;
+    private final Logger logger;
+    private final Gson gson = new Gson();
+    // 按玩家 UUID 索引的记录文件名，最新的在前；第一次读取时建立
+    private final Map<String, NavigableSet<String>> index = new ConcurrentHashMap<>();
+    private boolean indexed;
+
+    public LoginRecordStore(File dataFolder, Logger logger) {
+        this.dataFolder = dataFolder;
+        this.logger = logger;
+
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+    }
+
+    private static final String RECORD_SUFFIX = ".json";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * 写入一条记录，返回文件大小
+     */
+    public long write(String fileName, JsonObject record) throws IOException {
+        File recordFile = new File(dataFolder, fileName);
+        File tempFile = new File(dataFolder, fileName + TEMP_SUFFIX);
+        try (FileWriter writer = new FileWriter(tempFile)) {
+            gson.toJson(record, writer);
+        }
+        try {
+            Files.move(tempFile.toPath(), recordFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), recordFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        synchronized (index) {
+            if (indexed) {
+                addToIndex(fileName);
+            }
+        }
+        return recordFile.length();
+    }
+
+    /**
+     * 玩家的记录文件名，最新的在前
+     */
+    private NavigableSet<String> recordFiles(String playerId) {
+        synchronized (index) {
+            if (!indexed) {
+                // 文件名为 玩家UUID_登录时间.json，按前缀分组
+                String[] names = dataFolder.list();
+                if (names != null) {
+                    for (String name : names) {
+                        addToIndex(name);
+                    }
+                }
+                indexed = true;
+            }
+        }
+        NavigableSet<String> files = index.get(playerId);
+        return files != null ? files : Collections.emptyNavigableSet();
+    }
+
+    private void addToIndex(String name) {
+        int separator = name.indexOf('_');
+        if (separator > 0 && name.endsWith(RECORD_SUFFIX)) {
+            index.computeIfAbsent(name.substring(0, separator), id -> new ConcurrentSkipListSet<>(Comparator.reverseOrder())).add(name);
+        }
+    }
+
+    /**
+     * 读取玩家最近的 limit 条记录，最新的在前
+     *
+     * @param skipFileNames 跳过的文件（正在写入的记录，由调用方按内存中的会话补上）
+     */
+    public JsonArray readRecords(String playerId, int limit, Set<String> skipFileNames) {
+        JsonArray records = new JsonArray();
+        ApiEvents.LoginRecordRead event = new ApiEvents.LoginRecordRead();
+        event.begin();
+        long bytes = 0;
+
+        int count = 0;
+        for (String name : recordFiles(playerId)) {
+            if (count >= limit) break;
+            if (skipFileNames.contains(name)) {
+                continue;
+            }
+
+            File file = new File(dataFolder, name);
+            try (FileReader reader = new FileReader(file)) {
+                JsonObject record = gson.fromJson(reader, JsonObject.class);
+                if (record == null) {
+                    continue;
+                }
+                records.add(record);
+                count++;
+                if (event.isEnabled()) {
+                    bytes += file.length();
+                }
+            } catch (IOException | JsonParseException e) {
+                logger.warning("读取登录记录失败: " + e.getMessage());
+            }
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = playerId;
+            event.operation = "records";
+            event.files = count;
+            event.bytes = bytes;
+            event.commit();
+        }
+        return records;
+    }
+
+    /**
+     * 玩家所有已保存记录的在线时长之和（秒）
+     *
+     * @param skipFileNames 跳过的文件（正在写入的记录）
+     */
+    public long sumOnlineTime(String playerId, Set<String> skipFileNames) {
+        long totalSeconds = 0;
+        ApiEvents.LoginRecordRead event = new ApiEvents.LoginRecordRead();
+        event.begin();
+        int files = 0;
+        long bytes = 0;
+
+        for (String name : recordFiles(playerId)) {
+            if (skipFileNames.contains(name)) {
+                continue;
+            }
+            File file = new File(dataFolder, name);
+            try (FileReader reader = new FileReader(file)) {
+                JsonObject record = gson.fromJson(reader, JsonObject.class);
+                if (record == null) {
+                    continue;
+                }
+                if (record.has("onlineTime")) {
+                    totalSeconds += record.get("onlineTime").getAsLong();
+                }
+                files++;
+                if (event.isEnabled()) {
+                    bytes += file.length();
+                }
+            } catch (IOException | JsonParseException e) {
+                logger.warning("读取登录记录失败: " + e.getMessage());
+            }
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = playerId;
+            event.operation = "total-online-time";
+            event.files = files;
+            event.bytes = bytes;
+            event.commit();
+        }
+        return totalSeconds;
+    }
+
+    /**
+     * 批量读取多个玩家的记录：每个玩家最近的 limit 条记录（最新的在前）和所有已保存记录的在线时长之和。
+     * 两者都需要时每个文件只解析一次
+     *
+     * @param limit         每个玩家读取的记录数，0 表示不读取记录
+     * @param sumOnlineTime 是否统计在线时长（需要读取玩家的全部记录）
+     * @param skipFileNames 跳过的文件（正在写入的记录，由调用方按内存中的会话补上）
+     * @return 按玩家 UUID 索引，没有任何记录的玩家也包含在内
+     */
+    public Map<String, PlayerRecords> readBatch(Set<String> playerIds, int limit, boolean sumOnlineTime, Set<String> skipFileNames) {
+        Map<String, PlayerRecords> result = new HashMap<>();
+
+        ApiEvents.LoginRecordRead event = new ApiEvents.LoginRecordRead();
+        event.begin();
+        int files = 0;
+        long bytes = 0;
+
+        for (String playerId : playerIds) {
+            PlayerRecords records = new PlayerRecords();
+            result.put(playerId, records);
+
+            for (String name : recordFiles(playerId)) {
+                boolean addRecord = records.records.size() < limit;
+                if (!addRecord && !sumOnlineTime) {
+                    break;
+                }
+                if (skipFileNames.contains(name)) {
+                    continue;
+                }
+
+                File file = new File(dataFolder, name);
+                try (FileReader reader = new FileReader(file)) {
+                    JsonObject record = gson.fromJson(reader, JsonObject.class);
+                    if (record == null) {
+                        continue;
+                    }
+                    if (addRecord) {
+                        records.records.add(record);
+                    }
+                    if (sumOnlineTime && record.has("onlineTime")) {
+                        records.onlineTime += record.get("onlineTime").getAsLong();
+                    }
+                    files++;
+                    if (event.isEnabled()) {
+                        bytes += file.length();
+                    }
+                } catch (IOException | JsonParseException e) {
+                    logger.warning("读取登录记录失败: " + e.getMessage());
+                }
+            }
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = playerIds.size() + " players";
+            event.operation = "batch";
+            event.files = files;
+            event.bytes = bytes;
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * 批量读取的单个玩家结果
+     */
+    public static final class PlayerRecords {
+        // 最近的记录，最新的在前
+        public final JsonArray records = new JsonArray();
+        // 已保存记录的在线时长之和（秒）
+        public long onlineTime;
+    }
+}
@@ -10,9 +10,9 @@ public class LoginRecordsHandler implements HttpHandler {
     
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String query = exchange.getRequestURI().getQuery();
-        String username = getQueryParam(query, "username");
-        String limitStr = getQueryParam(query, "limit");
+        RequestContext context = RequestContext.get(exchange);
+        String username = context.getParam("username");
+        String limitStr = context.getParam("limit");
         
         int limit = 10; // 默认限制10条记录
         if (limitStr != null) {
@@ -58,19 +58,4 @@ public class LoginRecordsHandler implements HttpHandler {
         error.addProperty("code", statusCode);
         sendResponse(exchange, statusCode, error.toString());
     }
-    
-    private String getQueryParam(String query, String paramName) {
-        if (query == null || query.isEmpty()) {
-            return null;
-        }
-        
-        String[] params = query.split("&");
-        for (String param : params) {
-            String[] keyValue = param.split("=");
-            if (keyValue.length == 2 && keyValue[0].equals(paramName)) {
-                return keyValue[1];
-            }
-        }
-        return null;
-    }
 }
\ No newline at end of file
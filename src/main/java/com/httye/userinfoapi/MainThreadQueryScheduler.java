@@ -0,0 +1,283 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 主线程查询调度器
+ * API 线程提交的玩家实时数据读取在这里排队，每个 tick 在配置的时间预算内批量执行一次，
+ * 没来得及执行的读取留到下一个 tick。同一玩家尚未执行的读取会被合并为一次（读取部分取并集），
+ * 在线玩家列表的读取也合并为每个 tick 最多一次
+ */
+public class MainThreadQueryScheduler {
+
+    private final UserInfoAPIPlugin plugin;
+    private final long budgetNanos;
+
+    private final ConcurrentLinkedQueue<PlayerRead> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, PlayerRead> pending = new ConcurrentHashMap<>();
+    // 等待下一个 tick 的在线玩家列表读取，所有请求共用
+    private final AtomicReference<CompletableFuture<List<OnlinePlayer>>> pendingOnlineList = new AtomicReference<>();
+    private BukkitTask task;
+
+    // 统计信息
+    private final AtomicLong submittedReads = new AtomicLong(0);
+    private final AtomicLong mergedReads = new AtomicLong(0);
+    private final AtomicLong executedReads = new AtomicLong(0);
+    private final AtomicLong carriedOverTicks = new AtomicLong(0);
+    private volatile long lastDrainNanos;
+    private volatile long maxDrainNanos;
+
+    public MainThreadQueryScheduler(UserInfoAPIPlugin plugin) {
+        this.plugin = plugin;
+        this.budgetNanos = plugin.getConfig().getLong("main-thread-queries.budget-micros", 2000) * 1000L;
+    }
+
+    public void start() {
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        // 插件停止后不会再有 tick 执行这些读取
+        PlayerRead read;
+        while ((read = queue.poll()) != null) {
+            read.seal();
+            pending.remove(read.key, read);
+            read.future.completeExceptionally(new IllegalStateException("插件已停止"));
+        }
+        CompletableFuture<List<OnlinePlayer>> onlineList = pendingOnlineList.getAndSet(null);
+        if (onlineList != null) {
+            onlineList.completeExceptionally(new IllegalStateException("插件已停止"));
+        }
+    }
+
+    /**
+     * 请求读取在线玩家的数据快照，玩家不在线时结果为 null
+     *
+     * @param username 玩家名
+     * @param sections 需要额外读取的部分，见 {@link PlayerSnapshot}
+     */
+    public CompletableFuture<PlayerSnapshot> readPlayer(String username, int sections) {
+        String key = username.toLowerCase(Locale.ROOT);
+
+        while (true) {
+            PlayerRead read = pending.get(key);
+            if (read != null) {
+                if (read.addSections(sections)) {
+                    mergedReads.incrementAndGet();
+                    return read.future;
+                }
+                // 该读取已开始执行，无法再合并
+                pending.remove(key, read);
+                continue;
+            }
+
+            PlayerRead created = new PlayerRead(key, username, sections);
+            if (pending.putIfAbsent(key, created) == null) {
+                submittedReads.incrementAndGet();
+                queue.add(created);
+                return created.future;
+            }
+        }
+    }
+
+    /**
+     * 请求读取在线玩家列表（名称、UUID、显示名和地址），在下一个 tick 读取；同一 tick 内的请求共用一次读取
+     */
+    public CompletableFuture<List<OnlinePlayer>> readOnlinePlayers() {
+        while (true) {
+            CompletableFuture<List<OnlinePlayer>> existing = pendingOnlineList.get();
+            if (existing != null) {
+                mergedReads.incrementAndGet();
+                return existing;
+            }
+            CompletableFuture<List<OnlinePlayer>> created = new CompletableFuture<>();
+            if (pendingOnlineList.compareAndSet(null, created)) {
+                submittedReads.incrementAndGet();
+                return created;
+            }
+        }
+    }
+
+    /**
+     * 每个 tick 执行一次：在时间预算内处理排队的读取，至少处理一个以保证进度
+     */
+    private void drain() {
+        CompletableFuture<List<OnlinePlayer>> onlineList = pendingOnlineList.getAndSet(null);
+        if (onlineList != null) {
+            try {
+                onlineList.complete(captureOnlinePlayers());
+            } catch (Throwable t) {
+                onlineList.completeExceptionally(t);
+            }
+            executedReads.incrementAndGet();
+        }
+
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+
+        PlayerRead read;
+        while ((read = queue.poll()) != null) {
+            int sections = read.seal();
+            pending.remove(read.key, read);
+
+            try {
+                Player player = Bukkit.getPlayer(read.username);
+                read.future.complete(player != null ? UserInfoService.capturePlayer(player, sections) : null);
+            } catch (Throwable t) {
+                read.future.completeExceptionally(t);
+            }
+            executedReads.incrementAndGet();
+
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        if (!queue.isEmpty()) {
+            carriedOverTicks.incrementAndGet();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        lastDrainNanos = elapsed;
+        if (elapsed > maxDrainNanos) {
+            maxDrainNanos = elapsed;
+        }
+    }
+
+    private static List<OnlinePlayer> captureOnlinePlayers() {
+        List<OnlinePlayer> players = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            InetSocketAddress address = player.getAddress();
+            players.add(new OnlinePlayer(player.getName(), player.getUniqueId(), player.getDisplayName(),
+                address != null && address.getAddress() != null ? address.getAddress().getHostAddress() : null));
+        }
+        return players;
+    }
+
+    public long getExecutedReads() {
+        return executedReads.get();
+    }
+
+    public long getMergedReads() {
+        return mergedReads.get();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * 获取调度器统计信息
+     */
+    public JsonObject getStats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("budgetMicros", budgetNanos / 1000);
+        stats.addProperty("queueSize", queue.size());
+        stats.addProperty("submittedReads", submittedReads.get());
+        stats.addProperty("mergedReads", mergedReads.get());
+        stats.addProperty("executedReads", executedReads.get());
+        stats.addProperty("carriedOverTicks", carriedOverTicks.get());
+        stats.addProperty("lastDrainMicros", lastDrainNanos / 1000);
+        stats.addProperty("maxDrainMicros", maxDrainNanos / 1000);
+        return stats;
+    }
+
+    /**
+     * 在线玩家列表中的一项，在主线程读取
+     */
+    public static final class OnlinePlayer {
+        private final String name;
+        private final UUID uniqueId;
+        private final String displayName;
+        private final String ipAddress;
+
+        OnlinePlayer(String name, UUID uniqueId, String displayName, String ipAddress) {
+            this.name = name;
+            this.uniqueId = uniqueId;
+            this.displayName = displayName;
+            this.ipAddress = ipAddress;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public UUID getUniqueId() {
+            return uniqueId;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        /**
+         * 客户端地址，无法获取时为 null
+         */
+        public String getIpAddress() {
+            return ipAddress;
+        }
+    }
+
+    /**
+     * 排队中的玩家读取
+     */
+    private static class PlayerRead {
+        final String key;
+        final String username;
+        final CompletableFuture<PlayerSnapshot> future = new CompletableFuture<>();
+        // 需要读取的部分；-1 表示已开始执行，不能再合并
+        private final AtomicInteger sections;
+
+        PlayerRead(String key, String username, int sections) {
+            this.key = key;
+            this.username = username;
+            this.sections = new AtomicInteger(sections);
+        }
+
+        boolean addSections(int extra) {
+            while (true) {
+                int current = sections.get();
+                if (current < 0) {
+                    return false;
+                }
+                if (sections.compareAndSet(current, current | extra)) {
+                    return true;
+                }
+            }
+        }
+
+        int seal() {
+            return sections.getAndSet(-1);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+
+/**
+ * 请求统计处理器
+ * 包在每个路由的最外层，为请求创建 {@link RequestTiming}，在响应写出后记录耗时、各阶段耗时和响应状态码，
+ * 超过阈值的请求交给慢请求日志，开启流量录制时同时交给 {@link TrafficCapture}。
+ * 这里运行在接入线程上，不读取请求体；录制的请求体由 {@link DispatchHandler} 在工作线程上取出
+ */
+public class MetricsHandler implements HttpHandler {
+
+    private final HttpHandler nextHandler;
+    private final RequestMetrics metrics;
+    private final SlowRequestLog slowLog;
+    private final String route;
+    private final boolean serverTimingHeader;
+    private final TrafficCapture capture;
+
+    public MetricsHandler(HttpHandler nextHandler, RequestMetrics metrics, SlowRequestLog slowLog, String route,
+                          boolean serverTimingHeader, TrafficCapture capture) {
+        this.nextHandler = nextHandler;
+        this.metrics = metrics;
+        this.slowLog = slowLog;
+        this.route = route;
+        this.serverTimingHeader = serverTimingHeader;
+        this.capture = capture != null && capture.isEnabled() ? capture : null;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        RequestTiming timing = new RequestTiming(serverTimingHeader);
+        exchange.setAttribute(RequestTiming.ATTRIBUTE, timing);
+        RequestContext context = new RequestContext(exchange, timing);
+        exchange.setAttribute(RequestContext.ATTRIBUTE, context);
+
+        // 没有开启 JFR 录制时不保留事件对象
+        ApiEvents.Request event = new ApiEvents.Request();
+        if (event.isEnabled()) {
+            event.begin();
+        } else {
+            event = null;
+        }
+        ApiEvents.Request requestEvent = event;
+
+        long startMillis = capture != null ? System.currentTimeMillis() : 0;
+
+        try {
+            nextHandler.handle(exchange);
+        } catch (IOException | RuntimeException e) {
+            finish(exchange, context, requestEvent, startMillis);
+            throw e;
+        }
+
+        // 异步处理的请求在响应写出后才记录
+        AsyncHandler.onComplete(exchange, () -> finish(exchange, context, requestEvent, startMillis));
+    }
+
+    private void finish(HttpExchange exchange, RequestContext context, ApiEvents.Request event, long startMillis) {
+        RequestTiming timing = context.getTiming();
+        timing.complete();
+
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.route = route;
+                event.method = exchange.getRequestMethod();
+                event.status = exchange.getResponseCode();
+                event.client = context.getClientIp();
+                event.bytes = timing.getResponseBytes();
+                event.phases = timing.describe();
+                event.commit();
+            }
+        }
+
+        int statusCode = exchange.getResponseCode();
+        metrics.record(route, statusCode, timing.getTotalNanos());
+        metrics.recordPhases(timing);
+
+        if (slowLog != null) {
+            slowLog.record(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                exchange.getRequestURI().getRawQuery(), statusCode, timing);
+        }
+
+        if (capture != null) {
+            capture.record(startMillis, exchange.getRequestMethod(), exchange.getRequestURI().getPath(), exchange.getRequestURI().getRawQuery(),
+                context.getApiKey(), context.getCapturedBody(), statusCode, timing.getTotalNanos());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.httye.userinfoapi;
+
+import java.util.Arrays;
+
+/**
+ * Prometheus 文本格式写出器
+ * 直接写入可复用的字节缓冲区，每次抓取只在最后复制一次结果
+ */
+public class MetricsWriter {
+
+    private byte[] buffer = new byte[16 * 1024];
+    private int length;
+
+    public void reset() {
+        length = 0;
+    }
+
+    /**
+     * 写出指标的 HELP 和 TYPE 行
+     */
+    public MetricsWriter header(String name, String type, String help) {
+        append("# HELP ").append(name).append(' ').append(help).append('\n');
+        append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    public MetricsWriter sample(String name, long value) {
+        append(name).append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public MetricsWriter sample(String name, double value) {
+        append(name).append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public MetricsWriter sample(String name, String label, String labelValue, long value) {
+        append(name).append('{');
+        label(label, labelValue);
+        append('}').append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public MetricsWriter sample(String name, String label, String labelValue, double value) {
+        append(name).append('{');
+        label(label, labelValue);
+        append('}').append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public MetricsWriter sample(String name, String label1, String value1, String label2, String value2, long value) {
+        append(name).append('{');
+        label(label1, value1);
+        append(',');
+        label(label2, value2);
+        append('}').append(' ').append(value).append('\n');
+        return this;
+    }
+
+    private void label(String name, String value) {
+        append(name).append("=\"");
+        for (int i = 0; i < value.length(); ) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                append('\\').append(c);
+                i++;
+            } else if (c == '\n') {
+                append("\\n");
+                i++;
+            } else {
+                i += appendAt(value, i);
+            }
+        }
+        append('"');
+    }
+
+    public MetricsWriter append(String text) {
+        for (int i = 0; i < text.length(); ) {
+            i += appendAt(text, i);
+        }
+        return this;
+    }
+
+    public MetricsWriter append(char c) {
+        if (c < 0x80) {
+            ensureCapacity(1);
+            buffer[length++] = (byte) c;
+        } else if (Character.isSurrogate(c)) {
+            // 单独的代理项无法编码，与 String.getBytes 一样写出 '?'
+            append('?');
+        } else {
+            appendCodePoint(c);
+        }
+        return this;
+    }
+
+    /**
+     * 写出 text 中第 index 个位置的字符，高代理项和随后的低代理项合成一个码点写出
+     * 返回消耗的 char 数
+     */
+    private int appendAt(String text, int index) {
+        char c = text.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < text.length() && Character.isLowSurrogate(text.charAt(index + 1))) {
+            appendCodePoint(Character.toCodePoint(c, text.charAt(index + 1)));
+            return 2;
+        }
+        append(c);
+        return 1;
+    }
+
+    /**
+     * 非 ASCII 字符（如中文说明、emoji）按码点编码为 UTF-8
+     */
+    private void appendCodePoint(int codePoint) {
+        ensureCapacity(4);
+        if (codePoint < 0x800) {
+            buffer[length++] = (byte) (0xC0 | (codePoint >> 6));
+        } else if (codePoint < 0x10000) {
+            buffer[length++] = (byte) (0xE0 | (codePoint >> 12));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        } else {
+            buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        }
+        buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+    }
+
+    public MetricsWriter append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(Long.toString(value));
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+
+        ensureCapacity(20);
+        int start = length;
+        do {
+            buffer[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+
+        // 倒序写入的数字翻转回来
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+        return this;
+    }
+
+    public MetricsWriter append(double value) {
+        if (Double.isNaN(value)) {
+            return append("NaN");
+        }
+        if (Double.isInfinite(value)) {
+            return append(value > 0 ? "+Inf" : "-Inf");
+        }
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            return append((long) value);
+        }
+        return append(Double.toString(value));
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+}
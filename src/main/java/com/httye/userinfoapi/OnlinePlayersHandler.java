@@ -5,25 +5,77 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * 在线玩家列表
+ * 列表在玩家加入或退出时变化，响应预先编码后复用；在线时长等随时间变化的字段按 cache.expire-time 定期刷新。
+ * 玩家列表和显示名由主线程查询调度器在 tick 内读取，重新生成时最多等待 advanced.request-timeout
+ */
 public class OnlinePlayersHandler implements HttpHandler {
     
+    private final UserInfoAPIPlugin plugin;
+    private final long timeoutMillis;
+    private final PrerenderedResponse response;
+    
+    public OnlinePlayersHandler() {
+        this.plugin = UserInfoAPIPlugin.getInstance();
+        this.timeoutMillis = plugin.getConfig().getLong("advanced.request-timeout", 30) * 1000;
+        LoginRecordManager manager = plugin.getLoginRecordManager();
+        long ttlMillis = plugin.getConfig().getBoolean("cache.enabled", true)
+            ? plugin.getConfig().getLong("cache.expire-time", 30) * 1000
+            : 0;
+        this.response = new PrerenderedResponse(() -> manager.getCurrentOnlinePlayers(readOnlinePlayers()).toString(),
+            manager::getOnlineVersion, ttlMillis);
+    }
+    
+    public PrerenderedResponse getResponse() {
+        return response;
+    }
+    
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        UserInfoAPIPlugin plugin = UserInfoAPIPlugin.getInstance();
-        JsonObject onlinePlayers = plugin.getLoginRecordManager().getCurrentOnlinePlayers();
-        
-        sendResponse(exchange, 200, onlinePlayers.toString());
+        try {
+            response.send(exchange);
+        } catch (IllegalStateException e) {
+            sendErrorResponse(exchange, 503, e.getMessage());
+        }
     }
     
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+    private List<MainThreadQueryScheduler.OnlinePlayer> readOnlinePlayers() {
+        MainThreadQueryScheduler scheduler = plugin.getQueryScheduler();
+        if (scheduler == null) {
+            throw new IllegalStateException("主线程查询调度器未初始化");
+        }
+        CompletableFuture<List<MainThreadQueryScheduler.OnlinePlayer>> players = scheduler.readOnlinePlayers();
+        try {
+            return timeoutMillis > 0 ? players.get(timeoutMillis, TimeUnit.MILLISECONDS) : players.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("读取在线玩家列表被中断");
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("读取在线玩家列表超时");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(ApiResponse.errorMessage("读取在线玩家列表失败", e.getCause()));
+        }
+    }
+    
+    private void sendErrorResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", message);
+        byte[] bytes = error.toString().getBytes(StandardCharsets.UTF_8);
         
-        byte[] bytes = response.getBytes("UTF-8");
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
         exchange.sendResponseHeaders(statusCode, bytes.length);
-        
-        try (java.io.OutputStream os = exchange.getResponseBody()) {
+        try (OutputStream os = exchange.getResponseBody()) {
             os.write(bytes);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package com.httye.userinfoapi;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 玩家数据快照
+ * 在主线程上一次性读取，之后可在任意线程上安全地构建 JSON
+ */
+public class PlayerSnapshot {
+
+    // 可选读取的部分（基础数据和坐标总是读取）
+    public static final int INVENTORY = 1;
+    public static final int BIOME = 1 << 1;
+    // 背包物品的附魔和描述，需要同时读取 INVENTORY
+    public static final int ITEM_DETAILS = 1 << 2;
+
+    int sections;
+
+    String name;
+    UUID uniqueId;
+    String displayName;
+    int level;
+    float exp;
+    int expToLevel;
+    int totalExperience;
+    double health;
+    double maxHealth;
+    int foodLevel;
+    String gameMode;
+
+    String world;
+    double x;
+    double y;
+    double z;
+    float yaw;
+    float pitch;
+    String biome;
+
+    List<ItemSnapshot> inventory;
+
+    public boolean has(int section) {
+        return (sections & section) == section;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+}
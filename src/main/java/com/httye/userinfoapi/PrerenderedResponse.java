@@ -0,0 +1,218 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预先编码的响应
+ * 用于内容很少变化的接口：保存编码后的响应体、gzip 压缩版本和 ETag，版本号变化（如玩家加入、退出）
+ * 或超过有效期时才重新生成，其余请求直接写出已有的字节；重新生成期间其他请求继续使用旧的内容。
+ * 客户端带 If-None-Match 且内容未变时返回 304。
+ * 配置重载会重建 APIServer 和各处理器，缓存随之清空
+ */
+public class PrerenderedResponse {
+
+    // 小于该大小的响应体不压缩，压缩后反而更大
+    private static final int MIN_GZIP_BYTES = 256;
+
+    private final Supplier<String> renderer;
+    private final LongSupplier version;
+    private final long ttlMillis;
+    private volatile Rendered current;
+    // 正在重新生成，同一时间只有一个线程重新生成
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    // 统计信息：命中为直接使用已编码的响应，未命中为重新生成
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * @param renderer  生成 JSON 响应体
+     * @param version   内容版本号，与已缓存的不同时重新生成
+     * @param ttlMillis 有效期（毫秒），小于 0 时只按版本号更新，等于 0 时每次请求都重新生成
+     */
+    public PrerenderedResponse(Supplier<String> renderer, LongSupplier version, long ttlMillis) {
+        this.renderer = renderer;
+        this.version = version;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public void send(HttpExchange exchange) throws IOException {
+        Rendered rendered = get();
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.add("Content-Type", "application/json; charset=UTF-8");
+        headers.add("Access-Control-Allow-Origin", "*");
+        headers.add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
+        headers.add("Access-Control-Allow-Headers", "Content-Type, X-API-Key");
+        // 允许缓存，但每次使用前须用 ETag 向服务器确认
+        headers.set("Cache-Control", "no-cache");
+        headers.set("Vary", "Accept-Encoding");
+
+        boolean gzip = rendered.gzip != null && acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        // 压缩版本使用不同的 ETag，两者都视为同一内容
+        headers.set("ETag", gzip ? rendered.gzipEtag : rendered.etag);
+
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (matches(ifNoneMatch, rendered.etag) || matches(ifNoneMatch, rendered.gzipEtag)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] body = rendered.body;
+        if (gzip) {
+            headers.set("Content-Encoding", "gzip");
+            body = rendered.gzip;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /**
+     * 当前有效的响应；过期时由一个线程重新生成，其他线程继续使用旧的内容，只有还没有内容时才等待第一次生成。
+     * 有效期为 0 时每个请求各自生成，不经过缓存
+     */
+    Rendered get() {
+        if (ttlMillis == 0) {
+            misses.incrementAndGet();
+            return render();
+        }
+
+        Rendered rendered = current;
+        if (isValid(rendered)) {
+            hits.incrementAndGet();
+            return rendered;
+        }
+        if (rendered != null) {
+            if (!refreshing.compareAndSet(false, true)) {
+                // 其他线程正在重新生成
+                hits.incrementAndGet();
+                return rendered;
+            }
+            try {
+                misses.incrementAndGet();
+                rendered = render();
+                current = rendered;
+                return rendered;
+            } finally {
+                refreshing.set(false);
+            }
+        }
+        synchronized (this) {
+            rendered = current;
+            if (rendered != null) {
+                // 等待期间已由其他线程生成
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                rendered = render();
+                current = rendered;
+            }
+            return rendered;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private boolean isValid(Rendered rendered) {
+        if (rendered == null || rendered.version != version.getAsLong()) {
+            return false;
+        }
+        return ttlMillis < 0 || System.currentTimeMillis() - rendered.renderedAt < ttlMillis;
+    }
+
+    private Rendered render() {
+        // 先读版本号再生成内容：生成期间版本变化时，下一个请求会再次生成
+        long renderedVersion = version.getAsLong();
+        byte[] body = renderer.get().getBytes(StandardCharsets.UTF_8);
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        String tag = Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(body.length);
+        return new Rendered(renderedVersion, System.currentTimeMillis(), body, gzip(body), tag);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        if (body.length < MIN_GZIP_BYTES) {
+            return null;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(body);
+        } catch (IOException e) {
+            return null;
+        }
+        byte[] compressed = buffer.toByteArray();
+        return compressed.length < body.length ? compressed : null;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            // 弱比较：忽略 W/ 前缀（代理压缩后可能改为弱 ETag）
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag) || value.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parts = candidate.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                // gzip;q=0 表示不接受
+                return parts.length < 2 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    static final class Rendered {
+        final long version;
+        final long renderedAt;
+        final byte[] body;
+        // 压缩后不比原文小时为 null
+        final byte[] gzip;
+        final String etag;
+        final String gzipEtag;
+
+        Rendered(long version, long renderedAt, byte[] body, byte[] gzip, String tag) {
+            this.version = version;
+            this.renderedAt = renderedAt;
+            this.body = body;
+            this.gzip = gzip;
+            this.etag = "\"" + tag + "\"";
+            this.gzipEtag = gzip != null ? "\"" + tag + "-gzip\"" : null;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.httye.userinfoapi;
+
+import org.bukkit.Bukkit;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prometheus 指标导出器
+ * 所有采集器在创建时注册好，每次抓取按顺序写入同一个复用的 {@link MetricsWriter}
+ */
+public class PrometheusExporter {
+
+    /**
+     * 指标采集器
+     */
+    public interface Collector {
+        void collect(MetricsWriter writer);
+    }
+
+    // 请求耗时直方图的桶上界（秒）
+    private static final double[] LATENCY_BUCKETS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30
+    };
+    private static final String[] LATENCY_BUCKET_LABELS = {
+        "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10", "30"
+    };
+    private static final int[] LATENCY_BUCKET_INDEXES = new int[LATENCY_BUCKETS.length];
+
+    static {
+        // 每个上界对应的最后一个完全落在上界以内的直方图桶
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            long micros = (long) (LATENCY_BUCKETS[i] * 1_000_000);
+            int index = LatencyHistogram.bucketIndex(micros);
+            if (LatencyHistogram.bucketUpperBound(index) > micros) {
+                index--;
+            }
+            LATENCY_BUCKET_INDEXES[i] = index;
+        }
+    }
+
+    private final UserInfoAPIPlugin plugin;
+    private final APIServer apiServer;
+    private final List<Collector> collectors = new ArrayList<>();
+    private final MetricsWriter writer = new MetricsWriter();
+
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+    private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+
+    public PrometheusExporter(UserInfoAPIPlugin plugin, APIServer apiServer) {
+        this.plugin = plugin;
+        this.apiServer = apiServer;
+
+        register(this::collectRequests);
+        register(this::collectProtection);
+        register(this::collectSecurity);
+        register(this::collectCaches);
+        register(this::collectStorage);
+        register(this::collectServer);
+        register(this::collectJvm);
+    }
+
+    public void register(Collector collector) {
+        collectors.add(collector);
+    }
+
+    /**
+     * 渲染所有指标，并发的抓取请求依次执行
+     */
+    public synchronized byte[] render() {
+        writer.reset();
+        for (Collector collector : collectors) {
+            try {
+                collector.collect(writer);
+            } catch (RuntimeException e) {
+                // 单个采集器出错不影响其他指标
+                plugin.getLogger().warning("采集指标失败: " + e.getMessage());
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    private void collectRequests(MetricsWriter out) {
+        Map<String, RequestMetrics.RouteMetrics> routes = apiServer.getRequestMetrics().getRoutes();
+
+        out.header("userinfoapi_http_requests_total", "counter", "HTTP requests by route and status code.");
+        for (RequestMetrics.RouteMetrics route : routes.values()) {
+            for (Map.Entry<Integer, LatencyHistogram> entry : route.getByStatus().entrySet()) {
+                out.sample("userinfoapi_http_requests_total", "route", route.getRoute(),
+                    "status", String.valueOf(entry.getKey()), entry.getValue().getTotalCount());
+            }
+        }
+
+        out.header("userinfoapi_http_request_duration_seconds", "histogram", "HTTP request latency by route, until the response is written.");
+        for (RequestMetrics.RouteMetrics route : routes.values()) {
+            writeHistogram(out, "userinfoapi_http_request_duration_seconds", "route", route.getRoute(), route.getAll());
+        }
+
+        out.header("userinfoapi_http_phase_duration_seconds", "histogram", "Time spent in each request pipeline phase.");
+        for (Map.Entry<String, LatencyHistogram> entry : apiServer.getRequestMetrics().getPhases().entrySet()) {
+            writeHistogram(out, "userinfoapi_http_phase_duration_seconds", "phase", entry.getKey(), entry.getValue());
+        }
+
+        SlowRequestLog slowLog = apiServer.getSlowRequestLog();
+        if (slowLog != null) {
+            out.header("userinfoapi_slow_requests_total", "counter", "Slow requests written to or dropped from the slow request log.");
+            out.sample("userinfoapi_slow_requests_total", "result", "logged", slowLog.getLoggedRequests());
+            out.sample("userinfoapi_slow_requests_total", "result", "dropped", slowLog.getDroppedRequests());
+        }
+    }
+
+    private void writeHistogram(MetricsWriter out, String name, String label, String labelValue, LatencyHistogram histogram) {
+        long[] counts = histogram.snapshotCumulative();
+        String bucketName = name + "_bucket";
+
+        long cumulative = 0;
+        int next = 0;
+        for (int b = 0; b < LATENCY_BUCKETS.length; b++) {
+            for (; next <= LATENCY_BUCKET_INDEXES[b]; next++) {
+                cumulative += counts[next];
+            }
+            out.sample(bucketName, label, labelValue, "le", LATENCY_BUCKET_LABELS[b], cumulative);
+        }
+        long total = LatencyHistogram.count(counts);
+        out.sample(bucketName, label, labelValue, "le", "+Inf", total);
+        out.sample(name + "_sum", label, labelValue, histogram.getTotalMicros() / 1_000_000.0);
+        out.sample(name + "_count", label, labelValue, total);
+    }
+
+    private void collectProtection(MetricsWriter out) {
+        out.header("userinfoapi_rate_limit_rejections_total", "counter", "Requests rejected with 429 by the rate limiter.");
+        for (Map.Entry<String, RateLimitHandler> entry : apiServer.getRateLimiters().entrySet()) {
+            out.sample("userinfoapi_rate_limit_rejections_total", "route", entry.getKey(), entry.getValue().getRejectedRequests());
+        }
+
+        APIExecutor executor = apiServer.getExecutor();
+        if (executor != null) {
+            out.header("userinfoapi_executor_queue_depth", "gauge", "Requests waiting for an HTTP worker.");
+            out.sample("userinfoapi_executor_queue_depth", executor.getQueueDepth());
+            out.header("userinfoapi_executor_active_workers", "gauge", "HTTP workers currently handling a request.");
+            out.sample("userinfoapi_executor_active_workers", executor.getActiveCount());
+            out.header("userinfoapi_executor_shed_total", "counter", "Requests shed with 503 by the HTTP worker pool.");
+            out.sample("userinfoapi_executor_shed_total", "reason", "overloaded", executor.getRejectedTasks());
+            out.sample("userinfoapi_executor_shed_total", "reason", "queue-timeout", executor.getExpiredTasks());
+            out.header("userinfoapi_executor_dropped_total", "counter", "Requests dropped without a response because the shed pool was full.");
+            out.sample("userinfoapi_executor_dropped_total", executor.getDroppedTasks());
+        }
+
+        out.header("userinfoapi_bulkhead_in_flight", "gauge", "Requests currently admitted by a route bulkhead.");
+        for (RouteBulkhead bulkhead : apiServer.getBulkheads()) {
+            out.sample("userinfoapi_bulkhead_in_flight", "route", bulkhead.getRoute(), bulkhead.getInFlight());
+        }
+        out.header("userinfoapi_bulkhead_limit", "gauge", "Concurrent request limit of a route bulkhead, -1 when unlimited.");
+        for (RouteBulkhead bulkhead : apiServer.getBulkheads()) {
+            out.sample("userinfoapi_bulkhead_limit", "route", bulkhead.getRoute(), bulkhead.getLimit());
+        }
+        AdaptiveThrottle throttle = apiServer.getThrottle();
+        if (throttle != null) {
+            out.header("userinfoapi_throttle_level", "gauge", "Adaptive throttle level, 0 when the server is healthy.");
+            out.sample("userinfoapi_throttle_level", throttle.getLevel());
+            out.header("userinfoapi_throttle_escalations_total", "counter", "Times the adaptive throttle raised its level.");
+            out.sample("userinfoapi_throttle_escalations_total", throttle.getEscalations());
+        }
+        out.header("userinfoapi_bulkhead_rejections_total", "counter", "Requests rejected with 503 by a route bulkhead.");
+        for (RouteBulkhead bulkhead : apiServer.getBulkheads()) {
+            out.sample("userinfoapi_bulkhead_rejections_total", "route", bulkhead.getRoute(), bulkhead.getRejected());
+        }
+    }
+
+    private void collectSecurity(MetricsWriter out) {
+        SecurityManager securityManager = plugin.getSecurityManager();
+        out.header("userinfoapi_auth_failures_total", "counter", "Requests rejected by IP allow-list or API key checks.");
+        out.sample("userinfoapi_auth_failures_total", "reason", "ip", securityManager.getRejectedIPs());
+        out.sample("userinfoapi_auth_failures_total", "reason", "api_key", securityManager.getRejectedApiKeys());
+    }
+
+    private void collectCaches(MetricsWriter out) {
+        // 合并请求相当于缓存命中：命中率 = coalesced / (coalesced + executed)
+        RequestCoalescer coalescer = apiServer.getCoalescer();
+        long coalesced = coalescer.getCoalescedRequests();
+        long executed = coalescer.getExecutedRequests();
+        out.header("userinfoapi_coalescer_requests_total", "counter", "User lookups that were executed or joined an identical in-flight lookup.");
+        out.sample("userinfoapi_coalescer_requests_total", "result", "executed", executed);
+        out.sample("userinfoapi_coalescer_requests_total", "result", "coalesced", coalesced);
+        out.header("userinfoapi_coalescer_hit_ratio", "gauge", "Share of user lookups served by an in-flight lookup.");
+        out.sample("userinfoapi_coalescer_hit_ratio", coalesced + executed > 0 ? (double) coalesced / (coalesced + executed) : 0.0);
+
+        // 预先编码的响应：命中直接写出已有的字节，未命中重新生成
+        out.header("userinfoapi_prerendered_hits_total", "counter", "Requests served from an already encoded response, including stale bytes served while another request re-renders.");
+        for (Map.Entry<String, PrerenderedResponse> entry : apiServer.getPrerenderedResponses().entrySet()) {
+            out.sample("userinfoapi_prerendered_hits_total", "route", entry.getKey(), entry.getValue().getHits());
+        }
+        out.header("userinfoapi_prerendered_misses_total", "counter", "Requests that re-rendered an expired or outdated encoded response.");
+        for (Map.Entry<String, PrerenderedResponse> entry : apiServer.getPrerenderedResponses().entrySet()) {
+            out.sample("userinfoapi_prerendered_misses_total", "route", entry.getKey(), entry.getValue().getMisses());
+        }
+
+        MainThreadQueryScheduler scheduler = plugin.getQueryScheduler();
+        if (scheduler != null) {
+            out.header("userinfoapi_main_thread_reads_total", "counter", "Player reads executed on the main thread or merged into a queued read.");
+            out.sample("userinfoapi_main_thread_reads_total", "result", "executed", scheduler.getExecutedReads());
+            out.sample("userinfoapi_main_thread_reads_total", "result", "merged", scheduler.getMergedReads());
+            out.header("userinfoapi_main_thread_queue_depth", "gauge", "Player reads waiting for the next tick.");
+            out.sample("userinfoapi_main_thread_queue_depth", scheduler.getQueueSize());
+        }
+    }
+
+    private void collectStorage(MetricsWriter out) {
+        ChatRecordManager chatManager = plugin.getChatRecordManager();
+        if (chatManager != null) {
+            out.header("userinfoapi_chat_buffer_messages", "gauge", "Chat messages held in memory.");
+            out.sample("userinfoapi_chat_buffer_messages", chatManager.getTotalRecordCount());
+            out.header("userinfoapi_chat_buffer_players", "gauge", "Players with chat messages held in memory.");
+            out.sample("userinfoapi_chat_buffer_players", chatManager.getPlayerCount());
+        }
+
+        LoginRecordManager loginManager = plugin.getLoginRecordManager();
+        if (loginManager != null) {
+            out.header("userinfoapi_login_writer_queue_depth", "gauge", "Login records waiting to be written to disk.");
+            out.sample("userinfoapi_login_writer_queue_depth", loginManager.getPendingWrites());
+        }
+    }
+
+    private void collectServer(MetricsWriter out) {
+        out.header("minecraft_players_online", "gauge", "Players currently online.");
+        out.sample("minecraft_players_online", Bukkit.getOnlinePlayers().size());
+        out.header("minecraft_players_max", "gauge", "Maximum number of players.");
+        out.sample("minecraft_players_max", Bukkit.getMaxPlayers());
+
+        try {
+            double[] tps = Bukkit.getTPS();
+            if (tps != null && tps.length >= 3) {
+                out.header("minecraft_tps", "gauge", "Server ticks per second averaged over 1, 5 and 15 minutes.");
+                out.sample("minecraft_tps", "window", "1m", tps[0]);
+                out.sample("minecraft_tps", "window", "5m", tps[1]);
+                out.sample("minecraft_tps", "window", "15m", tps[2]);
+            }
+            out.header("minecraft_mspt", "gauge", "Average milliseconds per tick.");
+            out.sample("minecraft_mspt", Bukkit.getAverageTickTime());
+        } catch (NoSuchMethodError e) {
+            // 非 Paper 服务端没有 TPS/MSPT 接口
+        }
+
+        WorldSampler worldSampler = plugin.getWorldSampler();
+        if (worldSampler != null) {
+            Map<String, WorldSampler.WorldStats> worlds = worldSampler.getLatest();
+            out.header("minecraft_world_chunks_loaded", "gauge", "Loaded chunks per world, from the periodic world sample.");
+            for (WorldSampler.WorldStats world : worlds.values()) {
+                out.sample("minecraft_world_chunks_loaded", "world", world.getName(), world.getChunks());
+            }
+            out.header("minecraft_world_entities", "gauge", "Entities per world, from the periodic world sample.");
+            for (WorldSampler.WorldStats world : worlds.values()) {
+                out.sample("minecraft_world_entities", "world", world.getName(), world.getEntities());
+            }
+            out.header("minecraft_world_tile_entities", "gauge", "Tile entities per world, from the periodic world sample.");
+            for (WorldSampler.WorldStats world : worlds.values()) {
+                out.sample("minecraft_world_tile_entities", "world", world.getName(), world.getTileEntities());
+            }
+        }
+
+        TickMonitor tickMonitor = plugin.getTickMonitor();
+        if (tickMonitor != null) {
+            out.header("minecraft_tick_duration_seconds", "histogram", "Duration of each server tick.");
+            writeHistogram(out, "minecraft_tick_duration_seconds", "thread", "main", tickMonitor.getHistogram());
+        }
+    }
+
+    private void collectJvm(MetricsWriter out) {
+        MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memoryBean.getNonHeapMemoryUsage();
+        out.header("jvm_memory_used_bytes", "gauge", "Used JVM memory.");
+        out.sample("jvm_memory_used_bytes", "area", "heap", heap.getUsed());
+        out.sample("jvm_memory_used_bytes", "area", "nonheap", nonHeap.getUsed());
+        out.header("jvm_memory_committed_bytes", "gauge", "Committed JVM memory.");
+        out.sample("jvm_memory_committed_bytes", "area", "heap", heap.getCommitted());
+        out.sample("jvm_memory_committed_bytes", "area", "nonheap", nonHeap.getCommitted());
+        out.header("jvm_memory_max_bytes", "gauge", "Maximum JVM memory, -1 if undefined.");
+        out.sample("jvm_memory_max_bytes", "area", "heap", heap.getMax());
+        out.sample("jvm_memory_max_bytes", "area", "nonheap", nonHeap.getMax());
+
+        out.header("jvm_gc_collections_total", "counter", "Garbage collections by collector.");
+        for (GarbageCollectorMXBean gc : gcBeans) {
+            out.sample("jvm_gc_collections_total", "gc", gc.getName(), gc.getCollectionCount());
+        }
+        out.header("jvm_gc_collection_seconds_total", "counter", "Time spent in garbage collection by collector.");
+        for (GarbageCollectorMXBean gc : gcBeans) {
+            out.sample("jvm_gc_collection_seconds_total", "gc", gc.getName(), gc.getCollectionTime() / 1000.0);
+        }
+
+        out.header("jvm_threads_live", "gauge", "Live JVM threads.");
+        out.sample("jvm_threads_live", threadBean.getThreadCount());
+        out.header("system_load_average_1m", "gauge", "System load average over the last minute.");
+        out.sample("system_load_average_1m", osBean.getSystemLoadAverage());
+        out.header("system_cpu_count", "gauge", "Available processors.");
+        out.sample("system_cpu_count", osBean.getAvailableProcessors());
+
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean extendedBean = (com.sun.management.OperatingSystemMXBean) osBean;
+            out.header("process_cpu_seconds_total", "counter", "CPU time consumed by the JVM process.");
+            out.sample("process_cpu_seconds_total", extendedBean.getProcessCpuTime() / 1_000_000_000.0);
+            out.header("process_cpu_usage_ratio", "gauge", "Recent CPU usage of the JVM process, 0-1 of all processors.");
+            out.sample("process_cpu_usage_ratio", extendedBean.getProcessCpuLoad());
+            out.header("system_cpu_usage_ratio", "gauge", "Recent CPU usage of the whole system, 0-1.");
+            out.sample("system_cpu_usage_ratio", extendedBean.getCpuLoad());
+        }
+
+        ServerResourceMonitor monitor = plugin.getResourceMonitor();
+        if (monitor == null) {
+            return;
+        }
+
+        // 线程分组的累计值在资源采样时更新
+        ThreadUsageTracker tracker = monitor.getThreadUsageTracker();
+        if (tracker.isSupported()) {
+            double[] seconds = tracker.getTotalSeconds();
+            out.header("userinfoapi_thread_cpu_seconds_total", "counter", "CPU time by thread group (main, http, ratelimit, chat, plugin, other).");
+            for (int i = 0; i < ThreadUsageTracker.GROUPS.length; i++) {
+                out.sample("userinfoapi_thread_cpu_seconds_total", "group", ThreadUsageTracker.GROUPS[i], seconds[i]);
+            }
+        }
+        if (tracker.isAllocationSupported()) {
+            long[] allocated = tracker.getTotalAllocatedBytes();
+            out.header("userinfoapi_thread_allocated_bytes_total", "counter", "Heap bytes allocated by thread group.");
+            for (int i = 0; i < ThreadUsageTracker.GROUPS.length; i++) {
+                out.sample("userinfoapi_thread_allocated_bytes_total", "group", ThreadUsageTracker.GROUPS[i], allocated[i]);
+            }
+        }
+
+        GcMonitor gcMonitor = monitor.getGcMonitor();
+        out.header("jvm_gc_allocated_bytes_total", "counter", "Heap allocation estimated from heap usage before and after each GC.");
+        out.sample("jvm_gc_allocated_bytes_total", gcMonitor.getAllocatedBytes(memoryBean.getHeapMemoryUsage().getUsed()));
+        out.header("jvm_gc_duration_seconds", "histogram", "GC duration by collector; concurrent collectors report the whole cycle.");
+        for (GcMonitor.CollectorStats stats : gcMonitor.getCollectors().values()) {
+            writeHistogram(out, "jvm_gc_duration_seconds", "gc", stats.getName(), stats.getDurations());
+        }
+        out.header("jvm_gc_cause_total", "counter", "GC count by collector and cause.");
+        for (GcMonitor.CollectorStats stats : gcMonitor.getCollectors().values()) {
+            for (Map.Entry<String, AtomicLong> entry : stats.getCauses().entrySet()) {
+                out.sample("jvm_gc_cause_total", "gc", stats.getName(), "cause", entry.getKey(), entry.getValue().get());
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Prometheus 指标抓取处理器
+ */
+public class PrometheusHandler implements HttpHandler {
+
+    private final PrometheusExporter exporter;
+
+    public PrometheusHandler(PrometheusExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        byte[] bytes = exporter.render();
+
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
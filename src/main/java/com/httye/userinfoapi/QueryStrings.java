@@ -0,0 +1,112 @@
+package com.httye.userinfoapi;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 查询字符串工具
+ * 各处理器共用的参数读取方法，不依赖 HttpExchange，可以单独做基准测试
+ */
+public final class QueryStrings {
+
+    private QueryStrings() {
+    }
+
+    /**
+     * 一次遍历解析原始查询字符串（{@link java.net.URI#getRawQuery()}），参数名和值分别做 URL 解码
+     * 只有含 % 或 + 的参数才解码，普通参数只截取子串；没有名称的参数被忽略
+     */
+    public static Params parse(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Params.EMPTY;
+        }
+
+        String[] entries = new String[8];
+        int size = 0;
+        int length = rawQuery.length();
+        int start = 0;
+        int separator = -1;
+        boolean encoded = false;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? rawQuery.charAt(i) : '&';
+            if (c == '&') {
+                int nameEnd = separator >= 0 ? separator : i;
+                if (nameEnd > start) {
+                    if (size * 2 + 2 > entries.length) {
+                        entries = Arrays.copyOf(entries, entries.length * 2);
+                    }
+                    entries[size * 2] = substring(rawQuery, start, nameEnd, encoded);
+                    entries[size * 2 + 1] = separator >= 0 ? substring(rawQuery, separator + 1, i, encoded) : "";
+                    size++;
+                }
+                start = i + 1;
+                separator = -1;
+                encoded = false;
+            } else if (c == '=' && separator < 0) {
+                separator = i;
+            } else if (c == '%' || c == '+') {
+                encoded = true;
+            }
+        }
+        return new Params(entries, size);
+    }
+
+    private static String substring(String query, int start, int end, boolean encoded) {
+        String value = query.substring(start, end);
+        if (!encoded) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            // 不完整的 % 转义保留原文
+            return value;
+        }
+    }
+
+    /**
+     * 解析后的查询参数，按出现顺序保存，同名参数以第一个为准
+     */
+    public static final class Params {
+
+        static final Params EMPTY = new Params(new String[0], 0);
+
+        // 名称和值交替保存，参数通常只有几个，顺序查找比哈希表更快且分配更少
+        private final String[] entries;
+        private final int size;
+
+        private Params(String[] entries, int size) {
+            this.entries = entries;
+            this.size = size;
+        }
+
+        /**
+         * 解码后的参数值，参数不存在或没有值时返回 null
+         */
+        public String get(String name) {
+            for (int i = 0; i < size; i++) {
+                if (entries[i * 2].equals(name)) {
+                    String value = entries[i * 2 + 1];
+                    return value.isEmpty() ? null : value;
+                }
+            }
+            return null;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public String name(int index) {
+            return entries[index * 2];
+        }
+
+        /**
+         * 第 index 个参数的值，没有值时为空字符串
+         */
+        public String value(int index) {
+            return entries[index * 2 + 1];
+        }
+    }
+}
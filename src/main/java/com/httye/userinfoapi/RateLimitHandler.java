@@ -4,13 +4,11 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.List;
-import java.util.ArrayList;
 
 /**
  * API限流处理器
@@ -27,8 +25,10 @@ public class RateLimitHandler implements HttpHandler {
     private final boolean enabled;
     
     // 存储请求计数
-    private final ConcurrentHashMap<String, RateLimitData> rateLimitMap = new ConcurrentHashMap<>();
+    private final RateLimiter rateLimiter;
     private final ScheduledExecutorService scheduler;
+    private final AtomicLong rejectedRequests = new AtomicLong(0);
+    private static final AtomicInteger SCHEDULER_NUMBER = new AtomicInteger(1);
     
     public RateLimitHandler(HttpHandler nextHandler, UserInfoAPIPlugin plugin) {
         this.nextHandler = nextHandler;
@@ -38,10 +38,14 @@ public class RateLimitHandler implements HttpHandler {
         this.enabled = plugin.getConfig().getBoolean("rate-limit.enabled", true);
         this.requestsPerMinute = plugin.getConfig().getInt("rate-limit.requests-per-minute", 60);
         this.requestsPerHour = plugin.getConfig().getInt("rate-limit.requests-per-hour", 1000);
+        this.rateLimiter = new RateLimiter(requestsPerMinute, requestsPerHour);
         
-        // 从配置读取线程池大小
-        int threadPoolSize = plugin.getConfig().getInt("advanced.thread-pool-size", 2);
-        this.scheduler = Executors.newScheduledThreadPool(threadPoolSize);
+        // 调度线程只执行每分钟一次的清理任务，一个线程足够；命名后可在CPU统计中单独归类
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UserInfoAPI-RateLimit-" + SCHEDULER_NUMBER.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
         
         // 启动定时清理任务
         startCleanupTask();
@@ -55,79 +59,56 @@ public class RateLimitHandler implements HttpHandler {
         }
         
         String clientId = getClientIdentifier(exchange);
-        RateLimitData rateLimitData = rateLimitMap.computeIfAbsent(clientId, k -> new RateLimitData());
         
-        // 检查是否超过限流
-        if (isRateLimited(rateLimitData)) {
-            sendRateLimitResponse(exchange, rateLimitData);
+        // 检查是否超过限流，未超过时同时记录请求
+        if (!rateLimiter.tryAcquire(clientId, System.currentTimeMillis())) {
+            rejectedRequests.incrementAndGet();
+            RequestTiming.mark(exchange, "ratelimit");
+            recordRejectEvent(exchange, clientId);
+            sendRateLimitResponse(exchange, clientId);
             return;
         }
         
-        // 记录请求
-        rateLimitData.recordRequest();
+        RequestTiming.mark(exchange, "ratelimit");
         
         // 继续处理
         nextHandler.handle(exchange);
     }
     
-    private String getClientIdentifier(HttpExchange exchange) {
-        // 首先尝试获取API密钥
-        String apiKey = extractApiKey(exchange);
-        if (apiKey != null && !apiKey.isEmpty()) {
-            return "key:" + apiKey;
-        }
-        
-        // 否则使用IP地址
-        String ipAddress = exchange.getRemoteAddress().getAddress().getHostAddress();
-        return "ip:" + ipAddress;
-    }
-    
-    private String extractApiKey(HttpExchange exchange) {
-        // 从请求头获取
-        String apiKey = exchange.getRequestHeaders().getFirst("X-API-Key");
-        if (apiKey != null && !apiKey.isEmpty()) {
-            return apiKey;
-        }
-        
-        // 从查询参数获取
-        String query = exchange.getRequestURI().getQuery();
-        if (query != null) {
-            String[] params = query.split("&");
-            for (String param : params) {
-                String[] keyValue = param.split("=");
-                if (keyValue.length == 2 && keyValue[0].equals("api_key")) {
-                    return keyValue[1];
-                }
-            }
+    private void recordRejectEvent(HttpExchange exchange, String clientId) {
+        ApiEvents.RateLimitReject event = new ApiEvents.RateLimitReject();
+        if (event.shouldCommit()) {
+            RateLimitStats stats = rateLimiter.getStats(clientId, System.currentTimeMillis());
+            event.route = exchange.getRequestURI().getPath();
+            // 不在录制中暴露 API 密钥，只记录客户端IP
+            event.client = RequestContext.get(exchange).getClientIp();
+            event.keyed = clientId.startsWith("key:");
+            event.minuteRequests = stats.getMinuteRequests();
+            event.hourRequests = stats.getHourRequests();
+            event.commit();
         }
-        
-        return null;
     }
     
-    private boolean isRateLimited(RateLimitData rateLimitData) {
-        long now = System.currentTimeMillis();
-        
-        // 检查分钟限流
-        int minuteRequests = rateLimitData.getRequestsInLastMinute(now);
-        if (minuteRequests >= requestsPerMinute) {
-            return true;
-        }
+    private String getClientIdentifier(HttpExchange exchange) {
+        RequestContext context = RequestContext.get(exchange);
         
-        // 检查小时限流
-        int hourRequests = rateLimitData.getRequestsInLastHour(now);
-        if (hourRequests >= requestsPerHour) {
-            return true;
+        // 首先尝试获取API密钥
+        String apiKey = context.getApiKey();
+        if (apiKey != null) {
+            return "key:" + apiKey;
         }
         
-        return false;
+        // 否则使用IP地址
+        return "ip:" + context.getClientIp();
     }
     
-    private void sendRateLimitResponse(HttpExchange exchange, RateLimitData rateLimitData) throws IOException {
+    private void sendRateLimitResponse(HttpExchange exchange, String clientId) throws IOException {
         long now = System.currentTimeMillis();
-        int minuteRequests = rateLimitData.getRequestsInLastMinute(now);
-        int hourRequests = rateLimitData.getRequestsInLastHour(now);
+        RateLimitStats stats = rateLimiter.getStats(clientId, now);
+        int minuteRequests = stats.getMinuteRequests();
+        int hourRequests = stats.getHourRequests();
         
-        long retryAfter = calculateRetryAfter(rateLimitData, now);
+        long retryAfter = rateLimiter.getRetryAfter(clientId, now);
         
         String response = String.format(
             "{\"error\":\"请求过于频繁\",\"retryAfter\":%d,\"minuteRequests\":%d,\"hourRequests\":%d,\"requestsPerMinute\":%d,\"requestsPerHour\":%d}",
@@ -150,110 +131,25 @@ public class RateLimitHandler implements HttpHandler {
         }
     }
     
-    private long calculateRetryAfter(RateLimitData rateLimitData, long now) {
-        // 计算需要等待的时间（秒）
-        long oldestMinuteRequest = rateLimitData.getOldestRequestInLastMinute(now);
-        long oldestHourRequest = rateLimitData.getOldestRequestInLastHour(now);
-        
-        long minuteWait = Math.max(0, 60000 - (now - oldestMinuteRequest)) / 1000;
-        long hourWait = Math.max(0, 3600000 - (now - oldestHourRequest)) / 1000;
-        
-        return Math.min(minuteWait, hourWait) + 1; // 加1秒确保限流重置
-    }
-    
     private void startCleanupTask() {
         // 每分钟清理一次过期的请求记录
-        scheduler.scheduleAtFixedRate(() -> {
-            long now = System.currentTimeMillis();
-            rateLimitMap.entrySet().removeIf(entry -> {
-                RateLimitData data = entry.getValue();
-                return data.isExpired(now);
-            });
-        }, 1, 1, TimeUnit.MINUTES);
+        scheduler.scheduleAtFixedRate(() -> rateLimiter.cleanup(System.currentTimeMillis()), 1, 1, TimeUnit.MINUTES);
     }
     
     public void shutdown() {
-        scheduler.shutdown();
-        try {
-            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            scheduler.shutdownNow();
-        }
-    }
-    
-    public RateLimitStats getRateLimitStats(String clientId) {
-        RateLimitData data = rateLimitMap.get(clientId);
-        if (data == null) {
-            return new RateLimitStats(0, 0, requestsPerMinute, requestsPerHour);
-        }
-        
-        long now = System.currentTimeMillis();
-        return new RateLimitStats(
-            data.getRequestsInLastMinute(now),
-            data.getRequestsInLastHour(now),
-            requestsPerMinute,
-            requestsPerHour
-        );
+        // 清理任务只是回收过期的计数，不需要等它跑完
+        scheduler.shutdownNow();
     }
     
     /**
-     * 限流数据类
+     * 被限流拒绝的请求数
      */
-    private static class RateLimitData {
-        private final List<Long> requestTimes = new ArrayList<>();
-        private static final long ONE_HOUR = 3600000; // 1小时的毫秒数
-        
-        public synchronized void recordRequest() {
-            requestTimes.add(System.currentTimeMillis());
-            cleanupOldRequests();
-        }
-        
-        public synchronized int getRequestsInLastMinute(long now) {
-            cleanupOldRequests();
-            long oneMinuteAgo = now - 60000;
-            return (int) requestTimes.stream()
-                    .filter(time -> time > oneMinuteAgo)
-                    .count();
-        }
-        
-        public synchronized int getRequestsInLastHour(long now) {
-            cleanupOldRequests();
-            long oneHourAgo = now - ONE_HOUR;
-            return (int) requestTimes.stream()
-                    .filter(time -> time > oneHourAgo)
-                    .count();
-        }
-        
-        public synchronized long getOldestRequestInLastMinute(long now) {
-            cleanupOldRequests();
-            long oneMinuteAgo = now - 60000;
-            return requestTimes.stream()
-                    .filter(time -> time > oneMinuteAgo)
-                    .min(Long::compare)
-                    .orElse(now);
-        }
-        
-        public synchronized long getOldestRequestInLastHour(long now) {
-            cleanupOldRequests();
-            long oneHourAgo = now - ONE_HOUR;
-            return requestTimes.stream()
-                    .filter(time -> time > oneHourAgo)
-                    .min(Long::compare)
-                    .orElse(now);
-        }
-        
-        public synchronized boolean isExpired(long now) {
-            cleanupOldRequests();
-            return requestTimes.isEmpty();
-        }
-        
-        private synchronized void cleanupOldRequests() {
-            long now = System.currentTimeMillis();
-            long oneHourAgo = now - ONE_HOUR;
-            requestTimes.removeIf(time -> time <= oneHourAgo);
-        }
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+    
+    public RateLimitStats getRateLimitStats(String clientId) {
+        return rateLimiter.getStats(clientId, System.currentTimeMillis());
     }
     
     /**
@@ -0,0 +1,154 @@
+package com.httye.userinfoapi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 滑动窗口限流器
+ * 按客户端标识记录最近一小时内的请求时间，分钟和小时两个窗口分别计数。
+ * 不依赖 HttpExchange 和 Bukkit，由 {@link RateLimitHandler} 调用，也可以单独做基准测试
+ */
+public class RateLimiter {
+
+    private static final long ONE_MINUTE = 60000;
+    private static final long ONE_HOUR = 3600000;
+
+    private final int requestsPerMinute;
+    private final int requestsPerHour;
+    private final ConcurrentHashMap<String, RateLimitData> rateLimitMap = new ConcurrentHashMap<>();
+
+    public RateLimiter(int requestsPerMinute, int requestsPerHour) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.requestsPerHour = requestsPerHour;
+    }
+
+    /**
+     * 检查并记录一次请求，未超过限制时返回 true
+     * 检查和记录在同一把锁内完成，同一客户端的并发请求不会一起通过最后一个名额
+     */
+    public boolean tryAcquire(String clientId, long now) {
+        RateLimitData data = rateLimitMap.computeIfAbsent(clientId, k -> new RateLimitData());
+        synchronized (data) {
+            if (data.getRequestsInLastMinute(now) >= requestsPerMinute
+                    || data.getRequestsInLastHour(now) >= requestsPerHour) {
+                return false;
+            }
+            data.recordRequest(now);
+            return true;
+        }
+    }
+
+    /**
+     * 客户端当前的请求计数
+     */
+    public RateLimitHandler.RateLimitStats getStats(String clientId, long now) {
+        RateLimitData data = rateLimitMap.get(clientId);
+        if (data == null) {
+            return new RateLimitHandler.RateLimitStats(0, 0, requestsPerMinute, requestsPerHour);
+        }
+        synchronized (data) {
+            return new RateLimitHandler.RateLimitStats(
+                data.getRequestsInLastMinute(now),
+                data.getRequestsInLastHour(now),
+                requestsPerMinute,
+                requestsPerHour
+            );
+        }
+    }
+
+    /**
+     * 被限流的客户端需要等待的秒数
+     */
+    public long getRetryAfter(String clientId, long now) {
+        RateLimitData data = rateLimitMap.get(clientId);
+        if (data == null) {
+            return 1;
+        }
+
+        long oldestMinuteRequest;
+        long oldestHourRequest;
+        synchronized (data) {
+            oldestMinuteRequest = data.getOldestRequestSince(now - ONE_MINUTE, now);
+            oldestHourRequest = data.getOldestRequestSince(now - ONE_HOUR, now);
+        }
+
+        long minuteWait = Math.max(0, ONE_MINUTE - (now - oldestMinuteRequest)) / 1000;
+        long hourWait = Math.max(0, ONE_HOUR - (now - oldestHourRequest)) / 1000;
+
+        return Math.min(minuteWait, hourWait) + 1; // 加1秒确保限流重置
+    }
+
+    /**
+     * 删除一小时内没有请求的客户端
+     */
+    public void cleanup(long now) {
+        rateLimitMap.entrySet().removeIf(entry -> {
+            RateLimitData data = entry.getValue();
+            synchronized (data) {
+                return data.isExpired(now);
+            }
+        });
+    }
+
+    /**
+     * 正在跟踪的客户端数量
+     */
+    public int size() {
+        return rateLimitMap.size();
+    }
+
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public int getRequestsPerHour() {
+        return requestsPerHour;
+    }
+
+    /**
+     * 单个客户端的请求时间，调用方持有该对象的锁
+     */
+    private static class RateLimitData {
+        private final List<Long> requestTimes = new ArrayList<>();
+
+        void recordRequest(long now) {
+            requestTimes.add(now);
+            cleanupOldRequests(now);
+        }
+
+        int getRequestsInLastMinute(long now) {
+            cleanupOldRequests(now);
+            return countSince(now - ONE_MINUTE);
+        }
+
+        int getRequestsInLastHour(long now) {
+            cleanupOldRequests(now);
+            return countSince(now - ONE_HOUR);
+        }
+
+        long getOldestRequestSince(long since, long now) {
+            cleanupOldRequests(now);
+            return requestTimes.stream()
+                    .filter(time -> time > since)
+                    .min(Long::compare)
+                    .orElse(now);
+        }
+
+        boolean isExpired(long now) {
+            cleanupOldRequests(now);
+            return requestTimes.isEmpty();
+        }
+
+        private int countSince(long since) {
+            return (int) requestTimes.stream()
+                    .filter(time -> time > since)
+                    .count();
+        }
+
+        private void cleanupOldRequests(long now) {
+            long oneHourAgo = now - ONE_HOUR;
+            requestTimes.removeIf(time -> time <= oneHourAgo);
+        }
+    }
+}
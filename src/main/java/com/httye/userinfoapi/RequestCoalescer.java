@@ -0,0 +1,87 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并器 (single-flight)
+ * 相同端点、相同参数的并发请求只执行一次计算，共享同一份已编码的响应
+ */
+public class RequestCoalescer {
+
+    // 正在执行的请求表：键为 端点 + 规范化参数
+    private final ConcurrentHashMap<String, CompletableFuture<ApiResponse>> inFlight = new ConcurrentHashMap<>();
+
+    // 统计信息
+    private final AtomicLong executedRequests = new AtomicLong(0);
+    private final AtomicLong coalescedRequests = new AtomicLong(0);
+
+    /**
+     * 执行请求，如果已有相同请求正在执行则直接共享其结果
+     *
+     * @param endpoint    端点路径
+     * @param args        规范化后的参数
+     * @param computation 实际计算
+     */
+    public CompletableFuture<ApiResponse> execute(String endpoint, String args, Supplier<CompletableFuture<ApiResponse>> computation) {
+        String key = endpoint + '?' + args;
+        CompletableFuture<ApiResponse> future = new CompletableFuture<>();
+        CompletableFuture<ApiResponse> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            coalescedRequests.incrementAndGet();
+            return existing;
+        }
+
+        executedRequests.incrementAndGet();
+        CompletableFuture<ApiResponse> result;
+        try {
+            result = computation.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        result.whenComplete((response, error) -> {
+            // 先移出表再完成，之后到达的请求会重新计算而不是拿到旧结果
+            inFlight.remove(key, future);
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(response);
+            }
+        });
+        return future;
+    }
+
+    public long getExecutedRequests() {
+        return executedRequests.get();
+    }
+
+    public long getCoalescedRequests() {
+        return coalescedRequests.get();
+    }
+
+    public int getInFlightRequests() {
+        return inFlight.size();
+    }
+
+    /**
+     * 获取合并统计信息
+     */
+    public JsonObject getStats() {
+        long executed = executedRequests.get();
+        long coalesced = coalescedRequests.get();
+        long total = executed + coalesced;
+
+        JsonObject stats = new JsonObject();
+        stats.addProperty("executedRequests", executed);
+        stats.addProperty("coalescedRequests", coalesced);
+        stats.addProperty("inFlightRequests", inFlight.size());
+        stats.addProperty("coalescedRatio", total > 0 ? (double) coalesced / total : 0.0);
+        return stats;
+    }
+}
@@ -0,0 +1,92 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * 单个请求的上下文
+ * 由 {@link MetricsHandler} 在请求开始时创建并挂在请求属性上，限流、认证和各处理器共用：
+ * 查询参数在第一次读取时解析一次（URL 解码），客户端 IP 和 API 密钥也只确定一次
+ */
+public class RequestContext {
+
+    public static final String ATTRIBUTE = "userinfoapi.context";
+
+    private final HttpExchange exchange;
+    private final RequestTiming timing;
+
+    // 以下字段在第一次使用时计算，结果与计算线程无关，重复计算也无妨
+    private QueryStrings.Params params;
+    private String clientIp;
+    private String apiKey;
+    private boolean apiKeyResolved;
+    // 流量录制取出的请求体，由工作线程写入，请求结束时读取
+    private volatile byte[] capturedBody;
+
+    public RequestContext(HttpExchange exchange, RequestTiming timing) {
+        this.exchange = exchange;
+        this.timing = timing;
+    }
+
+    /**
+     * 请求的上下文；没有经过 {@link MetricsHandler} 的请求（如直接调用处理器）临时创建一个，不保存到请求属性上
+     */
+    public static RequestContext get(HttpExchange exchange) {
+        Object context = exchange.getAttribute(ATTRIBUTE);
+        if (context instanceof RequestContext) {
+            return (RequestContext) context;
+        }
+        // JDK 自带的 HttpExchange 属性由同一路由的所有请求共享，不能在上面保存
+        return new RequestContext(exchange, RequestTiming.get(exchange));
+    }
+
+    /**
+     * 解码后的查询参数值，参数不存在或没有值时返回 null
+     */
+    public String getParam(String name) {
+        return getParams().get(name);
+    }
+
+    public QueryStrings.Params getParams() {
+        if (params == null) {
+            params = QueryStrings.parse(exchange.getRequestURI().getRawQuery());
+        }
+        return params;
+    }
+
+    /**
+     * 流量录制时取出的请求体，没有录制时为 null
+     */
+    public byte[] getCapturedBody() {
+        return capturedBody;
+    }
+
+    public void setCapturedBody(byte[] capturedBody) {
+        this.capturedBody = capturedBody;
+    }
+
+    public String getClientIp() {
+        if (clientIp == null) {
+            clientIp = exchange.getRemoteAddress().getAddress().getHostAddress();
+        }
+        return clientIp;
+    }
+
+    /**
+     * 请求携带的 API 密钥：优先使用 X-API-Key 请求头，其次是 api_key 查询参数，都没有时返回 null
+     */
+    public String getApiKey() {
+        if (!apiKeyResolved) {
+            String key = exchange.getRequestHeaders().getFirst("X-API-Key");
+            apiKey = key != null && !key.isEmpty() ? key : getParam("api_key");
+            apiKeyResolved = true;
+        }
+        return apiKey;
+    }
+
+    /**
+     * 请求的分阶段计时，没有计时上下文时返回 null
+     */
+    public RequestTiming getTiming() {
+        return timing;
+    }
+}
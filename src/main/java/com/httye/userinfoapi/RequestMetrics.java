@@ -0,0 +1,142 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 请求延迟统计
+ * 每个路由、每个响应状态码一个 {@link LatencyHistogram}，另外每个路由汇总一个不区分状态码的直方图
+ */
+public class RequestMetrics {
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> phases = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次请求
+     *
+     * @param route      路由路径，如 /api/user/info
+     * @param statusCode 响应状态码，未写出响应时为 -1
+     * @param nanos      请求耗时（纳秒）
+     */
+    public void record(String route, int statusCode, long nanos) {
+        routes.computeIfAbsent(route, RouteMetrics::new).record(statusCode, nanos);
+    }
+
+    /**
+     * 记录请求各阶段的耗时（见 {@link RequestTiming}）
+     */
+    public void recordPhases(RequestTiming timing) {
+        int count = timing.getPhaseCount();
+        for (int i = 0; i < count; i++) {
+            phases.computeIfAbsent(timing.getPhase(i), phase -> new LatencyHistogram()).record(timing.getDuration(i));
+        }
+    }
+
+    public Map<String, RouteMetrics> getRoutes() {
+        return routes;
+    }
+
+    public Map<String, LatencyHistogram> getPhases() {
+        return phases;
+    }
+
+    /**
+     * 获取各阶段的延迟统计
+     */
+    public JsonObject getPhaseStats() {
+        JsonObject stats = new JsonObject();
+        for (Map.Entry<String, LatencyHistogram> entry : phases.entrySet()) {
+            stats.add(entry.getKey(), entry.getValue().getStats());
+        }
+        return stats;
+    }
+
+    public long getTotalRequests() {
+        long total = 0;
+        for (RouteMetrics route : routes.values()) {
+            total += route.getAll().getTotalCount();
+        }
+        return total;
+    }
+
+    /**
+     * 按状态码统计请求数，successful 为 true 时统计 2xx/3xx，否则统计其余状态码
+     */
+    public long countRequests(boolean successful) {
+        long total = 0;
+        for (RouteMetrics route : routes.values()) {
+            for (Map.Entry<Integer, LatencyHistogram> entry : route.getByStatus().entrySet()) {
+                int status = entry.getKey();
+                if ((status >= 200 && status < 400) == successful) {
+                    total += entry.getValue().getTotalCount();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 所有路由的累计平均耗时（毫秒）
+     */
+    public double getAverageResponseTime() {
+        long count = 0;
+        long micros = 0;
+        for (RouteMetrics route : routes.values()) {
+            count += route.getAll().getTotalCount();
+            micros += route.getAll().getTotalMicros();
+        }
+        return count > 0 ? micros / 1000.0 / count : 0.0;
+    }
+
+    /**
+     * 获取所有路由的延迟统计
+     */
+    public JsonObject getStats() {
+        JsonObject stats = new JsonObject();
+        for (RouteMetrics route : routes.values()) {
+            JsonObject routeStats = route.getAll().getStats();
+
+            JsonObject statuses = new JsonObject();
+            for (Map.Entry<Integer, LatencyHistogram> entry : route.getByStatus().entrySet()) {
+                statuses.add(String.valueOf(entry.getKey()), entry.getValue().getStats());
+            }
+            routeStats.add("status", statuses);
+
+            stats.add(route.getRoute(), routeStats);
+        }
+        return stats;
+    }
+
+    /**
+     * 单个路由的延迟统计
+     */
+    public static class RouteMetrics {
+        private final String route;
+        private final LatencyHistogram all = new LatencyHistogram();
+        private final Map<Integer, LatencyHistogram> byStatus = new ConcurrentHashMap<>();
+
+        RouteMetrics(String route) {
+            this.route = route;
+        }
+
+        void record(int statusCode, long nanos) {
+            all.record(nanos);
+            byStatus.computeIfAbsent(statusCode, code -> new LatencyHistogram()).record(nanos);
+        }
+
+        public String getRoute() {
+            return route;
+        }
+
+        public LatencyHistogram getAll() {
+            return all;
+        }
+
+        public Map<Integer, LatencyHistogram> getByStatus() {
+            return byStatus;
+        }
+    }
+}
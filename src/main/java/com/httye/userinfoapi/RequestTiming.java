@@ -0,0 +1,168 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.util.Arrays;
+
+/**
+ * 单个请求的分阶段计时
+ * 由 {@link MetricsHandler} 创建并挂在请求属性上，处理链中的各个环节调用 {@link #mark(HttpExchange, String)}
+ * 记录自上一个标记以来的耗时。响应头写出时生成 Server-Timing，请求结束后汇总到各阶段的直方图
+ */
+public class RequestTiming {
+
+    public static final String ATTRIBUTE = "userinfoapi.timing";
+
+    // 同步处理器从最后一个标记到写出响应头的耗时
+    public static final String PHASE_HANDLER = "handler";
+    // 写出响应头到请求结束（响应体写出）的耗时
+    public static final String PHASE_WRITE = "write";
+
+    private final boolean serverTimingHeader;
+    private final long start;
+    private long lastMark;
+    private long headersSent;
+    private long responseBytes = -1;
+    private long end;
+    private boolean headersWritten;
+    private boolean completed;
+    private boolean async;
+
+    private String[] phases = new String[6];
+    private long[] durations = new long[6];
+    private int count;
+
+    public RequestTiming(boolean serverTimingHeader) {
+        this.serverTimingHeader = serverTimingHeader;
+        this.start = System.nanoTime();
+        this.lastMark = start;
+    }
+
+    public static RequestTiming get(HttpExchange exchange) {
+        Object timing = exchange.getAttribute(ATTRIBUTE);
+        return timing instanceof RequestTiming ? (RequestTiming) timing : null;
+    }
+
+    /**
+     * 记录阶段耗时（从上一个标记到现在），请求没有计时上下文时忽略
+     */
+    public static void mark(HttpExchange exchange, String phase) {
+        RequestTiming timing = get(exchange);
+        if (timing != null) {
+            timing.mark(phase);
+        }
+    }
+
+    public synchronized void mark(String phase) {
+        long now = System.nanoTime();
+        add(phase, now - lastMark);
+        lastMark = now;
+    }
+
+    public synchronized boolean has(String phase) {
+        for (int i = 0; i < count; i++) {
+            if (phases[i].equals(phase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 标记为异步请求：各阶段由处理器自行标记，写出响应头时不再补记 handler 阶段
+     */
+    public synchronized void setAsync() {
+        this.async = true;
+    }
+
+    /**
+     * 写出响应头时调用，返回 Server-Timing 头的值；未启用该响应头时返回 null
+     */
+    public synchronized String onHeadersSent(long responseLength) {
+        headersSent = System.nanoTime();
+        responseBytes = responseLength;
+        headersWritten = true;
+        if (!async && headersSent > lastMark) {
+            add(PHASE_HANDLER, headersSent - lastMark);
+            lastMark = headersSent;
+        }
+
+        if (!serverTimingHeader) {
+            return null;
+        }
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            header.append(phases[i]).append(";dur=").append(formatMillis(durations[i])).append(", ");
+        }
+        header.append("total;dur=").append(formatMillis(headersSent - start));
+        return header.toString();
+    }
+
+    /**
+     * 请求结束时调用，补记响应体写出阶段
+     */
+    public synchronized void complete() {
+        end = System.nanoTime();
+        completed = true;
+        if (headersWritten) {
+            add(PHASE_WRITE, end - headersSent);
+        }
+    }
+
+    private void add(String phase, long nanos) {
+        if (count == phases.length) {
+            phases = Arrays.copyOf(phases, count * 2);
+            durations = Arrays.copyOf(durations, count * 2);
+        }
+        phases[count] = phase;
+        durations[count] = nanos;
+        count++;
+    }
+
+    /**
+     * 响应体长度，0 表示分块传输，未写出响应时为 -1
+     */
+    public synchronized long getResponseBytes() {
+        return responseBytes;
+    }
+
+    public synchronized int getPhaseCount() {
+        return count;
+    }
+
+    public synchronized String getPhase(int index) {
+        return phases[index];
+    }
+
+    public synchronized long getDuration(int index) {
+        return durations[index];
+    }
+
+    /**
+     * 总耗时（纳秒），请求未结束时为到目前为止的耗时
+     */
+    public synchronized long getTotalNanos() {
+        return (completed ? end : System.nanoTime()) - start;
+    }
+
+    /**
+     * 各阶段耗时的文本形式，如 ratelimit=0.02ms auth=0.31ms query=12.5ms
+     */
+    public synchronized String describe() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(phases[i]).append('=').append(formatMillis(durations[i])).append("ms");
+        }
+        return text.toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        // 保留两位小数，避免 String.format 的开销
+        long hundredths = nanos / 10_000;
+        long fraction = hundredths % 100;
+        return (hundredths / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -0,0 +1,135 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * 资源采样历史
+ * 每个指标一个定长的基本类型数组，按环形缓冲区覆盖最旧的数据，采样期间不产生额外对象
+ */
+public class ResourceHistory {
+
+    private final int capacity;
+    private final long[] timestamps;
+    private final long[] heapUsed;
+    private final long[] heapCommitted;
+    private final long[] nonHeapUsed;
+    private final float[] cpuUsage;
+    private final float[] processCpu;
+    private final float[] apiCpu;
+    private final float[] allocationRate;
+    private final float[] apiAllocationRate;
+    private final float[] systemLoad;
+    private final float[] tps;
+    private final float[] mspt;
+    private final int[] threadCount;
+    private final int[] onlinePlayers;
+
+    // 已写入的采样总数，下一个写入位置为 written % capacity
+    private long written;
+
+    public ResourceHistory(int capacity) {
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.heapUsed = new long[capacity];
+        this.heapCommitted = new long[capacity];
+        this.nonHeapUsed = new long[capacity];
+        this.cpuUsage = new float[capacity];
+        this.processCpu = new float[capacity];
+        this.apiCpu = new float[capacity];
+        this.allocationRate = new float[capacity];
+        this.apiAllocationRate = new float[capacity];
+        this.systemLoad = new float[capacity];
+        this.tps = new float[capacity];
+        this.mspt = new float[capacity];
+        this.threadCount = new int[capacity];
+        this.onlinePlayers = new int[capacity];
+    }
+
+    public synchronized void add(ServerResourceMonitor.Sample sample) {
+        int index = (int) (written % capacity);
+        timestamps[index] = sample.timestamp;
+        heapUsed[index] = sample.heapUsed;
+        heapCommitted[index] = sample.heapCommitted;
+        nonHeapUsed[index] = sample.nonHeapUsed;
+        cpuUsage[index] = (float) sample.getCpuUsagePercent();
+        processCpu[index] = (float) sample.getProcessCpuPercent();
+        apiCpu[index] = (float) sample.getApiCpuPercent();
+        allocationRate[index] = (float) sample.getAllocationRate();
+        apiAllocationRate[index] = (float) sample.getApiAllocationRate();
+        systemLoad[index] = (float) sample.systemLoadAverage;
+        tps[index] = (float) sample.tps[0];
+        mspt[index] = (float) sample.mspt;
+        threadCount[index] = sample.threadCount;
+        onlinePlayers[index] = sample.onlinePlayers;
+        written++;
+    }
+
+    public synchronized int size() {
+        return (int) Math.min(written, capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 导出指定时间之后的采样，按时间从旧到新，每个指标一个数值数组
+     */
+    public synchronized JsonObject toJson(long sinceMillis) {
+        JsonArray timestampArray = new JsonArray();
+        JsonArray heapUsedArray = new JsonArray();
+        JsonArray heapCommittedArray = new JsonArray();
+        JsonArray nonHeapUsedArray = new JsonArray();
+        JsonArray cpuUsageArray = new JsonArray();
+        JsonArray processCpuArray = new JsonArray();
+        JsonArray apiCpuArray = new JsonArray();
+        JsonArray allocationRateArray = new JsonArray();
+        JsonArray apiAllocationRateArray = new JsonArray();
+        JsonArray systemLoadArray = new JsonArray();
+        JsonArray tpsArray = new JsonArray();
+        JsonArray msptArray = new JsonArray();
+        JsonArray threadCountArray = new JsonArray();
+        JsonArray onlinePlayersArray = new JsonArray();
+
+        long oldest = Math.max(0, written - capacity);
+        for (long n = oldest; n < written; n++) {
+            int index = (int) (n % capacity);
+            if (timestamps[index] < sinceMillis) {
+                continue;
+            }
+            timestampArray.add(timestamps[index]);
+            heapUsedArray.add(heapUsed[index]);
+            heapCommittedArray.add(heapCommitted[index]);
+            nonHeapUsedArray.add(nonHeapUsed[index]);
+            cpuUsageArray.add(cpuUsage[index]);
+            processCpuArray.add(processCpu[index]);
+            apiCpuArray.add(apiCpu[index]);
+            allocationRateArray.add(allocationRate[index]);
+            apiAllocationRateArray.add(apiAllocationRate[index]);
+            systemLoadArray.add(systemLoad[index]);
+            tpsArray.add(tps[index]);
+            msptArray.add(mspt[index]);
+            threadCountArray.add(threadCount[index]);
+            onlinePlayersArray.add(onlinePlayers[index]);
+        }
+
+        JsonObject series = new JsonObject();
+        series.addProperty("count", timestampArray.size());
+        series.add("timestamps", timestampArray);
+        series.add("heapUsed", heapUsedArray);
+        series.add("heapCommitted", heapCommittedArray);
+        series.add("nonHeapUsed", nonHeapUsedArray);
+        series.add("cpuUsage", cpuUsageArray);
+        series.add("processCpu", processCpuArray);
+        series.add("apiCpu", apiCpuArray);
+        series.add("allocationRate", allocationRateArray);
+        series.add("apiAllocationRate", apiAllocationRateArray);
+        series.add("systemLoad", systemLoadArray);
+        series.add("tps", tpsArray);
+        series.add("mspt", msptArray);
+        series.add("threadCount", threadCountArray);
+        series.add("onlinePlayers", onlinePlayersArray);
+        return series;
+    }
+}
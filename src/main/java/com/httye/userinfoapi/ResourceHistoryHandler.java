@@ -0,0 +1,91 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 服务器资源历史API处理器
+ * 返回后台采样线程记录的数值时间序列，如 /api/server/resources/history?range=1h
+ */
+public class ResourceHistoryHandler implements HttpHandler {
+
+    private final ServerResourceMonitor monitor;
+
+    public ResourceHistoryHandler() {
+        this.monitor = UserInfoAPIPlugin.getInstance().getResourceMonitor();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String range = RequestContext.get(exchange).getParam("range");
+        if (range == null || range.isEmpty()) {
+            range = "1h";
+        }
+
+        long rangeMillis = parseRange(range);
+        if (rangeMillis <= 0) {
+            sendErrorResponse(exchange, 400, "无效的range参数，格式如: 30s, 15m, 1h, 1d");
+            return;
+        }
+
+        ResourceHistory history = monitor.getHistory();
+        long now = System.currentTimeMillis();
+
+        JsonObject response = history.toJson(now - rangeMillis);
+        response.addProperty("range", range);
+        response.addProperty("interval", monitor.getIntervalSeconds());
+        response.addProperty("maxRange", (history.getCapacity() * monitor.getIntervalSeconds()) + "s");
+        response.addProperty("timestamp", now);
+
+        sendResponse(exchange, 200, response.toString());
+    }
+
+    /**
+     * 解析时间范围（毫秒），不带单位时按秒计算，格式错误返回 -1
+     */
+    static long parseRange(String range) {
+        char unit = range.charAt(range.length() - 1);
+        long multiplier;
+        String number = range.substring(0, range.length() - 1);
+        switch (unit) {
+            case 's': multiplier = 1000L; break;
+            case 'm': multiplier = 60_000L; break;
+            case 'h': multiplier = 3_600_000L; break;
+            case 'd': multiplier = 86_400_000L; break;
+            default:
+                multiplier = 1000L;
+                number = range;
+        }
+
+        try {
+            long value = Long.parseLong(number);
+            return value > 0 ? value * multiplier : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, X-API-Key");
+
+        byte[] bytes = response.getBytes("UTF-8");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private void sendErrorResponse(HttpExchange exchange, int statusCode, String message) throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", message);
+        sendResponse(exchange, statusCode, error.toString());
+    }
+}
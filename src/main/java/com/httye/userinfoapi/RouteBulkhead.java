@@ -0,0 +1,81 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 路由隔离舱 (bulkhead)
+ * 限制单个路由同时处理的请求数，避免重量级接口占满整个工作线程池
+ */
+public class RouteBulkhead {
+
+    /**
+     * 不限制并发（只统计），用于没有配置并发上限、只在自适应限流时才需要限制的路由
+     */
+    public static final int UNLIMITED = -1;
+
+    private final String route;
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+    private volatile int limit;
+
+    public RouteBulkhead(String route, int limit) {
+        this.route = route;
+        this.limit = limit;
+    }
+
+    /**
+     * 尝试占用一个并发名额，已满时立即返回 false
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            int max = limit;
+            if (max != UNLIMITED && current >= max) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * 当前并发上限，{@link #UNLIMITED} 表示不限制
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public JsonObject getStats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("route", route);
+        stats.addProperty("limit", limit);
+        stats.addProperty("inFlight", inFlight.get());
+        stats.addProperty("rejected", rejected.get());
+        return stats;
+    }
+}
@@ -5,7 +5,6 @@ import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.InetSocketAddress;
 
 public class SecurityHandler implements HttpHandler {
     
@@ -31,26 +30,33 @@ public class SecurityHandler implements HttpHandler {
         }
         
         // 记录API密钥使用
-        String apiKey = getApiKey(exchange);
+        String apiKey = RequestContext.get(exchange).getApiKey();
         if (apiKey != null) {
             plugin.getSecurityManager().recordApiKeyUsage(apiKey);
         }
+        RequestTiming.mark(exchange, "auth");
         
         // 调用实际的处理器
         wrappedHandler.handle(exchange);
     }
     
     private boolean checkSecurity(HttpExchange exchange) throws IOException {
+        RequestContext context = RequestContext.get(exchange);
+        
         // IP地址验证
-        String clientIP = getClientIP(exchange);
+        String clientIP = context.getClientIp();
         if (!plugin.getSecurityManager().validateIPAddress(clientIP)) {
+            plugin.getSecurityManager().recordRejectedIP();
+            RequestTiming.mark(exchange, "auth");
             sendSecurityError(exchange, 403, "IP地址被拒绝访问");
             return false;
         }
         
         // API密钥验证
-        String apiKey = getApiKey(exchange);
+        String apiKey = context.getApiKey();
         if (!plugin.getSecurityManager().validateApiKey(apiKey)) {
+            plugin.getSecurityManager().recordRejectedApiKey();
+            RequestTiming.mark(exchange, "auth");
             sendSecurityError(exchange, 401, "无效的API密钥或缺少认证");
             return false;
         }
@@ -58,31 +64,6 @@ public class SecurityHandler implements HttpHandler {
         return true;
     }
     
-    private String getClientIP(HttpExchange exchange) {
-        // 获取客户端真实IP地址
-        InetSocketAddress remoteAddress = exchange.getRemoteAddress();
-        return remoteAddress.getAddress().getHostAddress();
-    }
-    
-    private String getApiKey(HttpExchange exchange) {
-        // 从请求头获取API密钥
-        String apiKey = exchange.getRequestHeaders().getFirst("X-API-Key");
-        if (apiKey == null) {
-            // 从查询参数获取API密钥
-            String query = exchange.getRequestURI().getQuery();
-            if (query != null) {
-                String[] params = query.split("&");
-                for (String param : params) {
-                    String[] keyValue = param.split("=");
-                    if (keyValue.length == 2 && keyValue[0].equals("api_key")) {
-                        return keyValue[1];
-                    }
-                }
-            }
-        }
-        return apiKey;
-    }
-    
     private void sendSecurityError(HttpExchange exchange, int statusCode, String message) throws IOException {
         String response = "{\"error\": \"" + message + "\", \"code\": " + statusCode + "}";
         
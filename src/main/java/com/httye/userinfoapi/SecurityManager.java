@@ -12,26 +12,45 @@ import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SecurityManager {
     
     private final UserInfoAPIPlugin plugin;
     private final Gson gson;
     private final Map<String, ApiKey> apiKeys;
-    private final Set<String> allowedIPs;
+    private final IpAllowList allowedIPs;
     private final SecureRandom random;
     private boolean securityEnabled;
     
+    // 认证失败统计
+    private final AtomicLong rejectedIPs = new AtomicLong(0);
+    private final AtomicLong rejectedApiKeys = new AtomicLong(0);
+    
     public SecurityManager(UserInfoAPIPlugin plugin) {
         this.plugin = plugin;
         this.gson = new Gson();
         this.apiKeys = new ConcurrentHashMap<>();
-        this.allowedIPs = ConcurrentHashMap.newKeySet();
         this.random = new SecureRandom();
         this.securityEnabled = plugin.getConfig().getBoolean("security.enabled", false);
+        this.allowedIPs = loadAllowedIPs();
         
         loadApiKeys();
-        loadAllowedIPs();
+    }
+    
+    /**
+     * 不读取配置和密钥文件，供基准测试使用；密钥变更不会保存
+     */
+    SecurityManager(boolean securityEnabled, Collection<String> allowedIPs, Collection<String> keys) {
+        this.plugin = null;
+        this.gson = new Gson();
+        this.apiKeys = new ConcurrentHashMap<>();
+        this.random = new SecureRandom();
+        this.securityEnabled = securityEnabled;
+        this.allowedIPs = new IpAllowList(allowedIPs);
+        for (String key : keys) {
+            apiKeys.put(key, new ApiKey(key, key, "", new Date(), true));
+        }
     }
     
     public boolean isSecurityEnabled() {
@@ -74,7 +93,7 @@ public class SecurityManager {
             return true; // 如果没有设置允许的IP，允许所有IP
         }
         
-        return allowedIPs.contains(ipAddress) || isIPInRange(ipAddress);
+        return allowedIPs.contains(ipAddress);
     }
     
     public JsonObject getSecurityInfo() {
@@ -121,6 +140,22 @@ public class SecurityManager {
         }
     }
     
+    public void recordRejectedIP() {
+        rejectedIPs.incrementAndGet();
+    }
+    
+    public void recordRejectedApiKey() {
+        rejectedApiKeys.incrementAndGet();
+    }
+    
+    public long getRejectedIPs() {
+        return rejectedIPs.get();
+    }
+    
+    public long getRejectedApiKeys() {
+        return rejectedApiKeys.get();
+    }
+    
     private String generateSecureKey() {
         String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
         StringBuilder key = new StringBuilder("UK_"); // API Key 前缀
@@ -148,6 +183,9 @@ public class SecurityManager {
     }
     
     private void saveApiKeys() {
+        if (plugin == null) {
+            return;
+        }
         File keysFile = new File(plugin.getDataFolder(), "api_keys.json");
         try (FileWriter writer = new FileWriter(keysFile)) {
             gson.toJson(apiKeys, writer);
@@ -156,48 +194,9 @@ public class SecurityManager {
         }
     }
     
-    private void loadAllowedIPs() {
+    private IpAllowList loadAllowedIPs() {
         List<String> ips = plugin.getConfig().getStringList("security.allowed-ips");
-        allowedIPs.addAll(ips);
-    }
-    
-    private boolean isIPInRange(String ipAddress) {
-        // 简单的IP范围检查，支持 CIDR 表示法
-        for (String allowedIP : allowedIPs) {
-            if (allowedIP.contains("/")) {
-                // CIDR 表示法，如 192.168.1.0/24
-                if (isIPInCIDR(ipAddress, allowedIP)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-    
-    private boolean isIPInCIDR(String ip, String cidr) {
-        try {
-            String[] parts = cidr.split("/");
-            String baseIP = parts[0];
-            int prefixLength = Integer.parseInt(parts[1]);
-            
-            long ipLong = ipToLong(ip);
-            long baseIPLong = ipToLong(baseIP);
-            long mask = -1 << (32 - prefixLength);
-            
-            return (ipLong & mask) == (baseIPLong & mask);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-    
-    private long ipToLong(String ipAddress) {
-        String[] ipParts = ipAddress.split("\\.");
-        long result = 0;
-        for (int i = 0; i < 4; i++) {
-            result = result << 8;
-            result |= Integer.parseInt(ipParts[i]);
-        }
-        return result;
+        return new IpAllowList(ips);
     }
     
     private int getActiveApiKeyCount() {
@@ -22,7 +22,7 @@ public class ServerResourceHandler implements HttpHandler {
         this.plugin = UserInfoAPIPlugin.getInstance();
         this.apiServer = plugin.getApiServer();
         this.gson = plugin.getGson();
-        this.monitor = new ServerResourceMonitor();
+        this.monitor = plugin.getResourceMonitor();
     }
 
     @Override
@@ -30,8 +30,8 @@ public class ServerResourceHandler implements HttpHandler {
         long startTime = System.currentTimeMillis();
 
         try {
-            String query = exchange.getRequestURI().getQuery();
-            String type = getQueryParam(query, "type");
+            RequestContext context = RequestContext.get(exchange);
+            String type = context.getParam("type");
 
             JsonObject response = new JsonObject();
 
@@ -55,8 +55,35 @@ public class ServerResourceHandler implements HttpHandler {
                 ServerResourceMonitor.ResourceInfo tpsInfo = monitor.getTpsInfo();
                 response.add("data", gson.toJsonTree(tpsInfo));
                 response.addProperty("type", "tps");
+            } else if (type.equals("gc")) {
+                // GC耗时、触发原因、最近事件和分配速率
+                response.add("data", monitor.getGcInfo());
+                response.addProperty("type", "gc");
+            } else if (type.equals("worlds")) {
+                // 各世界的区块、实体和方块实体数（来自主线程定时采样）
+                WorldSampler worldSampler = plugin.getWorldSampler();
+                if (worldSampler == null) {
+                    sendErrorResponse(exchange, 404, "世界采样未启用");
+                    return;
+                }
+                response.add("data", worldSampler.getStats());
+                response.addProperty("type", "worlds");
+            } else if (type.equals("throttle")) {
+                // 自适应限流状态
+                AdaptiveThrottle throttle = apiServer.getThrottle();
+                if (throttle == null) {
+                    sendErrorResponse(exchange, 404, "自适应限流未启用");
+                    return;
+                }
+                response.add("data", throttle.getStats());
+                response.addProperty("type", "throttle");
+            } else if (type.equals("latency")) {
+                // 各路由的请求延迟分位数
+                response.add("data", apiServer.getRequestMetrics().getStats());
+                response.add("phases", apiServer.getRequestMetrics().getPhaseStats());
+                response.addProperty("type", "latency");
             } else {
-                sendErrorResponse(exchange, 400, "无效的类型参数，支持: all, memory, cpu, tps");
+                sendErrorResponse(exchange, 400, "无效的类型参数，支持: all, memory, cpu, tps, gc, worlds, throttle, latency");
                 return;
             }
 
@@ -70,20 +97,10 @@ public class ServerResourceHandler implements HttpHandler {
 
             sendResponse(exchange, 200, response.toString());
 
-            if (apiServer != null) {
-                apiServer.recordRequest(true, responseTime);
-            }
-
         } catch (Exception e) {
             e.printStackTrace();
 
-            long responseTime = System.currentTimeMillis() - startTime;
-
-            if (apiServer != null) {
-                apiServer.recordRequest(false, responseTime);
-            }
-
-            sendErrorResponse(exchange, 500, "处理请求时发生错误: " + e.getMessage());
+            sendErrorResponse(exchange, 500, ApiResponse.errorMessage("处理请求时发生错误", e));
         }
     }
 
@@ -106,19 +123,4 @@ public class ServerResourceHandler implements HttpHandler {
         error.addProperty("error", message);
         sendResponse(exchange, statusCode, error.toString());
     }
-
-    private String getQueryParam(String query, String paramName) {
-        if (query == null || query.isEmpty()) {
-            return null;
-        }
-
-        String[] params = query.split("&");
-        for (String param : params) {
-            String[] keyValue = param.split("=");
-            if (keyValue.length == 2 && keyValue[0].equals(paramName)) {
-                return keyValue[1];
-            }
-        }
-        return null;
-    }
 }
\ No newline at end of file
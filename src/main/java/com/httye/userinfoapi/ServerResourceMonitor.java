@@ -1,52 +1,203 @@
 package com.httye.userinfoapi;
 
+import com.google.gson.JsonObject;
 import org.bukkit.Bukkit;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
 import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
 import java.text.DecimalFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 服务器资源监控器
- * 监控服务器内存和CPU使用情况
+ * 后台线程按 resource-monitoring.refresh-interval 定时采样内存、CPU、TPS、线程数和在线人数，
+ * 写入 {@link ResourceHistory}。接口直接返回最近一次采样结果，不再在请求线程上读取 MXBean。
+ * CPU 使用率取自 com.sun.management.OperatingSystemMXBean，各线程分组的 CPU 和分配由 {@link ThreadUsageTracker} 统计，
+ * GC 事件和堆分配量由 {@link GcMonitor} 统计
  */
 public class ServerResourceMonitor {
 
+    // DecimalFormat 不是线程安全的，每个线程使用自己的实例
+    private static final ThreadLocal<DecimalFormat> DECIMAL_FORMAT = ThreadLocal.withInitial(() -> new DecimalFormat("#.##"));
+
+    private final UserInfoAPIPlugin plugin;
     private final MemoryMXBean memoryBean;
     private final OperatingSystemMXBean osBean;
-    private final DecimalFormat decimalFormat;
+    private final ThreadMXBean threadBean;
+    private final ThreadUsageTracker threadUsageTracker;
+    private final GcMonitor gcMonitor;
+    private final long intervalSeconds;
+    private final ResourceHistory history;
+    private ScheduledExecutorService sampler;
+    private volatile Sample latest;
 
-    public ServerResourceMonitor() {
+    public ServerResourceMonitor(UserInfoAPIPlugin plugin) {
+        this.plugin = plugin;
         this.memoryBean = ManagementFactory.getMemoryMXBean();
         this.osBean = ManagementFactory.getOperatingSystemMXBean();
-        this.decimalFormat = new DecimalFormat("#.##");
+        this.threadBean = ManagementFactory.getThreadMXBean();
+        this.threadUsageTracker = new ThreadUsageTracker(threadBean);
+        this.gcMonitor = new GcMonitor(plugin);
+        this.intervalSeconds = Math.max(1, plugin.getConfig().getLong("resource-monitoring.refresh-interval", 5));
+
+        // 保留的历史时长决定环形缓冲区大小
+        long historyMinutes = Math.max(1, plugin.getConfig().getLong("resource-monitoring.history-minutes", 360));
+        this.history = new ResourceHistory((int) Math.max(1, historyMinutes * 60 / intervalSeconds));
     }
 
     /**
-     * 获取内存使用情况
+     * 启动采样线程；resource-monitoring.enabled 为 false 时不启动，接口在请求时现场采样。GC 通知始终订阅
      */
-    public ResourceInfo getMemoryInfo() {
+    public void start() {
+        gcMonitor.start();
+
+        if (!plugin.getConfig().getBoolean("resource-monitoring.enabled", true)) {
+            return;
+        }
+
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UserInfoAPI-ResourceSampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sampleNow, 0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        gcMonitor.stop();
+        if (sampler != null) {
+            sampler.shutdownNow();
+            sampler = null;
+        }
+    }
+
+    private void sampleNow() {
+        try {
+            Sample sample = takeSample();
+            history.add(sample);
+            latest = sample;
+        } catch (Throwable t) {
+            // 不能让异常终止定时任务
+            plugin.getLogger().warning("资源采样失败: " + t.getMessage());
+        }
+    }
+
+    /**
+     * 读取一次当前的资源数据
+     */
+    private Sample takeSample() {
         MemoryUsage heapUsage = memoryBean.getHeapMemoryUsage();
         MemoryUsage nonHeapUsage = memoryBean.getNonHeapMemoryUsage();
 
-        long usedMemory = heapUsage.getUsed();
-        long maxMemory = heapUsage.getMax();
-        long committedMemory = heapUsage.getCommitted();
+        Sample sample = new Sample();
+        sample.timestamp = System.currentTimeMillis();
+        sample.heapUsed = heapUsage.getUsed();
+        sample.heapMax = heapUsage.getMax();
+        sample.heapCommitted = heapUsage.getCommitted();
+        sample.nonHeapUsed = nonHeapUsage.getUsed();
+        sample.nonHeapMax = nonHeapUsage.getMax();
+        sample.availableProcessors = osBean.getAvailableProcessors();
+        sample.systemLoadAverage = osBean.getSystemLoadAverage();
+        sample.threadCount = threadBean.getThreadCount();
+
+        // HotSpot/OpenJ9 提供的扩展接口，返回 0~1，负数表示暂不可用
+        sample.processCpuLoad = -1;
+        sample.systemCpuLoad = -1;
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean extendedBean = (com.sun.management.OperatingSystemMXBean) osBean;
+            sample.processCpuLoad = extendedBean.getProcessCpuLoad();
+            sample.systemCpuLoad = extendedBean.getCpuLoad();
+        }
+        sample.threadUsage = threadUsageTracker.sample();
+
+        // 与上一次采样比较得到堆分配速率
+        sample.allocatedBytes = gcMonitor.getAllocatedBytes(sample.heapUsed);
+        sample.allocationRate = -1;
+        Sample previous = latest;
+        if (previous != null && sample.timestamp > previous.timestamp) {
+            sample.allocationRate = Math.max(0, sample.allocatedBytes - previous.allocatedBytes) * 1000.0
+                    / (sample.timestamp - previous.timestamp);
+        }
+
+        // 使用Bukkit API获取TPS（Paper API 提供了 getTPS() 方法）
+        sample.tps = new double[] {20.0, 20.0, 20.0};
+        try {
+            double[] tps = Bukkit.getTPS();
+            if (tps != null && tps.length >= 3) {
+                sample.tps = tps.clone();
+            }
+            sample.mspt = Bukkit.getAverageTickTime();
+        } catch (Throwable t) {
+            // 如果无法获取TPS，使用默认值
+        }
+
+        sample.onlinePlayers = Bukkit.getOnlinePlayers().size();
+        return sample;
+    }
+
+    /**
+     * 最近一次采样结果；采样线程未启动或尚未完成首次采样时现场读取
+     */
+    public Sample getLatestSample() {
+        Sample sample = latest;
+        return sample != null ? sample : takeSample();
+    }
+
+    public ThreadUsageTracker getThreadUsageTracker() {
+        return threadUsageTracker;
+    }
+
+    /**
+     * 最近的每 tick 耗时（毫秒）：Paper 上为最近 10 秒的 p95，否则为服务端提供的平均值
+     */
+    public double getRecentMspt() {
+        TickMonitor tickMonitor = plugin.getTickMonitor();
+        if (tickMonitor != null && tickMonitor.getHistogram().getTotalCount() > 0) {
+            return tickMonitor.getRecentPercentile(95.0);
+        }
+        return getLatestSample().getMspt();
+    }
+
+    public GcMonitor getGcMonitor() {
+        return gcMonitor;
+    }
+
+    public ResourceHistory getHistory() {
+        return history;
+    }
 
-        double memoryUsagePercent = (maxMemory > 0) ?
-                (double) usedMemory / maxMemory * 100 : 0;
+    public long getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    /**
+     * 获取内存使用情况
+     */
+    public ResourceInfo getMemoryInfo() {
+        return getMemoryInfo(getLatestSample());
+    }
+
+    private ResourceInfo getMemoryInfo(Sample sample) {
+        DecimalFormat decimalFormat = DECIMAL_FORMAT.get();
+        double memoryUsagePercent = (sample.heapMax > 0) ?
+                (double) sample.heapUsed / sample.heapMax * 100 : 0;
 
         ResourceInfo info = new ResourceInfo();
         info.setType("memory");
-        info.setUsed(formatBytes(usedMemory));
-        info.setMax(formatBytes(maxMemory));
-        info.setCommitted(formatBytes(committedMemory));
+        info.setUsed(formatBytes(sample.heapUsed));
+        info.setMax(formatBytes(sample.heapMax));
+        info.setCommitted(formatBytes(sample.heapCommitted));
         info.setUsagePercent(decimalFormat.format(memoryUsagePercent));
-        info.setFree(formatBytes(maxMemory - usedMemory));
-        info.setNonHeapUsed(formatBytes(nonHeapUsage.getUsed()));
-        info.setNonHeapMax(formatBytes(nonHeapUsage.getMax()));
+        info.setFree(formatBytes(sample.heapMax - sample.heapUsed));
+        info.setNonHeapUsed(formatBytes(sample.nonHeapUsed));
+        info.setNonHeapMax(formatBytes(sample.nonHeapMax));
 
         return info;
     }
@@ -55,21 +206,37 @@ public class ServerResourceMonitor {
      * 获取CPU使用情况
      */
     public ResourceInfo getCpuInfo() {
+        return getCpuInfo(getLatestSample());
+    }
+
+    private ResourceInfo getCpuInfo(Sample sample) {
+        DecimalFormat decimalFormat = DECIMAL_FORMAT.get();
         ResourceInfo info = new ResourceInfo();
         info.setType("cpu");
 
         // 可用处理器数量
-        int availableProcessors = osBean.getAvailableProcessors();
-        info.setAvailableProcessors(availableProcessors);
+        info.setAvailableProcessors(sample.availableProcessors);
 
         // 系统负载平均值
-        double systemLoadAverage = osBean.getSystemLoadAverage();
-        info.setSystemLoadAverage(decimalFormat.format(systemLoadAverage));
+        info.setSystemLoadAverage(decimalFormat.format(sample.systemLoadAverage));
+
+        // 整机CPU使用率，JVM 不支持时退回基于负载平均值的估算
+        info.setUsagePercent(decimalFormat.format(sample.getCpuUsagePercent()));
+
+        // 本进程CPU使用率（占整机的百分比）
+        if (sample.processCpuLoad >= 0) {
+            info.setProcessUsagePercent(decimalFormat.format(sample.getProcessCpuPercent()));
+        }
 
-        // CPU使用率（基于负载平均值）
-        double cpuUsagePercent = (availableProcessors > 0) ?
-                (systemLoadAverage / availableProcessors) * 100 : 0;
-        info.setUsagePercent(decimalFormat.format(cpuUsagePercent));
+        // 各线程分组的CPU占用（单核百分比）
+        if (sample.threadUsage != null) {
+            Map<String, String> groups = new LinkedHashMap<>();
+            for (int i = 0; i < ThreadUsageTracker.GROUPS.length; i++) {
+                groups.put(ThreadUsageTracker.GROUPS[i], decimalFormat.format(sample.threadUsage.cpuPercent[i]));
+            }
+            info.setThreadGroups(groups);
+            info.setApiUsagePercent(decimalFormat.format(sample.getApiCpuPercent()));
+        }
 
         // 系统信息
         info.setOsName(osBean.getName());
@@ -79,36 +246,55 @@ public class ServerResourceMonitor {
         return info;
     }
 
+    /**
+     * 获取GC统计：各收集器的耗时分位数和触发原因、最近的GC事件、堆分配速率，以及各线程分组（含API线程）的分配速率
+     */
+    public JsonObject getGcInfo() {
+        Sample sample = getLatestSample();
+        JsonObject info = new JsonObject();
+        info.add("collectors", gcMonitor.getCollectorsJson());
+        info.addProperty("allocatedBytes", sample.allocatedBytes);
+        info.addProperty("allocationRate", Math.round(sample.allocationRate));
+
+        if (sample.threadUsage != null && sample.threadUsage.allocationRate != null) {
+            JsonObject groups = new JsonObject();
+            long[] totals = threadUsageTracker.getTotalAllocatedBytes();
+            for (int i = 0; i < ThreadUsageTracker.GROUPS.length; i++) {
+                JsonObject group = new JsonObject();
+                group.addProperty("allocationRate", Math.round(sample.threadUsage.allocationRate[i]));
+                group.addProperty("allocatedBytes", totals[i]);
+                groups.add(ThreadUsageTracker.GROUPS[i], group);
+            }
+            info.add("threadGroups", groups);
+            info.addProperty("apiAllocationRate", Math.round(sample.getApiAllocationRate()));
+        }
+
+        info.add("recent", gcMonitor.getRecentEventsJson());
+        return info;
+    }
+
     /**
      * 获取TPS（每秒刻数）
      */
     public ResourceInfo getTpsInfo() {
+        return getTpsInfo(getLatestSample());
+    }
+
+    private ResourceInfo getTpsInfo(Sample sample) {
+        DecimalFormat decimalFormat = DECIMAL_FORMAT.get();
         ResourceInfo info = new ResourceInfo();
         info.setType("tps");
+        info.setCurrentTps(decimalFormat.format(sample.tps[0])); // 最近1分钟
+        info.setTps1m(decimalFormat.format(sample.tps[0]));
+        info.setTps5m(decimalFormat.format(sample.tps[1]));
+        info.setTps15m(decimalFormat.format(sample.tps[2]));
+        info.setAverageMspt(decimalFormat.format(sample.mspt));
 
-        // 使用Bukkit API获取TPS
-        try {
-            // Paper API 提供了 getTPS() 方法
-            double[] tps = Bukkit.getTPS();
-            if (tps != null && tps.length > 0) {
-                info.setCurrentTps(decimalFormat.format(tps[0])); // 最近1分钟
-                info.setTps1m(decimalFormat.format(tps[0]));
-                info.setTps5m(decimalFormat.format(tps[1]));
-                info.setTps15m(decimalFormat.format(tps[2]));
-            } else {
-                info.setCurrentTps("20.00");
-                info.setTps1m("20.00");
-                info.setTps5m("20.00");
-                info.setTps15m("20.00");
-            }
-        } catch (Exception e) {
-            // 如果无法获取TPS，使用默认值
-            info.setCurrentTps("20.00");
-            info.setTps1m("20.00");
-            info.setTps5m("20.00");
-            info.setTps15m("20.00");
+        // 每 tick 耗时的分位数和慢 tick
+        TickMonitor tickMonitor = plugin.getTickMonitor();
+        if (tickMonitor != null) {
+            info.setMspt(tickMonitor.getStats());
         }
-
         return info;
     }
 
@@ -116,16 +302,18 @@ public class ServerResourceMonitor {
      * 获取完整的服务器资源信息
      */
     public ServerResourceInfo getServerResourceInfo() {
+        Sample sample = getLatestSample();
+
         ServerResourceInfo info = new ServerResourceInfo();
-        info.setMemory(getMemoryInfo());
-        info.setCpu(getCpuInfo());
-        info.setTps(getTpsInfo());
+        info.setMemory(getMemoryInfo(sample));
+        info.setCpu(getCpuInfo(sample));
+        info.setTps(getTpsInfo(sample));
 
         // 添加服务器基本信息
         info.setServerName(Bukkit.getName());
         info.setServerVersion(Bukkit.getVersion());
         info.setBukkitVersion(Bukkit.getBukkitVersion());
-        info.setOnlinePlayers(Bukkit.getOnlinePlayers().size());
+        info.setOnlinePlayers(sample.onlinePlayers);
         info.setMaxPlayers(Bukkit.getMaxPlayers());
 
         return info;
@@ -135,6 +323,7 @@ public class ServerResourceMonitor {
      * 格式化字节数
      */
     private String formatBytes(long bytes) {
+        DecimalFormat decimalFormat = DECIMAL_FORMAT.get();
         if (bytes < 1024) {
             return bytes + " B";
         } else if (bytes < 1024 * 1024) {
@@ -146,6 +335,78 @@ public class ServerResourceMonitor {
         }
     }
 
+    /**
+     * 一次采样的原始数值
+     */
+    public static class Sample {
+        long timestamp;
+        long heapUsed;
+        long heapMax;
+        long heapCommitted;
+        long nonHeapUsed;
+        long nonHeapMax;
+        int availableProcessors;
+        double systemLoadAverage;
+        int threadCount;
+        double processCpuLoad;
+        double systemCpuLoad;
+        ThreadUsageTracker.Usage threadUsage;
+        long allocatedBytes;
+        double allocationRate;
+        double[] tps;
+        double mspt;
+        int onlinePlayers;
+
+        public long getTimestamp() { return timestamp; }
+        public long getHeapUsed() { return heapUsed; }
+        public long getHeapMax() { return heapMax; }
+        public int getThreadCount() { return threadCount; }
+        public double getTps1m() { return tps[0]; }
+        public double getMspt() { return mspt; }
+        public int getOnlinePlayers() { return onlinePlayers; }
+
+        public double getCpuUsagePercent() {
+            if (systemCpuLoad >= 0) {
+                return systemCpuLoad * 100;
+            }
+            return (availableProcessors > 0 && systemLoadAverage >= 0) ? (systemLoadAverage / availableProcessors) * 100 : 0;
+        }
+
+        /**
+         * 本进程占整机CPU的百分比，不可用时为 -1
+         */
+        public double getProcessCpuPercent() {
+            return processCpuLoad >= 0 ? processCpuLoad * 100 : -1;
+        }
+
+        /**
+         * 本插件线程（HTTP、限流、其他 UserInfoAPI 线程）的CPU占用，单核百分比，不可用时为 -1
+         */
+        public double getApiCpuPercent() {
+            return threadUsage != null ? ThreadUsageTracker.Usage.apiTotal(threadUsage.cpuPercent) : -1;
+        }
+
+        /**
+         * 堆分配速率（字节/秒），按 GC 前后的堆用量估算，没有上一次采样时为 -1
+         */
+        public double getAllocationRate() { return allocationRate; }
+
+        /**
+         * 本插件线程的分配速率（字节/秒），不可用时为 -1
+         */
+        public double getApiAllocationRate() {
+            if (threadUsage == null || threadUsage.allocationRate == null) {
+                return -1;
+            }
+            return ThreadUsageTracker.Usage.apiTotal(threadUsage.allocationRate);
+        }
+
+        /**
+         * 各线程分组的使用情况，首次采样时为 null
+         */
+        public ThreadUsageTracker.Usage getThreadUsage() { return threadUsage; }
+    }
+
     /**
      * 资源信息类
      */
@@ -160,6 +421,9 @@ public class ServerResourceMonitor {
         private String nonHeapMax;
         private Integer availableProcessors;
         private String systemLoadAverage;
+        private String processUsagePercent;
+        private String apiUsagePercent;
+        private Map<String, String> threadGroups;
         private String osName;
         private String osVersion;
         private String osArch;
@@ -167,6 +431,8 @@ public class ServerResourceMonitor {
         private String tps1m;
         private String tps5m;
         private String tps15m;
+        private String averageMspt;
+        private JsonObject mspt;
 
         // Getters and Setters
         public String getType() { return type; }
@@ -189,6 +455,12 @@ public class ServerResourceMonitor {
         public void setAvailableProcessors(Integer availableProcessors) { this.availableProcessors = availableProcessors; }
         public String getSystemLoadAverage() { return systemLoadAverage; }
         public void setSystemLoadAverage(String systemLoadAverage) { this.systemLoadAverage = systemLoadAverage; }
+        public String getProcessUsagePercent() { return processUsagePercent; }
+        public void setProcessUsagePercent(String processUsagePercent) { this.processUsagePercent = processUsagePercent; }
+        public String getApiUsagePercent() { return apiUsagePercent; }
+        public void setApiUsagePercent(String apiUsagePercent) { this.apiUsagePercent = apiUsagePercent; }
+        public Map<String, String> getThreadGroups() { return threadGroups; }
+        public void setThreadGroups(Map<String, String> threadGroups) { this.threadGroups = threadGroups; }
         public String getOsName() { return osName; }
         public void setOsName(String osName) { this.osName = osName; }
         public String getOsVersion() { return osVersion; }
@@ -203,6 +475,10 @@ public class ServerResourceMonitor {
         public void setTps5m(String tps5m) { this.tps5m = tps5m; }
         public String getTps15m() { return tps15m; }
         public void setTps15m(String tps15m) { this.tps15m = tps15m; }
+        public String getAverageMspt() { return averageMspt; }
+        public void setAverageMspt(String averageMspt) { this.averageMspt = averageMspt; }
+        public JsonObject getMspt() { return mspt; }
+        public void setMspt(JsonObject mspt) { this.mspt = mspt; }
     }
 
     /**
@@ -0,0 +1,116 @@
+package com.httye.userinfoapi;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 慢请求日志
+ * 超过阈值的请求按采样率记录各阶段耗时，由单独的线程追加写入 slow_requests.log，
+ * 写入队列满时直接丢弃，不阻塞请求线程
+ */
+public class SlowRequestLog {
+
+    private final UserInfoAPIPlugin plugin;
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final File logFile;
+    private final ThreadPoolExecutor writer;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final AtomicLong loggedRequests = new AtomicLong(0);
+    private final AtomicLong droppedRequests = new AtomicLong(0);
+
+    public SlowRequestLog(UserInfoAPIPlugin plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getConfig().getBoolean("slow-requests.enabled", true);
+        this.thresholdNanos = plugin.getConfig().getLong("slow-requests.threshold-ms", 1000) * 1_000_000L;
+        this.sampleRate = plugin.getConfig().getDouble("slow-requests.sample-rate", 1.0);
+        this.logFile = new File(plugin.getDataFolder(), "slow_requests.log");
+
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000), runnable -> {
+            Thread thread = new Thread(runnable, "UserInfoAPI-SlowLog");
+            thread.setDaemon(true);
+            return thread;
+        }, (runnable, executor) -> droppedRequests.incrementAndGet());
+    }
+
+    /**
+     * 请求结束时调用，超过阈值且被采样到的请求写入日志
+     */
+    public void record(String method, String path, String query, int statusCode, RequestTiming timing) {
+        if (!enabled) {
+            return;
+        }
+
+        long total = timing.getTotalNanos();
+        if (total < thresholdNanos) {
+            return;
+        }
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        // 在请求线程上只拼接文本，文件写入交给日志线程
+        long timestamp = System.currentTimeMillis();
+        String line = method + " " + path + (query != null ? "?" + redactApiKey(query) : "") +
+            " status=" + statusCode + " total=" + (total / 10_000) / 100.0 + "ms " + timing.describe();
+
+        writer.execute(() -> write(timestamp, line));
+    }
+
+    private void write(long timestamp, String line) {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8))) {
+            out.write(dateFormat.format(new Date(timestamp)));
+            out.write(' ');
+            out.write(line);
+            out.write('\n');
+            loggedRequests.incrementAndGet();
+        } catch (IOException e) {
+            plugin.getLogger().warning("写入慢请求日志失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 日志中不记录 API 密钥
+     */
+    private static String redactApiKey(String query) {
+        StringBuilder result = new StringBuilder(query.length());
+        for (String param : query.split("&")) {
+            if (result.length() > 0) {
+                result.append('&');
+            }
+            result.append(param.startsWith("api_key=") ? "api_key=***" : param);
+        }
+        return result.toString();
+    }
+
+    public long getLoggedRequests() {
+        return loggedRequests.get();
+    }
+
+    public long getDroppedRequests() {
+        return droppedRequests.get();
+    }
+
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+        }
+    }
+}
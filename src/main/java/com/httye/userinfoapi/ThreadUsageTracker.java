@@ -0,0 +1,206 @@
+package com.httye.userinfoapi;
+
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按线程分组统计 CPU 时间和内存分配
+ * 每次采样读取所有线程的累计 CPU 时间和已分配字节数，与上一次采样相减得到区间内各分组的 CPU 占用（单核百分比）
+ * 和分配速率，用来区分游戏主线程和本插件各线程池的开销。
+ * 虚拟线程不会出现在 ThreadMXBean 中，虚拟线程模式下处理请求的 CPU 计入其载体线程所在的 other 分组，分配无法统计
+ */
+public class ThreadUsageTracker {
+
+    public static final int MAIN = 0;
+    public static final int HTTP = 1;
+    public static final int RATE_LIMIT = 2;
+    public static final int CHAT = 3;
+    public static final int PLUGIN = 4;
+    public static final int OTHER = 5;
+
+    public static final String[] GROUPS = {"main", "http", "ratelimit", "chat", "plugin", "other"};
+
+    private final ThreadMXBean threadBean;
+    // HotSpot 扩展接口，不可用时为 null
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final boolean supported;
+
+    // 线程ID -> 上次采样时的累计值
+    private Map<Long, Long> lastCpuTimes = new HashMap<>();
+    private Map<Long, Long> lastAllocatedBytes = new HashMap<>();
+    private final long[] totalNanos = new long[GROUPS.length];
+    private final long[] totalAllocated = new long[GROUPS.length];
+    private long lastSampleNanos;
+    private boolean sampled;
+
+    public ThreadUsageTracker(ThreadMXBean threadBean) {
+        this.threadBean = threadBean;
+        this.supported = threadBean.isThreadCpuTimeSupported() && enableCpuTime(threadBean);
+        this.allocationBean = enableAllocatedMemory(threadBean);
+    }
+
+    private static boolean enableCpuTime(ThreadMXBean threadBean) {
+        try {
+            if (!threadBean.isThreadCpuTimeEnabled()) {
+                threadBean.setThreadCpuTimeEnabled(true);
+            }
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean enableAllocatedMemory(ThreadMXBean threadBean) {
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+        try {
+            if (!bean.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return bean;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 根据线程名判断所属分组
+     */
+    static int groupOf(String name) {
+        if (name.equals("Server thread")) {
+            return MAIN;
+        }
+        if (name.startsWith("UserInfoAPI-HTTP-") || name.startsWith("UserInfoAPI-Intake-") || name.startsWith("UserInfoAPI-Shed-")
+                || name.startsWith("UserInfoAPI-Response-") || name.equals("UserInfoAPI-Liveness") || name.equals("HTTP-Dispatcher")) {
+            return HTTP;
+        }
+        if (name.startsWith("UserInfoAPI-RateLimit-")) {
+            return RATE_LIMIT;
+        }
+        if (name.startsWith("Async Chat Thread")) {
+            return CHAT;
+        }
+        if (name.startsWith("UserInfoAPI-")) {
+            return PLUGIN;
+        }
+        return OTHER;
+    }
+
+    public boolean isSupported() {
+        return supported;
+    }
+
+    public boolean isAllocationSupported() {
+        return allocationBean != null;
+    }
+
+    /**
+     * 采样一次，返回自上次采样以来各分组的使用情况；首次采样或不支持线程 CPU 计时时返回 null
+     */
+    public synchronized Usage sample() {
+        if (!supported) {
+            return null;
+        }
+
+        long now = System.nanoTime();
+        long[] ids = threadBean.getAllThreadIds();
+        ThreadInfo[] infos = threadBean.getThreadInfo(ids);
+        Map<Long, Long> cpuTimes = new HashMap<>(ids.length * 2);
+        Map<Long, Long> allocatedBytes = new HashMap<>(ids.length * 2);
+        long[] cpuDeltas = new long[GROUPS.length];
+        long[] allocationDeltas = new long[GROUPS.length];
+
+        for (ThreadInfo info : infos) {
+            // 线程可能在两次调用之间结束
+            if (info == null) {
+                continue;
+            }
+            long id = info.getThreadId();
+            int group = groupOf(info.getThreadName());
+
+            // 新线程从 0 开始计算；已结束线程最后一个区间的数据无法获取，忽略
+            long cpu = threadBean.getThreadCpuTime(id);
+            if (cpu >= 0) {
+                cpuTimes.put(id, cpu);
+                cpuDeltas[group] += Math.max(0, cpu - lastCpuTimes.getOrDefault(id, 0L));
+            }
+            if (allocationBean != null) {
+                long allocated = allocationBean.getThreadAllocatedBytes(id);
+                if (allocated >= 0) {
+                    allocatedBytes.put(id, allocated);
+                    allocationDeltas[group] += Math.max(0, allocated - lastAllocatedBytes.getOrDefault(id, 0L));
+                }
+            }
+        }
+
+        long elapsed = now - lastSampleNanos;
+        boolean first = !sampled;
+        lastCpuTimes = cpuTimes;
+        lastAllocatedBytes = allocatedBytes;
+        lastSampleNanos = now;
+        sampled = true;
+        for (int i = 0; i < GROUPS.length; i++) {
+            totalNanos[i] += cpuDeltas[i];
+            totalAllocated[i] += allocationDeltas[i];
+        }
+
+        if (first || elapsed <= 0) {
+            return null;
+        }
+        Usage usage = new Usage();
+        usage.cpuPercent = new double[GROUPS.length];
+        usage.allocationRate = allocationBean != null ? new double[GROUPS.length] : null;
+        for (int i = 0; i < GROUPS.length; i++) {
+            usage.cpuPercent[i] = cpuDeltas[i] * 100.0 / elapsed;
+            if (usage.allocationRate != null) {
+                usage.allocationRate[i] = allocationDeltas[i] * 1_000_000_000.0 / elapsed;
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * 各分组累计的 CPU 时间（秒），包含首次采样时已存在的线程在此之前消耗的时间
+     */
+    public synchronized double[] getTotalSeconds() {
+        double[] seconds = new double[GROUPS.length];
+        for (int i = 0; i < GROUPS.length; i++) {
+            seconds[i] = totalNanos[i] / 1_000_000_000.0;
+        }
+        return seconds;
+    }
+
+    /**
+     * 各分组累计分配的字节数，统计口径同 {@link #getTotalSeconds()}
+     */
+    public synchronized long[] getTotalAllocatedBytes() {
+        return totalAllocated.clone();
+    }
+
+    /**
+     * 一个采样区间内各分组的使用情况
+     */
+    public static class Usage {
+        // 单核百分比，可能超过100
+        double[] cpuPercent;
+        // 每秒分配的字节数，JVM 不支持时为 null
+        double[] allocationRate;
+
+        public double[] getCpuPercent() { return cpuPercent; }
+        public double[] getAllocationRate() { return allocationRate; }
+
+        /**
+         * 本插件线程（HTTP、限流、其他 UserInfoAPI 线程）合计
+         */
+        static double apiTotal(double[] values) {
+            return values[HTTP] + values[RATE_LIMIT] + values[PLUGIN];
+        }
+    }
+}
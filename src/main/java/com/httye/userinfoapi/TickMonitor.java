@@ -0,0 +1,197 @@
+package com.httye.userinfoapi;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 每 tick 耗时 (MSPT) 统计
+ * 监听 Paper 的 ServerTickEndEvent，每个 tick 的耗时记入 {@link LatencyHistogram}（1 分钟和 5 分钟窗口），
+ * 最近约 30 秒的 tick 另外保存原始耗时，用于精确计算 10 秒窗口的分位数；超过阈值的慢 tick 记入环形缓冲区。
+ * 只有主线程写入，不加锁：写入前后各更新一个计数，读取方先复制再检查复制期间被覆盖的槽位，主线程从不等待读取方。
+ * 只在 Paper 及其分支上可用
+ */
+public class TickMonitor implements Listener {
+
+    // 保存原始耗时的 tick 数，20 TPS 下约 30 秒
+    private static final int RECENT_TICKS = 600;
+    private static final long WINDOW_10S_NANOS = 10_000_000_000L;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final long slowTickNanos;
+
+    // 最近的 tick：结束时间 (nanoTime) 和耗时（微秒）；第 n 个 tick 写入 n % RECENT_TICKS，
+    // 开始写入前 startedTicks 更新为 n + 1，写完后 writtenTicks 更新为 n + 1
+    private final AtomicLongArray recentEnds = new AtomicLongArray(RECENT_TICKS);
+    private final AtomicLongArray recentMicros = new AtomicLongArray(RECENT_TICKS);
+    private volatile long startedTicks;
+    private volatile long writtenTicks;
+
+    // 最近的慢 tick，SlowTick 创建后不再修改
+    private final AtomicReferenceArray<SlowTick> slowTicks;
+    private volatile long writtenSlowTicks;
+
+    public TickMonitor(UserInfoAPIPlugin plugin) {
+        this.slowTickNanos = plugin.getConfig().getLong("resource-monitoring.slow-tick-ms", 50) * 1_000_000L;
+        this.slowTicks = new AtomicReferenceArray<>(Math.max(1, plugin.getConfig().getInt("resource-monitoring.slow-tick-history", 20)));
+    }
+
+    /**
+     * 当前服务端是否提供 Paper 的 tick 事件
+     */
+    public static boolean isSupported() {
+        try {
+            Class.forName("com.destroystokyo.paper.event.server.ServerTickEndEvent");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 在主线程上调用，只做计数和数组写入，不加锁
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTickEnd(ServerTickEndEvent event) {
+        long nanos = (long) (event.getTickDuration() * 1_000_000);
+        histogram.record(nanos);
+
+        long n = writtenTicks;
+        int index = (int) (n % RECENT_TICKS);
+        startedTicks = n + 1;
+        recentEnds.set(index, System.nanoTime());
+        recentMicros.set(index, nanos / 1000);
+        writtenTicks = n + 1;
+
+        if (nanos >= slowTickNanos) {
+            // 对象创建后才放入数组，读取方看到的总是完整的记录
+            long slow = writtenSlowTicks;
+            slowTicks.set((int) (slow % slowTicks.length()), new SlowTick(event.getTickNumber(), System.currentTimeMillis(), event.getTickDuration()));
+            writtenSlowTicks = slow + 1;
+        }
+    }
+
+    /**
+     * 最近 10 秒内各 tick 的耗时（微秒），已排序
+     * 先按 writtenTicks 复制，再读取 startedTicks：复制期间主线程开始覆盖的槽位（n + RECENT_TICKS < startedTicks）
+     * 可能读到新旧混合的值，丢弃后重新复制；主线程一直在覆盖时，最后一次只保留未被覆盖的部分
+     */
+    private long[] recentWindow() {
+        long[] durations = new long[RECENT_TICKS];
+        int count = 0;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long now = System.nanoTime();
+            long written = writtenTicks;
+            long oldest = Math.max(0, written - RECENT_TICKS);
+            count = 0;
+            long n = written - 1;
+            for (; n >= oldest; n--) {
+                int index = (int) (n % RECENT_TICKS);
+                if (now - recentEnds.get(index) > WINDOW_10S_NANOS) {
+                    break;
+                }
+                durations[count++] = recentMicros.get(index);
+            }
+            // 已复制的是 [n + 1, written)，其中小于 firstIntact 的槽位可能已被覆盖
+            long firstIntact = startedTicks - RECENT_TICKS;
+            if (n + 1 >= firstIntact) {
+                break;
+            }
+            count = (int) Math.max(0, Math.min(count, written - firstIntact));
+        }
+        long[] window = Arrays.copyOf(durations, count);
+        Arrays.sort(window);
+        return window;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+    }
+
+    /**
+     * 最近 10 秒 tick 耗时的分位数（毫秒），没有数据时返回 0
+     */
+    public double getRecentPercentile(double percentile) {
+        return percentileMillis(recentWindow(), percentile);
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * 10 秒、1 分钟、5 分钟窗口的 MSPT 分位数，以及最近的慢 tick（从新到旧）
+     */
+    public JsonObject getStats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("ticks", histogram.getTotalCount());
+
+        long[] recent = recentWindow();
+        JsonObject window10s = new JsonObject();
+        window10s.addProperty("count", recent.length);
+        window10s.addProperty("p50", percentileMillis(recent, 50.0));
+        window10s.addProperty("p95", percentileMillis(recent, 95.0));
+        window10s.addProperty("p99", percentileMillis(recent, 99.0));
+        window10s.addProperty("max", percentileMillis(recent, 100.0));
+        stats.add("10s", window10s);
+        stats.add("1m", toJson(histogram.snapshot(LatencyHistogram.WINDOW_1M)));
+        stats.add("5m", toJson(histogram.snapshot(LatencyHistogram.WINDOW_5M)));
+
+        // 读取期间主线程写入的新慢 tick 可能覆盖最旧的槽位，按 tick 编号去掉重复和顺序不对的记录
+        JsonArray slow = new JsonArray();
+        long written = writtenSlowTicks;
+        long oldest = Math.max(0, written - slowTicks.length());
+        int previousTick = Integer.MAX_VALUE;
+        for (long n = written - 1; n >= oldest; n--) {
+            SlowTick slowTick = slowTicks.get((int) (n % slowTicks.length()));
+            if (slowTick == null || slowTick.tick >= previousTick) {
+                continue;
+            }
+            previousTick = slowTick.tick;
+            JsonObject entry = new JsonObject();
+            entry.addProperty("tick", slowTick.tick);
+            entry.addProperty("timestamp", slowTick.timestamp);
+            entry.addProperty("durationMs", Math.round(slowTick.durationMillis * 100) / 100.0);
+            slow.add(entry);
+        }
+        stats.addProperty("slowTickThresholdMs", slowTickNanos / 1_000_000);
+        stats.add("slowTicks", slow);
+        return stats;
+    }
+
+    private static JsonObject toJson(long[] counts) {
+        JsonObject window = new JsonObject();
+        window.addProperty("count", LatencyHistogram.count(counts));
+        window.addProperty("p50", LatencyHistogram.percentile(counts, 50.0) / 1000.0);
+        window.addProperty("p95", LatencyHistogram.percentile(counts, 95.0) / 1000.0);
+        window.addProperty("p99", LatencyHistogram.percentile(counts, 99.0) / 1000.0);
+        window.addProperty("max", LatencyHistogram.percentile(counts, 100.0) / 1000.0);
+        return window;
+    }
+
+    /**
+     * 一个慢 tick
+     */
+    private static final class SlowTick {
+        final int tick;
+        final long timestamp;
+        final double durationMillis;
+
+        SlowTick(int tick, long timestamp, double durationMillis) {
+            this.tick = tick;
+            this.timestamp = timestamp;
+            this.durationMillis = durationMillis;
+        }
+    }
+}
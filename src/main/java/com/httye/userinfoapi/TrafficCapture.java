@@ -0,0 +1,249 @@
+package com.httye.userinfoapi;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 流量录制
+ * 开启后每个请求结束时把路由、参数、API 密钥和耗时交给录制线程，由录制线程匿名化后按 {@link TrafficLog} 格式
+ * 写入插件目录下 capture/ 中的文件，用于在测试环境回放真实的请求组合（见 benchmarks 中的 TrafficReplay）。
+ * 请求线程只复制原始字符串，解析、哈希和写文件都在录制线程完成；写入队列满时直接丢弃，不阻塞请求线程。
+ *
+ * <p>匿名化：API 密钥和 capture.anonymize-params 中的参数值（包括 JSON 请求体中同名字段的字符串值）
+ * 替换为 "#" 加 16 位十六进制哈希。哈希加入每个文件随机生成且不保存的盐，同一文件内相同的值哈希相同，
+ * 无法反推原值，也无法与其他文件关联。不记录客户端 IP，查询参数中的 api_key 不写入参数表
+ */
+public class TrafficCapture {
+
+    // 超过该大小的请求体不录制（仍然正常处理）
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final Pattern JSON_STRING_FIELD = Pattern.compile("\"([^\"\\\\]+)\"\\s*:\\s*(\"(?:[^\"\\\\]|\\\\.)*\"|\\[[^\\]]*\\])");
+    private static final Pattern JSON_STRING = Pattern.compile("\"(?:[^\"\\\\]|\\\\.)*\"");
+
+    private final UserInfoAPIPlugin plugin;
+    private final boolean enabled;
+    private final Set<String> anonymizedParams = new HashSet<>();
+    private final long maxBytes;
+    private final byte[] salt = new byte[16];
+    private ThreadPoolExecutor writer;
+    private File file;
+
+    // 以下字段只由录制线程访问
+    private OutputStream stream;
+    private TrafficLog.Writer logWriter;
+    private MessageDigest digest;
+    private boolean full;
+
+    private final AtomicLong capturedRequests = new AtomicLong(0);
+    private final AtomicLong droppedRequests = new AtomicLong(0);
+
+    public TrafficCapture(UserInfoAPIPlugin plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getConfig().getBoolean("capture.enabled", false);
+        this.maxBytes = plugin.getConfig().getLong("capture.max-size-mb", 100) * 1024 * 1024;
+        List<String> params = plugin.getConfig().getStringList("capture.anonymize-params");
+        if (params.isEmpty()) {
+            params = List.of("username", "usernames", "player");
+        }
+        anonymizedParams.addAll(params);
+
+        if (enabled) {
+            new SecureRandom().nextBytes(salt);
+            String name = "traffic-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".bin";
+            this.file = new File(new File(plugin.getDataFolder(), "capture"), name);
+            int queueSize = plugin.getConfig().getInt("capture.queue-size", 10000);
+            this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+                Thread thread = new Thread(runnable, "UserInfoAPI-Capture");
+                thread.setDaemon(true);
+                return thread;
+            }, (runnable, executor) -> droppedRequests.incrementAndGet());
+            plugin.getLogger().info("流量录制已开启，写入 " + file.getPath());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 在工作线程上、处理器读取之前调用：读出需要录制的请求体并替换为可重复读取的流，返回请求体（不录制时返回 null）
+     */
+    public byte[] captureBody(HttpExchange exchange) throws IOException {
+        if (!enabled || !"POST".equals(exchange.getRequestMethod())) {
+            return null;
+        }
+        InputStream original = exchange.getRequestBody();
+        byte[] head = original.readNBytes(MAX_BODY_BYTES + 1);
+        if (head.length > MAX_BODY_BYTES) {
+            // 太大的请求体只录制请求行，处理器读取的内容不变
+            exchange.setStreams(new SequenceInputStream(new ByteArrayInputStream(head), original), null);
+            return null;
+        }
+        exchange.setStreams(new ByteArrayInputStream(head), null);
+        return head;
+    }
+
+    /**
+     * 请求结束时调用，交给录制线程写入
+     */
+    public void record(long timestamp, String method, String path, String rawQuery, String apiKey, byte[] body,
+                       int status, long latencyNanos) {
+        if (!enabled) {
+            return;
+        }
+        writer.execute(() -> write(timestamp, method, path, rawQuery, apiKey, body, status, latencyNanos));
+    }
+
+    private void write(long timestamp, String method, String path, String rawQuery, String apiKey, byte[] body,
+                       int status, long latencyNanos) {
+        if (full) {
+            droppedRequests.incrementAndGet();
+            return;
+        }
+        try {
+            if (logWriter == null) {
+                open(timestamp);
+            }
+
+            TrafficLog.Record record = new TrafficLog.Record();
+            record.timestamp = timestamp;
+            record.method = method;
+            record.path = path;
+            record.keyHash = apiKey != null ? hash(apiKey) : "";
+            parseQuery(rawQuery, record);
+            if (body != null) {
+                record.body = anonymizeJson(new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+            }
+            record.status = status;
+            record.latencyMicros = latencyNanos / 1000;
+            logWriter.write(record);
+            capturedRequests.incrementAndGet();
+
+            // 队列空闲时才刷新，突发请求时合并写入
+            if (writer.getQueue().isEmpty()) {
+                stream.flush();
+            }
+            if (logWriter.getWrittenBytes() >= maxBytes) {
+                full = true;
+                stream.flush();
+                plugin.getLogger().warning("流量录制文件已达到 " + maxBytes / 1024 / 1024 + " MB，停止录制");
+            }
+        } catch (IOException e) {
+            full = true;
+            plugin.getLogger().warning("写入流量录制文件失败，停止录制: " + e.getMessage());
+        }
+    }
+
+    private void open(long timestamp) throws IOException {
+        File folder = file.getParentFile();
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("无法创建目录 " + folder.getPath());
+        }
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        stream = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+        logWriter = new TrafficLog.Writer(stream, timestamp);
+    }
+
+    private void parseQuery(String rawQuery, TrafficLog.Record record) {
+        QueryStrings.Params params = QueryStrings.parse(rawQuery);
+        for (int i = 0; i < params.size(); i++) {
+            String name = params.name(i);
+            // API 密钥由调用方单独传入
+            if (name.equals("api_key")) {
+                continue;
+            }
+            record.params.put(name, anonymizedParams.contains(name) ? hash(params.value(i)) : params.value(i));
+        }
+    }
+
+    /**
+     * 替换 JSON 中需要匿名化的字段：字符串值，或字符串数组中的每一项
+     */
+    private String anonymizeJson(String json) {
+        Matcher field = JSON_STRING_FIELD.matcher(json);
+        StringBuilder result = new StringBuilder(json.length());
+        while (field.find()) {
+            String value = field.group(2);
+            String replacement = field.group();
+            if (anonymizedParams.contains(field.group(1))) {
+                Matcher strings = JSON_STRING.matcher(value);
+                StringBuilder anonymized = new StringBuilder();
+                while (strings.find()) {
+                    String text = strings.group();
+                    strings.appendReplacement(anonymized, Matcher.quoteReplacement("\"" + hash(text.substring(1, text.length() - 1)) + "\""));
+                }
+                strings.appendTail(anonymized);
+                replacement = replacement.substring(0, field.start(2) - field.start()) + anonymized;
+            }
+            field.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        field.appendTail(result);
+        return result.toString();
+    }
+
+    private String hash(String value) {
+        digest.reset();
+        digest.update(salt);
+        byte[] bytes = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(17).append('#');
+        for (int i = 0; i < 8; i++) {
+            hex.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    public long getCapturedRequests() {
+        return capturedRequests.get();
+    }
+
+    public long getDroppedRequests() {
+        return droppedRequests.get();
+    }
+
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+        }
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("关闭流量录制文件失败: " + e.getMessage());
+            }
+        }
+        plugin.getLogger().info("流量录制结束：" + capturedRequests.get() + " 条，丢弃 " + droppedRequests.get() + " 条");
+    }
+}
@@ -0,0 +1,226 @@
+package com.httye.userinfoapi;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流量录制文件格式
+ * 文件头为魔数 "UIAT"、版本号和录制开始时间，之后每条记录依次为：与上一条的时间差（毫秒）、请求方法、路径、
+ * API 密钥哈希、查询参数、请求体、状态码和处理耗时（微秒）。
+ * 整数使用变长编码；字符串首次出现时写入原文并加入字典，之后只写字典序号，路由、参数名和重复的参数值只占 1~2 字节
+ */
+public final class TrafficLog {
+
+    static final byte[] MAGIC = {'U', 'I', 'A', 'T'};
+    static final int VERSION = 1;
+
+    // 字典上限，超过后新字符串只写原文
+    private static final int MAX_DICTIONARY = 65536;
+    // 字符串标记：0 原文（不加入字典），1 原文并加入字典，n >= 2 为字典中第 n - 2 项
+    private static final int LITERAL = 0;
+    private static final int DEFINE = 1;
+
+    private TrafficLog() {
+    }
+
+    /**
+     * 一条请求记录
+     */
+    public static final class Record {
+        public long timestamp;
+        public String method;
+        public String path;
+        // 没有 API 密钥时为空字符串
+        public String keyHash = "";
+        public final Map<String, String> params = new LinkedHashMap<>();
+        // 没有请求体时为空数组
+        public byte[] body = new byte[0];
+        public int status;
+        public long latencyMicros;
+    }
+
+    /**
+     * 写入录制文件，不是线程安全的，由录制线程独占
+     */
+    public static final class Writer {
+        private final OutputStream out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private long lastTimestamp;
+        private long written;
+
+        public Writer(OutputStream out, long startMillis) throws IOException {
+            this.out = out;
+            this.lastTimestamp = startMillis;
+            out.write(MAGIC);
+            writeVarLong(VERSION);
+            writeVarLong(startMillis);
+        }
+
+        public void write(Record record) throws IOException {
+            // 记录按完成顺序写入，开始时间可能比上一条早
+            writeSignedVarLong(record.timestamp - lastTimestamp);
+            lastTimestamp = record.timestamp;
+            writeString(record.method);
+            writeString(record.path);
+            writeString(record.keyHash);
+            writeVarLong(record.params.size());
+            for (Map.Entry<String, String> param : record.params.entrySet()) {
+                writeString(param.getKey());
+                writeString(param.getValue());
+            }
+            writeVarLong(record.body.length);
+            out.write(record.body);
+            written += record.body.length;
+            writeVarLong(record.status);
+            writeVarLong(record.latencyMicros);
+        }
+
+        /**
+         * 已写入的字节数
+         */
+        public long getWrittenBytes() {
+            return written;
+        }
+
+        private void writeString(String value) throws IOException {
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                writeVarLong(index + 2);
+                return;
+            }
+            if (dictionary.size() < MAX_DICTIONARY) {
+                dictionary.put(value, dictionary.size());
+                writeVarLong(DEFINE);
+            } else {
+                writeVarLong(LITERAL);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+            written += bytes.length;
+        }
+
+        private void writeSignedVarLong(long value) throws IOException {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+                written++;
+            }
+            out.write((int) value);
+            written++;
+        }
+    }
+
+    /**
+     * 读取录制文件
+     */
+    public static final class Reader {
+        private final InputStream in;
+        private final List<String> dictionary = new ArrayList<>();
+        private final long startMillis;
+        private long lastTimestamp;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = in;
+            for (byte expected : MAGIC) {
+                if (in.read() != expected) {
+                    throw new IOException("不是流量录制文件");
+                }
+            }
+            long version = readVarLong();
+            if (version != VERSION) {
+                throw new IOException("不支持的录制文件版本: " + version);
+            }
+            this.startMillis = readVarLong();
+            this.lastTimestamp = startMillis;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * 读取下一条记录，文件结束时返回 null（写到一半的最后一条记录视为结束）
+         */
+        public Record read() throws IOException {
+            int first = in.read();
+            if (first < 0) {
+                return null;
+            }
+            try {
+                Record record = new Record();
+                long zigzag = readVarLong(first);
+                lastTimestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+                record.timestamp = lastTimestamp;
+                record.method = readString();
+                record.path = readString();
+                record.keyHash = readString();
+                long params = readVarLong();
+                for (long i = 0; i < params; i++) {
+                    record.params.put(readString(), readString());
+                }
+                record.body = readBytes((int) readVarLong());
+                record.status = (int) readVarLong();
+                record.latencyMicros = readVarLong();
+                return record;
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        private String readString() throws IOException {
+            int marker = (int) readVarLong();
+            if (marker >= 2) {
+                return dictionary.get(marker - 2);
+            }
+            String value = new String(readBytes((int) readVarLong()), StandardCharsets.UTF_8);
+            if (marker == DEFINE) {
+                dictionary.add(value);
+            }
+            return value;
+        }
+
+        private byte[] readBytes(int length) throws IOException {
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length < length) {
+                throw new EOFException();
+            }
+            return bytes;
+        }
+
+        private long readVarLong() throws IOException {
+            int first = in.read();
+            if (first < 0) {
+                throw new EOFException();
+            }
+            return readVarLong(first);
+        }
+
+        private long readVarLong(int first) throws IOException {
+            long value = first & 0x7F;
+            int shift = 7;
+            int b = first;
+            while ((b & 0x80) != 0) {
+                b = in.read();
+                if (b < 0) {
+                    throw new EOFException();
+                }
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            }
+            return value;
+        }
+    }
+}
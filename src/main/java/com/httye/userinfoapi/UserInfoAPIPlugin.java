@@ -1,5 +1,6 @@
 package com.httye.userinfoapi;
 
+import org.bukkit.command.PluginCommand;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitRunnable;
 
@@ -12,11 +13,20 @@ import java.util.HashMap;
 public class UserInfoAPIPlugin extends JavaPlugin {
     
     private static UserInfoAPIPlugin instance;
-    private APIServer apiServer;
+    private volatile APIServer apiServer;
+    private final Object restartLock = new Object();
     private Logger logger;
     private SecurityManager securityManager;
     private LoginRecordManager loginRecordManager;
     private ChatRecordManager chatRecordManager;
+    private MainThreadQueryScheduler queryScheduler;
+    private ServerResourceMonitor resourceMonitor;
+    private TickMonitor tickMonitor;
+    private WorldSampler worldSampler;
+    
+    public UserInfoAPIPlugin() {
+        super();
+    }
     
     @Override
     public void onEnable() {
@@ -41,11 +51,36 @@ public class UserInfoAPIPlugin extends JavaPlugin {
             chatRecordManager = new ChatRecordManager(this);
             getServer().getPluginManager().registerEvents(chatRecordManager, this);
             
+            // 启动主线程查询调度器
+            queryScheduler = new MainThreadQueryScheduler(this);
+            queryScheduler.start();
+
+            // 启动世界负载采样
+            if (getConfig().getBoolean("world-sampling.enabled", true)) {
+                worldSampler = new WorldSampler(this);
+                worldSampler.start();
+            }
+            
+            // 统计每 tick 耗时（仅 Paper）
+            if (TickMonitor.isSupported()) {
+                tickMonitor = new TickMonitor(this);
+                getServer().getPluginManager().registerEvents(tickMonitor, this);
+            } else {
+                logger.info("当前服务端不支持 tick 事件，MSPT 分位数统计不可用");
+            }
+
+            // 启动资源采样
+            resourceMonitor = new ServerResourceMonitor(this);
+            resourceMonitor.start();
+            
             // 启动API服务器
             startAPIServer();
             
-            // 注册命令
-            this.getCommand("userinfo").setExecutor(new UserInfoCommand(this));
+            // 注册命令（模拟的服务器上没有命令）
+            PluginCommand command = this.getCommand("userinfo");
+            if (command != null) {
+                command.setExecutor(new UserInfoCommand(this));
+            }
             
             // 显示启动信息
             displayStartupInfo();
@@ -61,9 +96,27 @@ public class UserInfoAPIPlugin extends JavaPlugin {
     
     @Override
     public void onDisable() {
-        // 停止API服务器
-        if (apiServer != null) {
-            apiServer.stopServer();
+        // 停止API服务器（等待正在进行的重启结束，避免新服务器漏停）
+        synchronized (restartLock) {
+            if (apiServer != null) {
+                apiServer.stopServer();
+            }
+        }
+        
+        if (queryScheduler != null) {
+            queryScheduler.stop();
+        }
+        
+        if (worldSampler != null) {
+            worldSampler.stop();
+        }
+        
+        if (resourceMonitor != null) {
+            resourceMonitor.stop();
+        }
+        
+        if (loginRecordManager != null) {
+            loginRecordManager.shutdown();
         }
         
         logger.info("UserInfoAPI 插件已禁用！");
@@ -89,11 +142,32 @@ public class UserInfoAPIPlugin extends JavaPlugin {
         }.runTaskAsynchronously(this);
     }
     
+    /**
+     * 在异步线程上停止旧服务器并启动新服务器，停止时要等待各线程池和日志写入结束，不能占用主线程
+     */
     public void restartAPIServer() {
-        if (apiServer != null) {
-            apiServer.stopServer();
-        }
-        startAPIServer();
+        int port = getConfig().getInt("api.port", 8080);
+        String host = getConfig().getString("api.host", "0.0.0.0");
+        
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                // 连续重载时按顺序执行，避免两次重启交错
+                synchronized (restartLock) {
+                    try {
+                        if (apiServer != null) {
+                            apiServer.stopServer();
+                        }
+                        apiServer = new APIServer(UserInfoAPIPlugin.this, host, port);
+                        apiServer.start();
+                        logger.info("API服务器已重启在 " + host + ":" + port);
+                    } catch (Exception e) {
+                        logger.severe("重启API服务器失败: " + e.getMessage());
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }.runTaskAsynchronously(this);
     }
     
     /**
@@ -217,10 +291,28 @@ public class UserInfoAPIPlugin extends JavaPlugin {
         return chatRecordManager;
     }
 
-    public RateLimitHandler getRateLimitHandler() {
-        return apiServer != null ? apiServer.getRateLimitHandler() : null;
+    public MainThreadQueryScheduler getQueryScheduler() {
+        return queryScheduler;
     }
-    
+
+    public ServerResourceMonitor getResourceMonitor() {
+        return resourceMonitor;
+    }
+
+    /**
+     * 世界负载采样器，未启用时为 null
+     */
+    public WorldSampler getWorldSampler() {
+        return worldSampler;
+    }
+
+    /**
+     * tick 耗时统计，服务端不是 Paper 时为 null
+     */
+    public TickMonitor getTickMonitor() {
+        return tickMonitor;
+    }
+
     public com.google.gson.Gson getGson() {
         return new com.google.gson.Gson();
     }
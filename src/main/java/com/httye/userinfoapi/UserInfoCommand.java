@@ -48,7 +48,7 @@ public class UserInfoCommand implements CommandExecutor {
         try {
             plugin.reloadConfig();
             plugin.restartAPIServer();
-            sender.sendMessage(ChatColor.GREEN + "UserInfoAPI 配置已重载，API服务器已重启。");
+            sender.sendMessage(ChatColor.GREEN + "UserInfoAPI 配置已重载，API服务器正在后台重启，结果见控制台。");
         } catch (Exception e) {
             sender.sendMessage(ChatColor.RED + "重载失败: " + e.getMessage());
             e.printStackTrace();
@@ -73,6 +73,36 @@ public class UserInfoCommand implements CommandExecutor {
             sender.sendMessage(ChatColor.YELLOW + "监听地址: " + ChatColor.WHITE + 
                 plugin.getConfig().getString("api.host", "0.0.0.0") + ":" + 
                 plugin.getConfig().getInt("api.port", 8080));
+
+            RequestCoalescer coalescer = apiServer.getCoalescer();
+            sender.sendMessage(ChatColor.YELLOW + "合并请求: " + ChatColor.WHITE + coalescer.getCoalescedRequests() +
+                ChatColor.GRAY + " (实际执行 " + coalescer.getExecutedRequests() + ", 进行中 " + coalescer.getInFlightRequests() + ")");
+
+            APIExecutor executor = apiServer.getExecutor();
+            if (executor != null) {
+                sender.sendMessage(ChatColor.YELLOW + "请求队列: " + ChatColor.WHITE + executor.getQueueDepth() +
+                    ChatColor.GRAY + " (已拒绝 " + executor.getRejectedTasks() + ", 超时 " + executor.getExpiredTasks() +
+                    ", 平均等待 " + String.format("%.2f", executor.getAverageWaitMillis()) + "ms" +
+                    (executor.isUsingVirtualThreads() ? ", 虚拟线程" : "") + ")");
+            }
+
+            MainThreadQueryScheduler scheduler = plugin.getQueryScheduler();
+            if (scheduler != null) {
+                sender.sendMessage(ChatColor.YELLOW + "主线程查询队列: " + ChatColor.WHITE + scheduler.getQueueSize() +
+                    ChatColor.GRAY + " (已执行 " + scheduler.getExecutedReads() +
+                    ", 已合并 " + scheduler.getMergedReads() + ")");
+            }
+
+            AdaptiveThrottle throttle = apiServer.getThrottle();
+            if (throttle != null) {
+                sender.sendMessage(ChatColor.YELLOW + "自适应限流级别: " + (throttle.getLevel() == 0 ? ChatColor.GREEN : ChatColor.RED) +
+                    throttle.getLevel() + "/" + AdaptiveThrottle.MAX_LEVEL);
+            }
+
+            for (RouteBulkhead bulkhead : apiServer.getBulkheads()) {
+                sender.sendMessage(ChatColor.YELLOW + "路由隔离 " + bulkhead.getRoute() + ": " + ChatColor.WHITE +
+                    bulkhead.getInFlight() + "/" + (bulkhead.getLimit() == RouteBulkhead.UNLIMITED ? "不限" : bulkhead.getLimit()) + ChatColor.GRAY + " (已拒绝 " + bulkhead.getRejected() + ")");
+            }
         } else {
             sender.sendMessage(ChatColor.YELLOW + "API服务器: " + ChatColor.RED + "未运行");
         }
@@ -5,14 +5,24 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonArray;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.Material;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 public class UserInfoService {
     
@@ -22,409 +32,388 @@ public class UserInfoService {
         this.gson = new Gson();
     }
     
-    public JsonObject getUserInfo(String username) {
-        Player onlinePlayer = Bukkit.getPlayer(username);
+    // 各接口可能需要额外读取的部分，按字段投影去掉不需要的
+    private static final int INFO_SECTIONS = PlayerSnapshot.INVENTORY | PlayerSnapshot.ITEM_DETAILS;
+    private static final int LEVEL_SECTIONS = 0;
+    private static final int LOCATION_SECTIONS = PlayerSnapshot.BIOME;
+    private static final int INVENTORY_SECTIONS = PlayerSnapshot.INVENTORY | PlayerSnapshot.ITEM_DETAILS;
+    
+    /**
+     * 异步获取玩家完整信息
+     * 在线玩家的数据在主线程读取，离线玩家数据和在线时长统计在存储线程读取，调用线程不会被阻塞
+     */
+    public CompletableFuture<JsonObject> getUserInfoAsync(String username) {
+        return getUserInfoAsync(username, FieldProjection.ALL);
+    }
+    
+    public CompletableFuture<JsonObject> getUserLevelAsync(String username) {
+        return getUserLevelAsync(username, FieldProjection.ALL);
+    }
+    
+    public CompletableFuture<JsonObject> getUserLocationAsync(String username) {
+        return getUserLocationAsync(username, FieldProjection.ALL);
+    }
+    
+    public CompletableFuture<JsonObject> getUserInventoryAsync(String username) {
+        return getUserInventoryAsync(username, FieldProjection.ALL);
+    }
+    
+    /**
+     * 按字段投影异步查询：未请求的背包、附魔和描述、生物群系和在线时长统计不会读取，结果只包含请求的字段
+     */
+    public CompletableFuture<JsonObject> getUserInfoAsync(String username, FieldProjection fields) {
+        return lookupAsync(username, INFO_SECTIONS, this::buildOnlineUserInfo, this::buildOfflineUserInfo, fields);
+    }
+    
+    public CompletableFuture<JsonObject> getUserLevelAsync(String username, FieldProjection fields) {
+        return lookupAsync(username, LEVEL_SECTIONS, this::buildOnlineUserLevel, this::buildOfflineUserLevel, fields);
+    }
+    
+    public CompletableFuture<JsonObject> getUserLocationAsync(String username, FieldProjection fields) {
+        return lookupAsync(username, LOCATION_SECTIONS, this::buildOnlineUserLocation, this::buildOfflineUserLocation, fields);
+    }
+    
+    public CompletableFuture<JsonObject> getUserInventoryAsync(String username, FieldProjection fields) {
+        return lookupAsync(username, INVENTORY_SECTIONS, this::buildOnlineUserInventory, this::buildOfflineUserInventory, fields);
+    }
+    
+    private CompletableFuture<JsonObject> lookupAsync(String username, int sections, Function<PlayerSnapshot, UserLookup> online,
+                                                      Function<String, UserLookup> offline, FieldProjection fields) {
+        Executor storageExecutor = getStorageExecutor();
         
-        // 如果玩家在线，返回完整信息
-        if (onlinePlayer != null) {
-            JsonObject userInfo = new JsonObject();
-            userInfo.addProperty("username", onlinePlayer.getName());
-            userInfo.addProperty("uuid", onlinePlayer.getUniqueId().toString());
-            userInfo.addProperty("displayName", onlinePlayer.getDisplayName());
-            userInfo.addProperty("level", onlinePlayer.getLevel());
-            userInfo.addProperty("exp", onlinePlayer.getExp());
-            userInfo.addProperty("expToLevel", onlinePlayer.getExpToLevel());
-            userInfo.add("location", getLocationJson(onlinePlayer.getLocation()));
-            userInfo.add("inventory", getInventoryJson(onlinePlayer.getInventory()));
-            userInfo.addProperty("health", onlinePlayer.getHealth());
-            userInfo.addProperty("maxHealth", onlinePlayer.getMaxHealth());
-            userInfo.addProperty("foodLevel", onlinePlayer.getFoodLevel());
-            userInfo.addProperty("gameMode", onlinePlayer.getGameMode().toString());
-            userInfo.addProperty("online", true);
-            
-            // 添加在线时长信息
-            LoginRecordManager loginRecordManager = UserInfoAPIPlugin.getInstance().getLoginRecordManager();
-            if (loginRecordManager != null) {
-                userInfo.addProperty("currentSessionOnlineTime", loginRecordManager.getCurrentSessionOnlineTime(onlinePlayer.getName()));
-                userInfo.addProperty("totalOnlineTime", loginRecordManager.getTotalOnlineTime(onlinePlayer.getName()));
-            }
-            
-            return userInfo;
-        }
+        // 在线玩家：由主线程查询调度器在 tick 内读取快照；离线玩家（可能需要读取磁盘）和在线时长：存储线程
+        return UserInfoAPIPlugin.getInstance().getQueryScheduler().readPlayer(username, fields.sections(sections))
+            .thenApplyAsync(snapshot -> fields.apply(withOnlineTime(snapshot != null ? online.apply(snapshot) : offline.apply(username), fields)),
+                storageExecutor);
+    }
+    
+    /**
+     * 读取玩家数据快照，必须在主线程调用
+     *
+     * @param sections 需要额外读取的部分，见 {@link PlayerSnapshot}
+     */
+    public static PlayerSnapshot capturePlayer(Player player, int sections) {
+        PlayerSnapshot snapshot = new PlayerSnapshot();
+        snapshot.sections = sections;
+        snapshot.name = player.getName();
+        snapshot.uniqueId = player.getUniqueId();
+        snapshot.displayName = player.getDisplayName();
+        snapshot.level = player.getLevel();
+        snapshot.exp = player.getExp();
+        snapshot.expToLevel = player.getExpToLevel();
+        snapshot.totalExperience = player.getTotalExperience();
+        snapshot.health = player.getHealth();
+        snapshot.maxHealth = player.getMaxHealth();
+        snapshot.foodLevel = player.getFoodLevel();
+        snapshot.gameMode = player.getGameMode().toString();
         
-        // 如果玩家离线，尝试获取离线玩家信息
-        org.bukkit.OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(username);
-        if (offlinePlayer.hasPlayedBefore()) {
-            JsonObject userInfo = new JsonObject();
-            userInfo.addProperty("username", offlinePlayer.getName());
-            userInfo.addProperty("uuid", offlinePlayer.getUniqueId().toString());
-            userInfo.addProperty("displayName", offlinePlayer.getName());
-            
-            // 获取玩家统计数据（如果可用）
-            int level = 0;
-            double exp = 0.0;
-            double expToLevel = 0;
-            
-            // 尝试获取离线玩家的最后位置和统计数据
-            org.bukkit.Location lastLocation = null;
-            
-            try {
-                // 获取离线玩家的最后位置
-                lastLocation = offlinePlayer.getLastPlayed() > 0 ? offlinePlayer.getPlayer() != null ?
-                    offlinePlayer.getPlayer().getLocation() : null : null;
-                
-                // 如果玩家当前在线，获取实时数据
-                if (offlinePlayer.isOnline() && offlinePlayer.getPlayer() != null) {
-                    level = offlinePlayer.getPlayer().getLevel();
-                    exp = offlinePlayer.getPlayer().getExp();
-                    expToLevel = offlinePlayer.getPlayer().getExpToLevel();
-                }
-            } catch (Exception e) {
-                // 如果无法获取数据，使用默认值
-            }
-            
-            userInfo.addProperty("level", level);
-            userInfo.addProperty("exp", exp);
-            userInfo.addProperty("expToLevel", expToLevel);
-            userInfo.addProperty("health", 20.0); // 默认健康值
-            userInfo.addProperty("maxHealth", 20.0); // 默认最大健康值
-            userInfo.addProperty("foodLevel", 20); // 默认饱食度
-            userInfo.addProperty("gameMode", "SURVIVAL"); // 离线玩家无法获取游戏模式，使用默认值
-            
-            // 添加最后位置信息
-            if (lastLocation != null) {
-                JsonObject location = new JsonObject();
-                location.addProperty("x", lastLocation.getX());
-                location.addProperty("y", lastLocation.getY());
-                location.addProperty("z", lastLocation.getZ());
-                location.addProperty("world", lastLocation.getWorld() != null ? lastLocation.getWorld().getName() : "world");
-                location.addProperty("yaw", lastLocation.getYaw());
-                location.addProperty("pitch", lastLocation.getPitch());
-                userInfo.add("location", location);
-            } else {
-                // 尝试从玩家数据文件获取最后位置（更可靠的方法）
-                JsonObject location = new JsonObject();
-                location.addProperty("x", 0.0);
-                location.addProperty("y", 0.0);
-                location.addProperty("z", 0.0);
-                location.addProperty("world", "world");
-                location.addProperty("yaw", 0.0);
-                location.addProperty("pitch", 0.0);
-                userInfo.add("location", location);
-            }
-            
-            userInfo.addProperty("online", false);
-            
-            // 添加离线玩家的额外信息
-            userInfo.addProperty("firstPlayed", offlinePlayer.getFirstPlayed());
-            userInfo.addProperty("lastPlayed", offlinePlayer.getLastPlayed());
-            userInfo.addProperty("isOnline", offlinePlayer.isOnline());
-            userInfo.addProperty("whitelisted", offlinePlayer.isWhitelisted());
-            userInfo.addProperty("banned", offlinePlayer.isBanned());
-            userInfo.addProperty("op", offlinePlayer.isOp());
-            
-            // 添加在线时长信息
-            LoginRecordManager loginRecordManager = UserInfoAPIPlugin.getInstance().getLoginRecordManager();
-            if (loginRecordManager != null) {
-                userInfo.addProperty("currentSessionOnlineTime", 0); // 离线玩家当前会话时长为0
-                userInfo.addProperty("totalOnlineTime", loginRecordManager.getTotalOnlineTime(offlinePlayer.getName()));
-            }
-            
-            return userInfo;
+        Location location = player.getLocation();
+        snapshot.world = player.getWorld().getName();
+        snapshot.x = location.getX();
+        snapshot.y = location.getY();
+        snapshot.z = location.getZ();
+        snapshot.yaw = location.getYaw();
+        snapshot.pitch = location.getPitch();
+        
+        if (snapshot.has(PlayerSnapshot.BIOME)) {
+            snapshot.biome = location.getBlock().getBiome().toString();
+        }
+        if (snapshot.has(PlayerSnapshot.INVENTORY)) {
+            snapshot.inventory = captureInventory(player.getInventory(), snapshot.has(PlayerSnapshot.ITEM_DETAILS));
         }
         
-        return null;
+        return snapshot;
     }
     
-    public JsonObject getUserLevel(String username) {
-        Player onlinePlayer = Bukkit.getPlayer(username);
+    private static List<ItemSnapshot> captureInventory(PlayerInventory inventory, boolean details) {
+        List<ItemSnapshot> items = new ArrayList<>();
         
-        // 如果玩家在线，返回实时信息
-        if (onlinePlayer != null) {
-            JsonObject levelInfo = new JsonObject();
-            levelInfo.addProperty("username", onlinePlayer.getName());
-            levelInfo.addProperty("level", onlinePlayer.getLevel());
-            levelInfo.addProperty("exp", onlinePlayer.getExp());
-            levelInfo.addProperty("expToLevel", onlinePlayer.getExpToLevel());
-            levelInfo.addProperty("totalExperience", onlinePlayer.getTotalExperience());
-            levelInfo.addProperty("online", true);
-            
-            // 添加在线时长信息
-            LoginRecordManager loginRecordManager = UserInfoAPIPlugin.getInstance().getLoginRecordManager();
-            if (loginRecordManager != null) {
-                levelInfo.addProperty("currentSessionOnlineTime", loginRecordManager.getCurrentSessionOnlineTime(onlinePlayer.getName()));
-                levelInfo.addProperty("totalOnlineTime", loginRecordManager.getTotalOnlineTime(onlinePlayer.getName()));
+        // 主背包物品 (0-35)
+        for (int i = 0; i < 36; i++) {
+            ItemStack item = inventory.getItem(i);
+            if (item != null && item.getType() != Material.AIR) {
+                items.add(captureItem(item, i, "main", details));
             }
-            
-            return levelInfo;
         }
         
-        // 如果玩家离线，尝试获取离线玩家信息
-        org.bukkit.OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(username);
-        if (offlinePlayer.hasPlayedBefore()) {
-            JsonObject levelInfo = new JsonObject();
-            levelInfo.addProperty("username", offlinePlayer.getName());
-            
-            // 尝试获取离线玩家的等级数据
-            int level = 0;
-            double exp = 0.0;
-            double expToLevel = 0;
-            int totalExperience = 0;
-            
-            try {
-                // 如果玩家当前在线，获取实时数据
-                if (offlinePlayer.isOnline() && offlinePlayer.getPlayer() != null) {
-                    level = offlinePlayer.getPlayer().getLevel();
-                    exp = offlinePlayer.getPlayer().getExp();
-                    expToLevel = offlinePlayer.getPlayer().getExpToLevel();
-                    totalExperience = offlinePlayer.getPlayer().getTotalExperience();
-                }
-            } catch (Exception e) {
-                // 如果无法获取实时数据，使用默认值
-            }
-            
-            levelInfo.addProperty("level", level);
-            levelInfo.addProperty("exp", exp);
-            levelInfo.addProperty("expToLevel", expToLevel);
-            levelInfo.addProperty("totalExperience", totalExperience);
-            levelInfo.addProperty("online", false);
-            
-            // 添加离线玩家的额外信息
-            levelInfo.addProperty("firstPlayed", offlinePlayer.getFirstPlayed());
-            levelInfo.addProperty("lastPlayed", offlinePlayer.getLastPlayed());
-            levelInfo.addProperty("isOnline", offlinePlayer.isOnline());
-            
-            // 添加在线时长信息
-            LoginRecordManager loginRecordManager = UserInfoAPIPlugin.getInstance().getLoginRecordManager();
-            if (loginRecordManager != null) {
-                levelInfo.addProperty("currentSessionOnlineTime", 0); // 离线玩家当前会话时长为0
-                levelInfo.addProperty("totalOnlineTime", loginRecordManager.getTotalOnlineTime(offlinePlayer.getName()));
+        // 盔甲槽物品 (36-39)
+        ItemStack[] armor = inventory.getArmorContents();
+        for (int i = 0; i < armor.length; i++) {
+            if (armor[i] != null && armor[i].getType() != Material.AIR) {
+                items.add(captureItem(armor[i], 36 + i, "armor", details));
             }
-            
-            return levelInfo;
         }
         
-        return null;
+        // 副手物品 (40)
+        ItemStack offHand = inventory.getItemInOffHand();
+        if (offHand != null && offHand.getType() != Material.AIR) {
+            items.add(captureItem(offHand, 40, "offhand", details));
+        }
+        
+        return items;
     }
     
-    public JsonObject getUserLocation(String username) {
-        Player onlinePlayer = Bukkit.getPlayer(username);
+    private static ItemSnapshot captureItem(ItemStack item, int slot, String slotType, boolean details) {
+        // getItemMeta() 每次调用都会复制一份，只取一次
+        ItemMeta meta = item.hasItemMeta() ? item.getItemMeta() : null;
+        String type = item.getType().toString();
+        String displayName = meta != null && meta.hasDisplayName() ? meta.getDisplayName() : type;
         
-        // 如果玩家在线，返回实时位置信息
-        if (onlinePlayer != null) {
-            JsonObject locationInfo = new JsonObject();
-            locationInfo.addProperty("username", onlinePlayer.getName());
-            locationInfo.add("location", getLocationJson(onlinePlayer.getLocation()));
-            locationInfo.addProperty("world", onlinePlayer.getWorld().getName());
-            locationInfo.addProperty("biome", onlinePlayer.getLocation().getBlock().getBiome().toString());
-            locationInfo.addProperty("online", true);
-            
-            // 添加在线时长信息
-            LoginRecordManager loginRecordManager = UserInfoAPIPlugin.getInstance().getLoginRecordManager();
-            if (loginRecordManager != null) {
-                locationInfo.addProperty("currentSessionOnlineTime", loginRecordManager.getCurrentSessionOnlineTime(onlinePlayer.getName()));
-                locationInfo.addProperty("totalOnlineTime", loginRecordManager.getTotalOnlineTime(onlinePlayer.getName()));
+        // 附魔信息
+        Map<String, Integer> enchantments = null;
+        if (details && meta != null && meta.hasEnchants()) {
+            enchantments = new LinkedHashMap<>();
+            for (Map.Entry<Enchantment, Integer> entry : item.getEnchantments().entrySet()) {
+                enchantments.put(entry.getKey().getKey().getKey(), entry.getValue());
             }
-            
-            return locationInfo;
         }
         
-        // 如果玩家离线，尝试获取离线玩家信息
-        org.bukkit.OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(username);
-        if (offlinePlayer.hasPlayedBefore()) {
-            JsonObject locationInfo = new JsonObject();
-            locationInfo.addProperty("username", offlinePlayer.getName());
-            
-            // 尝试获取离线玩家的最后位置
-            org.bukkit.Location lastLocation = null;
-            String worldName = "world";
-            String biomeName = "PLAINS";
-            
-            try {
-                // 如果玩家当前在线，获取实时位置
-                if (offlinePlayer.isOnline() && offlinePlayer.getPlayer() != null) {
-                    lastLocation = offlinePlayer.getPlayer().getLocation();
-                    worldName = offlinePlayer.getPlayer().getWorld().getName();
-                    biomeName = offlinePlayer.getPlayer().getLocation().getBlock().getBiome().toString();
-                } else {
-                    // 获取离线玩家的最后位置
-                    lastLocation = offlinePlayer.getLastPlayed() > 0 ?
-                        offlinePlayer.getPlayer() != null ? offlinePlayer.getPlayer().getLocation() : null : null;
-                    if (lastLocation != null) {
-                        worldName = lastLocation.getWorld() != null ? lastLocation.getWorld().getName() : "world";
-                        if (lastLocation.getWorld() != null) {
-                            biomeName = lastLocation.getBlock().getBiome().toString();
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                // 如果无法获取位置信息，使用默认值
-            }
-            
-            // 添加位置信息
-            if (lastLocation != null) {
-                JsonObject location = new JsonObject();
-                location.addProperty("x", lastLocation.getX());
-                location.addProperty("y", lastLocation.getY());
-                location.addProperty("z", lastLocation.getZ());
-                location.addProperty("yaw", lastLocation.getYaw());
-                location.addProperty("pitch", lastLocation.getPitch());
-                locationInfo.add("location", location);
-            } else {
-                // 使用默认位置
-                JsonObject location = new JsonObject();
-                location.addProperty("x", 0.0);
-                location.addProperty("y", 0.0);
-                location.addProperty("z", 0.0);
-                location.addProperty("yaw", 0.0);
-                location.addProperty("pitch", 0.0);
-                locationInfo.add("location", location);
-            }
-            
-            locationInfo.addProperty("world", worldName);
-            locationInfo.addProperty("biome", biomeName);
-            locationInfo.addProperty("online", false);
-            
-            // 添加离线玩家的额外信息
-            locationInfo.addProperty("firstPlayed", offlinePlayer.getFirstPlayed());
-            locationInfo.addProperty("lastPlayed", offlinePlayer.getLastPlayed());
-            locationInfo.addProperty("isOnline", offlinePlayer.isOnline());
-            
-            // 添加在线时长信息
-            LoginRecordManager loginRecordManager = UserInfoAPIPlugin.getInstance().getLoginRecordManager();
-            if (loginRecordManager != null) {
-                locationInfo.addProperty("currentSessionOnlineTime", 0); // 离线玩家当前会话时长为0
-                locationInfo.addProperty("totalOnlineTime", loginRecordManager.getTotalOnlineTime(offlinePlayer.getName()));
-            }
-            
-            return locationInfo;
+        // 物品描述
+        List<String> lore = null;
+        if (details && meta != null && meta.hasLore()) {
+            lore = new ArrayList<>(meta.getLore());
         }
         
-        return null;
+        return new ItemSnapshot(slot, slotType, type, item.getAmount(), displayName,
+            item.getDurability(), item.getType().getMaxDurability(), enchantments, lore);
+    }
+    
+    private static Executor getStorageExecutor() {
+        LoginRecordManager loginRecordManager = UserInfoAPIPlugin.getInstance().getLoginRecordManager();
+        return loginRecordManager != null ? loginRecordManager.getStorageExecutor() : ForkJoinPool.commonPool();
     }
     
-    public JsonObject getUserInventory(String username) {
-        Player onlinePlayer = Bukkit.getPlayer(username);
+    /**
+     * 添加在线时长信息（总在线时长需要读取登录记录文件，只在请求了该字段时统计）
+     */
+    private JsonObject withOnlineTime(UserLookup lookup, FieldProjection fields) {
+        if (lookup == null) {
+            return null;
+        }
         
-        // 如果玩家在线，返回实时背包信息
-        if (onlinePlayer != null) {
-            JsonObject inventoryInfo = new JsonObject();
-            inventoryInfo.addProperty("username", onlinePlayer.getName());
-            inventoryInfo.add("inventory", getInventoryJson(onlinePlayer.getInventory()));
-            inventoryInfo.addProperty("online", true);
-            
-            // 添加在线时长信息
-            LoginRecordManager loginRecordManager = UserInfoAPIPlugin.getInstance().getLoginRecordManager();
-            if (loginRecordManager != null) {
-                inventoryInfo.addProperty("currentSessionOnlineTime", loginRecordManager.getCurrentSessionOnlineTime(onlinePlayer.getName()));
-                inventoryInfo.addProperty("totalOnlineTime", loginRecordManager.getTotalOnlineTime(onlinePlayer.getName()));
+        LoginRecordManager loginRecordManager = UserInfoAPIPlugin.getInstance().getLoginRecordManager();
+        if (loginRecordManager != null) {
+            // 离线玩家当前会话时长为0
+            if (fields.includes("currentSessionOnlineTime")) {
+                lookup.json.addProperty("currentSessionOnlineTime", lookup.online ? loginRecordManager.getCurrentSessionOnlineTime(lookup.playerId) : 0);
+            }
+            if (fields.includes("totalOnlineTime")) {
+                lookup.json.addProperty("totalOnlineTime", loginRecordManager.getTotalOnlineTime(lookup.playerId));
             }
-            
-            return inventoryInfo;
         }
         
-        // 如果玩家离线，尝试获取离线玩家信息
-        org.bukkit.OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(username);
-        if (offlinePlayer.hasPlayedBefore()) {
-            JsonObject inventoryInfo = new JsonObject();
-            inventoryInfo.addProperty("username", offlinePlayer.getName());
-            inventoryInfo.add("inventory", new JsonArray()); // 离线玩家无法获取实时背包
-            inventoryInfo.addProperty("online", false);
-            
-            // 添加离线玩家的额外信息
-            inventoryInfo.addProperty("firstPlayed", offlinePlayer.getFirstPlayed());
-            inventoryInfo.addProperty("lastPlayed", offlinePlayer.getLastPlayed());
-            inventoryInfo.addProperty("isOnline", offlinePlayer.isOnline());
-            
-            // 添加在线时长信息
-            LoginRecordManager loginRecordManager = UserInfoAPIPlugin.getInstance().getLoginRecordManager();
-            if (loginRecordManager != null) {
-                inventoryInfo.addProperty("currentSessionOnlineTime", 0); // 离线玩家当前会话时长为0
-                inventoryInfo.addProperty("totalOnlineTime", loginRecordManager.getTotalOnlineTime(offlinePlayer.getName()));
-            }
-            
-            return inventoryInfo;
+        return lookup.json;
+    }
+    
+    private UserLookup buildOnlineUserInfo(PlayerSnapshot onlinePlayer) {
+        // 如果玩家在线，返回完整信息
+        JsonObject userInfo = new JsonObject();
+        userInfo.addProperty("username", onlinePlayer.name);
+        userInfo.addProperty("uuid", onlinePlayer.uniqueId.toString());
+        userInfo.addProperty("displayName", onlinePlayer.displayName);
+        userInfo.addProperty("level", onlinePlayer.level);
+        userInfo.addProperty("exp", onlinePlayer.exp);
+        userInfo.addProperty("expToLevel", onlinePlayer.expToLevel);
+        userInfo.add("location", getLocationJson(onlinePlayer, true));
+        // 字段投影未请求背包时没有读取
+        if (onlinePlayer.inventory != null) {
+            userInfo.add("inventory", ItemSnapshot.toJson(onlinePlayer.inventory));
         }
+        userInfo.addProperty("health", onlinePlayer.health);
+        userInfo.addProperty("maxHealth", onlinePlayer.maxHealth);
+        userInfo.addProperty("foodLevel", onlinePlayer.foodLevel);
+        userInfo.addProperty("gameMode", onlinePlayer.gameMode);
+        userInfo.addProperty("online", true);
         
-        return null;
+        return new UserLookup(userInfo, onlinePlayer.uniqueId, true);
     }
     
-    private JsonObject getLocationJson(Location location) {
-        JsonObject loc = new JsonObject();
-        loc.addProperty("x", location.getX());
-        loc.addProperty("y", location.getY());
-        loc.addProperty("z", location.getZ());
-        loc.addProperty("yaw", location.getYaw());
-        loc.addProperty("pitch", location.getPitch());
-        return loc;
+    private UserLookup buildOfflineUserInfo(String username) {
+        // 如果玩家离线，尝试获取离线玩家信息
+        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(username);
+        if (!offlinePlayer.hasPlayedBefore()) {
+            return null;
+        }
+        
+        JsonObject userInfo = new JsonObject();
+        userInfo.addProperty("username", offlinePlayer.getName());
+        userInfo.addProperty("uuid", offlinePlayer.getUniqueId().toString());
+        userInfo.addProperty("displayName", offlinePlayer.getName());
+        
+        // 在存储线程构建，不读取 Player、Location 等只能在主线程访问的数据；
+        // 快照之后才上线的玩家同样按离线处理，下一次查询会读取实时数据
+        userInfo.addProperty("level", 0);
+        userInfo.addProperty("exp", 0.0);
+        userInfo.addProperty("expToLevel", 0.0);
+        userInfo.addProperty("health", 20.0); // 默认健康值
+        userInfo.addProperty("maxHealth", 20.0); // 默认最大健康值
+        userInfo.addProperty("foodLevel", 20); // 默认饱食度
+        userInfo.addProperty("gameMode", "SURVIVAL"); // 离线玩家无法获取游戏模式，使用默认值
+        
+        // 离线玩家没有位置信息，使用默认位置
+        JsonObject location = new JsonObject();
+        location.addProperty("x", 0.0);
+        location.addProperty("y", 0.0);
+        location.addProperty("z", 0.0);
+        location.addProperty("world", "world");
+        location.addProperty("yaw", 0.0);
+        location.addProperty("pitch", 0.0);
+        userInfo.add("location", location);
+        
+        userInfo.addProperty("online", false);
+        
+        // 添加离线玩家的额外信息
+        userInfo.addProperty("firstPlayed", offlinePlayer.getFirstPlayed());
+        userInfo.addProperty("lastPlayed", offlinePlayer.getLastPlayed());
+        userInfo.addProperty("isOnline", false);
+        userInfo.addProperty("whitelisted", offlinePlayer.isWhitelisted());
+        userInfo.addProperty("banned", offlinePlayer.isBanned());
+        userInfo.addProperty("op", offlinePlayer.isOp());
+        
+        return new UserLookup(userInfo, offlinePlayer.getUniqueId(), false);
     }
     
-    private JsonArray getInventoryJson(PlayerInventory inventory) {
-        JsonArray items = new JsonArray();
+    private UserLookup buildOnlineUserLevel(PlayerSnapshot onlinePlayer) {
+        // 如果玩家在线，返回实时信息
+        JsonObject levelInfo = new JsonObject();
+        levelInfo.addProperty("username", onlinePlayer.name);
+        levelInfo.addProperty("level", onlinePlayer.level);
+        levelInfo.addProperty("exp", onlinePlayer.exp);
+        levelInfo.addProperty("expToLevel", onlinePlayer.expToLevel);
+        levelInfo.addProperty("totalExperience", onlinePlayer.totalExperience);
+        levelInfo.addProperty("online", true);
         
-        // 主背包物品 (0-35)
-        for (int i = 0; i < 36; i++) {
-            ItemStack item = inventory.getItem(i);
-            if (item != null && item.getType() != Material.AIR) {
-                items.add(getItemJson(item, i, "main"));
-            }
+        return new UserLookup(levelInfo, onlinePlayer.uniqueId, true);
+    }
+    
+    private UserLookup buildOfflineUserLevel(String username) {
+        // 如果玩家离线，尝试获取离线玩家信息
+        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(username);
+        if (!offlinePlayer.hasPlayedBefore()) {
+            return null;
         }
         
-        // 盔甲槽物品 (36-39)
-        ItemStack[] armor = inventory.getArmorContents();
-        for (int i = 0; i < armor.length; i++) {
-            if (armor[i] != null && armor[i].getType() != Material.AIR) {
-                items.add(getItemJson(armor[i], 36 + i, "armor"));
-            }
-        }
+        JsonObject levelInfo = new JsonObject();
+        levelInfo.addProperty("username", offlinePlayer.getName());
         
-        // 副手物品 (40)
-        ItemStack offHand = inventory.getItemInOffHand();
-        if (offHand != null && offHand.getType() != Material.AIR) {
-            items.add(getItemJson(offHand, 40, "offhand"));
+        // 在存储线程构建，不读取 Player；快照之后才上线的玩家同样按离线处理
+        levelInfo.addProperty("level", 0);
+        levelInfo.addProperty("exp", 0.0);
+        levelInfo.addProperty("expToLevel", 0.0);
+        levelInfo.addProperty("totalExperience", 0);
+        levelInfo.addProperty("online", false);
+        
+        // 添加离线玩家的额外信息
+        levelInfo.addProperty("firstPlayed", offlinePlayer.getFirstPlayed());
+        levelInfo.addProperty("lastPlayed", offlinePlayer.getLastPlayed());
+        levelInfo.addProperty("isOnline", false);
+        
+        return new UserLookup(levelInfo, offlinePlayer.getUniqueId(), false);
+    }
+    
+    private UserLookup buildOnlineUserLocation(PlayerSnapshot onlinePlayer) {
+        // 如果玩家在线，返回实时位置信息
+        JsonObject locationInfo = new JsonObject();
+        locationInfo.addProperty("username", onlinePlayer.name);
+        locationInfo.add("location", getLocationJson(onlinePlayer, false));
+        locationInfo.addProperty("world", onlinePlayer.world);
+        locationInfo.addProperty("biome", onlinePlayer.biome);
+        locationInfo.addProperty("online", true);
+        
+        return new UserLookup(locationInfo, onlinePlayer.uniqueId, true);
+    }
+    
+    private UserLookup buildOfflineUserLocation(String username) {
+        // 如果玩家离线，尝试获取离线玩家信息
+        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(username);
+        if (!offlinePlayer.hasPlayedBefore()) {
+            return null;
         }
         
-        return items;
+        JsonObject locationInfo = new JsonObject();
+        locationInfo.addProperty("username", offlinePlayer.getName());
+        
+        // 在存储线程构建，不读取 Player、Location 和方块；离线玩家没有位置信息，使用默认位置
+        JsonObject location = new JsonObject();
+        location.addProperty("x", 0.0);
+        location.addProperty("y", 0.0);
+        location.addProperty("z", 0.0);
+        location.addProperty("yaw", 0.0);
+        location.addProperty("pitch", 0.0);
+        locationInfo.add("location", location);
+        
+        locationInfo.addProperty("world", "world");
+        locationInfo.addProperty("biome", "PLAINS");
+        locationInfo.addProperty("online", false);
+        
+        // 添加离线玩家的额外信息
+        locationInfo.addProperty("firstPlayed", offlinePlayer.getFirstPlayed());
+        locationInfo.addProperty("lastPlayed", offlinePlayer.getLastPlayed());
+        locationInfo.addProperty("isOnline", false);
+        
+        return new UserLookup(locationInfo, offlinePlayer.getUniqueId(), false);
     }
     
-    private JsonObject getItemJson(ItemStack item, int slot, String slotType) {
-        JsonObject itemJson = new JsonObject();
-        itemJson.addProperty("slot", slot);
-        itemJson.addProperty("slotType", slotType);
-        itemJson.addProperty("type", item.getType().toString());
-        itemJson.addProperty("amount", item.getAmount());
-        itemJson.addProperty("displayName", item.hasItemMeta() && item.getItemMeta().hasDisplayName() 
-            ? item.getItemMeta().getDisplayName() 
-            : item.getType().toString());
-        
-        // 物品耐久度
-        if (item.getDurability() != 0) {
-            itemJson.addProperty("durability", item.getDurability());
-            itemJson.addProperty("maxDurability", item.getType().getMaxDurability());
+    private UserLookup buildOnlineUserInventory(PlayerSnapshot onlinePlayer) {
+        // 如果玩家在线，返回实时背包信息
+        JsonObject inventoryInfo = new JsonObject();
+        inventoryInfo.addProperty("username", onlinePlayer.name);
+        if (onlinePlayer.inventory != null) {
+            inventoryInfo.add("inventory", ItemSnapshot.toJson(onlinePlayer.inventory));
         }
+        inventoryInfo.addProperty("online", true);
         
-        // 附魔信息
-        if (item.hasItemMeta() && item.getItemMeta().hasEnchants()) {
-            JsonArray enchantments = new JsonArray();
-            Map<Enchantment, Integer> enchants = item.getEnchantments();
-            for (Map.Entry<Enchantment, Integer> entry : enchants.entrySet()) {
-                JsonObject enchant = new JsonObject();
-                enchant.addProperty("name", entry.getKey().getKey().getKey());
-                enchant.addProperty("level", entry.getValue());
-                enchantments.add(enchant);
-            }
-            itemJson.add("enchantments", enchantments);
+        return new UserLookup(inventoryInfo, onlinePlayer.uniqueId, true);
+    }
+    
+    private UserLookup buildOfflineUserInventory(String username) {
+        // 如果玩家离线，尝试获取离线玩家信息
+        OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(username);
+        if (!offlinePlayer.hasPlayedBefore()) {
+            return null;
         }
         
-        // 物品描述
-        if (item.hasItemMeta() && item.getItemMeta().hasLore()) {
-            JsonArray lore = new JsonArray();
-            for (String line : item.getItemMeta().getLore()) {
-                lore.add(line);
-            }
-            itemJson.add("lore", lore);
+        JsonObject inventoryInfo = new JsonObject();
+        inventoryInfo.addProperty("username", offlinePlayer.getName());
+        inventoryInfo.add("inventory", new JsonArray()); // 离线玩家无法获取实时背包
+        inventoryInfo.addProperty("online", false);
+        
+        // 添加离线玩家的额外信息
+        inventoryInfo.addProperty("firstPlayed", offlinePlayer.getFirstPlayed());
+        inventoryInfo.addProperty("lastPlayed", offlinePlayer.getLastPlayed());
+        inventoryInfo.addProperty("isOnline", false);
+        
+        return new UserLookup(inventoryInfo, offlinePlayer.getUniqueId(), false);
+    }
+    
+    /**
+     * @param withWorld 是否包含世界名（与离线玩家完整信息中的 location 格式一致）
+     */
+    private JsonObject getLocationJson(PlayerSnapshot snapshot, boolean withWorld) {
+        JsonObject loc = new JsonObject();
+        loc.addProperty("x", snapshot.x);
+        loc.addProperty("y", snapshot.y);
+        loc.addProperty("z", snapshot.z);
+        if (withWorld) {
+            loc.addProperty("world", snapshot.world);
         }
+        loc.addProperty("yaw", snapshot.yaw);
+        loc.addProperty("pitch", snapshot.pitch);
+        return loc;
+    }
+    
+    /**
+     * 查询中间结果：玩家JSON数据和用于统计在线时长的UUID
+     */
+    private static class UserLookup {
+        final JsonObject json;
+        final UUID playerId;
+        final boolean online;
         
-        return itemJson;
+        UserLookup(JsonObject json, UUID playerId, boolean online) {
+            this.json = json;
+            this.playerId = playerId;
+            this.online = online;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.httye.userinfoapi;
+
+import com.google.gson.JsonObject;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 世界负载采样器
+ * 每隔 world-sampling.interval 秒在主线程上统计一轮各世界的已加载区块数、按类型的实体数和方块实体数。
+ * 一轮统计按区块分摊到多个 tick，每个 tick 只在 world-sampling.budget-micros 的时间预算内处理，
+ * 统计完成后整体替换结果，接口只读取上一轮的结果
+ */
+public class WorldSampler {
+
+    private final UserInfoAPIPlugin plugin;
+    private final long intervalMillis;
+    private final long budgetNanos;
+    private BukkitTask task;
+
+    // 进行中的一轮统计，只在主线程上访问
+    private Round round;
+    private long nextRoundAt;
+
+    // 最近一轮完成的结果
+    private volatile Map<String, WorldStats> latest = Collections.emptyMap();
+    private volatile long completedAt;
+    private volatile int lastRoundTicks;
+    private volatile long lastRoundMicros;
+
+    public WorldSampler(UserInfoAPIPlugin plugin) {
+        this.plugin = plugin;
+        this.intervalMillis = Math.max(1, plugin.getConfig().getLong("world-sampling.interval", 60)) * 1000L;
+        this.budgetNanos = plugin.getConfig().getLong("world-sampling.budget-micros", 1000) * 1000L;
+    }
+
+    public void start() {
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }.runTaskTimer(plugin, 20L, 1L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        round = null;
+    }
+
+    /**
+     * 每个 tick 执行一次：没有进行中的统计且未到间隔时直接返回
+     */
+    private void tick() {
+        long now = System.currentTimeMillis();
+        if (round == null) {
+            if (now < nextRoundAt) {
+                return;
+            }
+            round = new Round(Bukkit.getWorlds());
+            nextRoundAt = now + intervalMillis;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        boolean finished;
+        try {
+            finished = round.process(deadline);
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("世界采样失败: " + e.getMessage());
+            round = null;
+            return;
+        }
+        round.ticks++;
+        round.nanos += System.nanoTime() - start;
+
+        if (finished) {
+            latest = Collections.unmodifiableMap(round.results);
+            completedAt = now;
+            lastRoundTicks = round.ticks;
+            lastRoundMicros = round.nanos / 1000;
+            round = null;
+        }
+    }
+
+    /**
+     * 各世界最近一轮的统计
+     */
+    public Map<String, WorldStats> getLatest() {
+        return latest;
+    }
+
+    /**
+     * 最近一轮的统计结果；尚未完成首轮统计时 worlds 为空
+     */
+    public JsonObject getStats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("sampledAt", completedAt);
+        stats.addProperty("intervalSeconds", intervalMillis / 1000);
+        stats.addProperty("roundTicks", lastRoundTicks);
+        stats.addProperty("roundMicros", lastRoundMicros);
+
+        JsonObject worlds = new JsonObject();
+        for (WorldStats world : latest.values()) {
+            worlds.add(world.name, world.toJson());
+        }
+        stats.add("worlds", worlds);
+        return stats;
+    }
+
+    /**
+     * 一轮统计的进度：逐个世界、逐个区块处理
+     */
+    private static class Round {
+        final List<World> worlds;
+        final Map<String, WorldStats> results = new LinkedHashMap<>();
+        int worldIndex;
+        Chunk[] chunks;
+        int chunkIndex;
+        WorldStats current;
+        int ticks;
+        long nanos;
+
+        Round(List<World> worlds) {
+            this.worlds = new ArrayList<>(worlds);
+        }
+
+        /**
+         * 在截止时间前尽量多处理区块，至少处理一个以保证进度；全部完成时返回 true
+         */
+        boolean process(long deadline) {
+            while (true) {
+                if (current == null) {
+                    if (worldIndex >= worlds.size()) {
+                        return true;
+                    }
+                    World world = worlds.get(worldIndex);
+                    current = new WorldStats(world.getName(), world.getEnvironment().name().toLowerCase(Locale.ROOT));
+                    current.players = world.getPlayers().size();
+                    chunks = world.getLoadedChunks();
+                    chunkIndex = 0;
+                }
+
+                while (chunkIndex < chunks.length) {
+                    Chunk chunk = chunks[chunkIndex++];
+                    // 区块可能在两个 tick 之间被卸载
+                    if (chunk.isLoaded()) {
+                        current.add(chunk);
+                    }
+                    if (System.nanoTime() >= deadline) {
+                        return false;
+                    }
+                }
+
+                results.put(current.name, current);
+                current = null;
+                chunks = null;
+                worldIndex++;
+            }
+        }
+    }
+
+    /**
+     * 单个世界的统计
+     */
+    public static class WorldStats {
+        private final String name;
+        private final String environment;
+        private int players;
+        private int chunks;
+        private int entities;
+        private int tileEntities;
+        private final Map<String, Integer> entitiesByType = new HashMap<>();
+
+        WorldStats(String name, String environment) {
+            this.name = name;
+            this.environment = environment;
+        }
+
+        void add(Chunk chunk) {
+            chunks++;
+            for (Entity entity : chunk.getEntities()) {
+                entities++;
+                entitiesByType.merge(entity.getType().name().toLowerCase(Locale.ROOT), 1, Integer::sum);
+            }
+            // 不创建方块状态快照，只计数
+            tileEntities += chunk.getTileEntities(false).length;
+        }
+
+        public String getName() { return name; }
+        public int getPlayers() { return players; }
+        public int getChunks() { return chunks; }
+        public int getEntities() { return entities; }
+        public int getTileEntities() { return tileEntities; }
+        public Map<String, Integer> getEntitiesByType() { return entitiesByType; }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("environment", environment);
+            json.addProperty("players", players);
+            json.addProperty("loadedChunks", chunks);
+            json.addProperty("entities", entities);
+            json.addProperty("tileEntities", tileEntities);
+
+            // 按数量从多到少
+            List<Map.Entry<String, Integer>> types = new ArrayList<>(entitiesByType.entrySet());
+            types.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+            JsonObject byType = new JsonObject();
+            for (Map.Entry<String, Integer> entry : types) {
+                byType.addProperty(entry.getKey(), entry.getValue());
+            }
+            json.add("entitiesByType", byType);
+            return json;
+        }
+    }
+}